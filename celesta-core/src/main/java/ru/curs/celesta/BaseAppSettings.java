@@ -2,7 +2,11 @@ package ru.curs.celesta;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.stream.Collectors;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -21,6 +25,7 @@ public abstract class BaseAppSettings {
     private final Properties properties;
 
     private final String scorePath;
+    private final boolean scoreParallelParsing;
     private final DBType dbType;
     private final String databaseConnection;
     private final boolean h2ReferentialIntegrity;
@@ -30,7 +35,26 @@ public abstract class BaseAppSettings {
     private final Logger logger;
     private final boolean skipDBUpdate;
     private final boolean forceDBInitialize;
+    private final int dbUpdateThreads;
     private final boolean logLogins;
+    private final boolean logInTransaction;
+    private final int connectionPoolMaxSize;
+    private final int connectionPoolMinIdle;
+    private final long connectionPoolBorrowTimeout;
+    private final long connectionPoolValidationIdleTime;
+    private final long connectionPoolIdleTimeout;
+    private final long connectionPoolMaxLifetime;
+    private final int statementCacheSize;
+    private final int permissionsCacheSize;
+    private final long permissionsCacheTtl;
+    private final int fetchSize;
+    private final int sequenceAllocationSize;
+    private final List<String> rowCacheTables;
+    private final int rowCacheSize;
+    private final long rowCacheTtl;
+    private final long mvRefreshInterval;
+    private final int mvInitChunkSize;
+    private final int mvInitThreads;
 
     {
         logger = Logger.getLogger("ru.curs.flute");
@@ -49,6 +73,7 @@ public abstract class BaseAppSettings {
         if (!scorePath.isEmpty()) {
             checkEntries(scorePath, "score.path", sb);
         }
+        scoreParallelParsing = Boolean.parseBoolean(properties.getProperty("score.parallel.parsing", "").trim());
 
         h2ReferentialIntegrity = Boolean.parseBoolean(properties.getProperty("h2.referential.integrity", "false"));
         final boolean h2InMemory = Boolean.parseBoolean(properties.getProperty("h2.in-memory", "false"));
@@ -101,7 +126,47 @@ public abstract class BaseAppSettings {
 
         skipDBUpdate = Boolean.parseBoolean(properties.getProperty("skip.dbupdate", "").trim());
         forceDBInitialize = Boolean.parseBoolean(properties.getProperty("force.dbinitialize", "").trim());
+        dbUpdateThreads = parseNonNegativeInt(properties, "dbupdate.threads", 1, sb);
         logLogins = Boolean.parseBoolean(properties.getProperty("log.logins", "").trim());
+        logInTransaction = Boolean.parseBoolean(properties.getProperty("log.in.transaction", "").trim());
+
+        connectionPoolMaxSize = parseNonNegativeInt(properties, "rdbms.connection.pool.max.size", 0, sb);
+        connectionPoolMinIdle = parseNonNegativeInt(properties, "rdbms.connection.pool.min.idle", 0, sb);
+        connectionPoolBorrowTimeout =
+                parseNonNegative(properties, "rdbms.connection.pool.borrow.timeout", 30_000, sb);
+        connectionPoolValidationIdleTime =
+                parseNonNegative(properties, "rdbms.connection.pool.validation.idle.time", 5_000, sb);
+        connectionPoolIdleTimeout =
+                parseNonNegative(properties, "rdbms.connection.pool.idle.timeout", 0, sb);
+        connectionPoolMaxLifetime =
+                parseNonNegative(properties, "rdbms.connection.pool.max.lifetime", 0, sb);
+        statementCacheSize = parseNonNegativeInt(properties, "rdbms.statement.cache.size", 0, sb);
+
+        permissionsCacheSize = parseNonNegativeInt(properties, "permissions.cache.size", 8192, sb);
+        if (permissionsCacheSize == 0) {
+            sb.append("permissions.cache.size should be positive.\n");
+        }
+        permissionsCacheTtl = parseNonNegative(properties, "permissions.cache.ttl", 20_000, sb);
+
+        fetchSize = parseNonNegativeInt(properties, "rdbms.fetch.size", 0, sb);
+        sequenceAllocationSize = parseNonNegativeInt(properties, "sequence.allocation.size", 0, sb);
+
+        rowCacheTables = Collections.unmodifiableList(
+                Arrays.stream(properties.getProperty("row.cache.tables", "").split(","))
+                        .map(String::trim)
+                        .filter(s -> !s.isEmpty())
+                        .collect(Collectors.toList()));
+        for (String tableName : rowCacheTables) {
+            if (tableName.indexOf('.') < 1 || tableName.indexOf('.') == tableName.length() - 1) {
+                sb.append(String.format("row.cache.tables entry should be in 'grain.table' form: %s%n", tableName));
+            }
+        }
+        rowCacheSize = parseNonNegativeInt(properties, "row.cache.size", 1000, sb);
+        rowCacheTtl = parseNonNegative(properties, "row.cache.ttl", 20_000, sb);
+
+        mvRefreshInterval = parseNonNegative(properties, "mv.refresh.interval", 5_000, sb);
+        mvInitChunkSize = parseNonNegativeInt(properties, "mv.init.chunk.size", 0, sb);
+        mvInitThreads = parseNonNegativeInt(properties, "mv.init.threads", 1, sb);
 
         if (sb.length() > 0) {
             throw new CelestaException(sb.toString());
@@ -109,6 +174,34 @@ public abstract class BaseAppSettings {
 
     }
 
+    private static long parseNonNegative(Properties properties, String propertyName, long defaultValue,
+                                         StringBuffer sb) {
+        String value = properties.getProperty(propertyName, "").trim();
+        if (value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            long result = Long.parseLong(value);
+            if (result >= 0) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        sb.append(propertyName).append(" should contain a non-negative integer.\n");
+        return defaultValue;
+    }
+
+    private static int parseNonNegativeInt(Properties properties, String propertyName, int defaultValue,
+                                           StringBuffer sb) {
+        long result = parseNonNegative(properties, propertyName, defaultValue, sb);
+        if (result > Integer.MAX_VALUE) {
+            sb.append(propertyName).append(" should not exceed ").append(Integer.MAX_VALUE).append(".\n");
+            return defaultValue;
+        }
+        return (int) result;
+    }
+
     protected static void checkEntries(String path, String propertyName, StringBuffer sb) {
         if (!path.isEmpty()) {
             for (String pathEntry : path.split(File.pathSeparator)) {
@@ -120,6 +213,15 @@ public abstract class BaseAppSettings {
         }
     }
 
+    /**
+     * Returns parameter value "Parse independent grains concurrently".
+     *
+     * @return
+     */
+    public boolean getScoreParallelParsing() {
+        return scoreParallelParsing;
+    }
+
     /**
      * Returns database type on the basis of JDBC connection string.
      *
@@ -156,6 +258,16 @@ public abstract class BaseAppSettings {
         return forceDBInitialize;
     }
 
+    /**
+     * Returns number of grains that are upgraded concurrently on the database upgrade phase
+     * ({@code 0} or {@code 1} means that grains are upgraded one by one).
+     *
+     * @return
+     */
+    public int getDbUpdateThreads() {
+        return dbUpdateThreads;
+    }
+
     /**
      * Returns parameter value "logging of log-ins and log-outs of users".
      *
@@ -165,6 +277,15 @@ public abstract class BaseAppSettings {
         return logLogins;
     }
 
+    /**
+     * Returns parameter value "writing of change log records within the transaction of the changes".
+     *
+     * @return
+     */
+    public boolean getLogInTransaction() {
+        return logInTransaction;
+    }
+
     /**
      * Returns parameter value "score.path".
      *
@@ -240,4 +361,162 @@ public abstract class BaseAppSettings {
         return h2Port;
     }
 
+    /**
+     * Returns maximum number of DB connections ({@code 0} means no limit).
+     *
+     * @return
+     */
+    public int getConnectionPoolMaxSize() {
+        return connectionPoolMaxSize;
+    }
+
+    /**
+     * Returns number of idle DB connections that are kept open.
+     *
+     * @return
+     */
+    public int getConnectionPoolMinIdle() {
+        return connectionPoolMinIdle;
+    }
+
+    /**
+     * Returns time in milliseconds to wait for a free DB connection.
+     *
+     * @return
+     */
+    public long getConnectionPoolBorrowTimeout() {
+        return connectionPoolBorrowTimeout;
+    }
+
+    /**
+     * Returns time in milliseconds after which an idle DB connection is validated.
+     *
+     * @return
+     */
+    public long getConnectionPoolValidationIdleTime() {
+        return connectionPoolValidationIdleTime;
+    }
+
+    /**
+     * Returns time in milliseconds after which an idle DB connection is closed
+     * ({@code 0} means never).
+     *
+     * @return
+     */
+    public long getConnectionPoolIdleTimeout() {
+        return connectionPoolIdleTimeout;
+    }
+
+    /**
+     * Returns maximum lifetime of a DB connection in milliseconds ({@code 0} means no limit).
+     *
+     * @return
+     */
+    public long getConnectionPoolMaxLifetime() {
+        return connectionPoolMaxLifetime;
+    }
+
+    /**
+     * Returns maximum number of prepared statements cached per DB connection ({@code 0} means no caching).
+     *
+     * @return
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * Returns maximum number of cached (user, table) permissions.
+     *
+     * @return
+     */
+    public int getPermissionsCacheSize() {
+        return permissionsCacheSize;
+    }
+
+    /**
+     * Returns "shelf life" of a cached permission in milliseconds ({@code 0} means forever).
+     *
+     * @return
+     */
+    public long getPermissionsCacheTtl() {
+        return permissionsCacheTtl;
+    }
+
+    /**
+     * Returns default number of rows fetched at once by cursors ({@code 0} means the JDBC driver's default).
+     *
+     * @return
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Returns maximal number of sequence values reserved by a single <em>next value</em> call
+     * ({@code 0} means that sequence values are not reserved).
+     *
+     * @return
+     */
+    public int getSequenceAllocationSize() {
+        return sequenceAllocationSize;
+    }
+
+    /**
+     * Returns names of the tables (in {@code grain.table} form) which records are cached by primary key.
+     *
+     * @return
+     */
+    public List<String> getRowCacheTables() {
+        return rowCacheTables;
+    }
+
+    /**
+     * Returns maximum number of cached records per table.
+     *
+     * @return
+     */
+    public int getRowCacheSize() {
+        return rowCacheSize;
+    }
+
+    /**
+     * Returns time in milliseconds a record is cached for since it is read
+     * ({@code 0} means until the record is modified via Celesta cursors).
+     *
+     * @return
+     */
+    public long getRowCacheTtl() {
+        return rowCacheTtl;
+    }
+
+    /**
+     * Returns period of refreshing the materialized views with deferred refresh in milliseconds
+     * ({@code 0} means that the views are not refreshed in the background).
+     *
+     * @return
+     */
+    public long getMvRefreshInterval() {
+        return mvRefreshInterval;
+    }
+
+    /**
+     * Returns number of table rows in the key chunks that a new materialized view is initialized by
+     * on the database upgrade phase ({@code 0} means that the view is initialized by a single statement).
+     *
+     * @return
+     */
+    public int getMvInitChunkSize() {
+        return mvInitChunkSize;
+    }
+
+    /**
+     * Returns number of key chunks of the table of a new materialized view that are aggregated concurrently.
+     *
+     * @return
+     */
+    public int getMvInitThreads() {
+        return mvInitThreads;
+    }
+
 }
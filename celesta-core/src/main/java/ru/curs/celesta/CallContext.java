@@ -11,9 +11,11 @@ import java.sql.SQLException;
 
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.WeakHashMap;
+import java.util.function.Supplier;
 
 /**
  * Call context containing a DB connection carrying a transaction and a user identifier.
@@ -26,6 +28,28 @@ public class CallContext implements ICallContext {
         CLOSED
     }
 
+    /**
+     * Work that is deferred until the end of the transaction of a call context.
+     */
+    public interface TransactionListener {
+        /**
+         * Is called right before the transaction is committed (including the implicit
+         * commit on context closing).
+         */
+        void beforeCommit();
+
+        /**
+         * Is called after the transaction is committed.
+         */
+        default void afterCommit() {
+        }
+
+        /**
+         * Is called after the transaction is rolled back.
+         */
+        void afterRollback();
+    }
+
     /**
      * Maximal number of accessors that can be opened within single context.
      */
@@ -50,6 +74,8 @@ public class CallContext implements ICallContext {
     private int dataAccessorsCount;
     private State state;
 
+    private final Map<Object, TransactionListener> transactionListeners = new LinkedHashMap<>();
+
     /**
      * Creates new not activated context.
      *
@@ -127,12 +153,14 @@ public class CallContext implements ICallContext {
      */
     public void commit() {
         if (state == State.ACTIVE) {
+            fireBeforeCommit();
             try {
                 conn.commit();
             } catch (SQLException e) {
                 throw new CelestaException(
                         String.format("Commit unsuccessful: %s", e.getMessage()), e);
             }
+            transactionListeners.values().forEach(TransactionListener::afterCommit);
         } else {
             throw new CelestaException("Not active context cannot be committed");
         }
@@ -150,10 +178,30 @@ public class CallContext implements ICallContext {
             } catch (SQLException e) {
                 throw new CelestaException(
                         String.format("Rollback unsuccessful: %s", e.getMessage()), e);
+            } finally {
+                transactionListeners.values().forEach(TransactionListener::afterRollback);
             }
         }
     }
 
+    /**
+     * Returns the transaction listener that is registered under the key, registering
+     * a new one if there is none. Listeners live as long as the context.
+     *
+     * @param key      listener key
+     * @param factory  listener factory
+     * @param <T>      listener type
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends TransactionListener> T getTransactionListener(Object key, Supplier<T> factory) {
+        return (T) transactionListeners.computeIfAbsent(key, k -> factory.get());
+    }
+
+    private void fireBeforeCommit() {
+        transactionListeners.values().forEach(TransactionListener::beforeCommit);
+    }
+
     /**
      * Returns Celesta instance.
      *
@@ -305,7 +353,15 @@ public class CallContext implements ICallContext {
         try {
             closeDataAccessors();
             if (conn != null) {
-                conn.close();
+                try {
+                    fireBeforeCommit();
+                } catch (RuntimeException e) {
+                    rollback();
+                    throw e;
+                } finally {
+                    conn.close();
+                }
+                transactionListeners.values().forEach(TransactionListener::afterCommit);
             }
             if (celesta != null) {
                 celesta.getProfiler().logCall(this);
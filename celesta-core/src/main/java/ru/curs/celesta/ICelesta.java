@@ -3,6 +3,7 @@ package ru.curs.celesta;
 import ru.curs.celesta.dbutils.ILoggingManager;
 import ru.curs.celesta.dbutils.IPermissionManager;
 import ru.curs.celesta.dbutils.IProfiler;
+import ru.curs.celesta.dbutils.RowCache;
 import ru.curs.celesta.dbutils.adaptors.DBAdaptor;
 import ru.curs.celesta.event.TriggerDispatcher;
 import ru.curs.celesta.score.Score;
@@ -71,4 +72,11 @@ public interface ICelesta extends AutoCloseable {
      */
     DBAdaptor getDBAdaptor();
 
+    /**
+     * Returns a {@link RowCache} of this celesta instance.
+     *
+     * @return a row cache of this celesta instance.
+     */
+    RowCache getRowCache();
+
 }
@@ -40,4 +40,11 @@ public class SystemCallContext extends CallContext {
         this();
         activate(celesta, IProfiler.NO_LOG);
     }
+
+    @Override
+    public CallContext getCopy() {
+        SystemCallContext cc = new SystemCallContext();
+        cc.activate(getCelesta(), getProcName());
+        return cc;
+    }
 }
@@ -35,11 +35,21 @@
 
 package ru.curs.celesta.dbutils;
 
+import java.lang.ref.WeakReference;
 import java.sql.*;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -89,7 +99,9 @@ public abstract class BasicCursor extends BasicDataAccessor {
                 }
                 return BasicCursor.this.fromTerm;
             },
-            () -> BasicCursor.this.qmaker.getWhereTerm(),
+            () -> BasicCursor.this.rangeFrom == null && BasicCursor.this.rangeTo == null
+                    ? BasicCursor.this.qmaker.getWhereTerm()
+                    : BasicCursor.this.qmaker.getRangeWhereTerm(BasicCursor.this.rangeFrom, BasicCursor.this.rangeTo),
             () -> BasicCursor.this.getOrderBy(),
             () -> BasicCursor.this.offset,
             () -> BasicCursor.this.rowCount,
@@ -231,7 +243,14 @@ public abstract class BasicCursor extends BasicDataAccessor {
     private long offset = 0;
     private long navigationOffset = 0;
     private long rowCount = 0;
+    private int fetchSize = -1;
+    // result set column indices by statements, the statements closed by the holders are dropped with GC
+    private final Map<Statement, int[]> parsedColumnIndices = new WeakHashMap<>();
+    private Calendar utcCalendar;
     private Expr complexFilter;
+    // bounds of the keyset range of a chunk read by parallelStream(...)
+    private Object[] rangeFrom;
+    private Object[] rangeTo;
 
     private final WhereTermsMaker qmaker = new WhereTermsMaker(new WhereMakerParamsProvider() {
 
@@ -359,6 +378,7 @@ public abstract class BasicCursor extends BasicDataAccessor {
     protected void closeInternal() {
         super.closeInternal();
         closeStatements(set, forwards, backwards, here, first, last, count, position);
+        parsedColumnIndices.clear();
     }
 
     final Map<String, AbstractFilter> getFilters() {
@@ -501,12 +521,13 @@ public abstract class BasicCursor extends BasicDataAccessor {
             throw new PermissionDeniedException(callContext(), meta(), Action.READ);
         }
 
-        PreparedStatement ps = set.getStatement(_currentValues(), 0);
+        PreparedStatement ps = set.getStatement(getSetValues(), 0);
         boolean result;
         try {
             if (cursor != null) {
                 cursor.close();
             }
+            ps.setFetchSize(getFetchSize());
             cursor = ps.executeQuery();
             result = cursor.next();
             if (result) {
@@ -518,6 +539,20 @@ public abstract class BasicCursor extends BasicDataAccessor {
         return result;
     }
 
+    private Object[] getSetValues() {
+        if (rangeFrom == null && rangeTo == null) {
+            return _currentValues();
+        }
+        List<Object> values = new ArrayList<>();
+        if (rangeFrom != null) {
+            values.addAll(Arrays.asList(rangeFrom));
+        }
+        if (rangeTo != null) {
+            values.addAll(Arrays.asList(rangeTo));
+        }
+        return values.toArray();
+    }
+
     /**
      * The same as navigate("-").
      *
@@ -981,6 +1016,28 @@ public abstract class BasicCursor extends BasicDataAccessor {
         closeSet();
     }
 
+    /**
+     * Sets number of rows fetched from the DB at once when iterating over the data set.
+     *
+     * @param fetchSize  fetch size ({@code 0} means the JDBC driver's default)
+     */
+    public final void setFetchSize(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new CelestaException("Negative fetch size (%d) in setFetchSize(...) call", fetchSize);
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Returns number of rows fetched from the DB at once when iterating over the data set
+     * (if not set for the cursor, the default one of Celesta instance).
+     *
+     * @return
+     */
+    public final int getFetchSize() {
+        return fetchSize < 0 ? db().getFetchSize() : fetchSize;
+    }
+
     /**
      * Resets filters and sorting.
      */
@@ -1128,6 +1185,346 @@ public abstract class BasicCursor extends BasicDataAccessor {
         return result;
     }
 
+    /**
+     * Returns a stream of snapshots of the records in the filtered and sorted data set.
+     * <p>
+     * The stream iterates over this cursor, so the cursor buffer is changed.
+     *
+     * @return
+     */
+    public final Stream<CursorRow> stream() {
+        List<String> columnNames = Collections.unmodifiableList(new ArrayList<>(meta().getColumns().keySet()));
+        CursorIterator<BasicCursor> records = new CursorIterator<>(this);
+        Iterator<CursorRow> rows = new Iterator<CursorRow>() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public CursorRow next() {
+                return new CursorRow(columnNames, records.next()._currentValues());
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+    }
+
+    /**
+     * Returns a stream of snapshots of the records in the filtered and sorted data set that are read
+     * concurrently by the given number of chunks.
+     * <p>
+     * The data set is split into consecutive keyset ranges of the sort order (which ends with the primary key).
+     * Each range is read by a cursor copy in a separate call context, i.e. on a separate connection
+     * and in a separate transaction, in a thread of a dedicated executor. No more ranges are read at a time
+     * than the connection pool can lend besides the connection of this cursor, the call context of a range
+     * is opened when the range is started. The ranges are merged in the order of the data set by the thread
+     * that consumes the stream. A data set without a primary key is read as a single range.
+     * <p>
+     * The bounds of the ranges are found in the transaction of this cursor, while the records are read
+     * in other transactions. So, unlike {@link #stream()}, the stream doesn't contain the changes that aren't
+     * committed in the transaction of this cursor: they should be committed before the call.
+     * <p>
+     * The stream should be closed if it is not consumed to the end. Otherwise the reading of the started
+     * ranges is cancelled as soon as the stream is garbage collected, or if the stream isn't read
+     * for five minutes (the stream fails then).
+     *
+     * @param chunks  number of ranges
+     * @return
+     */
+    public final Stream<CursorRow> parallelStream(int chunks) {
+        if (chunks < 1) {
+            throw new CelestaException("Invalid number of chunks (%d) in parallelStream(...) call", chunks);
+        }
+        List<Object[]> bounds = getChunkBounds(chunks);
+        if (bounds.size() < 2) {
+            return Stream.empty();
+        }
+        // the filters and the order of the cursor at the moment of the call are used by all the ranges
+        BasicCursor template = _getBufferCopy(callContext(), null);
+        template.copyFiltersFrom(this);
+        template.copyOrderFrom(this);
+        template.setFetchSize(getFetchSize());
+
+        int threads = bounds.size() - 1;
+        int maxPoolSize = callContext().getCelesta().getConnectionPool().getMaxPoolSize();
+        if (maxPoolSize > 0) {
+            threads = Math.min(threads, Math.max(maxPoolSize - 1, 1));
+        }
+        ChunkRows rows = new ChunkRows(template, fields.isEmpty() ? null : new ArrayList<>(fields), bounds, threads);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false)
+                .onClose(rows::close);
+    }
+
+    /**
+     * Returns the values of the first records of the ranges of {@link #parallelStream(int)}
+     * followed by the values of the record next to the last range ({@code null} if there's no such record).
+     */
+    private List<Object[]> getChunkBounds(int chunks) {
+        List<Object[]> result = new ArrayList<>();
+        long available = Math.max(0, count() - offset);
+        final long total = rowCount > 0 ? Math.min(available, rowCount) : available;
+        if (total == 0) {
+            return result;
+        }
+        if (!(meta() instanceof TableElement) || ((TableElement) meta()).getPrimaryKey().isEmpty()) {
+            // the sort order is not unique, keyset ranges can't be used
+            result.add(null);
+            result.add(null);
+            return result;
+        }
+        final long chunkSize = (total + chunks - 1) / chunks;
+        BasicCursor c = _getBufferCopy(callContext(), null);
+        try {
+            c.copyFiltersFrom(this);
+            c.copyOrderFrom(this);
+            // navigation with an offset moves by the offset of records
+            boolean found = c.tryFirst() && (offset == 0 || c.navigate(">", offset));
+            for (long position = 0; found && position < total; position += chunkSize) {
+                result.add(c._currentValues());
+                found = c.navigate(">", Math.min(chunkSize, total - position));
+            }
+            result.add(found && rowCount > 0 ? c._currentValues() : null);
+        } finally {
+            c.close();
+        }
+        return result;
+    }
+
+    private BasicCursor createChunkCursor(List<String> fieldList, Object[] from, Object[] to) {
+        CallContext context = callContext().getCopy();
+        try {
+            BasicCursor c = _getBufferCopy(context, fieldList);
+            c.copyFiltersFrom(this);
+            c.copyOrderFrom(this);
+            c.setFetchSize(getFetchSize());
+            if (from != null) {
+                c.limit(0, 0);
+                c.rangeFrom = from;
+                c.rangeTo = to;
+            }
+            return c;
+        } catch (RuntimeException e) {
+            context.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Records of {@link #parallelStream(int)}: starts the readers of the ranges, keeping the given number
+     * of them ahead of the consumed one, and merges their records in the order of the ranges.
+     */
+    private static final class ChunkRows implements Iterator<CursorRow> {
+        private final BasicCursor template;
+        private final List<String> fieldList;
+        private final List<Object[]> bounds;
+        private final int threads;
+        private final ThreadPoolExecutor executor;
+        private final List<ChunkReader> readers = new ArrayList<>();
+        private int current;
+        private CursorRow next;
+        private boolean closed;
+
+        ChunkRows(BasicCursor template, List<String> fieldList, List<Object[]> bounds, int threads) {
+            this.template = template;
+            this.fieldList = fieldList;
+            this.bounds = bounds;
+            this.threads = threads;
+            AtomicInteger threadNumber = new AtomicInteger();
+            executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    r -> {
+                        Thread t = new Thread(r, "celesta-cursor-stream-" + threadNumber.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            // the threads of an abandoned stream don't linger
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+        private int chunkCount() {
+            return bounds.size() - 1;
+        }
+
+        private void startReaders() {
+            int count = Math.min(current + threads, chunkCount());
+            while (readers.size() < count) {
+                int k = readers.size();
+                ChunkReader reader = new ChunkReader(
+                        template.createChunkCursor(fieldList, bounds.get(k), bounds.get(k + 1)), this);
+                readers.add(reader);
+                executor.execute(reader);
+            }
+            if (readers.size() == chunkCount()) {
+                executor.shutdown();
+                closeTemplate();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            try {
+                while (!closed && current < chunkCount()) {
+                    startReaders();
+                    CursorRow row = readers.get(current).take();
+                    if (row != null) {
+                        next = row;
+                        return true;
+                    }
+                    current++;
+                }
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+            close();
+            return false;
+        }
+
+        @Override
+        public CursorRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            CursorRow result = next;
+            next = null;
+            return result;
+        }
+
+        void close() {
+            if (!closed) {
+                closed = true;
+                readers.forEach(ChunkReader::cancel);
+                executor.shutdown();
+                closeTemplate();
+            }
+        }
+
+        private void closeTemplate() {
+            if (!template.isClosed()) {
+                template.close();
+            }
+        }
+    }
+
+    /**
+     * Reader of a range of {@link #parallelStream(int)}: the records are read by the executor
+     * and handed over to the stream through a bounded queue.
+     */
+    private static final class ChunkReader implements Runnable {
+        private static final int CAPACITY = 1000;
+        private static final long TIMEOUT = 100;
+        private static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toNanos(5);
+        private static final CursorRow END = new CursorRow(Collections.emptyList(), new Object[0]);
+
+        private final BasicCursor cursor;
+        // the stream is referenced weakly, so the reader stops when the abandoned stream is garbage collected
+        private final WeakReference<Object> owner;
+        private final BlockingQueue<CursorRow> queue = new ArrayBlockingQueue<>(CAPACITY);
+        private volatile boolean cancelled;
+        private volatile boolean finished;
+        private volatile RuntimeException error;
+
+        ChunkReader(BasicCursor cursor, Object owner) {
+            this.cursor = cursor;
+            this.owner = new WeakReference<>(owner);
+        }
+
+        @Override
+        public void run() {
+            try (CallContext context = cursor.callContext()) {
+                if (!cancelled) {
+                    Iterator<CursorRow> rows = cursor.stream().iterator();
+                    while (rows.hasNext() && offer(rows.next())) {
+                        // the row is queued
+                    }
+                }
+            } catch (RuntimeException e) {
+                error = e;
+            } finally {
+                offer(END);
+                finished = true;
+            }
+        }
+
+        private boolean offer(CursorRow row) {
+            long idleSince = System.nanoTime();
+            try {
+                while (!cancelled) {
+                    if (queue.offer(row, TIMEOUT, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                    if (owner.get() == null) {
+                        cancelled = true;
+                    } else if (System.nanoTime() - idleSince > IDLE_TIMEOUT) {
+                        error = new CelestaException("Parallel stream of %s isn't read for %d minutes, "
+                                + "its reading is cancelled", cursor._objectName(),
+                                TimeUnit.NANOSECONDS.toMinutes(IDLE_TIMEOUT));
+                        cancelled = true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        /**
+         * Returns the next record of the range, {@code null} at the end of the range. The wait is managed,
+         * so it doesn't starve a fork/join pool the stream may be consumed in.
+         */
+        CursorRow take() {
+            RowTaker taker = new RowTaker();
+            try {
+                ForkJoinPool.managedBlock(taker);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CelestaException("Interrupted while reading %s", cursor._objectName());
+            }
+            if (taker.row == END) {
+                if (error != null) {
+                    throw error;
+                }
+                return null;
+            }
+            return taker.row;
+        }
+
+        private final class RowTaker implements ForkJoinPool.ManagedBlocker {
+            private CursorRow row;
+
+            @Override
+            public boolean block() throws InterruptedException {
+                while (row == null) {
+                    row = queue.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+                    if (row == null && finished) {
+                        // the reader has given up offering the end of the range
+                        row = queue.poll();
+                        if (row == null) {
+                            row = END;
+                        }
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                if (row == null) {
+                    row = queue.poll();
+                }
+                return row != null;
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+    }
+
     /**
      * Method that returns total count of rows that precede the current
      * one in the set. This method is intended for internal use by GridDriver.
@@ -1274,6 +1671,93 @@ public abstract class BasicCursor extends BasicDataAccessor {
         return _getFieldValue(name);
     }
 
+    /**
+     * Sets value of a field by its ordinal number in the order of columns declaration.
+     *
+     * @param index  field index (starting from 0)
+     * @param value  field value
+     */
+    public final void setValue(int index, Object value) {
+        validateColumnIndex(index);
+        _setFieldValue(index, value);
+    }
+
+    /**
+     * Returns value of a field by its ordinal number in the order of columns declaration.
+     *
+     * @param index  field index (starting from 0)
+     * @return
+     */
+    public final Object getValue(int index) {
+        validateColumnIndex(index);
+        return _getFieldValue(index);
+    }
+
+    private void validateColumnIndex(int index) {
+        if (index < 0 || index >= meta().getColumns().size()) {
+            throw new CelestaException("No column with index %d exists in table %s.", index, _objectName());
+        }
+    }
+
+    /**
+     * Returns indices of the cursor columns in the result set, followed by the index of
+     * the record version column ({@code 0} for the columns that are absent or are not read
+     * by the cursor). The indices are resolved once per statement, so a cursor alternating
+     * between its set, navigation and get statements doesn't resolve them again.
+     *
+     * @param rs  result set
+     * @return
+     * @throws SQLException  on metadata access error
+     */
+    protected final int[] resultColumnIndices(ResultSet rs) throws SQLException {
+        Statement stmt = rs.getStatement();
+        int[] parsed = stmt == null ? null : parsedColumnIndices.get(stmt);
+        if (parsed != null) {
+            return parsed;
+        }
+        ResultSetMetaData md = rs.getMetaData();
+        Map<String, Integer> labels = new HashMap<>();
+        Map<String, Integer> upperCaseLabels = new HashMap<>();
+        for (int i = md.getColumnCount(); i > 0; i--) {
+            String label = md.getColumnLabel(i);
+            labels.put(label, i);
+            upperCaseLabels.put(label.toUpperCase(), i);
+        }
+
+        Set<String> names = meta().getColumns().keySet();
+        int[] result = new int[names.size() + 1];
+        int i = 0;
+        for (String name : names) {
+            result[i++] = inRec(name) ? findLabel(labels, upperCaseLabels, name) : 0;
+        }
+        result[i] = findLabel(labels, upperCaseLabels, "recversion");
+
+        if (stmt != null) {
+            parsedColumnIndices.put(stmt, result);
+        }
+        return result;
+    }
+
+    private static int findLabel(Map<String, Integer> labels, Map<String, Integer> upperCaseLabels, String name) {
+        Integer result = labels.get(name);
+        if (result == null) {
+            result = upperCaseLabels.get(name.toUpperCase());
+        }
+        return result == null ? 0 : result;
+    }
+
+    /**
+     * Returns calendar of UTC time zone for reading time stamps with time zone.
+     *
+     * @return
+     */
+    protected final Calendar utcCalendar() {
+        if (utcCalendar == null) {
+            utcCalendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        }
+        return utcCalendar;
+    }
+
     protected final boolean inRec(String field) {
         return fieldsForStatement.isEmpty() || fieldsForStatement.contains(field);
     }
@@ -1333,6 +1817,10 @@ public abstract class BasicCursor extends BasicDataAccessor {
 
     protected abstract Object _getFieldValue(String name);
 
+    protected abstract void _setFieldValue(int index, Object value);
+
+    protected abstract Object _getFieldValue(int index);
+
     protected abstract void _parseResult(ResultSet rs) throws SQLException;
 
     // CHECKSTYLE:ON
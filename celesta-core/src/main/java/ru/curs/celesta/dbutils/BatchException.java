@@ -0,0 +1,32 @@
+package ru.curs.celesta.dbutils;
+
+import ru.curs.celesta.CelestaException;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when some records of a cursor batch could not be written to the DB.
+ */
+public class BatchException extends CelestaException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient List<Object[]> failedKeyValues;
+
+    public BatchException(String message, List<Object[]> failedKeyValues, Throwable cause) {
+        super(message, cause);
+        this.failedKeyValues = Collections.unmodifiableList(failedKeyValues);
+    }
+
+    /**
+     * Returns primary key values of the records that failed, in the order
+     * they were added to the batch.
+     *
+     * @return
+     */
+    public List<Object[]> getFailedKeyValues() {
+        return failedKeyValues;
+    }
+
+}
@@ -48,10 +48,10 @@ import ru.curs.celesta.CelestaException;
 import ru.curs.celesta.PermissionDeniedException;
 import ru.curs.celesta.dbutils.filter.In;
 import ru.curs.celesta.dbutils.filter.value.FieldsLookup;
-import ru.curs.celesta.dbutils.stmt.MaskedStatementHolder;
 import ru.curs.celesta.dbutils.stmt.ParameterSetter;
 import ru.curs.celesta.dbutils.stmt.PreparedStatementHolderFactory;
 import ru.curs.celesta.dbutils.stmt.PreparedStmtHolder;
+import ru.curs.celesta.dbutils.stmt.PreparedStmtHolderCache;
 import ru.curs.celesta.dbutils.term.WhereTerm;
 import ru.curs.celesta.dbutils.term.WhereTermsMaker;
 import ru.curs.celesta.event.TriggerType;
@@ -62,17 +62,24 @@ import ru.curs.celesta.score.*;
  */
 public abstract class Cursor extends BasicCursor implements InFilterSupport {
 
+    /**
+     * Number of records that are sent to the DB at once in batch mode by default.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * Maximum number of statements of different shapes (nulls and update masks) that are kept prepared
+     * for inserts and for updates.
+     */
+    private static final int MAX_STATEMENT_SHAPES = 8;
+
     private Table meta = null;
     final CursorGetHelper getHelper;
     private InFilterHolder inFilterHolder;
 
-    final MaskedStatementHolder insert = PreparedStatementHolderFactory.createInsertHolder(meta(), db(), conn());
-
-    boolean[] updateMask = null;
-    boolean[] nullUpdateMask = null;
-    final PreparedStmtHolder update = PreparedStatementHolderFactory.createUpdateHolder(
-            meta(), db(), conn(), () -> updateMask, () -> nullUpdateMask
-    );
+    private final PreparedStmtHolderCache inserts = new PreparedStmtHolderCache(MAX_STATEMENT_SHAPES);
+    private final PreparedStmtHolderCache insertsReturning = new PreparedStmtHolderCache(MAX_STATEMENT_SHAPES);
+    private final PreparedStmtHolderCache updates = new PreparedStmtHolderCache(MAX_STATEMENT_SHAPES);
 
     final PreparedStmtHolder delete = new PreparedStmtHolder() {
 
@@ -80,7 +87,8 @@ public abstract class Cursor extends BasicCursor implements InFilterSupport {
         protected PreparedStatement initStatement(List<ParameterSetter> program) {
             WhereTerm where = WhereTermsMaker.getPKWhereTerm(meta());
             where.programParams(program, db());
-            return db().getDeleteRecordStatement(conn(), meta(), where.getWhere());
+            return db().getMemoizedStatement(conn(), Arrays.asList("delete", meta()), program,
+                    (c, p) -> db().getDeleteRecordStatement(c, meta(), where.getWhere()));
         }
 
     };
@@ -98,6 +106,15 @@ public abstract class Cursor extends BasicCursor implements InFilterSupport {
 
     private Cursor xRec;
     private int recversion;
+    private CursorBatch batch;
+
+    /*
+     * Fields assigned by the setters of the generated cursor since the buffer was synchronized
+     * with xRec. It's null until the first setter call, so the records of cursors generated without
+     * the tracking are always read before the update.
+     */
+    private BitSet modifiedFields;
+    private boolean modifiedFieldsKnown;
 
     public Cursor(CallContext context) {
         super(context);
@@ -172,7 +189,124 @@ public abstract class Cursor extends BasicCursor implements InFilterSupport {
         if (xRec != null) {
             xRec.close();
         }
-        closeStatements(getHelper.getHolder(), insert, delete, update);
+        if (batch != null) {
+            batch.close();
+            batch = null;
+        }
+        closeStatements(getHelper.getHolder(), delete);
+        inserts.close();
+        insertsReturning.close();
+        updates.close();
+    }
+
+    /**
+     * Returns the holder of the insert statement for the nulls mask of the values.
+     *
+     * @param values  field values
+     * @return
+     */
+    PreparedStmtHolder insertHolder(Object[] values) {
+        return inserts.get(nullsMaskKey(values),
+                () -> PreparedStatementHolderFactory.createInsertHolder(meta(), db(), conn()));
+    }
+
+    private PreparedStmtHolder insertReturningHolder(Object[] values) {
+        return insertsReturning.get(nullsMaskKey(values),
+                () -> PreparedStatementHolderFactory.createInsertReturningHolder(meta(), db(), conn()));
+    }
+
+    /**
+     * Returns the holder of the update statement for the masks.
+     *
+     * @param updateMask  mask of unchanged fields
+     * @param nullsMask  mask of null fields
+     * @return
+     */
+    PreparedStmtHolder updateHolder(boolean[] updateMask, boolean[] nullsMask) {
+        String key = PreparedStatementHolderFactory.maskKey(updateMask) + ':'
+                + PreparedStatementHolderFactory.maskKey(nullsMask);
+        return updates.get(key, () -> PreparedStatementHolderFactory.createUpdateHolder(
+                meta(), db(), conn(), () -> updateMask, () -> nullsMask));
+    }
+
+    private static String nullsMaskKey(Object[] values) {
+        char[] result = new char[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = values[i] == null ? '1' : '0';
+        }
+        return new String(result);
+    }
+
+    /**
+     * Switches the cursor to batch mode with {@link #DEFAULT_BATCH_SIZE}.
+     *
+     * @see #beginBatch(int)
+     */
+    public final void beginBatch() {
+        beginBatch(DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Switches the cursor to batch mode. In this mode {@link #insert()}, {@link #update()}
+     * and {@link #delete()} fire pre-triggers immediately, but the records are collected
+     * into JDBC batches and sent to the DB when {@code batchSize} records are collected,
+     * on {@link #flushBatch()} or on {@link #endBatch()}. Log records and post-triggers
+     * are deferred until the records are sent.
+     * <p>
+     * In batch mode {@link #tryInsert()} does not check whether the record exists,
+     * values generated by the DB are not read back to the cursor and {@link #update()}
+     * relies on the values read to the cursor last (see {@link #getXRec()}).
+     * Records that were not sent are discarded when the cursor is closed.
+     *
+     * @param batchSize  maximum number of records to collect before sending them
+     */
+    public final void beginBatch(int batchSize) {
+        if (batchSize < 1) {
+            throw new CelestaException("Batch size should be positive, got %d.", batchSize);
+        }
+        if (batch != null) {
+            throw new CelestaException("Cursor %s is already in batch mode.", _objectName());
+        }
+        batch = new CursorBatch(this, batchSize);
+    }
+
+    /**
+     * Sends the collected records to the DB.
+     *
+     * @throws BatchException  if some of the records failed. Collected records that
+     *                         were not sent are discarded, the transaction should be
+     *                         rolled back.
+     */
+    public final void flushBatch() {
+        if (batch != null) {
+            batch.flush();
+        }
+    }
+
+    /**
+     * Sends the collected records to the DB and switches batch mode off.
+     *
+     * @throws BatchException  if some of the records failed
+     */
+    public final void endBatch() {
+        if (batch == null) {
+            return;
+        }
+        try {
+            batch.flush();
+        } finally {
+            batch.close();
+            batch = null;
+        }
+    }
+
+    /**
+     * Whether the cursor is in batch mode.
+     *
+     * @return
+     */
+    public final boolean isInBatch() {
+        return batch != null;
     }
 
     /**
@@ -202,30 +336,35 @@ public abstract class Cursor extends BasicCursor implements InFilterSupport {
         }
 
         preInsert();
-        //TODO: одно из самых нуждающихся в переделке мест.
-        // на один insert--2 select-а, что вызывает справедливое возмущение тех, кто смотрит логи
-        // 1) Если у нас автоинкремент и автоинкрементное поле в None, то первый select не нужен
-        // 2) Хорошо бы результат инсерта выдавать в одной операции как resultset
+        boolean sequenceValuesAllocated = allocateSequenceValues();
+        invalidateCachedRow();
+        if (batch != null) {
+            batch.add(Action.INSERT, null);
+            if (meta().isVersioned()) {
+                recversion = 1;
+            }
+            this.initXRec();
+            return true;
+        }
+        if (db().supportsInsertReturning()) {
+            return tryInsertReturning();
+        }
+        // на один insert--2 select-а (для СУБД, не умеющих вернуть результат insert-а
+        // в одной операции как resultset)
         PreparedStatement g = getHelper.prepareGet(recversion, _currentKeyValues());
         try {
             ResultSet rs = g.executeQuery();
             try {
                 if (rs.next()) {
-                    getXRec()._parseResult(rs);
-                    /*
-                     * transmit recversion from xRec to rec for possible future
-                     * record update
-                     */
-                    if (getRecversion() == 0) {
-                        setRecversion(xRec.getRecversion());
-                    }
+                    parseExistingRecord(rs);
                     return false;
                 }
             } finally {
                 rs.close();
             }
 
-            PreparedStatement ins = insert.getStatement(_currentValues(), recversion);
+            Object[] values = _currentValues();
+            PreparedStatement ins = insertHolder(values).getStatement(values, recversion);
 
             ILoggingManager loggingManager = callContext().getLoggingManager();
             if (ins.execute()) {
@@ -236,15 +375,18 @@ public abstract class Cursor extends BasicCursor implements InFilterSupport {
                 _setAutoIncrement(id);
                 ret.close();
             } else {
-                // TODO: get rid of "getCurrentIdent" call where possible
-                // e. g. using INSERT.. OUTPUT clause for MSSQL
+                // Only the adaptors that can't insert and return the record in a single statement
+                // (Oracle, Firebird) get here, so the ident is read by a separate query.
                 loggingManager.log(this, Action.INSERT);
-                for (Column<?> c : meta().getColumns().values()) {
-                    if (c instanceof IntegerColumn) {
-                        IntegerColumn ic = (IntegerColumn) c;
-                        if (ic.getSequence() != null) {
-                            _setAutoIncrement(db().getCurrentIdent(conn(), meta()));
-                            break;
+                // sequence values allocated before the insert are already in the cursor
+                if (!sequenceValuesAllocated) {
+                    for (Column<?> c : meta().getColumns().values()) {
+                        if (c instanceof IntegerColumn) {
+                            IntegerColumn ic = (IntegerColumn) c;
+                            if (ic.getSequence() != null) {
+                                _setAutoIncrement(db().getCurrentIdent(conn(), meta()));
+                                break;
+                            }
                         }
                     }
                 }
@@ -261,6 +403,72 @@ public abstract class Cursor extends BasicCursor implements InFilterSupport {
         return true;
     }
 
+    /**
+     * Fills empty sequence-based fields with values of the blocks reserved in the DB,
+     * see {@link ru.curs.celesta.dbutils.adaptors.DBAdaptor#nextAllocatedSequenceValue}.
+     *
+     * @return  {@code true} if a field was filled
+     */
+    private boolean allocateSequenceValues() {
+        boolean result = false;
+        Object[] values = null;
+        int i = 0;
+        for (Column<?> c : meta().getColumns().values()) {
+            if (c instanceof IntegerColumn) {
+                SequenceElement s = ((IntegerColumn) c).getSequence();
+                if (s != null && db().isSequenceAllocated(s)) {
+                    if (values == null) {
+                        values = _currentValues();
+                    }
+                    if (values[i] == null) {
+                        setValue(i, (int) db().nextAllocatedSequenceValue(conn(), s));
+                        result = true;
+                    }
+                }
+            }
+            i++;
+        }
+        return result;
+    }
+
+    /**
+     * Inserts the record and reads it back (along with the record version and the
+     * sequence-generated values) within a single statement.
+     */
+    private boolean tryInsertReturning() {
+        try {
+            Object[] values = _currentValues();
+            PreparedStatement ins = insertReturningHolder(values).getStatement(values, recversion);
+            try (ResultSet rs = ins.executeQuery()) {
+                if (rs.next()) {
+                    _parseResult(rs);
+                } else {
+                    // the record already exists: read it to xRec
+                    getHelper.internalGet(this::parseExistingRecord, Optional.empty(),
+                            recversion, _currentKeyValues());
+                    return false;
+                }
+            }
+        } catch (SQLException e) {
+            throw new CelestaException(e.getMessage());
+        }
+
+        callContext().getLoggingManager().log(this, Action.INSERT);
+        postInsert();
+        return true;
+    }
+
+    private void parseExistingRecord(ResultSet rs) throws SQLException {
+        getXRec()._parseResult(rs);
+        /*
+         * transmit recversion from xRec to rec for possible future
+         * record update
+         */
+        if (getRecversion() == 0) {
+            setRecversion(xRec.getRecversion());
+        }
+    }
+
     /**
      * Performs an update of the cursor content in the DB, throwing an exception
      * in case if a record with such key fields is not found.
@@ -288,22 +496,32 @@ public abstract class Cursor extends BasicCursor implements InFilterSupport {
         }
 
         preUpdate();
-        PreparedStatement g = getHelper.prepareGet(recversion, _currentKeyValues());
+        invalidateCachedRow();
+        if (batch != null) {
+            return batchUpdate();
+        }
+        // xRec holds the last read record and the assigned fields are known: the update itself
+        // checks that the record exists (and its version), so the record is not read beforehand
+        boolean optimistic = xRec != null && modifiedFields != null && modifiedFieldsKnown
+                && db().supportsUpdateCount();
         try {
-            ResultSet rs = g.executeQuery();
-            try {
-                if (!rs.next()) {
-                    return false;
-                }
-                // Прочитали из базы данных значения -- обновляем xRec
-                if (xRec == null) {
-                    xRec = (Cursor) _getBufferCopy(callContext(), null);
-                    // Вопрос на будущее: эта строчка должна быть здесь или за
-                    // фигурной скобкой? (проблема совместной работы над базой)
-                    xRec._parseResult(rs);
+            if (!optimistic) {
+                PreparedStatement g = getHelper.prepareGet(recversion, _currentKeyValues());
+                ResultSet rs = g.executeQuery();
+                try {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    // Прочитали из базы данных значения -- обновляем xRec
+                    if (xRec == null) {
+                        xRec = (Cursor) _getBufferCopy(callContext(), null);
+                        // Вопрос на будущее: эта строчка должна быть здесь или за
+                        // фигурной скобкой? (проблема совместной работы над базой)
+                        xRec._parseResult(rs);
+                    }
+                } finally {
+                    rs.close();
                 }
-            } finally {
-                rs.close();
             }
 
             Object[] values = _currentValues();
@@ -313,20 +531,17 @@ public abstract class Cursor extends BasicCursor implements InFilterSupport {
             boolean[] myNullsMask = new boolean[values.length];
             boolean notChanged = true;
             for (int i = 0; i < values.length; i++) {
-                myMask[i] = compareValues(values[i], xValues[i]);
+                // BLOBs are modified in place, not by the setters
+                myMask[i] = optimistic && !modifiedFields.get(i) && !(values[i] instanceof BLOB)
+                        || compareValues(values[i], xValues[i]);
                 notChanged &= myMask[i];
                 myNullsMask[i] = values[i] == null;
             }
             // Если ничего не изменилось -- выполнять дальнейшие действия нет
             // необходимости
             if (notChanged) {
-                return true;
-            }
-
-            if (!(Arrays.equals(myMask, updateMask) && Arrays.equals(myNullsMask, nullUpdateMask))) {
-                update.close();
-                updateMask = myMask;
-                nullUpdateMask = myNullsMask;
+                // the record hasn't been read, it still has to exist
+                return !optimistic || exists();
             }
 
             // for a completely new record
@@ -334,9 +549,14 @@ public abstract class Cursor extends BasicCursor implements InFilterSupport {
                 setRecversion(xRec.getRecversion());
             }
 
-            PreparedStatement upd = update.getStatement(values, recversion);
+            PreparedStatement upd = updateHolder(myMask, myNullsMask).getStatement(values, recversion);
 
-            upd.execute();
+            if (!optimistic) {
+                upd.execute();
+            } else if (upd.executeUpdate() == 0) {
+                // the record has been deleted since it was read
+                return false;
+            }
             ILoggingManager loggingManager = callContext().getLoggingManager();
             loggingManager.log(this, Action.MODIFY);
             if (meta().isVersioned()) {
@@ -359,6 +579,50 @@ public abstract class Cursor extends BasicCursor implements InFilterSupport {
         return true;
     }
 
+    private boolean exists() throws SQLException {
+        try (ResultSet rs = getHelper.prepareGet(recversion, _currentKeyValues()).executeQuery()) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * Adds the update to the batch. Unlike the immediate update the record is read
+     * only when xRec is empty.
+     */
+    private boolean batchUpdate() {
+        if (xRec == null) {
+            Cursor x = (Cursor) _getBufferCopy(callContext(), null);
+            if (!getHelper.internalGet(x::_parseResultInternal, Optional.empty(), recversion,
+                    _currentKeyValues())) {
+                x.close();
+                return false;
+            }
+            xRec = x;
+        }
+
+        Object[] values = _currentValues();
+        Object[] xValues = xRec._currentValues();
+        boolean[] myMask = new boolean[values.length];
+        boolean notChanged = true;
+        for (int i = 0; i < values.length; i++) {
+            myMask[i] = compareValues(values[i], xValues[i]);
+            notChanged &= myMask[i];
+        }
+        if (notChanged) {
+            return true;
+        }
+
+        if (getRecversion() == 0) {
+            setRecversion(xRec.getRecversion());
+        }
+        batch.add(Action.MODIFY, myMask);
+        if (meta().isVersioned()) {
+            recversion++;
+        }
+        this.initXRec();
+        return true;
+    }
+
     /**
      * Compares the values in order to find: what exactly was changed in the record.
      *
@@ -384,10 +648,19 @@ public abstract class Cursor extends BasicCursor implements InFilterSupport {
             throw new PermissionDeniedException(callContext(), meta(), Action.DELETE);
         }
 
+        if (batch != null) {
+            preDelete();
+            invalidateCachedRow();
+            batch.add(Action.DELETE, null);
+            this.initXRec();
+            return;
+        }
+
         PreparedStatement del = delete.getStatement(_currentValues(), recversion);
 
         try {
             preDelete();
+            invalidateCachedRow();
             del.execute();
             ILoggingManager loggingManager = callContext().getLoggingManager();
             loggingManager.log(this, Action.DELETE);
@@ -398,12 +671,71 @@ public abstract class Cursor extends BasicCursor implements InFilterSupport {
         }
     }
 
+    private void invalidateCachedRow() {
+        callContext().getCelesta().getRowCache().invalidate(callContext(), meta(), _currentKeyValues());
+    }
+
+    /**
+     * Reads the record by the key fields from the row cache, if the table is cached,
+     * or from the DB.
+     */
+    private boolean cachedGet(Object... values) {
+        RowCache.TableCache tc = fieldsForStatement.isEmpty()
+                ? callContext().getCelesta().getRowCache().getTableCache(callContext(), meta())
+                : null;
+        if (tc == null) {
+            return getHelper.internalGet(this::_parseResultInternal, Optional.of(this::initXRec),
+                    recversion, values);
+        }
+        RowCache.CachedRow row = tc.get(values);
+        if (row != null) {
+            Object[] rowValues = row.getValues();
+            for (int i = 0; i < rowValues.length; i++) {
+                setValue(i, rowValues[i]);
+            }
+            recversion = row.getRecversion();
+            initXRec();
+            return true;
+        }
+        long version = tc.getVersion();
+        boolean result = getHelper.internalGet(this::_parseResultInternal, Optional.of(this::initXRec),
+                recversion, values);
+        if (result) {
+            tc.put(version, _currentKeyValues(), _currentValues(), recversion);
+        }
+        return result;
+    }
+
     private void initXRec() {
         if (xRec == null) {
             xRec = (Cursor) _getBufferCopy(callContext(), null);
         } else {
             xRec.copyFieldsFrom(this);
         }
+        if (modifiedFields != null) {
+            modifiedFields.clear();
+        }
+        modifiedFieldsKnown = true;
+    }
+
+    /**
+     * Marks the field as assigned. Called by the setters of the generated cursors.
+     *
+     * @param index  index of the field in {@link #_currentValues()}
+     */
+    protected final void markFieldModified(int index) {
+        if (modifiedFields == null) {
+            modifiedFields = new BitSet();
+        }
+        modifiedFields.set(index);
+    }
+
+    /**
+     * Marks all the fields as possibly assigned. Called by the generated cursors when
+     * the whole buffer is copied.
+     */
+    protected final void markAllFieldsModified() {
+        modifiedFieldsKnown = false;
     }
 
     /**
@@ -413,6 +745,7 @@ public abstract class Cursor extends BasicCursor implements InFilterSupport {
         if (!canDelete()) {
             throw new PermissionDeniedException(callContext(), meta(), Action.DELETE);
         }
+        callContext().getCelesta().getRowCache().invalidateAll(callContext(), meta());
         PreparedStatement stmt = deleteAll.getStatement(_currentValues(), recversion);
         try {
             try {
@@ -455,8 +788,7 @@ public abstract class Cursor extends BasicCursor implements InFilterSupport {
         if (!canRead()) {
             throw new PermissionDeniedException(callContext(), meta(), Action.READ);
         }
-        return getHelper.internalGet(this::_parseResultInternal, Optional.of(this::initXRec),
-                recversion, values);
+        return cachedGet(values);
     }
 
     /**
@@ -469,8 +801,7 @@ public abstract class Cursor extends BasicCursor implements InFilterSupport {
         if (!canRead()) {
             throw new PermissionDeniedException(callContext(), meta(), Action.READ);
         }
-        return getHelper.internalGet(this::_parseResultInternal, Optional.of(this::initXRec),
-                recversion, _currentKeyValues());
+        return cachedGet(_currentKeyValues());
     }
 
 
@@ -591,6 +922,7 @@ public abstract class Cursor extends BasicCursor implements InFilterSupport {
             xRec.close();
         }
         xRec = null;
+        modifiedFieldsKnown = false;
     }
 
     /**
@@ -631,6 +963,7 @@ public abstract class Cursor extends BasicCursor implements InFilterSupport {
             xRec.close();
         }
         xRec = null;
+        modifiedFieldsKnown = false;
     }
 
     /**
@@ -644,6 +977,7 @@ public abstract class Cursor extends BasicCursor implements InFilterSupport {
             try {
                 this.initXRec();
                 xRec.clear();
+                modifiedFieldsKnown = false;
             } catch (CelestaException e) {
                 xRec = null;
             }
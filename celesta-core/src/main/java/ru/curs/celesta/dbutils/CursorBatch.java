@@ -0,0 +1,290 @@
+package ru.curs.celesta.dbutils;
+
+import ru.curs.celesta.CelestaException;
+import ru.curs.celesta.dbutils.stmt.PreparedStatementHolderFactory;
+import ru.curs.celesta.dbutils.stmt.PreparedStmtHolder;
+import ru.curs.celesta.event.TriggerDispatcher;
+import ru.curs.celesta.event.TriggerType;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Collects inserts, updates and deletes of a cursor into JDBC batches.
+ * <p>
+ * Consecutive operations of the same kind and with the same nulls mask are
+ * added to the same prepared statement, so records reach the database in the
+ * order they were added. Post-triggers and log records are deferred until the
+ * batch is flushed.
+ */
+final class CursorBatch {
+
+    private final Cursor cursor;
+    private final int batchSize;
+
+    private final Map<String, PreparedStmtHolder> holders = new HashMap<>();
+    private final List<Row> rows = new ArrayList<>();
+
+    private PreparedStmtHolder current;
+    private PreparedStatement currentStmt;
+    private int segmentStart;
+
+    CursorBatch(Cursor cursor, int batchSize) {
+        this.cursor = cursor;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Adds current cursor buffer to the batch.
+     *
+     * @param action      {@link Action#INSERT}, {@link Action#MODIFY} or {@link Action#DELETE}
+     * @param updateMask  mask of unchanged fields (for {@link Action#MODIFY} only)
+     */
+    void add(Action action, boolean[] updateMask) {
+        Object[] values = cursor._currentValues();
+        boolean[] nullsMask = new boolean[values.length];
+        for (int i = 0; i < values.length; i++) {
+            nullsMask[i] = values[i] == null;
+        }
+
+        PreparedStmtHolder holder = holders.computeIfAbsent(shapeKey(action, updateMask, nullsMask),
+                k -> createHolder(action, updateMask, nullsMask));
+        if (holder != current) {
+            executeSegment();
+        }
+
+        Object[] xValues = action == Action.MODIFY ? cursor.getXRec()._currentValues() : values;
+        Row row = new Row(action, values, xValues, cursor._currentKeyValues(), cursor.getRecversion());
+        if (action == Action.INSERT && !cursor.db().supportsBatchInsert(cursor.meta())) {
+            executeSingle(holder, row);
+        } else {
+            addToSegment(holder, row);
+        }
+
+        if (rows.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    private void addToSegment(PreparedStmtHolder holder, Row row) {
+        try {
+            PreparedStatement stmt = holder.getStatement(row.values, row.recversion);
+            stmt.addBatch();
+            currentStmt = stmt;
+        } catch (SQLException e) {
+            close();
+            throw new CelestaException(e.getMessage());
+        }
+        current = holder;
+        rows.add(row);
+    }
+
+    /**
+     * Executes the statement of the record at once, for the statements that can not be batched.
+     */
+    private void executeSingle(PreparedStmtHolder holder, Row row) {
+        try {
+            holder.getStatement(row.values, row.recversion).execute();
+        } catch (SQLException e) {
+            close();
+            throw new BatchException(String.format("Batch operation on %s.%s failed for record %s: %s",
+                    cursor.meta().getGrain().getName(), cursor.meta().getName(),
+                    Arrays.toString(row.keyValues), e.getMessage()),
+                    Collections.singletonList(row.keyValues), e);
+        }
+        rows.add(row);
+        segmentStart = rows.size();
+    }
+
+    /**
+     * Sends all collected records to the database, then writes log records and fires
+     * post-triggers for each of them.
+     */
+    void flush() {
+        executeSegment();
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<Row> done = new ArrayList<>(rows);
+        rows.clear();
+        segmentStart = 0;
+        firePostActions(done);
+    }
+
+    /**
+     * Discards all the records that were not sent yet and releases the statements.
+     */
+    void close() {
+        rows.clear();
+        segmentStart = 0;
+        current = null;
+        currentStmt = null;
+        for (PreparedStmtHolder holder : holders.values()) {
+            holder.close();
+        }
+        holders.clear();
+    }
+
+    private PreparedStmtHolder createHolder(Action action, boolean[] updateMask, boolean[] nullsMask) {
+        switch (action) {
+            case INSERT:
+                return PreparedStatementHolderFactory.createInsertHolder(cursor.meta(), cursor.db(), cursor.conn());
+            case MODIFY:
+                return PreparedStatementHolderFactory.createUpdateHolder(cursor.meta(), cursor.db(), cursor.conn(),
+                        () -> updateMask, () -> nullsMask);
+            case DELETE:
+                return cursor.delete;
+            default:
+                throw new IllegalArgumentException(action.toString());
+        }
+    }
+
+    private static String shapeKey(Action action, boolean[] updateMask, boolean[] nullsMask) {
+        StringBuilder sb = new StringBuilder(action.shortId());
+        if (action == Action.DELETE) {
+            return sb.toString();
+        }
+        if (updateMask != null) {
+            for (boolean b : updateMask) {
+                sb.append(b ? '1' : '0');
+            }
+            sb.append(':');
+        }
+        for (boolean b : nullsMask) {
+            sb.append(b ? '1' : '0');
+        }
+        return sb.toString();
+    }
+
+    private void executeSegment() {
+        if (currentStmt == null) {
+            return;
+        }
+        PreparedStatement stmt = currentStmt;
+        currentStmt = null;
+        current = null;
+        int from = segmentStart;
+        segmentStart = rows.size();
+
+        int[] counts;
+        SQLException error = null;
+        try {
+            counts = stmt.executeBatch();
+        } catch (BatchUpdateException e) {
+            counts = e.getUpdateCounts();
+            error = e;
+        } catch (SQLException e) {
+            counts = null;
+            error = e;
+        }
+        if (counts == null) {
+            counts = new int[0];
+        }
+
+        List<Object[]> failed = new ArrayList<>();
+        for (int i = from; i < rows.size(); i++) {
+            int j = i - from;
+            Row row = rows.get(i);
+            if (j >= counts.length || counts[j] == Statement.EXECUTE_FAILED
+                    || counts[j] == 0 && row.action == Action.MODIFY) {
+                failed.add(row.keyValues);
+            }
+        }
+        if (failed.isEmpty()) {
+            return;
+        }
+
+        close();
+        String keys = failed.stream()
+                .map(Arrays::toString)
+                .collect(Collectors.joining(", "));
+        throw new BatchException(String.format("Batch operation on %s.%s failed for %d record(s) %s: %s",
+                cursor.meta().getGrain().getName(), cursor.meta().getName(), failed.size(), keys,
+                error == null ? "records do not exist" : error.getMessage()), failed, error);
+    }
+
+    private void firePostActions(List<Row> done) {
+        ILoggingManager loggingManager = cursor.callContext().getLoggingManager();
+        TriggerDispatcher dispatcher = cursor.callContext().getCelesta().getTriggerDispatcher();
+        boolean versioned = cursor.meta().isVersioned();
+
+        Object[] saved = cursor._currentValues();
+        int savedRecversion = cursor.getRecversion();
+        Cursor xRec = cursor.getXRec();
+        Object[] savedX = xRec._currentValues();
+        try {
+            for (Row row : done) {
+                setValues(cursor, row.values);
+                setValues(xRec, row.xValues);
+                cursor.setRecversion(row.resultingRecversion(versioned));
+                loggingManager.log(cursor, row.action);
+                dispatcher.fireTrigger(postTrigger(row.action), cursor);
+            }
+        } finally {
+            setValues(cursor, saved);
+            setValues(xRec, savedX);
+            cursor.setRecversion(savedRecversion);
+        }
+    }
+
+    private static void setValues(Cursor c, Object[] values) {
+        int i = 0;
+        for (String name : c.meta().getColumns().keySet()) {
+            c._setFieldValue(name, values[i++]);
+        }
+    }
+
+    private static TriggerType postTrigger(Action action) {
+        switch (action) {
+            case INSERT:
+                return TriggerType.POST_INSERT;
+            case MODIFY:
+                return TriggerType.POST_UPDATE;
+            default:
+                return TriggerType.POST_DELETE;
+        }
+    }
+
+    /**
+     * A record that was added to the batch.
+     */
+    private static final class Row {
+        private final Action action;
+        private final Object[] values;
+        private final Object[] xValues;
+        private final Object[] keyValues;
+        private final int recversion;
+
+        Row(Action action, Object[] values, Object[] xValues, Object[] keyValues, int recversion) {
+            this.action = action;
+            this.values = values;
+            this.xValues = xValues;
+            this.keyValues = keyValues;
+            this.recversion = recversion;
+        }
+
+        int resultingRecversion(boolean versioned) {
+            if (!versioned) {
+                return recversion;
+            }
+            switch (action) {
+                case INSERT:
+                    return 1;
+                case MODIFY:
+                    return recversion + 1;
+                default:
+                    return recversion;
+            }
+        }
+    }
+
+}
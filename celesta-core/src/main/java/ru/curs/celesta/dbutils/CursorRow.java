@@ -0,0 +1,87 @@
+package ru.curs.celesta.dbutils;
+
+import ru.curs.celesta.CelestaException;
+import ru.curs.celesta.score.ColumnMeta;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of a cursor record, see {@link BasicCursor#stream()}.
+ */
+public final class CursorRow {
+
+    private final List<String> columnNames;
+    private final Object[] values;
+
+    CursorRow(List<String> columnNames, Object[] values) {
+        this.columnNames = columnNames;
+        this.values = values.clone();
+    }
+
+    /**
+     * Returns value of the column.
+     *
+     * @param columnName  column name
+     * @return
+     */
+    public Object get(String columnName) {
+        int i = columnNames.indexOf(columnName);
+        if (i < 0) {
+            throw new CelestaException("Column '%s' does not exist.", columnName);
+        }
+        return values[i];
+    }
+
+    /**
+     * Returns value of the column.
+     *
+     * @param column  column meta
+     * @param <V>     value type
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(ColumnMeta<V> column) {
+        return (V) get(column.getName());
+    }
+
+    /**
+     * Returns values of the columns in the order of their declaration.
+     *
+     * @return
+     */
+    public Object[] getValues() {
+        return values.clone();
+    }
+
+    /**
+     * Returns names of the columns in the order of their declaration.
+     *
+     * @return
+     */
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * Returns values of the columns by column name.
+     *
+     * @return
+     */
+    public Map<String, Object> asMap() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            result.put(columnNames.get(i), values[i]);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public String toString() {
+        return columnNames + "=" + Arrays.toString(values);
+    }
+
+}
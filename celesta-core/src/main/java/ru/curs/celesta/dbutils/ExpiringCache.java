@@ -0,0 +1,199 @@
+package ru.curs.celesta.dbutils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Concurrent cache with a size bound and a time-to-live of entries.
+ * <p>
+ * Lookups do not lock. When the size bound is exceeded, one of the writers
+ * evicts the least recently used entries, so that the cache shrinks by
+ * a tenth of its size. Values are loaded outside of any lock, values that
+ * were being loaded while the cache was invalidated are not stored.
+ *
+ * @param <K>  key type
+ * @param <V>  value type
+ */
+public final class ExpiringCache<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<V>> map = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlNanos;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Entry of the cache.
+     */
+    private static final class Entry<V> {
+        private final V value;
+        private final long expirationTime;
+        private volatile long lastAccess;
+
+        Entry(V value, long now, long ttlNanos) {
+            this.value = value;
+            this.expirationTime = ttlNanos > 0 ? now + ttlNanos : Long.MAX_VALUE;
+            this.lastAccess = now;
+        }
+
+        boolean isExpired(long now) {
+            return now - expirationTime > 0;
+        }
+    }
+
+    /**
+     * Creates the cache.
+     *
+     * @param maxSize  maximum number of entries
+     * @param ttl      time-to-live of an entry in milliseconds ({@code 0} means forever)
+     */
+    public ExpiringCache(int maxSize, long ttl) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size should be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl * 1_000_000;
+    }
+
+    /**
+     * Returns a cached value, loading it if it is absent or expired.
+     *
+     * @param key     key
+     * @param loader  function that loads the value
+     * @return
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        long now = System.nanoTime();
+        Entry<V> e = map.get(key);
+        if (e != null && !(ttlNanos > 0 && e.isExpired(now))) {
+            e.lastAccess = now;
+            hits.increment();
+            return e.value;
+        }
+        misses.increment();
+        long gen = generation.get();
+        V value = loader.apply(key);
+        if (generation.get() == gen) {
+            map.put(key, new Entry<>(value, System.nanoTime(), ttlNanos));
+            if (map.size() > maxSize) {
+                evict();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Stores a value.
+     *
+     * @param key    key
+     * @param value  value
+     */
+    public void put(K key, V value) {
+        map.put(key, new Entry<>(value, System.nanoTime(), ttlNanos));
+        if (map.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Removes the entry of the key.
+     *
+     * @param key  key
+     */
+    public void invalidate(K key) {
+        generation.incrementAndGet();
+        map.remove(key);
+    }
+
+    /**
+     * Removes the entries whose keys match the predicate.
+     *
+     * @param predicate  key predicate
+     */
+    public void invalidateIf(Predicate<? super K> predicate) {
+        generation.incrementAndGet();
+        map.keySet().removeIf(predicate);
+    }
+
+    /**
+     * Removes all the entries.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        map.clear();
+    }
+
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            map.entrySet().removeIf(e -> ttlNanos > 0 && e.getValue().isExpired(now));
+            int excess = map.size() - (maxSize - maxSize / 10);
+            if (excess <= 0) {
+                return;
+            }
+            long[] accesses = map.values().stream().mapToLong(e -> e.lastAccess).toArray();
+            if (accesses.length == 0) {
+                return;
+            }
+            Arrays.sort(accesses);
+            long threshold = accesses[Math.min(excess, accesses.length) - 1];
+            for (Map.Entry<K, Entry<V>> e : map.entrySet()) {
+                if (e.getValue().lastAccess <= threshold && map.remove(e.getKey(), e.getValue())) {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * Returns current number of entries.
+     *
+     * @return
+     */
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * Returns number of lookups that found a valid entry.
+     *
+     * @return
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns number of lookups that had to load the value.
+     *
+     * @return
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns number of entries evicted due to the size bound.
+     *
+     * @return
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+}
@@ -8,6 +8,7 @@ import ru.curs.celesta.score.MaterializedView;
 import ru.curs.celesta.score.ParseException;
 
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -167,6 +168,23 @@ public abstract class MaterializedViewCursor extends BasicCursor {
     return _currentKeyValues();
   }
 
+  /**
+   * Returns the time of the oldest change of the table that isn't reflected in the materialized
+   * view yet. Only the views with deferred refresh can be stale: the data of the view is up to date
+   * as of this time.
+   *
+   * @return  {@code null} if the view is up to date
+   */
+  public Date getStaleSince() {
+    if (!canRead()) {
+      throw new PermissionDeniedException(callContext(), meta(), Action.READ);
+    }
+    if (!meta().isDeferredRefresh()) {
+      return null;
+    }
+    return db().getMaterializedViewStaleSince(conn(), meta());
+  }
+
   // CHECKSTYLE:OFF
     /*
      * This group of methods is named according to Python rules, and not Java.
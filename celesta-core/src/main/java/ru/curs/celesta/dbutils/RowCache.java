@@ -0,0 +1,280 @@
+package ru.curs.celesta.dbutils;
+
+import ru.curs.celesta.CallContext;
+import ru.curs.celesta.score.GrainElement;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache of table records by primary key, shared by all call contexts
+ * of a Celesta instance. It serves {@link Cursor#tryGet(Object...)} for the tables
+ * it is set up for.
+ * <p>
+ * A record is invalidated when it is inserted, updated or deleted by a cursor and
+ * once again when the modifying transaction ends. Until then the modified table is
+ * read bypassing the cache within the modifying call context. Modifications that
+ * bypass the cursors of this Celesta instance (triggers, SQL, other applications,
+ * other instances of a horizontally scaled deployment) are not tracked, so the cache
+ * is meant for read-mostly reference tables. Such modifications are seen once the cached
+ * records expire.
+ */
+public final class RowCache {
+
+    private final Map<String, TableCache> tables;
+
+    /**
+     * Creates the cache.
+     *
+     * @param tableNames  names of the cached tables in {@code grain.table} form
+     * @param maxSize     maximum number of cached records per table
+     * @param ttl         time in milliseconds a record is cached for since it is read
+     *                    ({@code 0} - until it is modified via the cursors)
+     */
+    public RowCache(Collection<String> tableNames, int maxSize, long ttl) {
+        Map<String, TableCache> result = new HashMap<>();
+        for (String tableName : tableNames) {
+            result.put(tableName, new TableCache(tableName, maxSize, ttl));
+        }
+        tables = Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Returns names of the cached tables in {@code grain.table} form.
+     *
+     * @return
+     */
+    public Set<String> getTableNames() {
+        return tables.keySet();
+    }
+
+    /**
+     * Returns statistics of the cached tables, ordered by table name.
+     *
+     * @return
+     */
+    public Map<String, RowCacheStatistics> getStatistics() {
+        Map<String, RowCacheStatistics> result = new TreeMap<>();
+        tables.forEach((name, tc) -> result.put(name, tc.snapshot()));
+        return result;
+    }
+
+    /**
+     * Removes all the cached records.
+     */
+    public void clear() {
+        tables.values().forEach(TableCache::invalidateAll);
+    }
+
+    /**
+     * Returns the cache of the table if records of the table may be read from
+     * the cache within the context.
+     */
+    TableCache getTableCache(CallContext context, GrainElement t) {
+        TableCache tc = tables.get(tableName(t));
+        if (tc == null || modifications(context).isModified(tc)) {
+            return null;
+        }
+        return tc;
+    }
+
+    /**
+     * Invalidates the record that is being modified within the context.
+     */
+    void invalidate(CallContext context, GrainElement t, Object[] keyValues) {
+        TableCache tc = tables.get(tableName(t));
+        if (tc != null) {
+            List<Object> key = Arrays.asList(keyValues.clone());
+            tc.invalidate(key);
+            modifications(context).add(tc, key);
+        }
+    }
+
+    /**
+     * Invalidates all the records of the table that is being modified within the context.
+     */
+    void invalidateAll(CallContext context, GrainElement t) {
+        TableCache tc = tables.get(tableName(t));
+        if (tc != null) {
+            tc.invalidateAll();
+            modifications(context).add(tc, null);
+        }
+    }
+
+    private Modifications modifications(CallContext context) {
+        return context.getTransactionListener(this, Modifications::new);
+    }
+
+    private static String tableName(GrainElement t) {
+        return t.getGrain().getName() + "." + t.getName();
+    }
+
+    /**
+     * Cached records of a table.
+     */
+    static final class TableCache {
+        private final String tableName;
+        private final int maxSize;
+        private final long ttlNanos;
+        private final Map<List<Object>, CachedRow> rows;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        // is incremented on each invalidation, so that records read before it are not cached
+        private long version;
+
+        TableCache(String tableName, int maxSize, long ttl) {
+            this.tableName = tableName;
+            this.maxSize = maxSize;
+            this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttl);
+            this.rows = new LinkedHashMap<List<Object>, CachedRow>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<Object>, CachedRow> eldest) {
+                    return size() > TableCache.this.maxSize;
+                }
+            };
+        }
+
+        CachedRow get(Object[] keyValues) {
+            CachedRow row;
+            synchronized (this) {
+                List<Object> key = Arrays.asList(keyValues);
+                row = rows.get(key);
+                if (row != null && ttlNanos > 0 && System.nanoTime() - row.cachedAt >= ttlNanos) {
+                    rows.remove(key);
+                    row = null;
+                }
+            }
+            if (row == null) {
+                misses.increment();
+            } else {
+                hits.increment();
+            }
+            return row;
+        }
+
+        synchronized long getVersion() {
+            return version;
+        }
+
+        synchronized void put(long readVersion, Object[] keyValues, Object[] values, int recversion) {
+            if (version == readVersion) {
+                rows.put(Arrays.asList(keyValues.clone()), new CachedRow(values, recversion));
+            }
+        }
+
+        synchronized void invalidate(List<Object> key) {
+            version++;
+            rows.remove(key);
+        }
+
+        synchronized void invalidateAll() {
+            version++;
+            rows.clear();
+        }
+
+        RowCacheStatistics snapshot() {
+            int size;
+            synchronized (this) {
+                size = rows.size();
+            }
+            return new RowCacheStatistics(tableName, size, hits.sum(), misses.sum());
+        }
+    }
+
+    /**
+     * Cached record values.
+     */
+    static final class CachedRow {
+        private final Object[] values;
+        private final int recversion;
+        private final long cachedAt = System.nanoTime();
+
+        CachedRow(Object[] values, int recversion) {
+            this.values = values.clone();
+            for (int i = 0; i < this.values.length; i++) {
+                this.values[i] = copyOf(this.values[i]);
+            }
+            this.recversion = recversion;
+        }
+
+        /**
+         * Returns a copy of the record values that can be passed to a cursor.
+         */
+        Object[] getValues() {
+            Object[] result = new Object[values.length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = copyOf(values[i]);
+            }
+            return result;
+        }
+
+        int getRecversion() {
+            return recversion;
+        }
+
+        private static Object copyOf(Object value) {
+            // dates are the only mutable values of the fields
+            return value instanceof Date ? ((Date) value).clone() : value;
+        }
+    }
+
+    /**
+     * Records modified within the transaction of a call context.
+     */
+    private static final class Modifications implements CallContext.TransactionListener {
+        // null key set means that the whole table is modified
+        private final Map<TableCache, Set<List<Object>>> modified = new HashMap<>();
+
+        boolean isModified(TableCache tc) {
+            return modified.containsKey(tc);
+        }
+
+        void add(TableCache tc, List<Object> key) {
+            if (key == null) {
+                modified.put(tc, null);
+            } else if (!modified.containsKey(tc)) {
+                modified.put(tc, new HashSet<>(Collections.singleton(key)));
+            } else if (modified.get(tc) != null) {
+                modified.get(tc).add(key);
+            }
+        }
+
+        @Override
+        public void beforeCommit() {
+            // the records are invalidated after the end of the transaction
+        }
+
+        @Override
+        public void afterCommit() {
+            invalidate();
+        }
+
+        @Override
+        public void afterRollback() {
+            invalidate();
+        }
+
+        private void invalidate() {
+            for (Map.Entry<TableCache, Set<List<Object>>> e : modified.entrySet()) {
+                if (e.getValue() == null) {
+                    e.getKey().invalidateAll();
+                } else {
+                    e.getValue().forEach(e.getKey()::invalidate);
+                }
+            }
+            modified.clear();
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package ru.curs.celesta.dbutils;
+
+/**
+ * Snapshot of statistics of a table cached by {@link RowCache}.
+ */
+public final class RowCacheStatistics {
+
+    private final String tableName;
+    private final int size;
+    private final long hitCount;
+    private final long missCount;
+
+    RowCacheStatistics(String tableName, int size, long hitCount, long missCount) {
+        this.tableName = tableName;
+        this.size = size;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+    }
+
+    /**
+     * Returns name of the table in {@code grain.table} form.
+     *
+     * @return
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Returns number of cached records.
+     *
+     * @return
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns number of records read from the cache.
+     *
+     * @return
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns number of records that were not found in the cache.
+     *
+     * @return
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns share of records read from the cache, from 0 to 1.
+     *
+     * @return
+     */
+    public double getHitRatio() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: size=%d, hits=%d, misses=%d", tableName, size, hitCount, missCount);
+    }
+
+}
@@ -41,12 +41,13 @@ public abstract class Sequence extends BasicDataAccessor {
     }
 
     /**
-     * Returns the <em>next value</em> of the sequence.
+     * Returns the <em>next value</em> of the sequence. If sequence allocation is on,
+     * the value may come from a block reserved in the DB before.
      *
      * @return
      */
     public final long nextValue() {
-        return db().nextSequenceValue(conn(), meta());
+        return db().nextAllocatedSequenceValue(conn(), meta());
     }
 
     @Override
@@ -197,12 +197,50 @@ public class WhereTermsMaker extends CsqlWhereTermsMaker {
             invert = true;
             break;
         case '=':
-            return AndTerm.construct(getWhereTerm(), getEqualsWhereTerm(0));
+            return AndTerm.construct(getWhereTerm(), getEqualsWhereTerm(0, 0));
         default:
             throw new CelestaException("Invalid navigation operator: %s", op);
         }
 
 
+        return AndTerm.construct(getWhereTerm(), getNavigationTerm(invert, 0));
+    }
+
+    /**
+     * Gets WHERE clause for the records of the filtered set that are placed between two records
+     * in the current sort order: starting with the first one and up to (but not including) the second one.
+     * The sort order has to be unique.
+     * <p>
+     * The parameters of the term are taken from the concatenation of the values of the bounds
+     * (a missing bound is skipped).
+     *
+     * @param from  values of the first record, {@code null} for the beginning of the set
+     * @param to  values of the second record, {@code null} for the end of the set
+     * @return
+     */
+    public WhereTerm getRangeWhereTerm(Object[] from, Object[] to) {
+        WhereTerm result = getWhereTerm();
+        int shift = 0;
+        if (from != null) {
+            rec = from;
+            result = AndTerm.construct(result,
+                    OrTerm.construct(getEqualsWhereTerm(0, 0), getNavigationTerm(false, 0)));
+            shift = from.length;
+        }
+        if (to != null) {
+            rec = to;
+            result = AndTerm.construct(result, getNavigationTerm(true, shift));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the term comparing the sort fields with the values of {@code rec}.
+     *
+     * @param invert  {@code true} for the preceding records, {@code false} for the following ones
+     * @param shift  offset of the parameter indices
+     */
+    private WhereTerm getNavigationTerm(boolean invert, int shift) {
         if (paramsProvider.dba().supportsCortegeComparing()) {
             Set<Boolean> set = new HashSet<>();
 
@@ -230,13 +268,13 @@ public class WhereTermsMaker extends CsqlWhereTermsMaker {
                     FieldsCortegeTerm fieldsCortegeTerm =
                             new FieldsCortegeTerm(Arrays.asList(paramsProvider.sortFields()));
                     ValuesCortegeTerm valuesCortegeTerm = new ValuesCortegeTerm(
-                            Arrays.stream(paramsProvider.sortFieldsIndices()).boxed().collect(Collectors.toList())
+                            Arrays.stream(paramsProvider.sortFieldsIndices()).map(i -> i + shift)
+                                    .boxed().collect(Collectors.toList())
                     );
 
                     String operator = invert ^ paramsProvider.descOrders()[0] ? "<" : ">";
 
-                    return AndTerm.construct(getWhereTerm(),
-                            new WhereTermCompareTerm(fieldsCortegeTerm, valuesCortegeTerm, operator));
+                    return new WhereTermCompareTerm(fieldsCortegeTerm, valuesCortegeTerm, operator);
                 }
             }
         }
@@ -248,31 +286,31 @@ public class WhereTermsMaker extends CsqlWhereTermsMaker {
             ops[i] = (invert ^ paramsProvider.descOrders()[i]) ? '<' : '>';
         }
 
-        return AndTerm.construct(getWhereTerm(), getWhereTerm(ops, 0));
+        return getWhereTerm(ops, 0, shift);
     }
 
     private boolean isNull(int k) {
         return rec[paramsProvider.sortFieldsIndices()[k]] == null;
     }
 
-    private WhereTerm getEqualsWhereTerm(int k) {
+    private WhereTerm getEqualsWhereTerm(int k, int shift) {
         final String fieldName = paramsProvider.sortFields()[k];
-        final int fieldIndex = paramsProvider.sortFieldsIndices()[k];
+        final int fieldIndex = paramsProvider.sortFieldsIndices()[k] + shift;
         final boolean nullable = treatAsNullable(fieldName);
 
         WhereTerm l = C[ind(nullable, paramsProvider.dba().nullsFirst(), isNull(k), EQ)].create(fieldName, fieldIndex,
                 this);
         if (paramsProvider.sortFields().length - 1 > k) {
-            WhereTerm r = getEqualsWhereTerm(k + 1);
+            WhereTerm r = getEqualsWhereTerm(k + 1, shift);
             return AndTerm.construct(l, r);
         } else {
             return l;
         }
     }
 
-    private WhereTerm getWhereTerm(char[] ops, int k) {
+    private WhereTerm getWhereTerm(char[] ops, int k, int shift) {
         final String fieldName = paramsProvider.sortFields()[k];
-        final int fieldIndex = paramsProvider.sortFieldsIndices()[k];
+        final int fieldIndex = paramsProvider.sortFieldsIndices()[k] + shift;
         final boolean isNull = isNull(k);
         final boolean nf = paramsProvider.dba().nullsFirst();
         final boolean nullable = treatAsNullable(fieldName);
@@ -280,7 +318,7 @@ public class WhereTermsMaker extends CsqlWhereTermsMaker {
         if (paramsProvider.sortFields().length - 1 > k) {
             WhereTerm a = C[ind(nullable, nf, isNull, ops[k] == '>' ? GE : LE)].create(fieldName, fieldIndex, this);
             WhereTerm b = C[ind(nullable, nf, isNull, ops[k] == '>' ? GT : LT)].create(fieldName, fieldIndex, this);
-            WhereTerm c = getWhereTerm(ops, k + 1);
+            WhereTerm c = getWhereTerm(ops, k + 1, shift);
             return AndTerm.construct(a, OrTerm.construct(b, c));
         } else {
             return C[ind(nullable, nf, isNull, ops[k] == '>' ? GT : LT)].create(fieldName, fieldIndex, this);
@@ -34,7 +34,7 @@
  */
 
 /**Celesta system grain. Not for modification.*/
-create grain celesta version '1.15';
+create grain celesta version '1.16';
 
 /**Active grains list.
    {implements: [ru.curs.celesta.syscursors.ISchemaCursor]}*/
@@ -168,6 +168,15 @@ create table sequences(
   constraint fk_sequences_grains foreign key(grainid) references grains(id)
 ) with no version check;
 
+/**Fingerprint of the score the database is updated to.
+   Delete the record to force the database update on the next start.*/
+create table scorestate(
+  /**SHA-256 of the checksums of all the grains and of Celesta version*/
+  fingerprint varchar(64) not null primary key,
+  /**date and time of the database update*/
+  lastmodified datetime not null default getdate()
+) with no version check;
+
 create sequence sessionlog_entryno;
 
 /**deprecated table -- to be removed*/
@@ -1,7 +1,9 @@
 package ru.curs.celesta.plugin.maven;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
@@ -22,6 +24,7 @@ import org.apache.maven.plugin.MojoFailureException;
 import ru.curs.celesta.CelestaException;
 import ru.curs.celesta.score.Namespace;
 import ru.curs.celesta.score.Score;
+import ru.curs.celesta.score.ScoreSnapshot;
 import ru.curs.celesta.score.io.FileResource;
 import ru.curs.celesta.score.io.Resource;
 
@@ -38,6 +41,7 @@ abstract class AbstractGenScoreResourcesMojo extends AbstractCelestaMojo {
         this.getLog().info("celesta project is " + project);
 
         List<GrainSourceBag> grainsSources = new ArrayList<>();
+        List<Score> scores = new ArrayList<>();
         for (ScoreProperties sp : getScorePaths.get()) {
             final String scorePath = sp.getPath();
             List<FileResource> scoreResources =  Arrays.stream(scorePath.split(File.pathSeparator))
@@ -46,6 +50,7 @@ abstract class AbstractGenScoreResourcesMojo extends AbstractCelestaMojo {
                     .map(FileResource::new)
                     .collect(Collectors.toList());
             Score score = initScore(scorePath);
+            scores.add(score);
             score.getGrains().values().stream()
                 .filter(this::isAllowGrain)
                 .flatMap(g -> g.getGrainParts().stream())
@@ -70,6 +75,10 @@ abstract class AbstractGenScoreResourcesMojo extends AbstractCelestaMojo {
 
         copyGrainSourceFilesToResources(grainsSources);
         generateScoreFiles(grainsSources);
+        // a snapshot can be loaded only in place of the whole score
+        if (scores.size() == 1) {
+            generateScoreSnapshot(scores.get(0));
+        }
 
         org.apache.maven.model.Resource scoreResource = new org.apache.maven.model.Resource();
         scoreResource.setDirectory(getResourcesRoot().getAbsolutePath());
@@ -138,6 +147,16 @@ abstract class AbstractGenScoreResourcesMojo extends AbstractCelestaMojo {
         }
     }
 
+    private void generateScoreSnapshot(Score score) throws MojoExecutionException {
+
+        Path scoreSnapshotPath = new File(getResourcesRoot(), ScoreSnapshot.SCORE_SNAPSHOT_FILE_NAME).toPath();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(scoreSnapshotPath))) {
+            ScoreSnapshot.write(score, out);
+        } catch (IOException ex) {
+            throw new MojoExecutionException("Error writing a score.snapshot", ex);
+        }
+    }
+
     private static class GrainSourceBag {
         final Resource scoreSource;
         final Resource grainSource;
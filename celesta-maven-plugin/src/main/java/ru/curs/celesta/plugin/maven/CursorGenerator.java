@@ -14,7 +14,6 @@ import ru.curs.celesta.score.io.FileResource;
 import javax.lang.model.element.Modifier;
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
@@ -26,6 +25,7 @@ import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public final class CursorGenerator {
 
@@ -81,6 +81,8 @@ public final class CursorGenerator {
         final String columnsClassName = "Columns";
 
         boolean isVersionedGe = ge instanceof VersionedElement && ((VersionedElement) ge).isVersioned();
+        // cursors of tables track the assigned fields to update them without reading the record
+        boolean tracksModifiedFields = ge instanceof Table;
 
         ClassName classType = ClassName.bestGuess(className);
 
@@ -103,10 +105,12 @@ public final class CursorGenerator {
             List<FieldSpec> fieldSpecs = buildDataFields(dge);
             cursorClass.addFields(fieldSpecs);
 
-            cursorClass.addMethods(generateGettersAndSetters(fieldSpecs));
+            cursorClass.addMethods(generateGettersAndSetters(fieldSpecs, tracksModifiedFields));
 
-            cursorClass.addMethod(buildGetFieldValue());
-            cursorClass.addMethod(buildSetFieldValue());
+            cursorClass.addMethod(buildGetFieldValue(dge.getColumns()));
+            cursorClass.addMethod(buildSetFieldValue(dge.getColumns(), tracksModifiedFields));
+            cursorClass.addMethod(buildGetFieldValueByIndex(dge.getColumns()));
+            cursorClass.addMethod(buildSetFieldValueByIndex(dge.getColumns(), tracksModifiedFields));
 
             StringBuilder parseResultOverridingMethodNameBuilder = new StringBuilder("_parseResult");
 
@@ -143,7 +147,8 @@ public final class CursorGenerator {
                     buildOptionFieldsAsInnerStaticClasses(t.getColumns().values()));
             }
 
-            cursorClass.addMethods(buildCompileCopying(ge, className, columns.keySet(), isVersionedGe));
+            cursorClass.addMethods(
+                    buildCompileCopying(ge, className, columns.keySet(), isVersionedGe, tracksModifiedFields));
             cursorClass.addMethod(buildIterator(className));
         }
 
@@ -424,11 +429,13 @@ public final class CursorGenerator {
 
     }
 
-    private static List<MethodSpec> generateGettersAndSetters(List<FieldSpec> fieldSpecs) {
+    private static List<MethodSpec> generateGettersAndSetters(List<FieldSpec> fieldSpecs,
+                                                              boolean tracksModifiedFields) {
         List<MethodSpec> result = new ArrayList<>();
 
-        fieldSpecs.forEach(
-                fieldSpec -> {
+        IntStream.range(0, fieldSpecs.size()).forEach(
+                index -> {
+                    FieldSpec fieldSpec = fieldSpecs.get(index);
                     String methodSuffix = String.valueOf(Character.toUpperCase(fieldSpec.name.charAt(0)));
 
                     if (fieldSpec.name.length() > 1) {
@@ -439,13 +446,16 @@ public final class CursorGenerator {
                             .addModifiers(Modifier.PUBLIC)
                             .returns(fieldSpec.type)
                             .addStatement("return this.$N", fieldSpec.name).build();
-                    MethodSpec setter = MethodSpec.methodBuilder("set" + methodSuffix)
+                    MethodSpec.Builder setter = MethodSpec.methodBuilder("set" + methodSuffix)
                             .addModifiers(Modifier.PUBLIC)
                             .addParameter(fieldSpec.type, fieldSpec.name)
-                            .addStatement("this.$N = $N", fieldSpec.name, fieldSpec.name).build();
+                            .addStatement("this.$N = $N", fieldSpec.name, fieldSpec.name);
+                    if (tracksModifiedFields) {
+                        setter.addStatement("this.markFieldModified($L)", index);
+                    }
 
                     result.add(getter);
-                    result.add(setter);
+                    result.add(setter.build());
                 }
         );
 
@@ -459,20 +469,23 @@ public final class CursorGenerator {
                 .addModifiers(Modifier.PROTECTED)
                 .addAnnotation(Override.class)
                 .addParameter(ResultSet.class, "rs")
-                .addException(SQLException.class);
+                .addException(SQLException.class)
+                .addStatement("int[] indices = this.resultColumnIndices(rs)");
 
+        AtomicInteger counter = new AtomicInteger(0);
         columns.entrySet().forEach(entry -> {
             String name = entry.getKey();
             ColumnMeta<?> meta = entry.getValue();
+            int index = counter.getAndIncrement();
 
             if (BinaryColumn.CELESTA_TYPE.equals(meta.getCelestaType())) {
                 builder.addStatement("this.$N = null", name);
             } else {
-                builder.beginControlFlow("if (this.$N($S))", "inRec", name);
+                builder.beginControlFlow("if (indices[$L] > 0)", index);
                 if (ZonedDateTimeColumn.CELESTA_TYPE.equals(meta.getCelestaType())) {
                     builder.addStatement(
-                            "$T ts = rs.$N($S, $T.getInstance($T.getTimeZone($S)))",
-                            Timestamp.class, meta.jdbcGetterName(), name, Calendar.class, TimeZone.class, "UTC"
+                            "$T ts = rs.$N(indices[$L], this.utcCalendar())",
+                            Timestamp.class, meta.jdbcGetterName(), index
                     );
                     builder.beginControlFlow("if ($N != null)", "ts");
                     builder.addStatement("this.$N = $T.of(ts.toLocalDateTime(), $T.systemDefault())",
@@ -482,7 +495,7 @@ public final class CursorGenerator {
                     builder.addStatement("this.$N = null", name);
                     builder.endControlFlow();
                 } else {
-                    builder.addStatement("this.$N = rs.$N($S)", name, meta.jdbcGetterName(), name);
+                    builder.addStatement("this.$N = rs.$N(indices[$L])", name, meta.jdbcGetterName(), index);
                     builder.beginControlFlow("if (rs.$N())", "wasNull");
                     builder.addStatement("this.$N = null", name);
                     builder.endControlFlow();
@@ -492,50 +505,109 @@ public final class CursorGenerator {
         });
 
         if (isVersionedObject) {
-            builder.addStatement("this.setRecversion(rs.getInt($S))", "recversion");
+            builder.addStatement("this.setRecversion(rs.getInt(indices[$L]))", columns.size());
         }
 
         return builder.build();
     }
 
-    /* NB In case the better performance is needed, this can be rewritten without using the reflection.
-     * E.g. we can populate two maps: Map<String, Producer<?>> , Map<String, Consumer<?> in static Cursor
-     * initializer, and then use these maps in getFieldValue and setFielValue. */
-    private static MethodSpec buildGetFieldValue() {
+    private static MethodSpec buildGetFieldValue(Map<String, ? extends ColumnMeta<?>> columns) {
         String nameParam = "name";
 
-        return MethodSpec.methodBuilder("_getFieldValue")
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("_getFieldValue")
                 .addAnnotation(Override.class)
                 .addModifiers(Modifier.PROTECTED)
                 .returns(TypeName.OBJECT)
                 .addParameter(String.class, nameParam)
-                .beginControlFlow("try")
-                .addStatement("$T f = getClass().getDeclaredField($N)", Field.class, nameParam)
-                .addStatement("f.setAccessible(true)")
-                .addStatement("return f.get(this)")
-                .endControlFlow()
-                .beginControlFlow("catch ($T e)", Exception.class)
-                .addStatement("throw new $T(e)", RuntimeException.class)
+                .beginControlFlow("switch ($N)", nameParam);
+
+        columns.keySet().forEach(name -> builder.addCode("case $S:\n$>return this.$N;\n$<", name, name));
+
+        return builder
+                .addCode("default:\n$>throw new $T($S + $N);\n$<",
+                        IllegalArgumentException.class, "Unknown field: ", nameParam)
                 .endControlFlow()
                 .build();
     }
 
-    private static MethodSpec buildSetFieldValue() {
+    private static MethodSpec buildSetFieldValue(Map<String, ? extends ColumnMeta<?>> columns,
+                                                 boolean tracksModifiedFields) {
         String nameParam = "name";
         String valueParam = "value";
 
-        return MethodSpec.methodBuilder("_setFieldValue")
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("_setFieldValue")
                 .addAnnotation(Override.class)
                 .addModifiers(Modifier.PROTECTED)
                 .addParameter(String.class, nameParam)
                 .addParameter(Object.class, valueParam)
-                .beginControlFlow("try")
-                .addStatement("$T f = getClass().getDeclaredField($N)", Field.class, nameParam)
-                .addStatement("f.setAccessible(true)")
-                .addStatement("f.set(this, value)")
+                .beginControlFlow("switch ($N)", nameParam);
+
+        int index = 0;
+        for (Map.Entry<String, ? extends ColumnMeta<?>> e : columns.entrySet()) {
+            builder.addCode("case $S:\n$>this.$N = ($T) $N;\n",
+                    e.getKey(), e.getKey(), e.getValue().getJavaClass(), valueParam);
+            if (tracksModifiedFields) {
+                builder.addStatement("this.markFieldModified($L)", index);
+            }
+            builder.addCode("break;\n$<");
+            index++;
+        }
+
+        return builder
+                .addCode("default:\n$>throw new $T($S + $N);\n$<",
+                        IllegalArgumentException.class, "Unknown field: ", nameParam)
                 .endControlFlow()
-                .beginControlFlow("catch ($T e)", Exception.class)
-                .addStatement("throw new $T(e)", RuntimeException.class)
+                .build();
+    }
+
+    private static MethodSpec buildGetFieldValueByIndex(Map<String, ? extends ColumnMeta<?>> columns) {
+        String indexParam = "index";
+
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("_getFieldValue")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PROTECTED)
+                .returns(TypeName.OBJECT)
+                .addParameter(int.class, indexParam)
+                .beginControlFlow("switch ($N)", indexParam);
+
+        int index = 0;
+        for (String name : columns.keySet()) {
+            builder.addCode("case $L:\n$>return this.$N;\n$<", index++, name);
+        }
+
+        return builder
+                .addCode("default:\n$>throw new $T($S + $N);\n$<",
+                        IllegalArgumentException.class, "Unknown field index: ", indexParam)
+                .endControlFlow()
+                .build();
+    }
+
+    private static MethodSpec buildSetFieldValueByIndex(Map<String, ? extends ColumnMeta<?>> columns,
+                                                        boolean tracksModifiedFields) {
+        String indexParam = "index";
+        String valueParam = "value";
+
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("_setFieldValue")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PROTECTED)
+                .addParameter(int.class, indexParam)
+                .addParameter(Object.class, valueParam)
+                .beginControlFlow("switch ($N)", indexParam);
+
+        int index = 0;
+        for (Map.Entry<String, ? extends ColumnMeta<?>> e : columns.entrySet()) {
+            builder.addCode("case $L:\n$>this.$N = ($T) $N;\n",
+                    index, e.getKey(), e.getValue().getJavaClass(), valueParam);
+            if (tracksModifiedFields) {
+                builder.addStatement("this.markFieldModified($L)", index);
+            }
+            builder.addCode("break;\n$<");
+            index++;
+        }
+
+        return builder
+                .addCode("default:\n$>throw new $T($S + $N);\n$<",
+                        IllegalArgumentException.class, "Unknown field index: ", indexParam)
                 .endControlFlow()
                 .build();
     }
@@ -660,7 +732,8 @@ public final class CursorGenerator {
     }
 
     private static List<MethodSpec> buildCompileCopying(
-            GrainElement ge, String className, Collection<String> columns, boolean isVersionedObject
+            GrainElement ge, String className, Collection<String> columns, boolean isVersionedObject,
+            boolean tracksModifiedFields
     ) {
         final String copyFieldsFromMethodName = "copyFieldsFrom";
 
@@ -721,6 +794,9 @@ public final class CursorGenerator {
         if (isVersionedObject) {
             copyFieldsFromBuilder.addStatement("this.setRecversion(from.getRecversion())");
         }
+        if (tracksModifiedFields) {
+            copyFieldsFromBuilder.addStatement("this.markAllFieldsModified()");
+        }
 
         return Arrays.asList(getBufferCopy, copyFieldsFromBuilder.build());
     }
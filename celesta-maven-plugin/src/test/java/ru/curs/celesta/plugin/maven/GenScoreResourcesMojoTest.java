@@ -1,6 +1,7 @@
 package ru.curs.celesta.plugin.maven;
 
 import ru.curs.celesta.CelestaException;
+import ru.curs.celesta.score.ScoreSnapshot;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -64,6 +65,9 @@ public class GenScoreResourcesMojoTest extends AbstractCelestaMojoTestCase {
                 getTestFile(CELESTA_GENERATED_RESOURCES_DIR).toPath()
                     .resolve(GenScoreResourcesMojo.SCORE_FILES_FILE_NAME));
         assertEquals(grainPaths, generatedGrainPaths);
+
+        assertTrue(getTestFile(CELESTA_GENERATED_RESOURCES_DIR).toPath()
+                .resolve(ScoreSnapshot.SCORE_SNAPSHOT_FILE_NAME).toFile().isFile());
     }
 
     public void testFailOnGeneratingScoresWithoutPackage() throws Exception {
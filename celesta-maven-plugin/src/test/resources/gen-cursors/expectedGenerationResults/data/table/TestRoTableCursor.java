@@ -1,6 +1,5 @@
 package data.table;
 
-import java.lang.reflect.Field;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Iterator;
@@ -52,31 +51,51 @@ public final class TestRoTableCursor extends ReadOnlyTableCursor implements Iter
 
     @Override
     protected Object _getFieldValue(String name) {
-        try {
-            Field f = getClass().getDeclaredField(name);
-            f.setAccessible(true);
-            return f.get(this);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        switch (name) {
+            case "id":
+                return this.id;
+            default:
+                throw new IllegalArgumentException("Unknown field: " + name);
         }
     }
 
     @Override
     protected void _setFieldValue(String name, Object value) {
-        try {
-            Field f = getClass().getDeclaredField(name);
+        switch (name) {
+            case "id":
+                this.id = (Integer) value;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown field: " + name);
+        }
+    }
 
-            f.setAccessible(true);
-            f.set(this, value);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+    @Override
+    protected Object _getFieldValue(int index) {
+        switch (index) {
+            case 0:
+                return this.id;
+            default:
+                throw new IllegalArgumentException("Unknown field index: " + index);
+        }
+    }
+
+    @Override
+    protected void _setFieldValue(int index, Object value) {
+        switch (index) {
+            case 0:
+                this.id = (Integer) value;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown field index: " + index);
         }
     }
 
     @Override
     protected void _parseResult(ResultSet rs) throws SQLException {
-        if (this.inRec("id")) {
-            this.id = rs.getInt("id");
+        int[] indices = this.resultColumnIndices(rs);
+        if (indices[0] > 0) {
+            this.id = rs.getInt(indices[0]);
             if (rs.wasNull()) {
                 this.id = null;
             }
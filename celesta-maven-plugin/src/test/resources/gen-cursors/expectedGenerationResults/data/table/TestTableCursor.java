@@ -1,21 +1,18 @@
 package data.table;
 
 import java.io.Serializable;
-import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TimeZone;
 import java.util.function.Consumer;
 
 import ru.curs.celesta.CallContext;
@@ -68,6 +65,7 @@ public final class TestTableCursor extends Cursor implements Iterable<TestTableC
 
     public void setId(Integer id) {
         this.id = id;
+        this.markFieldModified(0);
     }
 
     public String getStr() {
@@ -76,6 +74,7 @@ public final class TestTableCursor extends Cursor implements Iterable<TestTableC
 
     public void setStr(String str) {
         this.str = str;
+        this.markFieldModified(1);
     }
 
     public Boolean getDeleted() {
@@ -84,6 +83,7 @@ public final class TestTableCursor extends Cursor implements Iterable<TestTableC
 
     public void setDeleted(Boolean deleted) {
         this.deleted = deleted;
+        this.markFieldModified(2);
     }
 
     public Double getWeight() {
@@ -92,6 +92,7 @@ public final class TestTableCursor extends Cursor implements Iterable<TestTableC
 
     public void setWeight(Double weight) {
         this.weight = weight;
+        this.markFieldModified(3);
     }
 
     public String getContent() {
@@ -100,6 +101,7 @@ public final class TestTableCursor extends Cursor implements Iterable<TestTableC
 
     public void setContent(String content) {
         this.content = content;
+        this.markFieldModified(4);
     }
 
     public Date getCreated() {
@@ -108,6 +110,7 @@ public final class TestTableCursor extends Cursor implements Iterable<TestTableC
 
     public void setCreated(Date created) {
         this.created = created;
+        this.markFieldModified(5);
     }
 
     public BLOB getRawData() {
@@ -116,6 +119,7 @@ public final class TestTableCursor extends Cursor implements Iterable<TestTableC
 
     public void setRawData(BLOB rawData) {
         this.rawData = rawData;
+        this.markFieldModified(6);
     }
 
     public BigDecimal getCost() {
@@ -124,6 +128,7 @@ public final class TestTableCursor extends Cursor implements Iterable<TestTableC
 
     public void setCost(BigDecimal cost) {
         this.cost = cost;
+        this.markFieldModified(7);
     }
 
     public ZonedDateTime getToDelete() {
@@ -132,28 +137,146 @@ public final class TestTableCursor extends Cursor implements Iterable<TestTableC
 
     public void setToDelete(ZonedDateTime toDelete) {
         this.toDelete = toDelete;
+        this.markFieldModified(8);
     }
 
     @Override
     protected Object _getFieldValue(String name) {
-        try {
-            Field f = getClass().getDeclaredField(name);
-            f.setAccessible(true);
-            return f.get(this);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        switch (name) {
+            case "id":
+                return this.id;
+            case "str":
+                return this.str;
+            case "deleted":
+                return this.deleted;
+            case "weight":
+                return this.weight;
+            case "content":
+                return this.content;
+            case "created":
+                return this.created;
+            case "rawData":
+                return this.rawData;
+            case "cost":
+                return this.cost;
+            case "toDelete":
+                return this.toDelete;
+            default:
+                throw new IllegalArgumentException("Unknown field: " + name);
         }
     }
 
     @Override
     protected void _setFieldValue(String name, Object value) {
-        try {
-            Field f = getClass().getDeclaredField(name);
+        switch (name) {
+            case "id":
+                this.id = (Integer) value;
+                this.markFieldModified(0);
+                break;
+            case "str":
+                this.str = (String) value;
+                this.markFieldModified(1);
+                break;
+            case "deleted":
+                this.deleted = (Boolean) value;
+                this.markFieldModified(2);
+                break;
+            case "weight":
+                this.weight = (Double) value;
+                this.markFieldModified(3);
+                break;
+            case "content":
+                this.content = (String) value;
+                this.markFieldModified(4);
+                break;
+            case "created":
+                this.created = (Date) value;
+                this.markFieldModified(5);
+                break;
+            case "rawData":
+                this.rawData = (BLOB) value;
+                this.markFieldModified(6);
+                break;
+            case "cost":
+                this.cost = (BigDecimal) value;
+                this.markFieldModified(7);
+                break;
+            case "toDelete":
+                this.toDelete = (ZonedDateTime) value;
+                this.markFieldModified(8);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown field: " + name);
+        }
+    }
 
-            f.setAccessible(true);
-            f.set(this, value);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+    @Override
+    protected Object _getFieldValue(int index) {
+        switch (index) {
+            case 0:
+                return this.id;
+            case 1:
+                return this.str;
+            case 2:
+                return this.deleted;
+            case 3:
+                return this.weight;
+            case 4:
+                return this.content;
+            case 5:
+                return this.created;
+            case 6:
+                return this.rawData;
+            case 7:
+                return this.cost;
+            case 8:
+                return this.toDelete;
+            default:
+                throw new IllegalArgumentException("Unknown field index: " + index);
+        }
+    }
+
+    @Override
+    protected void _setFieldValue(int index, Object value) {
+        switch (index) {
+            case 0:
+                this.id = (Integer) value;
+                this.markFieldModified(0);
+                break;
+            case 1:
+                this.str = (String) value;
+                this.markFieldModified(1);
+                break;
+            case 2:
+                this.deleted = (Boolean) value;
+                this.markFieldModified(2);
+                break;
+            case 3:
+                this.weight = (Double) value;
+                this.markFieldModified(3);
+                break;
+            case 4:
+                this.content = (String) value;
+                this.markFieldModified(4);
+                break;
+            case 5:
+                this.created = (Date) value;
+                this.markFieldModified(5);
+                break;
+            case 6:
+                this.rawData = (BLOB) value;
+                this.markFieldModified(6);
+                break;
+            case 7:
+                this.cost = (BigDecimal) value;
+                this.markFieldModified(7);
+                break;
+            case 8:
+                this.toDelete = (ZonedDateTime) value;
+                this.markFieldModified(8);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown field index: " + index);
         }
     }
 
@@ -166,58 +289,59 @@ public final class TestTableCursor extends Cursor implements Iterable<TestTableC
 
     @Override
     protected void _parseResultInternal(ResultSet rs) throws SQLException {
-        if (this.inRec("id")) {
-            this.id = rs.getInt("id");
+        int[] indices = this.resultColumnIndices(rs);
+        if (indices[0] > 0) {
+            this.id = rs.getInt(indices[0]);
             if (rs.wasNull()) {
                 this.id = null;
             }
         }
-        if (this.inRec("str")) {
-            this.str = rs.getString("str");
+        if (indices[1] > 0) {
+            this.str = rs.getString(indices[1]);
             if (rs.wasNull()) {
                 this.str = null;
             }
         }
-        if (this.inRec("deleted")) {
-            this.deleted = rs.getBoolean("deleted");
+        if (indices[2] > 0) {
+            this.deleted = rs.getBoolean(indices[2]);
             if (rs.wasNull()) {
                 this.deleted = null;
             }
         }
-        if (this.inRec("weight")) {
-            this.weight = rs.getDouble("weight");
+        if (indices[3] > 0) {
+            this.weight = rs.getDouble(indices[3]);
             if (rs.wasNull()) {
                 this.weight = null;
             }
         }
-        if (this.inRec("content")) {
-            this.content = rs.getString("content");
+        if (indices[4] > 0) {
+            this.content = rs.getString(indices[4]);
             if (rs.wasNull()) {
                 this.content = null;
             }
         }
-        if (this.inRec("created")) {
-            this.created = rs.getTimestamp("created");
+        if (indices[5] > 0) {
+            this.created = rs.getTimestamp(indices[5]);
             if (rs.wasNull()) {
                 this.created = null;
             }
         }
         this.rawData = null;
-        if (this.inRec("cost")) {
-            this.cost = rs.getBigDecimal("cost");
+        if (indices[7] > 0) {
+            this.cost = rs.getBigDecimal(indices[7]);
             if (rs.wasNull()) {
                 this.cost = null;
             }
         }
-        if (this.inRec("toDelete")) {
-            Timestamp ts = rs.getTimestamp("toDelete", Calendar.getInstance(TimeZone.getTimeZone("UTC")));
+        if (indices[8] > 0) {
+            Timestamp ts = rs.getTimestamp(indices[8], this.utcCalendar());
             if (ts != null) {
                 this.toDelete = ZonedDateTime.of(ts.toLocalDateTime(), ZoneOffset.systemDefault());
             } else {
                 this.toDelete = null;
             }
         }
-        this.setRecversion(rs.getInt("recversion"));
+        this.setRecversion(rs.getInt(indices[9]));
     }
 
     @Override
@@ -309,6 +433,7 @@ public final class TestTableCursor extends Cursor implements Iterable<TestTableC
         this.cost = from.cost;
         this.toDelete = from.toDelete;
         this.setRecversion(from.getRecversion());
+        this.markAllFieldsModified();
     }
 
     @Override
@@ -1,6 +1,5 @@
 package data.table;
 
-import java.lang.reflect.Field;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Iterator;
@@ -51,29 +50,50 @@ public final class TestTableWithIdentityCursor extends Cursor implements Iterabl
 
     public void setIdentityId(Integer identityId) {
         this.identityId = identityId;
+        this.markFieldModified(0);
     }
 
     @Override
     protected Object _getFieldValue(String name) {
-        try {
-            Field f = getClass().getDeclaredField(name);
-
-            f.setAccessible(true);
-            return f.get(this);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        switch (name) {
+            case "identityId":
+                return this.identityId;
+            default:
+                throw new IllegalArgumentException("Unknown field: " + name);
         }
     }
 
     @Override
     protected void _setFieldValue(String name, Object value) {
-        try {
-            Field f = getClass().getDeclaredField(name);
+        switch (name) {
+            case "identityId":
+                this.identityId = (Integer) value;
+                this.markFieldModified(0);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown field: " + name);
+        }
+    }
+
+    @Override
+    protected Object _getFieldValue(int index) {
+        switch (index) {
+            case 0:
+                return this.identityId;
+            default:
+                throw new IllegalArgumentException("Unknown field index: " + index);
+        }
+    }
 
-            f.setAccessible(true);
-            f.set(this, value);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+    @Override
+    protected void _setFieldValue(int index, Object value) {
+        switch (index) {
+            case 0:
+                this.identityId = (Integer) value;
+                this.markFieldModified(0);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown field index: " + index);
         }
     }
 
@@ -86,13 +106,14 @@ public final class TestTableWithIdentityCursor extends Cursor implements Iterabl
 
     @Override
     protected void _parseResultInternal(ResultSet rs) throws SQLException {
-        if (this.inRec("identityId")) {
-            this.identityId = rs.getInt("identityId");
+        int[] indices = this.resultColumnIndices(rs);
+        if (indices[0] > 0) {
+            this.identityId = rs.getInt(indices[0]);
             if (rs.wasNull()) {
                 this.identityId = null;
             }
         }
-        this.setRecversion(rs.getInt("recversion"));
+        this.setRecversion(rs.getInt(indices[1]));
     }
 
     @Override
@@ -156,6 +177,7 @@ public final class TestTableWithIdentityCursor extends Cursor implements Iterabl
         TestTableWithIdentityCursor from = (TestTableWithIdentityCursor)c;
         this.identityId = from.identityId;
         this.setRecversion(from.getRecversion());
+        this.markAllFieldsModified();
     }
 
     @Override
@@ -1,6 +1,5 @@
 package data.view;
 
-import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -71,25 +70,63 @@ public final class TestTableMvCursor extends MaterializedViewCursor implements I
 
     @Override
     protected Object _getFieldValue(String name) {
-        try {
-            Field f = getClass().getDeclaredField(name);
-
-            f.setAccessible(true);
-            return f.get(this);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        switch (name) {
+            case "surrogate_count":
+                return this.surrogate_count;
+            case "c":
+                return this.c;
+            case "cost":
+                return this.cost;
+            default:
+                throw new IllegalArgumentException("Unknown field: " + name);
         }
     }
 
     @Override
     protected void _setFieldValue(String name, Object value) {
-        try {
-            Field f = getClass().getDeclaredField(name);
+        switch (name) {
+            case "surrogate_count":
+                this.surrogate_count = (Integer) value;
+                break;
+            case "c":
+                this.c = (Integer) value;
+                break;
+            case "cost":
+                this.cost = (BigDecimal) value;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown field: " + name);
+        }
+    }
+
+    @Override
+    protected Object _getFieldValue(int index) {
+        switch (index) {
+            case 0:
+                return this.surrogate_count;
+            case 1:
+                return this.c;
+            case 2:
+                return this.cost;
+            default:
+                throw new IllegalArgumentException("Unknown field index: " + index);
+        }
+    }
 
-            f.setAccessible(true);
-            f.set(this, value);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+    @Override
+    protected void _setFieldValue(int index, Object value) {
+        switch (index) {
+            case 0:
+                this.surrogate_count = (Integer) value;
+                break;
+            case 1:
+                this.c = (Integer) value;
+                break;
+            case 2:
+                this.cost = (BigDecimal) value;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown field index: " + index);
         }
     }
 
@@ -102,20 +139,21 @@ public final class TestTableMvCursor extends MaterializedViewCursor implements I
 
     @Override
     protected void _parseResult(ResultSet rs) throws SQLException {
-        if (this.inRec("surrogate_count")) {
-            this.surrogate_count = rs.getInt("surrogate_count");
+        int[] indices = this.resultColumnIndices(rs);
+        if (indices[0] > 0) {
+            this.surrogate_count = rs.getInt(indices[0]);
             if (rs.wasNull()) {
                 this.surrogate_count = null;
             }
         }
-        if (this.inRec("c")) {
-            this.c = rs.getInt("c");
+        if (indices[1] > 0) {
+            this.c = rs.getInt(indices[1]);
             if (rs.wasNull()) {
                 this.c = null;
             }
         }
-        if (this.inRec("cost")) {
-            this.cost = rs.getBigDecimal("cost");
+        if (indices[2] > 0) {
+            this.cost = rs.getBigDecimal(indices[2]);
             if (rs.wasNull()) {
                 this.cost = null;
             }
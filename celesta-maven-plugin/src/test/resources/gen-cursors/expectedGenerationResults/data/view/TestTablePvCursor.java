@@ -1,6 +1,5 @@
 package data.view;
 
-import java.lang.reflect.Field;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Iterator;
@@ -53,32 +52,51 @@ public final class TestTablePvCursor extends ParameterizedViewCursor implements
 
     @Override
     protected Object _getFieldValue(String name) {
-        try {
-            Field f = getClass().getDeclaredField(name);
-
-            f.setAccessible(true);
-            return f.get(this);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        switch (name) {
+            case "s":
+                return this.s;
+            default:
+                throw new IllegalArgumentException("Unknown field: " + name);
         }
     }
 
     @Override
     protected void _setFieldValue(String name, Object value) {
-        try {
-            Field f = getClass().getDeclaredField(name);
+        switch (name) {
+            case "s":
+                this.s = (Integer) value;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown field: " + name);
+        }
+    }
+
+    @Override
+    protected Object _getFieldValue(int index) {
+        switch (index) {
+            case 0:
+                return this.s;
+            default:
+                throw new IllegalArgumentException("Unknown field index: " + index);
+        }
+    }
 
-            f.setAccessible(true);
-            f.set(this, value);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+    @Override
+    protected void _setFieldValue(int index, Object value) {
+        switch (index) {
+            case 0:
+                this.s = (Integer) value;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown field index: " + index);
         }
     }
 
     @Override
     protected void _parseResult(ResultSet rs) throws SQLException {
-        if (this.inRec("s")) {
-            this.s = rs.getInt("s");
+        int[] indices = this.resultColumnIndices(rs);
+        if (indices[0] > 0) {
+            this.s = rs.getInt(indices[0]);
             if (rs.wasNull()) {
                 this.s = null;
             }
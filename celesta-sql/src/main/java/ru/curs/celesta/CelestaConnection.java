@@ -1,5 +1,9 @@
 package ru.curs.celesta;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Array;
 import java.sql.Blob;
 import java.sql.CallableStatement;
@@ -8,6 +12,7 @@ import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.NClob;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.Savepoint;
 import java.sql.SQLClientInfoException;
 import java.sql.SQLException;
@@ -15,6 +20,8 @@ import java.sql.SQLWarning;
 import java.sql.SQLXML;
 import java.sql.Statement;
 import java.sql.Struct;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Executor;
@@ -23,13 +30,35 @@ import java.util.concurrent.Executor;
  * Adapter class for {@link Connection} where every method call is delegated
  * to the corresponding method of {@code connection} delegate. Child classes
  * can change this behavior.
+ * <p>
+ * Statements prepared with {@link #prepareStatement(String)} may be cached: closing
+ * such a statement returns it to the bounded LRU cache of the connection, so that
+ * the next request for the same SQL reuses it instead of preparing it again.
  */
 public abstract class CelestaConnection implements Connection {
 
   private final Connection connection;
+  private final int statementCacheSize;
+  // idle cached statements by SQL, the least recently used go first
+  private final Map<String, PreparedStatement> statementCache;
 
-  CelestaConnection(Connection connection) {
+  protected CelestaConnection(Connection connection) {
+    this(connection, 0);
+  }
+
+  CelestaConnection(Connection connection, int statementCacheSize) {
     this.connection = connection;
+    this.statementCacheSize = statementCacheSize;
+    this.statementCache = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+        if (size() > CelestaConnection.this.statementCacheSize) {
+          closeQuietly(eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
   }
 
   /**
@@ -53,7 +82,120 @@ public abstract class CelestaConnection implements Connection {
    */
   @Override
   public PreparedStatement prepareStatement(String sql) throws SQLException {
-    return connection.prepareStatement(sql);
+    if (statementCacheSize == 0) {
+      return connection.prepareStatement(sql);
+    }
+    PreparedStatement stmt;
+    synchronized (statementCache) {
+      stmt = statementCache.remove(sql);
+    }
+    if (stmt == null || stmt.isClosed()) {
+      stmt = connection.prepareStatement(sql);
+    }
+    return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+        new Class<?>[] {PreparedStatement.class}, new CachedStatementInvocationHandler(sql, stmt));
+  }
+
+  /**
+   * Returns the number of idle statements in the statement cache.
+   *
+   * @return
+   */
+  public int getStatementCacheSize() {
+    synchronized (statementCache) {
+      return statementCache.size();
+    }
+  }
+
+  /**
+   * Closes all the idle statements in the statement cache.
+   */
+  public void clearStatementCache() {
+    synchronized (statementCache) {
+      Iterator<PreparedStatement> i = statementCache.values().iterator();
+      while (i.hasNext()) {
+        closeQuietly(i.next());
+        i.remove();
+      }
+    }
+  }
+
+  private void returnToCache(String sql, PreparedStatement stmt) {
+    try {
+      if (stmt.isClosed() || connection.isClosed()) {
+        return;
+      }
+      ResultSet rs = stmt.getResultSet();
+      if (rs != null) {
+        rs.close();
+      }
+      stmt.clearParameters();
+      stmt.clearBatch();
+    } catch (SQLException e) {
+      closeQuietly(stmt);
+      return;
+    }
+    PreparedStatement replaced;
+    synchronized (statementCache) {
+      replaced = statementCache.put(sql, stmt);
+    }
+    if (replaced != null && replaced != stmt) {
+      // the same SQL was prepared twice at once, one idle statement is enough
+      closeQuietly(replaced);
+    }
+  }
+
+  private static void closeQuietly(PreparedStatement stmt) {
+    try {
+      stmt.close();
+    } catch (SQLException e) {
+      // the statement is being discarded anyway
+      return;
+    }
+  }
+
+  /**
+   * Handler of a cached statement that returns the statement to the cache on closing.
+   */
+  private final class CachedStatementInvocationHandler implements InvocationHandler {
+    private final String sql;
+    private final PreparedStatement stmt;
+    private boolean closed;
+
+    CachedStatementInvocationHandler(String sql, PreparedStatement stmt) {
+      this.sql = sql;
+      this.stmt = stmt;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (!closed) {
+            closed = true;
+            returnToCache(sql, stmt);
+          }
+          return null;
+        case "isClosed":
+          return closed || stmt.isClosed();
+        case "getConnection":
+          return CelestaConnection.this;
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        default:
+          break;
+      }
+      if (closed && method.getDeclaringClass() != Object.class) {
+        throw new SQLException("Statement is closed");
+      }
+      try {
+        return method.invoke(stmt, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
   }
 
   /**
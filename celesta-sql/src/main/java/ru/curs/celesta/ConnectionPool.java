@@ -3,7 +3,15 @@ package ru.curs.celesta;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -14,24 +22,71 @@ import ru.curs.celesta.dbutils.adaptors.DBAdaptor;
 
 /**
  * Database connection pool.
+ * <p>
+ * The number of borrowed connections may be limited, in this case borrowers
+ * wait for a free connection in FIFO order. Idle connections are validated and
+ * evicted by a background housekeeping task, so a connection is validated on
+ * borrowing only if it has been idle for too long. Each connection keeps its own
+ * cache of prepared statements that survives returning the connection to the pool.
  */
 public final class ConnectionPool implements AutoCloseable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPool.class);
 
-    private final ConcurrentLinkedQueue<CelestaConnection> pool = new ConcurrentLinkedQueue<>();
+    private static final long HOUSEKEEPING_PERIOD = 30_000;
+    // upper bounds of borrow latency histogram buckets, in microseconds
+    private static final long[] BORROW_LATENCY_BOUNDS = {100, 1_000, 10_000, 100_000, 1_000_000};
+
+    // idle connections, the most recently used go first
+    private final ConcurrentLinkedDeque<PooledConnection> pool = new ConcurrentLinkedDeque<>();
     private final String jdbcConnectionUrl;
     private final String driverClassName;
     private final String login;
     private final String password;
+    private final int maxPoolSize;
+    private final int minIdle;
+    private final long borrowTimeout;
+    private final long validationIdleTime;
+    private final long idleTimeout;
+    private final long maxLifetime;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder borrowed = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder[] borrowLatency = new LongAdder[BORROW_LATENCY_BOUNDS.length + 1];
+    private final ScheduledExecutorService housekeeper;
+
     private DBAdaptor dbAdaptor;
     private volatile boolean isClosed;
 
-    private ConnectionPool(String jdbcConnectionUrl, String driverClassName, String login, String password) {
-        this.driverClassName = driverClassName;
-        this.login = login;
-        this.password = password;
-        this.jdbcConnectionUrl = jdbcConnectionUrl;
+    private ConnectionPool(ConnectionPoolConfiguration configuration) {
+        this.jdbcConnectionUrl = configuration.getJdbcConnectionUrl();
+        this.driverClassName = configuration.getDriverClassName();
+        this.login = configuration.getLogin();
+        this.password = configuration.getPassword();
+        this.maxPoolSize = configuration.getMaxPoolSize();
+        this.minIdle = configuration.getMinIdle();
+        this.borrowTimeout = configuration.getBorrowTimeout();
+        this.validationIdleTime = configuration.getValidationIdleTime();
+        this.idleTimeout = configuration.getIdleTimeout();
+        this.maxLifetime = configuration.getMaxLifetime();
+        this.statementCacheSize = configuration.getStatementCacheSize();
+
+        this.permits = maxPoolSize > 0 ? new Semaphore(maxPoolSize, true) : null;
+        for (int i = 0; i < borrowLatency.length; i++) {
+            borrowLatency[i] = new LongAdder();
+        }
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "celesta-connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, minIdle > 0 ? 0 : HOUSEKEEPING_PERIOD,
+                HOUSEKEEPING_PERIOD, TimeUnit.MILLISECONDS);
 
         Runtime.getRuntime().addShutdownHook(new Thread(this::close));
     }
@@ -43,8 +98,7 @@ public final class ConnectionPool implements AutoCloseable {
      * @return
      */
     public static ConnectionPool create(ConnectionPoolConfiguration configuration) {
-        return new ConnectionPool(configuration.getJdbcConnectionUrl(), configuration.getDriverClassName(),
-                configuration.getLogin(), configuration.getPassword());
+        return new ConnectionPool(configuration);
     }
 
     /**
@@ -67,51 +121,174 @@ public final class ConnectionPool implements AutoCloseable {
             throw new CelestaException("ConnectionPool is closed");
         }
 
-        // First, we are trying to provide a connection from pool
-        Connection c = pool.poll();
-        while (c != null) {
-            try {
-                if (dbAdaptor.isValidConnection(c, 1)) {
-                    return c;
-                }
-            } catch (CelestaException e) {
-                // do something to make CheckStyle happy ))
-                c = null;
+        long start = System.nanoTime();
+        acquirePermit();
+        try {
+            if (isClosed) {
+                throw new CelestaException("ConnectionPool is closed");
+            }
+            // First, we are trying to provide a connection from pool
+            PooledConnection c = takeIdle();
+            if (c == null) {
+                c = open();
+            }
+            c.leased.set(true);
+            active.incrementAndGet();
+            borrowed.increment();
+            recordBorrowLatency(System.nanoTime() - start);
+            return c;
+        } catch (RuntimeException e) {
+            releasePermit();
+            throw e;
+        }
+    }
+
+    private void acquirePermit() {
+        if (permits == null) {
+            return;
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeout, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new CelestaException("Could not get a connection to %s in %d ms: all %d connections are busy",
+                        PasswordHider.maskPassword(jdbcConnectionUrl), borrowTimeout, maxPoolSize);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CelestaException("Interrupted while waiting for a connection to %s",
+                    PasswordHider.maskPassword(jdbcConnectionUrl));
+        }
+    }
+
+    private void releasePermit() {
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    private PooledConnection takeIdle() {
+        PooledConnection c;
+        while ((c = pool.pollFirst()) != null) {
+            long now = System.currentTimeMillis();
+            if (isExpired(c, now)) {
+                closePhysically(c);
+            } else if (now - c.lastChecked < validationIdleTime || isValid(c)) {
+                return c;
+            } else {
+                closePhysically(c);
             }
-            c = pool.poll();
         }
+        return null;
+    }
 
+    private PooledConnection open() {
         try {
             Class.forName(driverClassName);
+            Connection c;
             if (login.isEmpty()) {
                 c = DriverManager.getConnection(jdbcConnectionUrl);
             } else {
                 c = DriverManager.getConnection(jdbcConnectionUrl, login, password);
             }
             c.setAutoCommit(false);
-
-            CelestaConnection celestaConnection = new CelestaConnection(c) {
-                @Override
-                public void close() {
-                    try {
-                        if (isClosed) {
-                            getConnection().close();
-                        } else {
-                            commit();
-                            pool.add(this);
-                        }
-                    } catch (SQLException ex) {
-                        LOGGER.error("Error on connection closing", ex);
-                    }
-                }
-            };
-            return celestaConnection;
-
+            created.increment();
+            return new PooledConnection(c, statementCacheSize);
         } catch (SQLException | ClassNotFoundException e) {
             throw new CelestaException("Could not connect to %s with error: %s",
                     PasswordHider.maskPassword(jdbcConnectionUrl), e.getMessage());
         }
+    }
+
+    private void release(PooledConnection c) {
+        active.decrementAndGet();
+        try {
+            if (isClosed || isExpired(c, System.currentTimeMillis())) {
+                closePhysically(c);
+            } else {
+                c.commit();
+                c.lastChecked = System.currentTimeMillis();
+                pool.offerFirst(c);
+                // the pool could have been closed concurrently
+                if (isClosed && pool.remove(c)) {
+                    closePhysically(c);
+                }
+            }
+        } catch (SQLException ex) {
+            LOGGER.error("Error on connection closing", ex);
+            closePhysically(c);
+        } finally {
+            releasePermit();
+        }
+    }
+
+    private boolean isValid(PooledConnection c) {
+        try {
+            boolean valid = dbAdaptor == null ? c.isValid(1) : dbAdaptor.isValidConnection(c, 1);
+            if (valid) {
+                c.lastChecked = System.currentTimeMillis();
+            }
+            return valid;
+        } catch (CelestaException | SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection c, long now) {
+        return maxLifetime > 0 && now - c.createdAt >= maxLifetime;
+    }
+
+    private void closePhysically(PooledConnection c) {
+        try {
+            c.clearStatementCache();
+            c.getConnection().close();
+        } catch (SQLException ex) {
+            LOGGER.error("Error on connection closing", ex);
+        }
+    }
+
+    private void recordBorrowLatency(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        int i = 0;
+        while (i < BORROW_LATENCY_BOUNDS.length && micros > BORROW_LATENCY_BOUNDS[i]) {
+            i++;
+        }
+        borrowLatency[i].increment();
+    }
+
+    /**
+     * Evicts expired and idle for too long connections, validates the remaining idle
+     * connections and opens new ones up to the minimum number of idle connections.
+     */
+    void housekeep() {
+        if (isClosed) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            // the least recently used go first
+            Iterator<PooledConnection> i = pool.descendingIterator();
+            while (i.hasNext()) {
+                PooledConnection c = i.next();
+                boolean idleTooLong = idleTimeout > 0 && now - c.lastChecked >= idleTimeout
+                        && pool.size() > minIdle;
+                boolean shouldValidate = now - c.lastChecked >= validationIdleTime;
+                if (!(isExpired(c, now) || idleTooLong || shouldValidate) || !pool.remove(c)) {
+                    continue;
+                }
+                if (isExpired(c, now) || idleTooLong || !isValid(c)) {
+                    closePhysically(c);
+                } else {
+                    pool.offerLast(c);
+                }
+            }
 
+            while (!isClosed && pool.size() < minIdle
+                    && (maxPoolSize <= 0 || active.get() + pool.size() < maxPoolSize)) {
+                pool.offerLast(open());
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Connection pool housekeeping failure", e);
+        }
     }
 
     /**
@@ -130,6 +307,16 @@ public final class ConnectionPool implements AutoCloseable {
         }
     }
 
+    /**
+     * Closes the cached prepared statements of the idle connections. Should be called
+     * after changing the database structure.
+     */
+    public void clearStatementCache() {
+        for (PooledConnection c : pool) {
+            c.clearStatementCache();
+        }
+    }
+
     /**
      * Closes up connection pool and all its connections, and makes it inaccessible.
      */
@@ -137,9 +324,10 @@ public final class ConnectionPool implements AutoCloseable {
     public void close() {
         if (!isClosed) {
             isClosed = true;
-            CelestaConnection c;
+            housekeeper.shutdownNow();
+            PooledConnection c;
             while ((c = pool.poll()) != null) {
-                c.close();
+                closePhysically(c);
             }
         }
     }
@@ -154,6 +342,30 @@ public final class ConnectionPool implements AutoCloseable {
         return pool.size();
     }
 
+    /**
+     * Returns the maximum number of borrowed connections.
+     *
+     * @return {@code 0} if the number is unlimited
+     */
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    /**
+     * Returns current pool metrics.
+     *
+     * @return
+     */
+    public ConnectionPoolMetrics getMetrics() {
+        long[] histogram = new long[borrowLatency.length];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = borrowLatency[i].sum();
+        }
+        return new ConnectionPoolMetrics(active.get(), pool.size(),
+                permits == null ? 0 : permits.getQueueLength(),
+                created.sum(), borrowed.sum(), timeouts.sum(), BORROW_LATENCY_BOUNDS, histogram);
+    }
+
     /**
      * If the poll is closed then this method will return true.
      *
@@ -163,6 +375,27 @@ public final class ConnectionPool implements AutoCloseable {
     public boolean isClosed() {
         return isClosed;
     }
+
+    /**
+     * Connection that returns itself to the pool on closing.
+     */
+    private final class PooledConnection extends CelestaConnection {
+        private final long createdAt = System.currentTimeMillis();
+        // time of the last return to the pool or successful validation
+        private volatile long lastChecked = createdAt;
+        private final AtomicBoolean leased = new AtomicBoolean();
+
+        PooledConnection(Connection connection, int statementCacheSize) {
+            super(connection, statementCacheSize);
+        }
+
+        @Override
+        public void close() {
+            if (leased.compareAndSet(true, false)) {
+                release(this);
+            }
+        }
+    }
 }
 
 /**
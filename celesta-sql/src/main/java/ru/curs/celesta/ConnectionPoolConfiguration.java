@@ -9,6 +9,13 @@ public final class ConnectionPoolConfiguration {
   private String driverClassName;
   private String login;
   private String password;
+  private int maxPoolSize;
+  private int minIdle;
+  private long borrowTimeout = 30_000;
+  private long validationIdleTime = 5_000;
+  private long idleTimeout;
+  private long maxLifetime;
+  private int statementCacheSize;
 
   /**
    * Returns JDBC connection URL.
@@ -75,4 +82,121 @@ public final class ConnectionPoolConfiguration {
     this.password = password;
   }
 
+  /**
+   * Returns maximum number of connections that can be open at once
+   * ({@code 0} means no limit).
+   * @return
+   */
+  public int getMaxPoolSize() {
+    return maxPoolSize;
+  }
+
+  /**
+   * Sets maximum number of connections that can be open at once.
+   * @param maxPoolSize  maximum number of connections, {@code 0} for no limit
+   */
+  public void setMaxPoolSize(int maxPoolSize) {
+    this.maxPoolSize = maxPoolSize;
+  }
+
+  /**
+   * Returns number of idle connections that are kept open by the pool.
+   * @return
+   */
+  public int getMinIdle() {
+    return minIdle;
+  }
+
+  /**
+   * Sets number of idle connections that are kept open by the pool.
+   * @param minIdle  number of idle connections
+   */
+  public void setMinIdle(int minIdle) {
+    this.minIdle = minIdle;
+  }
+
+  /**
+   * Returns time in milliseconds to wait for a connection when the pool is exhausted.
+   * @return
+   */
+  public long getBorrowTimeout() {
+    return borrowTimeout;
+  }
+
+  /**
+   * Sets time in milliseconds to wait for a connection when the pool is exhausted.
+   * @param borrowTimeout  wait time in milliseconds
+   */
+  public void setBorrowTimeout(long borrowTimeout) {
+    this.borrowTimeout = borrowTimeout;
+  }
+
+  /**
+   * Returns time in milliseconds a connection may stay idle before it is validated
+   * on borrowing.
+   * @return
+   */
+  public long getValidationIdleTime() {
+    return validationIdleTime;
+  }
+
+  /**
+   * Sets time in milliseconds a connection may stay idle before it is validated
+   * on borrowing.
+   * @param validationIdleTime  idle time in milliseconds
+   */
+  public void setValidationIdleTime(long validationIdleTime) {
+    this.validationIdleTime = validationIdleTime;
+  }
+
+  /**
+   * Returns time in milliseconds after which an idle connection is closed
+   * ({@code 0} means never).
+   * @return
+   */
+  public long getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  /**
+   * Sets time in milliseconds after which an idle connection is closed.
+   * @param idleTimeout  idle time in milliseconds, {@code 0} to keep idle connections open
+   */
+  public void setIdleTimeout(long idleTimeout) {
+    this.idleTimeout = idleTimeout;
+  }
+
+  /**
+   * Returns maximum lifetime of a connection in milliseconds ({@code 0} means no limit).
+   * @return
+   */
+  public long getMaxLifetime() {
+    return maxLifetime;
+  }
+
+  /**
+   * Sets maximum lifetime of a connection in milliseconds.
+   * @param maxLifetime  lifetime in milliseconds, {@code 0} for no limit
+   */
+  public void setMaxLifetime(long maxLifetime) {
+    this.maxLifetime = maxLifetime;
+  }
+
+  /**
+   * Returns maximum number of idle prepared statements cached per connection
+   * ({@code 0} means no caching).
+   * @return
+   */
+  public int getStatementCacheSize() {
+    return statementCacheSize;
+  }
+
+  /**
+   * Sets maximum number of idle prepared statements cached per connection.
+   * @param statementCacheSize  number of statements, {@code 0} to disable caching
+   */
+  public void setStatementCacheSize(int statementCacheSize) {
+    this.statementCacheSize = statementCacheSize;
+  }
+
 }
@@ -0,0 +1,109 @@
+package ru.curs.celesta;
+
+/**
+ * Snapshot of connection pool metrics.
+ */
+public final class ConnectionPoolMetrics {
+
+    private final int active;
+    private final int idle;
+    private final int waiting;
+    private final long created;
+    private final long borrowed;
+    private final long timeouts;
+    private final long[] borrowLatencyBounds;
+    private final long[] borrowLatencyHistogram;
+
+    ConnectionPoolMetrics(int active, int idle, int waiting, long created, long borrowed, long timeouts,
+                          long[] borrowLatencyBounds, long[] borrowLatencyHistogram) {
+        this.active = active;
+        this.idle = idle;
+        this.waiting = waiting;
+        this.created = created;
+        this.borrowed = borrowed;
+        this.timeouts = timeouts;
+        this.borrowLatencyBounds = borrowLatencyBounds.clone();
+        this.borrowLatencyHistogram = borrowLatencyHistogram.clone();
+    }
+
+    /**
+     * Returns number of connections that are currently borrowed from the pool.
+     *
+     * @return
+     */
+    public int getActive() {
+        return active;
+    }
+
+    /**
+     * Returns number of open connections that are waiting in the pool.
+     *
+     * @return
+     */
+    public int getIdle() {
+        return idle;
+    }
+
+    /**
+     * Returns (estimated) number of threads waiting for a connection.
+     *
+     * @return
+     */
+    public int getWaiting() {
+        return waiting;
+    }
+
+    /**
+     * Returns number of connections opened by the pool since its creation.
+     *
+     * @return
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * Returns number of connections handed out by the pool since its creation.
+     *
+     * @return
+     */
+    public long getBorrowed() {
+        return borrowed;
+    }
+
+    /**
+     * Returns number of borrow attempts that timed out.
+     *
+     * @return
+     */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * Returns upper bounds (in microseconds) of the borrow latency histogram buckets.
+     * The histogram has one more bucket for the latencies above the last bound.
+     *
+     * @return
+     */
+    public long[] getBorrowLatencyBounds() {
+        return borrowLatencyBounds.clone();
+    }
+
+    /**
+     * Returns number of borrows per latency bucket.
+     *
+     * @return
+     * @see #getBorrowLatencyBounds()
+     */
+    public long[] getBorrowLatencyHistogram() {
+        return borrowLatencyHistogram.clone();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("active=%d, idle=%d, waiting=%d, created=%d, borrowed=%d, timeouts=%d",
+                active, idle, waiting, created, borrowed, timeouts);
+    }
+
+}
@@ -10,9 +10,17 @@ import ru.curs.celesta.event.TriggerType;
 import ru.curs.celesta.score.*;
 import ru.curs.celesta.syscursors.ISchemaCursor;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class DbUpdater<T extends ICallContext> {
 
@@ -32,6 +40,9 @@ public abstract class DbUpdater<T extends ICallContext> {
     protected final ConnectionPool connectionPool;
     protected ISchemaCursor schemaCursor;
     private final boolean forceDdInitialize;
+    private int threads = 1;
+    private int mvInitChunkSize;
+    private int mvInitThreads = 1;
 
     public DbUpdater(
             ConnectionPool connectionPool, AbstractScore score, boolean forceDdInitialize, DBAdaptor dbAdaptor) {
@@ -45,10 +56,50 @@ public abstract class DbUpdater<T extends ICallContext> {
 
     protected abstract T createContext();
 
+    /**
+     * Creates an updater of the same score that updates a grain within its own context.
+     *
+     * @return
+     */
+    protected abstract DbUpdater<T> createWorker();
+
     protected abstract void initDataAccessors(T context);
 
     protected abstract String getSchemasTableName();
 
+    /**
+     * Sets number of grains that are updated concurrently, each within its own context.
+     * A grain is updated only after the grains it references. The setting is ignored
+     * if the DB does not support concurrent DDL (see {@link DBAdaptor#supportsConcurrentDdl()}).
+     *
+     * @param threads  number of concurrently updated grains ({@code 1} - grains are updated one by one)
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(threads, 1);
+    }
+
+    /**
+     * Sets the number of table rows in the key chunks a new materialized view is initialized by. The chunks
+     * of its table are aggregated concurrently, each on a separate connection. The view is initialized by a single
+     * statement if its table is changed in the same update or the first column of the primary key
+     * of the table isn't an integer one.
+     *
+     * @param chunkSize  number of rows in a chunk ({@code 0} - the views are initialized by a single statement)
+     */
+    public void setMvInitChunkSize(int chunkSize) {
+        this.mvInitChunkSize = Math.max(chunkSize, 0);
+    }
+
+    /**
+     * Sets number of key chunks of the table of a materialized view that are aggregated concurrently
+     * (see {@link #setMvInitChunkSize(int)}).
+     *
+     * @param threads  number of concurrently aggregated key chunks
+     */
+    public void setMvInitThreads(int threads) {
+        this.mvInitThreads = Math.max(threads, 1);
+    }
+
     /**
      * Updates system schema.
      */
@@ -80,6 +131,18 @@ public abstract class DbUpdater<T extends ICallContext> {
     public void updateDb() {
         String sysSchemaName = score.getSysSchemaName();
         try (T context = createContext()) {
+            // Nothing to update if the DB has been updated to the same score
+            String scoreFingerprint = getScoreFingerprint();
+            String dbScoreFingerprint = readScoreFingerprint(context);
+            if (scoreFingerprint.equals(dbScoreFingerprint)) {
+                return;
+            }
+            if (dbScoreFingerprint != null) {
+                // a failed update must not be skipped on the next start
+                writeScoreFingerprint(context, null);
+                connectionPool.commit(context.getConn());
+            }
+
             updateSystemSchema(context);
 
             // Теперь собираем в память информацию о гранулах на основании того,
@@ -116,31 +179,77 @@ public abstract class DbUpdater<T extends ICallContext> {
             Collections.sort(grains, GRAIN_COMPARATOR);
 
             // Выполняем итерацию по гранулам.
-            boolean success = true;
-            for (Grain g : grains) {
-                if (!g.isAutoupdate()) {
-                    continue;
-                }
-                // Запись о грануле есть?
-                GrainInfo gi = dbGrains.get(g.getName());
-                if (gi == null) {
-                    insertGrainRec(g);
-                    success = updateGrain(g, connectionPool) & success;
-                } else {
-                    // Запись есть -- решение об апгрейде принимается на основе
-                    // версии и контрольной суммы.
-                    success = decideToUpgrade(g, gi, connectionPool) & success;
-                }
-            }
+            boolean success = threads > 1 && supportsConcurrentUpdate()
+                    ? updateGrainsConcurrently(grains, dbGrains) : updateGrains(grains, dbGrains);
             if (!success) {
                 throw new CelestaException(
                         "Not all %s were updated successfully, see %s.%s table data for details.",
                         getSchemasTableName(), sysSchemaName, getSchemasTableName()
                 );
             }
+            writeScoreFingerprint(context, scoreFingerprint);
+            connectionPool.commit(context.getConn());
         }
     }
 
+    /**
+     * Returns fingerprint of the score: SHA-256 of the checksums of all the grains
+     * and of the updater version (see {@link #getVersion()}).
+     *
+     * @return
+     */
+    String getScoreFingerprint() {
+        StringBuilder sb = new StringBuilder(String.valueOf(getVersion()));
+        List<Grain> grains = new ArrayList<>(score.getGrains().values());
+        grains.sort(Comparator.comparing(Grain::getName));
+        for (Grain g : grains) {
+            sb.append('\n').append(g.getName())
+                    .append(' ').append(g.getVersion())
+                    .append(' ').append(g.getLength())
+                    .append(' ').append(String.format("%08X", g.getChecksum()))
+                    .append(' ').append(g.isAutoupdate());
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new CelestaException(e.getMessage());
+        }
+    }
+
+    /**
+     * Returns version of the updater which is a part of the score fingerprint.
+     *
+     * @return
+     */
+    protected String getVersion() {
+        return "";
+    }
+
+    /**
+     * Returns fingerprint of the score the DB has been updated to
+     * or {@code null} if it is unknown.
+     *
+     * @param context  call context
+     * @return
+     */
+    protected String readScoreFingerprint(T context) {
+        return null;
+    }
+
+    /**
+     * Stores fingerprint of the score the DB has been updated to.
+     *
+     * @param context  call context
+     * @param fingerprint  score fingerprint, {@code null} - the fingerprint is removed
+     */
+    protected void writeScoreFingerprint(T context, String fingerprint) {
+    }
+
 
     void updateSysGrain(T context) {
         try {
@@ -174,13 +283,151 @@ public abstract class DbUpdater<T extends ICallContext> {
         schemaCursor.insert();
     }
 
+    private boolean updateGrains(List<Grain> grains, Map<String, GrainInfo> dbGrains) {
+        boolean success = true;
+        for (Grain g : grains) {
+            if (!g.isAutoupdate()) {
+                continue;
+            }
+            // Запись о грануле есть?
+            GrainInfo gi = dbGrains.get(g.getName());
+            if (gi == null) {
+                insertGrainRec(g);
+                success = updateGrain(g, connectionPool) & success;
+            } else {
+                // Запись есть -- решение об апгрейде принимается на основе
+                // версии и контрольной суммы.
+                success = decideToUpgrade(g, gi, connectionPool) & success;
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Checks if grains can be updated concurrently (see {@link #setThreads(int)}).
+     *
+     * @return
+     */
+    boolean supportsConcurrentUpdate() {
+        return dbAdaptor.supportsConcurrentDdl();
+    }
+
+    /**
+     * Updates grains concurrently, each by its own worker (see {@link #createWorker()}).
+     * A grain update starts when the updates of the grains it references are completed.
+     *
+     * @param grains  grains in dependency order
+     * @param dbGrains  information on the grains stored in the DB
+     * @return
+     */
+    private boolean updateGrainsConcurrently(List<Grain> grains, Map<String, GrainInfo> dbGrains) {
+        // Решения об апгрейде принимаются до начала обновления гранул.
+        List<Grain> grainsToUpdate = new ArrayList<>();
+        for (Grain g : grains) {
+            if (!g.isAutoupdate()) {
+                continue;
+            }
+            GrainInfo gi = dbGrains.get(g.getName());
+            if (gi == null) {
+                insertGrainRec(g);
+                grainsToUpdate.add(g);
+            } else if (needsUpgrade(g, gi)) {
+                grainsToUpdate.add(g);
+            }
+        }
+        // the records of new grains must be visible to the workers
+        connectionPool.commit(schemaCursor.callContext().getConn());
+        if (grainsToUpdate.isEmpty()) {
+            return true;
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, grainsToUpdate.size()), r -> {
+            Thread t = new Thread(r, "celesta-dbupdater-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            Map<String, CompletableFuture<Boolean>> updates = new LinkedHashMap<>();
+            // the updates of the referenced grains are scheduled first because of the dependency order
+            for (Grain g : grainsToUpdate) {
+                CompletableFuture<?>[] dependencies = getReferencedGrains(g).stream()
+                        .map(updates::get)
+                        .filter(Objects::nonNull)
+                        .toArray(CompletableFuture[]::new);
+                updates.put(g.getName(),
+                        CompletableFuture.allOf(dependencies).thenApplyAsync(v -> updateGrainByWorker(g), executor));
+            }
+
+            boolean success = true;
+            RuntimeException error = null;
+            for (CompletableFuture<Boolean> update : updates.values()) {
+                try {
+                    success = update.join() & success;
+                } catch (CompletionException e) {
+                    // the grains depending on the failed one are not updated
+                    if (error == null) {
+                        error = e.getCause() instanceof RuntimeException
+                                ? (RuntimeException) e.getCause() : new CelestaException(e.getCause());
+                    }
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+            return success;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private boolean updateGrainByWorker(Grain g) {
+        DbUpdater<T> worker = createWorker();
+        worker.setMvInitChunkSize(mvInitChunkSize);
+        worker.setMvInitThreads(mvInitThreads);
+        try (T context = worker.createContext()) {
+            worker.initDataAccessors(context);
+            return worker.updateGrain(g, connectionPool);
+        }
+    }
+
+    /**
+     * Returns names of the other grains which tables are referenced by foreign keys or views of the grain.
+     *
+     * @param g  grain
+     * @return
+     */
+    static Set<String> getReferencedGrains(Grain g) {
+        Set<String> result = new HashSet<>();
+        for (BasicTable t : g.getElements(BasicTable.class).values()) {
+            for (ForeignKey fk : t.getForeignKeys()) {
+                result.add(fk.getReferencedTable().getGrain().getName());
+            }
+        }
+        List<Class<? extends AbstractView>> viewClasses =
+                Arrays.asList(View.class, ParameterizedView.class, MaterializedView.class);
+        for (Class<? extends AbstractView> viewClass : viewClasses) {
+            for (AbstractView v : g.getElements(viewClass).values()) {
+                for (TableRef tableRef : v.getTables().values()) {
+                    result.add(tableRef.getTable().getGrain().getName());
+                }
+            }
+        }
+        result.remove(g.getName());
+        return result;
+    }
+
     private boolean decideToUpgrade(Grain g, GrainInfo gi, ConnectionPool connectionPool) {
+        return !needsUpgrade(g, gi) || updateGrain(g, connectionPool);
+    }
+
+    private boolean needsUpgrade(Grain g, GrainInfo gi) {
         if (gi.lock) {
-            return true;
+            return false;
         }
 
         if (gi.recover) {
-            return updateGrain(g, connectionPool);
+            return true;
         }
 
         // Как соотносятся версии?
@@ -200,16 +447,38 @@ public abstract class DbUpdater<T extends ICallContext> {
                         g.getName(), g.getVersion().toString(), gi.version.toString());
             case GREATER:
                 // Версия выросла -- апгрейдим.
-                return updateGrain(g, connectionPool);
+                return true;
             case EQUALS:
                 // Версия не изменилась: апгрейдим лишь в том случае, если
-                // изменилась контрольная сумма.
-                if (gi.length != g.getLength() || gi.checksum != g.getChecksum()) {
-                    return updateGrain(g, connectionPool);
-                }
+                // изменилась контрольная сумма либо триггеры материализованных
+                // представлений созданы другой версией Celesta.
+                return gi.length != g.getLength() || gi.checksum != g.getChecksum()
+                        || hasOutdatedMaterializedViewTriggers(g);
             default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks if the insert trigger of any materialized view of the grain has another checksum
+     * than the adaptor writes now, e.g. because the kind of the triggers has changed.
+     */
+    private boolean hasOutdatedMaterializedViewTriggers(Grain g) {
+        final Connection conn = schemaCursor.callContext().getConn();
+        for (MaterializedView mv : g.getElements(MaterializedView.class).values()) {
+            TriggerQuery query = new TriggerQuery()
+                    .withSchema(g.getName())
+                    .withTableName(mv.getRefTable().getTable().getName())
+                    .withName(mv.getTriggerName(TriggerType.POST_INSERT));
+            String checksumComment = String.format(MaterializedView.CHECKSUM_COMMENT_TEMPLATE,
+                    dbAdaptor.getMaterializedViewTriggerChecksum(conn, mv));
+            if (dbAdaptor.getTriggerBody(conn, query)
+                    .map(b -> MaterializedView.hasTriggerChecksum(b) && !b.contains(checksumComment))
+                    .orElse(false)) {
                 return true;
+            }
         }
+        return false;
     }
 
     /**
@@ -238,29 +507,33 @@ public abstract class DbUpdater<T extends ICallContext> {
             // Удаляем все параметризованные представления
             dropAllParameterizedViews(g);
 
+            // Take the structure of the grain schema from the DB at once
+            SchemaSnapshot snapshot = dbAdaptor.getSchemaSnapshot(schemaCursor.callContext().getConn(), g);
+
+            // Таблицы, структура, индексы или внешние ключи которых изменяются в текущей транзакции.
+            Set<String> modifiedTablesMap = new HashSet<>();
+
             // Выполняем удаление ненужных индексов, чтобы облегчить задачу
             // обновления столбцов на таблицах.
-            dropOrphanedGrainIndices(g);
+            dropOrphanedGrainIndices(g, snapshot, modifiedTablesMap);
 
             // Сбрасываем внешние ключи, более не включённые в метаданные
-            List<DbFkInfo> dbFKeys = dropOrphanedGrainFKeys(g);
+            List<DbFkInfo> dbFKeys = dropOrphanedGrainFKeys(g, snapshot, modifiedTablesMap);
 
-            Set<String> modifiedTablesMap = new HashSet<>();
-
-            updateSequences(g);
+            updateSequences(g, snapshot);
 
             // Обновляем все таблицы.
             for (BasicTable t : g.getElements(BasicTable.class).values()) {
-                if (updateTable(t, dbFKeys)) {
+                if (updateTable(t, snapshot, dbFKeys, modifiedTablesMap)) {
                     modifiedTablesMap.add(t.getName());
                 }
             }
 
             // Обновляем все индексы.
-            updateGrainIndices(g);
+            updateGrainIndices(g, modifiedTablesMap);
 
             // Обновляем внешние ключи
-            updateGrainFKeys(g);
+            updateGrainFKeys(g, modifiedTablesMap);
 
             // Создаём представления заново
             createViews(g);
@@ -271,7 +544,7 @@ public abstract class DbUpdater<T extends ICallContext> {
             // Обновляем все материализованные представления.
             for (MaterializedView mv : g.getElements(MaterializedView.class).values()) {
                 String tableName = mv.getRefTable().getTable().getName();
-                updateMaterializedView(mv, modifiedTablesMap.contains(tableName));
+                updateMaterializedView(mv, snapshot, modifiedTablesMap.contains(tableName));
             }
 
             //Для всех таблиц обновляем триггеры материализованных представлений
@@ -339,11 +612,11 @@ public abstract class DbUpdater<T extends ICallContext> {
         }
     }
 
-    void updateSequences(Grain g) {
+    void updateSequences(Grain g, SchemaSnapshot snapshot) {
         Connection conn = schemaCursor.callContext().getConn();
 
         for (SequenceElement s : g.getElements(SequenceElement.class).values()) {
-            if (dbAdaptor.sequenceExists(conn, g.getName(), s.getName())) {
+            if (snapshot.sequenceExists(s.getName())) {
                 DbSequenceInfo sequenceInfo = dbAdaptor.getSequenceInfo(conn, s);
                 if (sequenceInfo.reflects(s)) {
                     dbAdaptor.alterSequence(conn, s);
@@ -362,7 +635,7 @@ public abstract class DbUpdater<T extends ICallContext> {
         }
     }
 
-    void updateGrainFKeys(Grain g) {
+    void updateGrainFKeys(Grain g, Set<String> modifiedTables) {
         Connection conn = schemaCursor.callContext().getConn();
         Map<String, DbFkInfo> dbFKeys = new HashMap<>();
         for (DbFkInfo dbi : dbAdaptor.getFKInfo(conn, g)) {
@@ -377,19 +650,35 @@ public abstract class DbUpdater<T extends ICallContext> {
                         if (!dbi.reflects(fk)) {
                             dbAdaptor.dropFK(conn, g.getName(), dbi.getTableName(), dbi.getName());
                             dbAdaptor.createFK(conn, fk);
+                            addFKTables(fk, modifiedTables);
                         }
                     } else {
                         // FK не обнаружен в базе, создаём с нуля
                         dbAdaptor.createFK(conn, fk);
+                        addFKTables(fk, modifiedTables);
                     }
                 }
             }
         }
     }
 
-    List<DbFkInfo> dropOrphanedGrainFKeys(Grain g) {
+    private static void addFKTables(ForeignKey fk, Set<String> modifiedTables) {
+        modifiedTables.add(fk.getParentTable().getName());
+        if (fk.getReferencedTable().getGrain() == fk.getParentTable().getGrain()) {
+            modifiedTables.add(fk.getReferencedTable().getName());
+        }
+    }
+
+    private static void addFKTables(DbFkInfo dbFKey, String grainName, Set<String> modifiedTables) {
+        modifiedTables.add(dbFKey.getTableName());
+        if (grainName.equals(dbFKey.getRefGrainName())) {
+            modifiedTables.add(dbFKey.getRefTableName());
+        }
+    }
+
+    List<DbFkInfo> dropOrphanedGrainFKeys(Grain g, SchemaSnapshot snapshot, Set<String> modifiedTables) {
         Connection conn = schemaCursor.callContext().getConn();
-        List<DbFkInfo> dbFKeys = dbAdaptor.getFKInfo(conn, g);
+        List<DbFkInfo> dbFKeys = snapshot.getFKInfo();
         Map<String, ForeignKey> fKeys = new HashMap<>();
         for (BasicTable t : g.getElements(BasicTable.class).values()) {
             for (ForeignKey fk : t.getForeignKeys()) {
@@ -402,13 +691,14 @@ public abstract class DbUpdater<T extends ICallContext> {
             ForeignKey fKey = fKeys.get(dbFKey.getName());
             if (fKey == null || !dbFKey.reflects(fKey)) {
                 dbAdaptor.dropFK(conn, g.getName(), dbFKey.getTableName(), dbFKey.getName());
+                addFKTables(dbFKey, g.getName(), modifiedTables);
                 i.remove();
             }
         }
         return dbFKeys;
     }
 
-    void dropOrphanedGrainIndices(Grain g) {
+    void dropOrphanedGrainIndices(Grain g, SchemaSnapshot snapshot, Set<String> modifiedTables) {
         /*
          * In general this method repeats the code from updateGrainIndices but only
          * in the part of deletion of indices. It is needed to clear up all indices
@@ -416,13 +706,13 @@ public abstract class DbUpdater<T extends ICallContext> {
          * structure is performed. That raises the probability of a successful outcome:
          * hanging at fields indices may interfere with the process.
          */
-        final Connection conn = schemaCursor.callContext().getConn();
-        Map<String, DbIndexInfo> dbIndices = dbAdaptor.getIndices(conn, g);
+        Map<String, DbIndexInfo> dbIndices = snapshot.getIndices();
         Map<String, Index> myIndices = g.getIndices();
         // Deletion of indices that don't exist in the metadata.
         for (DbIndexInfo dBIndexInfo : dbIndices.values()) {
             if (!myIndices.containsKey(dBIndexInfo.getIndexName())) {
                 dbAdaptor.dropIndex(g, dBIndexInfo);
+                modifiedTables.add(dBIndexInfo.getTableName());
             }
         }
 
@@ -433,13 +723,15 @@ public abstract class DbUpdater<T extends ICallContext> {
                 boolean reflects = dBIndexInfo.reflects(e.getValue());
                 if (!reflects) {
                     dbAdaptor.dropIndex(g, dBIndexInfo);
+                    modifiedTables.add(dBIndexInfo.getTableName());
                 }
 
                 // Deletion of indices at those fields that will undergo a change
                 for (Map.Entry<String, Column<?>> ee : e.getValue().getColumns().entrySet()) {
-                    DbColumnInfo ci = dbAdaptor.getColumnInfo(conn, ee.getValue());
+                    DbColumnInfo ci = snapshot.getColumnInfo(ee.getValue());
                     if (ci == null || !ci.reflects(ee.getValue())) {
                         dbAdaptor.dropIndex(g, dBIndexInfo);
+                        modifiedTables.add(dBIndexInfo.getTableName());
                         break;
                     }
                 }
@@ -447,7 +739,7 @@ public abstract class DbUpdater<T extends ICallContext> {
         }
     }
 
-    void updateGrainIndices(Grain g) {
+    void updateGrainIndices(Grain g, Set<String> modifiedTables) {
         final Connection conn = schemaCursor.callContext().getConn();
         Map<String, DbIndexInfo> dbIndices = dbAdaptor.getIndices(conn, g);
         Map<String, Index> myIndices = g.getIndices();
@@ -462,15 +754,17 @@ public abstract class DbUpdater<T extends ICallContext> {
                 if (!reflects) {
                     dbAdaptor.dropIndex(g, dBIndexInfo);
                     dbAdaptor.createIndex(conn, e.getValue());
+                    modifiedTables.add(e.getValue().getTable().getName());
                 }
             } else {
                 // Создаём не существовавший ранее индекс.
                 dbAdaptor.createIndex(conn, e.getValue());
+                modifiedTables.add(e.getValue().getTable().getName());
             }
         }
     }
 
-    boolean updateTable(BasicTable t, List<DbFkInfo> dbFKeys) {
+    boolean updateTable(BasicTable t, SchemaSnapshot snapshot, List<DbFkInfo> dbFKeys, Set<String> modifiedTables) {
         // If table was compiled with option NO AUTOUPDATE then nothing is to be done
         if (!t.isAutoUpdate()) {
             return false;
@@ -478,22 +772,22 @@ public abstract class DbUpdater<T extends ICallContext> {
 
         final Connection conn = schemaCursor.callContext().getConn();
 
-        if (!dbAdaptor.tableExists(conn, t.getGrain().getName(), t.getName())) {
+        if (!snapshot.tableExists(t.getName())) {
             // Table doesn't exist in the DB, create it from scratch.
             dbAdaptor.createTable(conn, t);
             return true;
         }
 
-        DbPkInfo pkInfo;
-        Set<String> dbColumns = dbAdaptor.getColumns(conn, t);
-        boolean modified = updateColumns(t, conn, dbColumns, dbFKeys);
+        DbPkInfo pkInfo = snapshot.getPKInfo(t.getName());
+        Set<String> dbColumns = snapshot.getColumns(t.getName());
+        boolean modified = updateColumns(t, conn, snapshot, pkInfo, dbFKeys, modifiedTables);
 
         // For versioned tables synchronize 'recversion' field
         if (t instanceof Table) {
             Table tab = (Table) t;
             if (tab.isVersioned()) {
                 if (dbColumns.contains(VersionedElement.REC_VERSION)) {
-                    DbColumnInfo ci = dbAdaptor.getColumnInfo(conn, tab.getRecVersionField());
+                    DbColumnInfo ci = snapshot.getColumnInfo(tab.getRecVersionField());
                     if (!ci.reflects(tab.getRecVersionField())) {
                         dbAdaptor.updateColumn(conn, tab.getRecVersionField(), ci);
                         modified = true;
@@ -505,11 +799,14 @@ public abstract class DbUpdater<T extends ICallContext> {
             }
         }
 
-        // Once again check the primary key, and if needed (in case it doesn't exist or
-        // had been dropped) create it.
-        pkInfo = dbAdaptor.getPKInfo(conn, t);
+        // Once again check the primary key of the changed table, and if needed (in case
+        // it doesn't exist or had been dropped) create it.
+        if (modified || !pkInfo.reflects(t)) {
+            pkInfo = dbAdaptor.getPKInfo(conn, t);
+        }
         if (pkInfo.isEmpty()) {
             dbAdaptor.createPK(conn, t);
+            modified = true;
         }
 
         dbAdaptor.updateVersioningTrigger(conn, t);
@@ -517,49 +814,70 @@ public abstract class DbUpdater<T extends ICallContext> {
         return modified;
     }
 
-    void updateMaterializedView(MaterializedView mv, boolean refTableIsModified) {
+    void updateMaterializedView(MaterializedView mv, SchemaSnapshot snapshot, boolean refTableIsModified) {
         final Connection conn = schemaCursor.callContext().getConn();
 
-        boolean mViewExists = dbAdaptor.tableExists(conn, mv.getGrain().getName(), mv.getName());
+        boolean mViewExists = snapshot.tableExists(mv.getName());
+        boolean hadDeferredRefresh = false;
 
         if (mViewExists) {
 
-            if (!refTableIsModified) {
+            //В теле insert-триггера должна храниться контрольная сумма.
+            String insertTriggerName = mv.getTriggerName(TriggerType.POST_INSERT);
+            TriggerQuery query = new TriggerQuery()
+                    .withSchema(mv.getGrain().getName())
+                    .withTableName(mv.getRefTable().getTable().getName())
+                    .withName(insertTriggerName);
 
-                //В теле insert-триггера должна храниться контрольная сумма.
-                String insertTriggerName = mv.getTriggerName(TriggerType.POST_INSERT);
-                TriggerQuery query = new TriggerQuery()
-                        .withSchema(mv.getGrain().getName())
-                        .withTableName(mv.getRefTable().getTable().getName())
-                        .withName(insertTriggerName);
+            Optional<String> insertTriggerBody = dbAdaptor.getTriggerBody(conn, query);
 
-                Optional<String> insertTriggerBody = dbAdaptor.getTriggerBody(conn, query);
+            if (!refTableIsModified) {
+                //Данные не зависят от того, срабатывают ли триггеры на строку или на оператор,
+                //а триггеры всё равно пересоздаются.
                 boolean checksumIsMatched = insertTriggerBody.map(b -> b.contains(
-                        String.format(MaterializedView.CHECKSUM_COMMENT_TEMPLATE, mv.getChecksum()))).orElse(false);
+                        String.format(MaterializedView.CHECKSUM_COMMENT_TEMPLATE, mv.getTriggerChecksum(false)))
+                        || b.contains(
+                        String.format(MaterializedView.CHECKSUM_COMMENT_TEMPLATE, mv.getTriggerChecksum(true))))
+                        .orElse(false);
                 if (checksumIsMatched) {
                     return;
                 }
             }
+            hadDeferredRefresh = insertTriggerBody.map(MaterializedView::isDeferredRefreshTrigger).orElse(false);
 
             //Удаляем materialized view
             dbAdaptor.dropTable(conn, mv);
         }
 
+        //Изменения, накопленные для отложенного обновления, теряют смысл.
+        //Таблица изменений удаляется, только если она была создана для этого представления.
+        if (hadDeferredRefresh && dbAdaptor.tableExists(conn, mv.getGrain().getName(), mv.getDeltaTableName())) {
+            dbAdaptor.dropMaterializedViewDeltaTable(conn, mv);
+        }
+
         //1. Таблицы не существует в базе данных, создаём с нуля.
         dbAdaptor.createTable(conn, mv);
-        //2. Проинициализировать данные материального представления
-        dbAdaptor.initDataForMaterializedView(conn, mv);
+        if (mv.isDeferredRefresh()) {
+            dbAdaptor.createMaterializedViewDeltaTable(conn, mv);
+        }
+        //2. Проинициализировать данные материального представления.
+        //Диапазоны ключей читаются в других соединениях, которым не видны изменения таблицы в текущей транзакции.
+        if (mvInitChunkSize > 0 && !refTableIsModified && MaterializedViewInitializer.isApplicable(mv)) {
+            new MaterializedViewInitializer(dbAdaptor, connectionPool, mvInitChunkSize, mvInitThreads).init(conn, mv);
+        } else {
+            dbAdaptor.initDataForMaterializedView(conn, mv);
+        }
     }
 
-    private boolean updateColumns(
-            TableElement t, final Connection conn, Set<String> dbColumns, List<DbFkInfo> dbFKeys) {
+    private boolean updateColumns(TableElement t, final Connection conn, SchemaSnapshot snapshot,
+                                  DbPkInfo pkInfo, List<DbFkInfo> dbFKeys, Set<String> modifiedTables) {
         // Таблица существует в базе данных, определяем: надо ли удалить
         // первичный ключ
-        DbPkInfo pkInfo = dbAdaptor.getPKInfo(conn, t);
+        Set<String> dbColumns = snapshot.getColumns(t.getName());
         boolean result = false;
         boolean keyDropped = pkInfo.isEmpty();
         if (!(pkInfo.reflects(t) || keyDropped)) {
-            dropReferencedFKs(t, conn, dbFKeys);
+            dropReferencedFKs(t, conn, dbFKeys, modifiedTables);
             dbAdaptor.dropPk(conn, t, pkInfo.getName());
             keyDropped = true;
         }
@@ -569,12 +887,12 @@ public abstract class DbUpdater<T extends ICallContext> {
                 // Таблица содержит колонку с таким именем, надо проверить
                 // все её атрибуты и при необходимости -- попытаться
                 // обновить.
-                DbColumnInfo ci = dbAdaptor.getColumnInfo(conn, e.getValue());
+                DbColumnInfo ci = snapshot.getColumnInfo(e.getValue());
                 if (!ci.reflects(e.getValue())) {
                     // Если колонка, требующая обновления, входит в первичный
                     // ключ -- сбрасываем первичный ключ.
                     if (t.getPrimaryKey().containsKey(e.getKey()) && !keyDropped) {
-                        dropReferencedFKs(t, conn, dbFKeys);
+                        dropReferencedFKs(t, conn, dbFKeys, modifiedTables);
                         dbAdaptor.dropPk(conn, t, pkInfo.getName());
                         keyDropped = true;
                     }
@@ -590,13 +908,15 @@ public abstract class DbUpdater<T extends ICallContext> {
         return result;
     }
 
-    private void dropReferencedFKs(TableElement t, Connection conn, List<DbFkInfo> dbFKeys) {
+    private void dropReferencedFKs(TableElement t, Connection conn, List<DbFkInfo> dbFKeys,
+                                   Set<String> modifiedTables) {
         Iterator<DbFkInfo> i = dbFKeys.iterator();
         while (i.hasNext()) {
             DbFkInfo dbFKey = i.next();
             if (t.getGrain().getName().equals(dbFKey.getRefGrainName())
                     && t.getName().equals(dbFKey.getRefTableName())) {
                 dbAdaptor.dropFK(conn, t.getGrain().getName(), dbFKey.getTableName(), dbFKey.getName());
+                addFKTables(dbFKey, t.getGrain().getName(), modifiedTables);
                 i.remove();
             }
         }
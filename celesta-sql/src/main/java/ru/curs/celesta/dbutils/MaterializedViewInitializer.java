@@ -0,0 +1,148 @@
+package ru.curs.celesta.dbutils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.curs.celesta.CelestaException;
+import ru.curs.celesta.ConnectionPool;
+import ru.curs.celesta.dbutils.adaptors.DBAdaptor;
+import ru.curs.celesta.score.Column;
+import ru.curs.celesta.score.IntegerColumn;
+import ru.curs.celesta.score.MaterializedView;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Initializer of the data of a materialized view by chunks.
+ * <p>
+ * The table of the view is split into chunks of about the given number of rows by the values of the first
+ * column of its primary key. The chunks are aggregated concurrently, each on a separate connection
+ * of the pool, and the partial aggregates of each chunk are merged into the view as soon as the chunk
+ * is aggregated. Since the rows are read by other connections, the table must not be changed
+ * in the transaction the view is initialized in. Neither may its indices or foreign keys be changed there,
+ * since the readers would wait for the locks of the transaction: a chunk that isn't aggregated
+ * in {@value #CHUNK_TIMEOUT_MINUTES} minutes fails the initialization.
+ */
+final class MaterializedViewInitializer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MaterializedViewInitializer.class);
+
+    static final int CHUNK_TIMEOUT_MINUTES = 10;
+
+    private final DBAdaptor dbAdaptor;
+    private final ConnectionPool connectionPool;
+    private final int chunkSize;
+    private final int threads;
+
+    MaterializedViewInitializer(DBAdaptor dbAdaptor, ConnectionPool connectionPool, int chunkSize, int threads) {
+        this.dbAdaptor = dbAdaptor;
+        this.connectionPool = connectionPool;
+        this.chunkSize = chunkSize;
+        this.threads = Math.max(threads, 1);
+    }
+
+    /**
+     * Checks if the view can be initialized by chunks: the first column of the primary key of its table
+     * has to be an integer one.
+     *
+     * @param mv  materialized view
+     * @return
+     */
+    static boolean isApplicable(MaterializedView mv) {
+        return getKeyColumn(mv) != null;
+    }
+
+    private static String getKeyColumn(MaterializedView mv) {
+        Column<?> c = mv.getRefTable().getTable().getPrimaryKey().values().stream().findFirst().orElse(null);
+        return c instanceof IntegerColumn ? c.getName() : null;
+    }
+
+    /**
+     * Fills the empty materialized view.
+     *
+     * @param conn  connection of the transaction the view is created in
+     * @param mv  materialized view
+     */
+    void init(Connection conn, MaterializedView mv) {
+        String keyColumn = getKeyColumn(mv);
+        Long from = dbAdaptor.getMaterializedViewKeyBound(conn, mv, keyColumn, null, 0);
+        if (from == null) {
+            return;
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "celesta-mv-init-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            CompletionService<List<Object[]>> completion = new ExecutorCompletionService<>(executor);
+            int running = 0;
+            int merged = 0;
+            // no more than one chunk per thread is aggregated or waits for merging at a time
+            while (from != null || running > 0) {
+                while (from != null && running < threads) {
+                    Long to = getNextBound(conn, mv, keyColumn, from);
+                    final long chunkFrom = from;
+                    final long chunkTo = to == null ? Long.MAX_VALUE : to;
+                    completion.submit(() -> selectChunk(mv, keyColumn, chunkFrom, chunkTo));
+                    running++;
+                    from = to;
+                }
+                Future<List<Object[]>> chunk = completion.poll(CHUNK_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+                if (chunk == null) {
+                    throw new CelestaException("Materialized view %s.%s: no chunk of table %s is aggregated "
+                            + "in %d minutes, the chunk readers may wait for the locks of the updating transaction",
+                            mv.getGrain().getName(), mv.getName(), mv.getRefTable().getTable().getName(),
+                            CHUNK_TIMEOUT_MINUTES);
+                }
+                List<Object[]> rows = chunk.get();
+                running--;
+                dbAdaptor.mergeMaterializedViewData(conn, mv, rows);
+                LOGGER.info("Materialized view {}.{}: {} chunks merged",
+                        mv.getGrain().getName(), mv.getName(), ++merged);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CelestaException("Interrupted while initializing materialized view %s.%s",
+                    mv.getGrain().getName(), mv.getName());
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause() : new CelestaException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the upper (exclusive) bound of the chunk starting with the given key
+     * ({@code null} for the last chunk).
+     */
+    private Long getNextBound(Connection conn, MaterializedView mv, String keyColumn, long from) {
+        Long result = dbAdaptor.getMaterializedViewKeyBound(conn, mv, keyColumn, from, chunkSize);
+        if (result != null && result == from) {
+            // the rows of the chunk have the same key, the chunk ends with the next key
+            result = dbAdaptor.getMaterializedViewKeyBound(conn, mv, keyColumn, from + 1, 0);
+        }
+        return result;
+    }
+
+    private List<Object[]> selectChunk(MaterializedView mv, String keyColumn, long from, long to) {
+        try (Connection conn = connectionPool.get()) {
+            return dbAdaptor.selectMaterializedViewDataChunk(conn, mv, keyColumn, from, to);
+        } catch (SQLException e) {
+            throw new CelestaException(e);
+        }
+    }
+
+}
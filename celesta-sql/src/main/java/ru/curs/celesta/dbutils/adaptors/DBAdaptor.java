@@ -42,7 +42,9 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -103,8 +105,35 @@ public abstract class DBAdaptor implements QueryBuildingHelper, StaticDataAdapto
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DBAdaptor.class);
 
+    private static final int SQL_TEMPLATE_CACHE_SIZE = 4096;
+
     protected final ConnectionPool connectionPool;
     DdlAdaptor ddlAdaptor;
+    private int fetchSize;
+    private volatile int sequenceAllocationSize;
+    // sequence allocators by grain and sequence name
+    private final Map<List<String>, SequenceAllocator> sequenceAllocators = new ConcurrentHashMap<>();
+    // memoized SQL templates, the least recently used go first
+    private final Map<List<Object>, SqlTemplate> sqlTemplates = Collections.synchronizedMap(
+            new LinkedHashMap<List<Object>, SqlTemplate>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<Object>, SqlTemplate> eldest) {
+                    return size() > SQL_TEMPLATE_CACHE_SIZE;
+                }
+            });
+
+    /**
+     * SQL text of a statement together with its parameter setters.
+     */
+    private static final class SqlTemplate {
+        private final String sql;
+        private final List<ParameterSetter> program;
+
+        SqlTemplate(String sql, List<ParameterSetter> program) {
+            this.sql = sql;
+            this.program = program;
+        }
+    }
 
     //TODO: Javadoc
     protected DBAdaptor(ConnectionPool connectionPool, DdlConsumer ddlConsumer) {
@@ -210,6 +239,40 @@ public abstract class DBAdaptor implements QueryBuildingHelper, StaticDataAdapto
         return result;
     }
 
+    /**
+     * Returns a column of a table of the grain corresponding to the DB column, or {@code null}
+     * if the score has no such column (columns of materialized views are not looked up).
+     *
+     * @param g  grain
+     * @param tableName  table name
+     * @param columnName  column name
+     * @return
+     */
+    static Column<?> findScoreColumn(Grain g, String tableName, String columnName) {
+        BasicTable t = g.getElements(BasicTable.class).get(tableName);
+        if (t == null) {
+            return null;
+        }
+        Column<?> c = t.getColumns().get(columnName);
+        if (c == null && t instanceof Table && ((Table) t).isVersioned()
+                && VersionedElement.REC_VERSION.equals(columnName)) {
+            c = ((Table) t).getRecVersionField();
+        }
+        return c;
+    }
+
+    /**
+     * Returns information on a column limited to the column name.
+     *
+     * @param columnName  column name
+     * @return
+     */
+    static DbColumnInfo columnNameInfo(String columnName) {
+        DbColumnInfo result = new DbColumnInfo();
+        result.setName(columnName);
+        return result;
+    }
+
     // =========> END PACKAGE-PRIVATE STATIC METHODS <=========
 
     // =========> PACKAGE-PRIVATE FINAL METHODS <=========
@@ -234,6 +297,36 @@ public abstract class DBAdaptor implements QueryBuildingHelper, StaticDataAdapto
 
         return sqlfrom + sqlwhere + " order by " + orderBy;
     }
+
+    /**
+     * Fills comma separated lists of quoted field names and of parameter placeholders
+     * for INSERT statement, skipping the fields that are set to {@code null}.
+     *
+     * @param t          table
+     * @param nullsMask  null-flags of the fields
+     * @param program    collects parameters that can be set with the query
+     * @param fields     list of field names to fill
+     * @param params     list of parameter placeholders to fill
+     */
+    final void fillInsertFieldsAndParams(BasicTable t, boolean[] nullsMask, List<ParameterSetter> program,
+                                         StringBuilder fields, StringBuilder params) {
+        Iterator<String> columns = t.getColumns().keySet().iterator();
+        for (int i = 0; i < t.getColumns().size(); i++) {
+            String c = columns.next();
+            if (nullsMask[i]) {
+                continue;
+            }
+            if (params.length() > 0) {
+                fields.append(", ");
+                params.append(", ");
+            }
+            params.append("?");
+            fields.append('"');
+            fields.append(c);
+            fields.append('"');
+            program.add(ParameterSetter.create(i, this));
+        }
+    }
     // =========> END PACKAGE-PRIVATE FINAL METHODS <=========
 
 
@@ -483,6 +576,88 @@ public abstract class DBAdaptor implements QueryBuildingHelper, StaticDataAdapto
         return result;
     }
 
+    /**
+     * Returns a statement built by the generator, memoizing the generated SQL and
+     * parameter setters under the key. The next call with the same key skips SQL
+     * generation. The key should describe everything the SQL depends on (e.g. table,
+     * nulls mask, filter shape), and the generator should add only parameter setters
+     * that do not depend on the cursor state.
+     *
+     * @param conn       Connection
+     * @param key        Key of the SQL template
+     * @param program    collects parameters that can be set with the query
+     * @param generator  Statement generator, accepts the connection and the program
+     * @return
+     */
+    public final PreparedStatement getMemoizedStatement(
+            Connection conn, List<Object> key, List<ParameterSetter> program,
+            BiFunction<Connection, List<ParameterSetter>, PreparedStatement> generator
+    ) {
+        SqlTemplate template = sqlTemplates.get(key);
+        if (template != null) {
+            program.addAll(template.program);
+            return prepareStatement(conn, template.sql);
+        }
+        SqlRecordingConnection recordingConn = new SqlRecordingConnection(conn);
+        int start = program.size();
+        PreparedStatement result = generator.apply(recordingConn, program);
+        String sql = recordingConn.getSql();
+        if (sql != null) {
+            sqlTemplates.put(key, new SqlTemplate(sql, new ArrayList<>(program.subList(start, program.size()))));
+        }
+        return result;
+    }
+
+    /**
+     * Whether values of the sequence are handed out from blocks reserved in the DB,
+     * see {@link #nextAllocatedSequenceValue(Connection, SequenceElement)}.
+     *
+     * @param s  sequence
+     * @return
+     */
+    public final boolean isSequenceAllocated(SequenceElement s) {
+        return getAllocationBlockSize(s) > 1;
+    }
+
+    /**
+     * Returns the next value of the sequence. If sequence allocation is on (see
+     * {@link #setSequenceAllocationSize(int)}) and the sequence has {@code INCREMENT BY}
+     * greater than 1, a single <em>next value</em> call to the DB reserves a block of
+     * {@code min(INCREMENT BY, allocation size)} values that are handed out one by one.
+     *
+     * @param conn  DB connection
+     * @param s  sequence
+     * @return
+     */
+    public final long nextAllocatedSequenceValue(Connection conn, SequenceElement s) {
+        int blockSize = getAllocationBlockSize(s);
+        if (blockSize <= 1) {
+            return nextSequenceValue(conn, s);
+        }
+        SequenceAllocator allocator = sequenceAllocators.computeIfAbsent(
+                Arrays.asList(s.getGrain().getName(), s.getName()),
+                k -> new SequenceAllocator(blockSize, (Long) s.getArgument(SequenceElement.Argument.MAXVALUE)));
+        return allocator.next(() -> nextSequenceValue(conn, s));
+    }
+
+    /**
+     * Takes structure of the grain schema from the DB: tables and materialized views with their
+     * columns, primary keys, foreign keys, indices and sequences.
+     *
+     * @param conn  DB connection
+     * @param g  grain
+     * @return
+     */
+    public final SchemaSnapshot getSchemaSnapshot(Connection conn, Grain g) {
+        Map<String, Map<String, DbColumnInfo>> columns = getColumnInfos(conn, g);
+        Map<String, DbPkInfo> primaryKeys = new HashMap<>(getPKInfos(conn, g, columns.keySet()));
+        for (String tableName : columns.keySet()) {
+            primaryKeys.putIfAbsent(tableName, new DbPkInfo(this));
+        }
+        return new SchemaSnapshot(columns, primaryKeys, getFKInfo(conn, g), getIndices(conn, g),
+                getSequenceNames(conn, g));
+    }
+
     /**
      * Drops a trigger from DB.
      *
@@ -525,6 +700,18 @@ public abstract class DBAdaptor implements QueryBuildingHelper, StaticDataAdapto
         this.ddlAdaptor.createParameterizedView(conn, pv);
     }
 
+    /**
+     * Returns the checksum that is written to the comment of the insert trigger of the materialized view.
+     * It depends on the definition of the view and on the kind of the triggers maintaining it.
+     *
+     * @param conn  DB connection
+     * @param mv  materialized view
+     * @return
+     */
+    public final String getMaterializedViewTriggerChecksum(Connection conn, MaterializedView mv) {
+        return this.ddlAdaptor.getMaterializedViewTriggerChecksum(conn, mv);
+    }
+
     public final void dropTableTriggersForMaterializedViews(Connection conn, BasicTable t) {
         this.ddlAdaptor.dropTableTriggersForMaterializedViews(conn, t);
     }
@@ -790,6 +977,154 @@ public abstract class DBAdaptor implements QueryBuildingHelper, StaticDataAdapto
         this.ddlAdaptor.initDataForMaterializedView(conn, mv);
     }
 
+    /**
+     * Returns the value of the integer key column of the table of the materialized view in the row
+     * that follows the given number of rows in the order of the key, starting with the given value.
+     *
+     * @param conn  DB connection
+     * @param mv  materialized view
+     * @param keyColumn  name of the key column of the table
+     * @param from  lower bound of the key (inclusive), {@code null} to start with the first row
+     * @param offset  number of rows to skip
+     * @return  {@code null} if there's no such row
+     */
+    public Long getMaterializedViewKeyBound(Connection conn, MaterializedView mv, String keyColumn,
+                                            Long from, long offset) {
+        BasicTable t = mv.getRefTable().getTable();
+        FromClause fromClause = new FromClause();
+        fromClause.setGe(t);
+        fromClause.setExpression(tableString(t.getGrain().getName(), t.getName()));
+        String where = from == null ? "" : String.format("\"%s\" >= ?", keyColumn);
+        try (PreparedStatement stmt = getRecordSetStatement(conn, fromClause, where,
+                String.format("\"%s\"", keyColumn), offset, 1, Collections.singleton(keyColumn))) {
+            if (from != null) {
+                stmt.setLong(1, from);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(keyColumn) : null;
+            }
+        } catch (SQLException e) {
+            throw new CelestaException(e);
+        }
+    }
+
+    /**
+     * Selects the data of the materialized view aggregated over the rows of its table which keys
+     * are within the range. The columns of a row go in the order of the columns of the view,
+     * the surrogate count is the last one.
+     *
+     * @param conn  DB connection
+     * @param mv  materialized view
+     * @param keyColumn  name of the integer key column of the table
+     * @param from  lower bound of the key (inclusive)
+     * @param to  upper bound of the key (exclusive)
+     * @return
+     */
+    public List<Object[]> selectMaterializedViewDataChunk(Connection conn, MaterializedView mv, String keyColumn,
+                                                          long from, long to) {
+        String sql = this.ddlAdaptor.getMaterializedViewDataChunkSql(mv, keyColumn);
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, from);
+            stmt.setLong(2, to);
+            List<Object[]> result = new ArrayList<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                int columnCount = rs.getMetaData().getColumnCount();
+                while (rs.next()) {
+                    Object[] row = new Object[columnCount];
+                    for (int i = 0; i < columnCount; i++) {
+                        row[i] = rs.getObject(i + 1);
+                    }
+                    result.add(row);
+                }
+            }
+            return result;
+        } catch (SQLException e) {
+            throw new CelestaException("Can't select data for materialized view %s.%s: %s",
+                    mv.getGrain().getName(), mv.getName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Merges the rows of partial aggregates into the materialized view in JDBC batches.
+     *
+     * @param conn  DB connection
+     * @param mv  materialized view
+     * @param rows  values of the columns of the view, the surrogate count is the last one
+     */
+    public void mergeMaterializedViewData(Connection conn, MaterializedView mv, Collection<Object[]> rows) {
+        final int batchSize = 1000;
+        String sql = this.ddlAdaptor.getMaterializedViewMergeSql(mv);
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int batched = 0;
+            for (Object[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    stmt.setObject(i + 1, row[i]);
+                }
+                stmt.addBatch();
+                if (++batched == batchSize) {
+                    stmt.executeBatch();
+                    batched = 0;
+                }
+            }
+            if (batched > 0) {
+                stmt.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new CelestaException("Can't init data for materialized view %s.%s: %s",
+                    mv.getGrain().getName(), mv.getName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Recomputes the groups of the materialized view changed since the last refresh
+     * (deferred refresh mode). The changes have to be committed by the caller.
+     *
+     * @param conn  DB connection
+     * @param mv  materialized view
+     */
+    public void refreshMaterializedView(Connection conn, MaterializedView mv) {
+        this.ddlAdaptor.refreshMaterializedView(conn, mv);
+    }
+
+    /**
+     * Creates the delta table of the materialized view in the deferred refresh mode.
+     *
+     * @param conn  DB connection
+     * @param mv  materialized view
+     */
+    public void createMaterializedViewDeltaTable(Connection conn, MaterializedView mv) {
+        this.ddlAdaptor.createMaterializedViewDeltaTable(conn, mv);
+    }
+
+    /**
+     * Drops the delta table of the materialized view.
+     *
+     * @param conn  DB connection
+     * @param mv  materialized view
+     */
+    public void dropMaterializedViewDeltaTable(Connection conn, MaterializedView mv) {
+        this.ddlAdaptor.dropMaterializedViewDeltaTable(conn, mv);
+    }
+
+    /**
+     * Returns the time of the oldest change of the table that isn't reflected in the materialized view
+     * yet (deferred refresh mode).
+     *
+     * @param conn  DB connection
+     * @param mv  materialized view
+     * @return  {@code null} if the materialized view is up to date
+     */
+    public Date getMaterializedViewStaleSince(Connection conn, MaterializedView mv) {
+        String sql = String.format("SELECT MIN(\"%s\") FROM %s", MaterializedView.DELTA_CHANGED,
+                tableString(mv.getGrain().getName(), mv.getDeltaTableName()));
+        try (ResultSet rs = executeQuery(conn, sql)) {
+            rs.next();
+            return rs.getTimestamp(1);
+        } catch (SQLException e) {
+            throw new CelestaException(e);
+        }
+    }
+
     //TODO: Javadoc
     @Override
     public List<String> selectStaticStrings(
@@ -894,6 +1229,109 @@ public abstract class DBAdaptor implements QueryBuildingHelper, StaticDataAdapto
         return false;
     }
 
+    /**
+     * Whether DB is able to insert a record and return it back within a single statement
+     * (see {@link #getInsertRecordReturningStatement(Connection, BasicTable, boolean[], List)}).
+     *
+     * @return
+     */
+    public boolean supportsInsertReturning() {
+        return false;
+    }
+
+    /**
+     * Whether the DB structure may be changed concurrently from different connections
+     * (see {@link ru.curs.celesta.dbutils.DbUpdater#setThreads(int)}).
+     *
+     * @return
+     */
+    public boolean supportsConcurrentDdl() {
+        return true;
+    }
+
+    /**
+     * Whether inserts into the table may be sent to the DB in JDBC batches.
+     *
+     * @param t  table
+     * @return
+     */
+    public boolean supportsBatchInsert(BasicTable t) {
+        return true;
+    }
+
+    /**
+     * Whether the number of rows returned by {@link PreparedStatement#executeUpdate()} for a record
+     * update is the number of the updated records (it may be affected by the statements of DB triggers).
+     *
+     * @return
+     */
+    public boolean supportsUpdateCount() {
+        return true;
+    }
+
+    /**
+     * Returns default number of rows fetched at once by cursors iterating over
+     * record sets ({@code 0} means the JDBC driver's default).
+     *
+     * @return
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Sets default number of rows fetched at once by cursors iterating over record sets.
+     *
+     * @param fetchSize  fetch size ({@code 0} means the JDBC driver's default)
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("Fetch size should not be negative");
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Returns maximal number of sequence values reserved by a single <em>next value</em>
+     * call ({@code 0} means that sequence values are not reserved).
+     *
+     * @return
+     */
+    public int getSequenceAllocationSize() {
+        return sequenceAllocationSize;
+    }
+
+    /**
+     * Sets maximal number of sequence values reserved by a single <em>next value</em> call,
+     * see {@link #nextAllocatedSequenceValue(Connection, SequenceElement)}.
+     *
+     * @param sequenceAllocationSize  allocation size ({@code 0} means that sequence values are not reserved)
+     */
+    public void setSequenceAllocationSize(int sequenceAllocationSize) {
+        if (sequenceAllocationSize < 0) {
+            throw new IllegalArgumentException("Sequence allocation size should not be negative");
+        }
+        this.sequenceAllocationSize = sequenceAllocationSize;
+        sequenceAllocators.clear();
+    }
+
+    /**
+     * Creates a PreparedStatement object for an INSERT statement that inserts a record into a table
+     * only if there is no record with the same primary key yet. The statement returns the inserted
+     * record (all the columns except BLOBs and the record version for versioned tables) as its result set.
+     * Empty result set means that the record with such primary key already exists.
+     *
+     * @param conn  DB connection
+     * @param t  table
+     * @param nullsMask  null-flags (if set the corresponding field at n-th position becomes {@code null})
+     * @param program  collects parameters that can be set with the query
+     * @return
+     */
+    public PreparedStatement getInsertRecordReturningStatement(Connection conn, BasicTable t, boolean[] nullsMask,
+                                                               List<ParameterSetter> program) {
+        throw new CelestaException("Single statement insert of a record is not supported for %s.", getType());
+    }
+
     /**
      * Drops primary key from the table by using known name of the primary key.
      *
@@ -921,6 +1359,74 @@ public abstract class DBAdaptor implements QueryBuildingHelper, StaticDataAdapto
         return z;
     }
 
+    /**
+     * Returns information on the columns of the existing tables and materialized views of the grain
+     * by table and column name. Information on the columns of materialized views and on the columns
+     * that are absent from the score may be limited to the column name.
+     * <p>
+     * The default implementation queries each table and column separately.
+     *
+     * @param conn  DB connection
+     * @param g  grain
+     * @return
+     */
+    public Map<String, Map<String, DbColumnInfo>> getColumnInfos(Connection conn, Grain g) {
+        Map<String, Map<String, DbColumnInfo>> result = new HashMap<>();
+        List<TableElement> tables = new ArrayList<>(g.getElements(BasicTable.class).values());
+        tables.addAll(g.getElements(MaterializedView.class).values());
+        for (TableElement t : tables) {
+            if (!tableExists(conn, g.getName(), t.getName())) {
+                continue;
+            }
+            Map<String, DbColumnInfo> columns = new LinkedHashMap<>();
+            for (String columnName : getColumns(conn, t)) {
+                Column<?> c = findScoreColumn(g, t.getName(), columnName);
+                columns.put(columnName, c == null ? columnNameInfo(columnName) : getColumnInfo(conn, c));
+            }
+            result.put(t.getName(), columns);
+        }
+        return result;
+    }
+
+    /**
+     * Returns primary keys of the existing tables of the grain by table name.
+     * <p>
+     * The default implementation queries each table separately.
+     *
+     * @param conn  DB connection
+     * @param g  grain
+     * @param tableNames  names of the existing tables and materialized views of the grain
+     * @return
+     */
+    public Map<String, DbPkInfo> getPKInfos(Connection conn, Grain g, Set<String> tableNames) {
+        Map<String, DbPkInfo> result = new HashMap<>();
+        for (BasicTable t : g.getElements(BasicTable.class).values()) {
+            if (tableNames.contains(t.getName())) {
+                result.put(t.getName(), getPKInfo(conn, t));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns names of the existing sequences of the grain.
+     * <p>
+     * The default implementation queries each sequence separately.
+     *
+     * @param conn  DB connection
+     * @param g  grain
+     * @return
+     */
+    public Set<String> getSequenceNames(Connection conn, Grain g) {
+        Set<String> result = new HashSet<>();
+        for (SequenceElement s : g.getElements(SequenceElement.class).values()) {
+            if (sequenceExists(conn, g.getName(), s.getName())) {
+                result.add(s.getName());
+            }
+        }
+        return result;
+    }
+
     // =========> END PUBLIC METHODS <=========
 
     // =========> PUBLIC ABSTRACT METHODS <=========
@@ -1103,4 +1609,15 @@ public abstract class DBAdaptor implements QueryBuildingHelper, StaticDataAdapto
      */
     public abstract DbSequenceInfo getSequenceInfo(Connection conn, SequenceElement s);
     // =========> END PUBLIC ABSTRACT METHODS <=========
+
+    // =========> PRIVATE METHODS <=========
+    private int getAllocationBlockSize(SequenceElement s) {
+        if (sequenceAllocationSize <= 1) {
+            return 0;
+        }
+        long incrementBy = (Long) s.getArgument(SequenceElement.Argument.INCREMENT_BY);
+        return (int) Math.min(incrementBy, sequenceAllocationSize);
+    }
+    // =========> END PRIVATE METHODS <=========
+
 }
@@ -266,6 +266,17 @@ public final class FirebirdAdaptor extends DBAdaptor {
         }
     }
 
+    @Override
+    public boolean supportsBatchInsert(BasicTable t) {
+        // inserts into tables with sequence columns return the generated value
+        for (Column<?> c : t.getColumns().values()) {
+            if (c instanceof IntegerColumn && ((IntegerColumn) c).getSequence() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public PreparedStatement getInsertRecordStatement(Connection conn, BasicTable t, boolean[] nullsMask,
                                                       List<ParameterSetter> program) {
@@ -99,25 +99,10 @@ final public class H2Adaptor extends OpenSourceDbAdaptor {
     public PreparedStatement getInsertRecordStatement(
             Connection conn, BasicTable t, boolean[] nullsMask, List<ParameterSetter> program) {
 
-        Iterator<String> columns = t.getColumns().keySet().iterator();
         // Создаём параметризуемую часть запроса, пропуская нулевые значения.
         StringBuilder fields = new StringBuilder();
         StringBuilder params = new StringBuilder();
-        for (int i = 0; i < t.getColumns().size(); i++) {
-            String c = columns.next();
-            if (nullsMask[i]) {
-                continue;
-            }
-            if (params.length() > 0) {
-                fields.append(", ");
-                params.append(", ");
-            }
-            params.append("?");
-            fields.append('"');
-            fields.append(c);
-            fields.append('"');
-            program.add(ParameterSetter.create(i, this));
-        }
+        fillInsertFieldsAndParams(t, nullsMask, program, fields, params);
 
 
         String sql = String.format(
@@ -128,6 +113,51 @@ final public class H2Adaptor extends OpenSourceDbAdaptor {
         return prepareStatement(conn, sql);
     }
 
+    @Override
+    public boolean supportsInsertReturning() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsConcurrentDdl() {
+        // concurrent DDL sessions block each other on the SYS table and the database monitor
+        return false;
+    }
+
+    @Override
+    public PreparedStatement getInsertRecordReturningStatement(
+            Connection conn, BasicTable t, boolean[] nullsMask, List<ParameterSetter> program) {
+
+        StringBuilder fields = new StringBuilder();
+        StringBuilder params = new StringBuilder();
+        fillInsertFieldsAndParams(t, nullsMask, program, fields, params);
+
+        final String tableName = tableString(t.getGrain().getName(), t.getName());
+        final String insert;
+
+        // If any of the key fields is null, no record with such a key may exist:
+        // either it is going to be generated, or the insert fails anyway.
+        boolean keyIsNull = t.getPrimaryKey().keySet().stream()
+                .anyMatch(c -> nullsMask[t.getColumnIndex(c)]);
+        if (keyIsNull || fields.length() == 0) {
+            insert = String.format("insert into %s (%s) values (%s)", tableName, fields.toString(), params.toString());
+        } else {
+            String pkWhere = t.getPrimaryKey().keySet().stream()
+                    .map(c -> {
+                        program.add(ParameterSetter.create(t.getColumnIndex(c), this));
+                        return String.format("\"%s\" = ?", c);
+                    })
+                    .collect(Collectors.joining(" and "));
+            insert = String.format("insert into %s (%s) select %s where not exists (select 1 from %s where %s)",
+                    tableName, fields.toString(), params.toString(), tableName, pkWhere);
+        }
+
+        String sql = String.format("select %s from final table (%s)",
+                getTableFieldsListExceptBlobs(t, Collections.emptySet()), insert);
+
+        return prepareStatement(conn, sql);
+    }
+
     @Override
     public List<String> getParameterizedViewList(Connection conn, Grain g) {
         String sql = String.format(
@@ -154,43 +184,7 @@ final public class H2Adaptor extends OpenSourceDbAdaptor {
 
             try (ResultSet rs = metaData.getColumns(null, grainName, tableName, c.getName())) {
                 if (rs.next()) {
-                    DbColumnInfo result = new DbColumnInfo();
-                    result.setName(rs.getString(COLUMN_NAME));
-                    String typeName = rs.getString("TYPE_NAME");
-                    String columnDefault = rs.getString("COLUMN_DEF");
-
-
-                    String columnDefaultForIdentity = "NEXTVAL('" + tableString(grainName, tableName + "_seq") + "')";
-
-                    if ("integer".equalsIgnoreCase(typeName)
-                            && columnDefaultForIdentity.equals(columnDefault)) {
-                        result.setType(IntegerColumn.class);
-                        result.setNullable(rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls);
-                        return result;
-                    } else if ("clob".equalsIgnoreCase(typeName)) {
-                        result.setType(StringColumn.class);
-                        result.setMax(true);
-                    } else {
-                        for (Class<? extends Column<?>> cc : COLUMN_CLASSES) {
-                            if (getColumnDefiner(cc).dbFieldType().equalsIgnoreCase(typeName)) {
-                                result.setType(cc);
-                                break;
-                            }
-                        }
-                    }
-                    result.setNullable(rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls);
-                    if (result.getType() == StringColumn.class || result.getType() == DecimalColumn.class) {
-                        result.setLength(rs.getInt("COLUMN_SIZE"));
-                    }
-                    if (result.getType() == DecimalColumn.class) {
-                        result.setScale(rs.getInt("DECIMAL_DIGITS"));
-                    }
-
-                    if (columnDefault != null) {
-                        columnDefault = modifyDefault(result, columnDefault, conn);
-                        result.setDefaultValue(columnDefault);
-                    }
-                    return result;
+                    return readColumnInfo(conn, rs, grainName, tableName);
                 } else {
                     return null;
                 }
@@ -200,6 +194,69 @@ final public class H2Adaptor extends OpenSourceDbAdaptor {
         }
     }
 
+    @Override
+    public Map<String, Map<String, DbColumnInfo>> getColumnInfos(Connection conn, Grain g) {
+        Map<String, Map<String, DbColumnInfo>> result = new HashMap<>();
+        String schemaName = g.getName();
+        try (ResultSet rs = conn.getMetaData().getColumns(null, schemaName, null, null)) {
+            while (rs.next()) {
+                // the schema name is a pattern, '_' in it matches any character
+                if (!schemaName.equals(rs.getString("TABLE_SCHEM"))) {
+                    continue;
+                }
+                String tableName = rs.getString("TABLE_NAME");
+                String columnName = rs.getString(COLUMN_NAME);
+                result.computeIfAbsent(tableName, k -> new LinkedHashMap<>()).put(columnName,
+                        findScoreColumn(g, tableName, columnName) == null ? columnNameInfo(columnName)
+                                : readColumnInfo(conn, rs, g.getName(), tableName));
+            }
+        } catch (SQLException e) {
+            throw new CelestaException(e.getMessage());
+        }
+        return result;
+    }
+
+    private DbColumnInfo readColumnInfo(Connection conn, ResultSet rs, String grainName, String tableName)
+            throws SQLException {
+        DbColumnInfo result = new DbColumnInfo();
+        result.setName(rs.getString(COLUMN_NAME));
+        String typeName = rs.getString("TYPE_NAME");
+        String columnDefault = rs.getString("COLUMN_DEF");
+
+
+        String columnDefaultForIdentity = "NEXTVAL('" + tableString(grainName, tableName + "_seq") + "')";
+
+        if ("integer".equalsIgnoreCase(typeName)
+                && columnDefaultForIdentity.equals(columnDefault)) {
+            result.setType(IntegerColumn.class);
+            result.setNullable(rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls);
+            return result;
+        } else if ("clob".equalsIgnoreCase(typeName)) {
+            result.setType(StringColumn.class);
+            result.setMax(true);
+        } else {
+            for (Class<? extends Column<?>> cc : COLUMN_CLASSES) {
+                if (getColumnDefiner(cc).dbFieldType().equalsIgnoreCase(typeName)) {
+                    result.setType(cc);
+                    break;
+                }
+            }
+        }
+        result.setNullable(rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls);
+        if (result.getType() == StringColumn.class || result.getType() == DecimalColumn.class) {
+            result.setLength(rs.getInt("COLUMN_SIZE"));
+        }
+        if (result.getType() == DecimalColumn.class) {
+            result.setScale(rs.getInt("DECIMAL_DIGITS"));
+        }
+
+        if (columnDefault != null) {
+            columnDefault = modifyDefault(result, columnDefault, conn);
+            result.setDefaultValue(columnDefault);
+        }
+        return result;
+    }
+
     private String modifyDefault(DbColumnInfo ci, String defaultBody, Connection conn) {
         String result = defaultBody;
 
@@ -282,6 +339,32 @@ final public class H2Adaptor extends OpenSourceDbAdaptor {
         return result;
     }
 
+    @Override
+    public Map<String, DbPkInfo> getPKInfos(Connection conn, Grain g, Set<String> tableNames) {
+        String sql = String.format(
+                "SELECT table_name AS tableName, constraint_name AS indexName, column_name as colName "
+              + "FROM  INFORMATION_SCHEMA.INDEXES "
+              + "WHERE table_schema = '%s' "
+                      + "AND index_type_name = 'PRIMARY KEY' "
+              + "ORDER BY table_name, ordinal_position",
+                g.getName());
+        Map<String, DbPkInfo> result = new HashMap<>();
+
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                DbPkInfo pkInfo = result.computeIfAbsent(rs.getString("tableName"), k -> new DbPkInfo(this));
+                if (pkInfo.getName() == null) {
+                    pkInfo.setName(rs.getString("indexName"));
+                }
+                pkInfo.addColumnName(rs.getString("colName"));
+            }
+        } catch (SQLException e) {
+            throw new CelestaException("Could not get indices information: %s", e.getMessage());
+        }
+        return result;
+    }
+
     @Override
     public List<DbFkInfo> getFKInfo(Connection conn, Grain g) {
 
@@ -44,6 +44,7 @@ import java.sql.Statement;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -190,6 +191,81 @@ public final class MSSQLAdaptor extends DBAdaptor {
         }
     }
 
+    @Override
+    public boolean supportsInsertReturning() {
+        return true;
+    }
+
+    @Override
+    public PreparedStatement getInsertRecordReturningStatement(
+            Connection conn, BasicTable t, boolean[] nullsMask, List<ParameterSetter> program) {
+
+        StringBuilder fields = new StringBuilder();
+        StringBuilder params = new StringBuilder();
+        fillInsertFieldsAndParams(t, nullsMask, program, fields, params);
+
+        final String tableName = tableString(t.getGrain().getName(), t.getName());
+        final String returning = getTableFieldsListExceptBlobs(t, Collections.emptySet());
+
+        // OUTPUT without INTO is rejected for the tables with triggers, so the record is output
+        // into a table variable and selected from it
+        List<Column<?>> returnedColumns = new ArrayList<>();
+        for (Column<?> c : t.getColumns().values()) {
+            if (!(c instanceof BinaryColumn)) {
+                returnedColumns.add(c);
+            }
+        }
+        if (t instanceof Table && ((Table) t).isVersioned()) {
+            returnedColumns.add(((Table) t).getRecVersionField());
+        }
+        String declaration = returnedColumns.stream()
+                .map(c -> getColumnDefiner(columnClass(c)).getMainDefinition(c))
+                .collect(Collectors.joining(", "));
+        String output = returnedColumns.stream()
+                .map(c -> "inserted." + c.getQuotedName())
+                .collect(Collectors.joining(", "));
+
+        final String insert;
+        // If any of the key fields is null, no record with such a key may exist:
+        // either it is going to be generated, or the insert fails anyway.
+        boolean keyIsNull = t.getPrimaryKey().keySet().stream()
+                .anyMatch(c -> nullsMask[t.getColumnIndex(c)]);
+        if (fields.length() == 0) {
+            insert = String.format("insert into %s output %s into @inserted default values",
+                    tableName, output);
+        } else if (keyIsNull) {
+            insert = String.format("insert into %s (%s) output %s into @inserted values (%s)",
+                    tableName, fields, output, params);
+        } else {
+            String pkWhere = t.getPrimaryKey().keySet().stream()
+                    .map(c -> {
+                        program.add(ParameterSetter.create(t.getColumnIndex(c), this));
+                        return String.format("\"%s\" = ?", c);
+                    })
+                    .collect(Collectors.joining(" and "));
+            insert = String.format("insert into %s (%s) output %s into @inserted "
+                            + "select %s where not exists (select 1 from %s where %s)",
+                    tableName, fields, output, params, tableName, pkWhere);
+        }
+
+        // the row counts of the insert and of the triggers are not returned before the record
+        String sql = String.format("set nocount on; declare @inserted table (%s); %s; set nocount off; "
+                + "select %s from @inserted;", declaration, insert, returning);
+
+        return prepareStatement(conn, sql);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<? extends Column<?>> columnClass(Column<?> c) {
+        return (Class<? extends Column<?>>) c.getClass();
+    }
+
+    @Override
+    public boolean supportsUpdateCount() {
+        // the driver returns the row count of the last statement, which may be a statement of a trigger
+        return false;
+    }
+
     @Override
     public int getCurrentIdent(Connection conn, BasicTable t) {
         final String sql;
@@ -13,6 +13,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 
+import java.util.HashSet;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -20,6 +21,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.curs.celesta.score.Column;
 import ru.curs.celesta.score.DataGrainElement;
+import ru.curs.celesta.score.Grain;
 import ru.curs.celesta.score.SequenceElement;
 import ru.curs.celesta.score.TableElement;
 
@@ -177,4 +179,24 @@ public abstract class OpenSourceDbAdaptor extends DBAdaptor {
         }
     }
 
+    @Override
+    public Set<String> getSequenceNames(Connection conn, Grain g) {
+        Set<String> result = new HashSet<>();
+        try (
+                PreparedStatement preparedStatement = conn.prepareStatement(
+                        "SELECT SEQUENCE_NAME FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_SCHEMA = ?"
+                )
+        ) {
+            preparedStatement.setString(1, g.getName().replace("\"", ""));
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    result.add(rs.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new CelestaException(e.getMessage(), e);
+        }
+        return result;
+    }
+
 }
@@ -46,8 +46,9 @@ import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -90,6 +91,7 @@ import ru.curs.celesta.score.TableElement;
 
 import static ru.curs.celesta.dbutils.adaptors.constants.OpenSourceConstants.CONJUGATE_INDEX_POSTFIX;
 import static ru.curs.celesta.dbutils.adaptors.constants.OpenSourceConstants.NOW;
+import static ru.curs.celesta.dbutils.adaptors.function.CommonFunctions.getFieldList;
 
 
 /**
@@ -145,25 +147,10 @@ final public class PostgresAdaptor extends OpenSourceDbAdaptor {
     public PreparedStatement getInsertRecordStatement(Connection conn, BasicTable t, boolean[] nullsMask,
                                                       List<ParameterSetter> program) {
 
-        Iterator<String> columns = t.getColumns().keySet().iterator();
         // Создаём параметризуемую часть запроса, пропуская нулевые значения.
         StringBuilder fields = new StringBuilder();
         StringBuilder params = new StringBuilder();
-        for (int i = 0; i < t.getColumns().size(); i++) {
-            String c = columns.next();
-            if (nullsMask[i]) {
-                continue;
-            }
-            if (params.length() > 0) {
-                fields.append(", ");
-                params.append(", ");
-            }
-            params.append("?");
-            fields.append('"');
-            fields.append(c);
-            fields.append('"');
-            program.add(ParameterSetter.create(i, this));
-        }
+        fillInsertFieldsAndParams(t, nullsMask, program, fields, params);
 
         String returning = "";
         for (Column<?> c : t.getColumns().values()) {
@@ -190,6 +177,32 @@ final public class PostgresAdaptor extends OpenSourceDbAdaptor {
         return prepareStatement(conn, sql);
     }
 
+    @Override
+    public boolean supportsInsertReturning() {
+        return true;
+    }
+
+    @Override
+    public PreparedStatement getInsertRecordReturningStatement(Connection conn, BasicTable t, boolean[] nullsMask,
+                                                               List<ParameterSetter> program) {
+
+        StringBuilder fields = new StringBuilder();
+        StringBuilder params = new StringBuilder();
+        fillInsertFieldsAndParams(t, nullsMask, program, fields, params);
+
+        String pkFields = getFieldList(t.getPrimaryKey().keySet());
+        String returning = getTableFieldsListExceptBlobs(t, Collections.emptySet());
+        String values = fields.length() == 0
+                ? " default values"
+                : String.format(" (%s) values (%s)", fields.toString(), params.toString());
+
+        String sql = String.format("insert into %s%s on conflict (%s) do nothing returning %s;",
+                tableString(t.getGrain().getName(), t.getName()), values, pkFields, returning);
+
+        LOGGER.trace(sql);
+        return prepareStatement(conn, sql);
+    }
+
     @Override
     public DbColumnInfo getColumnInfo(Connection conn, Column<?> c) {
         try {
@@ -199,47 +212,7 @@ final public class PostgresAdaptor extends OpenSourceDbAdaptor {
                     c.getParentTable().getName().replace("\"", ""), c.getName()
                             .replace("\"", ""))) {
                 if (rs.next()) {
-                    DbColumnInfo result = new DbColumnInfo();
-                    result.setName(rs.getString(COLUMN_NAME));
-                    String typeName = rs.getString("TYPE_NAME");
-                    if ("serial".equalsIgnoreCase(typeName)) {
-                        result.setType(IntegerColumn.class);
-                        result.setNullable(rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls);
-
-                        String defaultBody = rs.getString("COLUMN_DEF");
-                        Pattern p = Pattern.compile("nextval\\('[\"]?[^\"]+[\"]?\\.[\"]?([^\"]+)+[\"]?'::regclass\\)");
-                        Matcher m = p.matcher(defaultBody);
-
-                        if (m.matches()) {
-                            String sequenceName = m.group(1);
-                            result.setDefaultValue("NEXTVAL(" + sequenceName + ")");
-                        }
-
-                        return result;
-                    } else if ("text".equalsIgnoreCase(typeName)) {
-                        result.setType(StringColumn.class);
-                        result.setMax(true);
-                    } else {
-                        for (Class<? extends Column<?>> cc : COLUMN_CLASSES) {
-                            if (getColumnDefiner(cc).dbFieldType().equalsIgnoreCase(typeName)) {
-                                result.setType(cc);
-                                break;
-                            }
-                        }
-                    }
-                    result.setNullable(rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls);
-                    if (result.getType() == StringColumn.class || result.getType() == DecimalColumn.class) {
-                        result.setLength(rs.getInt("COLUMN_SIZE"));
-                    }
-                    if (result.getType() == DecimalColumn.class) {
-                        result.setScale(rs.getInt("DECIMAL_DIGITS"));
-                    }
-                    String defaultBody = rs.getString("COLUMN_DEF");
-                    if (defaultBody != null) {
-                        defaultBody = modifyDefault(result, defaultBody);
-                        result.setDefaultValue(defaultBody);
-                    }
-                    return result;
+                    return readColumnInfo(rs);
                 } else {
                     return null;
                 }
@@ -249,6 +222,72 @@ final public class PostgresAdaptor extends OpenSourceDbAdaptor {
         }
     }
 
+    @Override
+    public Map<String, Map<String, DbColumnInfo>> getColumnInfos(Connection conn, Grain g) {
+        Map<String, Map<String, DbColumnInfo>> result = new HashMap<>();
+        String schemaName = g.getName().replace("\"", "");
+        try (ResultSet rs = conn.getMetaData().getColumns(null, schemaName, null, null)) {
+            while (rs.next()) {
+                // the schema name is a pattern, '_' in it matches any character
+                if (!schemaName.equals(rs.getString("TABLE_SCHEM"))) {
+                    continue;
+                }
+                String tableName = rs.getString("TABLE_NAME");
+                String columnName = rs.getString(COLUMN_NAME);
+                result.computeIfAbsent(tableName, k -> new LinkedHashMap<>()).put(columnName,
+                        findScoreColumn(g, tableName, columnName) == null ? columnNameInfo(columnName)
+                                : readColumnInfo(rs));
+            }
+        } catch (SQLException e) {
+            throw new CelestaException(e.getMessage());
+        }
+        return result;
+    }
+
+    private DbColumnInfo readColumnInfo(ResultSet rs) throws SQLException {
+        DbColumnInfo result = new DbColumnInfo();
+        result.setName(rs.getString(COLUMN_NAME));
+        String typeName = rs.getString("TYPE_NAME");
+        if ("serial".equalsIgnoreCase(typeName)) {
+            result.setType(IntegerColumn.class);
+            result.setNullable(rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls);
+
+            String defaultBody = rs.getString("COLUMN_DEF");
+            Pattern p = Pattern.compile("nextval\\('[\"]?[^\"]+[\"]?\\.[\"]?([^\"]+)+[\"]?'::regclass\\)");
+            Matcher m = p.matcher(defaultBody);
+
+            if (m.matches()) {
+                String sequenceName = m.group(1);
+                result.setDefaultValue("NEXTVAL(" + sequenceName + ")");
+            }
+
+            return result;
+        } else if ("text".equalsIgnoreCase(typeName)) {
+            result.setType(StringColumn.class);
+            result.setMax(true);
+        } else {
+            for (Class<? extends Column<?>> cc : COLUMN_CLASSES) {
+                if (getColumnDefiner(cc).dbFieldType().equalsIgnoreCase(typeName)) {
+                    result.setType(cc);
+                    break;
+                }
+            }
+        }
+        result.setNullable(rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls);
+        if (result.getType() == StringColumn.class || result.getType() == DecimalColumn.class) {
+            result.setLength(rs.getInt("COLUMN_SIZE"));
+        }
+        if (result.getType() == DecimalColumn.class) {
+            result.setScale(rs.getInt("DECIMAL_DIGITS"));
+        }
+        String defaultBody = rs.getString("COLUMN_DEF");
+        if (defaultBody != null) {
+            defaultBody = modifyDefault(result, defaultBody);
+            result.setDefaultValue(defaultBody);
+        }
+        return result;
+    }
+
     private String modifyDefault(DbColumnInfo ci, String defaultBody) {
         String result = defaultBody;
         if (DateTimeColumn.class == ci.getType()) {
@@ -377,6 +416,35 @@ final public class PostgresAdaptor extends OpenSourceDbAdaptor {
         return result;
     }
 
+    @Override
+    public Map<String, DbPkInfo> getPKInfos(Connection conn, Grain g, Set<String> tableNames) {
+        String sql = String.format(
+                "SELECT tc.table_name AS tablename, tc.constraint_name AS indexname, kcu.column_name AS colname "
+                        + "FROM information_schema.table_constraints tc "
+                        + "INNER JOIN information_schema.key_column_usage kcu "
+                        + "ON kcu.constraint_schema = tc.constraint_schema "
+                        + "AND kcu.constraint_name = tc.constraint_name AND kcu.table_name = tc.table_name "
+                        + "WHERE tc.constraint_type = 'PRIMARY KEY' AND tc.table_schema = '%s' "
+                        + "ORDER BY tc.table_name, kcu.ordinal_position",
+                g.getName().replace("\"", ""));
+        Map<String, DbPkInfo> result = new HashMap<>();
+
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                String tableName = rs.getString("tablename");
+                if (tableNames.contains(tableName)) {
+                    DbPkInfo pkInfo = result.computeIfAbsent(tableName, k -> new DbPkInfo(this));
+                    pkInfo.setName(rs.getString("indexname"));
+                    pkInfo.addColumnName(rs.getString("colname"));
+                }
+            }
+        } catch (SQLException e) {
+            throw new CelestaException("Could not get indices information: %s", e.getMessage());
+        }
+        return result;
+    }
+
     @Override
     public List<DbFkInfo> getFKInfo(Connection conn, Grain g) {
         // Full foreign key information query
@@ -0,0 +1,65 @@
+package ru.curs.celesta.dbutils.adaptors;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Hands out sequence values from blocks reserved by a single <em>next value</em> call,
+ * see {@link DBAdaptor#nextAllocatedSequenceValue}.
+ * <p>
+ * The next value {@code v} of a sequence with {@code INCREMENT BY k} reserves values
+ * {@code [v, v + k)}: nobody else gets them from the DB. The values of the block are
+ * handed out without locking, the DB is called only when the block is exhausted.
+ */
+final class SequenceAllocator {
+
+    private final int blockSize;
+    private final long maxValue;
+    private final AtomicReference<Block> block = new AtomicReference<>(new Block(0, 0));
+
+    /**
+     * Values that are left in the reserved block.
+     */
+    private static final class Block {
+        private final long next;
+        private final long end;
+
+        Block(long next, long end) {
+            this.next = next;
+            this.end = end;
+        }
+    }
+
+    SequenceAllocator(int blockSize, long maxValue) {
+        this.blockSize = blockSize;
+        this.maxValue = maxValue;
+    }
+
+    /**
+     * Returns the next value of the reserved block, reserving a new block when the current one is exhausted.
+     *
+     * @param nextSequenceValue  retrieves the next value of the sequence from the DB
+     * @return
+     */
+    long next(LongSupplier nextSequenceValue) {
+        while (true) {
+            Block b = block.get();
+            if (b.next < b.end) {
+                if (block.compareAndSet(b, new Block(b.next + 1, b.end))) {
+                    return b.next;
+                }
+            } else {
+                synchronized (this) {
+                    if (block.get() == b) {
+                        long v = nextSequenceValue.getAsLong();
+                        // the block never goes beyond MAXVALUE
+                        long end = maxValue - v < blockSize ? maxValue + 1 : v + blockSize;
+                        block.set(new Block(v + 1, end));
+                        return v;
+                    }
+                }
+            }
+        }
+    }
+
+}
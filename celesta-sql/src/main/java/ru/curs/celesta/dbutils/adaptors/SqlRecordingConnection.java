@@ -0,0 +1,79 @@
+package ru.curs.celesta.dbutils.adaptors;
+
+import ru.curs.celesta.CelestaConnection;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Connection that remembers SQL of the statement prepared through it, see
+ * {@link DBAdaptor#getMemoizedStatement}. Only a single statement prepared with
+ * {@link #prepareStatement(String)} can be memoized.
+ */
+final class SqlRecordingConnection extends CelestaConnection {
+
+    private String sql;
+    private int statementCount;
+    private boolean memoizable = true;
+
+    SqlRecordingConnection(Connection connection) {
+        super(connection);
+    }
+
+    /**
+     * Returns SQL of the prepared statement or {@code null} if it cannot be memoized.
+     *
+     * @return
+     */
+    String getSql() {
+        return memoizable && statementCount == 1 ? sql : null;
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        this.sql = sql;
+        statementCount++;
+        return super.prepareStatement(sql);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        memoizable = false;
+        return super.prepareCall(sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        memoizable = false;
+        return super.prepareStatement(sql, autoGeneratedKeys);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        memoizable = false;
+        return super.prepareStatement(sql, columnIndexes);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        memoizable = false;
+        return super.prepareStatement(sql, columnNames);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
+            throws SQLException {
+        memoizable = false;
+        return super.prepareStatement(sql, resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency,
+                                              int resultSetHoldability) throws SQLException {
+        memoizable = false;
+        return super.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+}
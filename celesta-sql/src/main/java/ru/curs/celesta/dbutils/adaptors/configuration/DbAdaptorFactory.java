@@ -29,6 +29,8 @@ public final class DbAdaptorFactory {
   private ConnectionPool connectionPool;
   private DdlConsumer ddlConsumer;
   private boolean h2ReferentialIntegrity;
+  private int fetchSize;
+  private int sequenceAllocationSize;
 
   /**
    * Sets DB type.
@@ -75,30 +77,52 @@ public final class DbAdaptorFactory {
     return this;
   }
 
+  /**
+   * Sets default number of rows fetched at once by cursors iterating over record sets.
+   *
+   * @param fetchSize  fetch size. Default value is {@code 0} (the JDBC driver's default).
+   * @return  {@code this}
+   */
+  public DbAdaptorFactory setFetchSize(int fetchSize) {
+    this.fetchSize = fetchSize;
+    return this;
+  }
+
+  /**
+   * Sets maximal number of sequence values reserved by a single <em>next value</em> call.
+   *
+   * @param sequenceAllocationSize  allocation size. Default value is {@code 0} (sequence values are not reserved).
+   * @return  {@code this}
+   */
+  public DbAdaptorFactory setSequenceAllocationSize(int sequenceAllocationSize) {
+    this.sequenceAllocationSize = sequenceAllocationSize;
+    return this;
+  }
+
   /**
    * Builds DB adaptor for concrete DB type.
    *
    * @return
    */
   public DBAdaptor createDbAdaptor() {
-
+    final DBAdaptor result;
     if (DBType.H2.equals(dbType)) {
-      return new H2Adaptor(this.connectionPool, this.ddlConsumer, this.h2ReferentialIntegrity);
-    }
-    if (DBType.POSTGRESQL.equals(dbType)) {
-      return new PostgresAdaptor(this.connectionPool, this.ddlConsumer);
-    }
-    if (DBType.MSSQL.equals(dbType)) {
-      return new MSSQLAdaptor(this.connectionPool, this.ddlConsumer);
-    }
-    if (DBType.ORACLE.equals(dbType)) {
-      return new OraAdaptor(this.connectionPool, this.ddlConsumer);
-    }
-    if (DBType.FIREBIRD.equals(dbType)) {
-      return new FirebirdAdaptor(this.connectionPool, this.ddlConsumer);
+      result = new H2Adaptor(this.connectionPool, this.ddlConsumer, this.h2ReferentialIntegrity);
+    } else if (DBType.POSTGRESQL.equals(dbType)) {
+      result = new PostgresAdaptor(this.connectionPool, this.ddlConsumer);
+    } else if (DBType.MSSQL.equals(dbType)) {
+      result = new MSSQLAdaptor(this.connectionPool, this.ddlConsumer);
+    } else if (DBType.ORACLE.equals(dbType)) {
+      result = new OraAdaptor(this.connectionPool, this.ddlConsumer);
+    } else if (DBType.FIREBIRD.equals(dbType)) {
+      result = new FirebirdAdaptor(this.connectionPool, this.ddlConsumer);
+    } else {
+      return null;
     }
 
-    return null;
+    result.setFetchSize(this.fetchSize);
+    result.setSequenceAllocationSize(this.sequenceAllocationSize);
+    return result;
   }
 
 }
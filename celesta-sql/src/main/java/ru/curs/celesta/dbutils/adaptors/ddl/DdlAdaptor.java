@@ -347,6 +347,78 @@ public final class DdlAdaptor {
 
     }
 
+    /**
+     * Returns an SQL selecting the data of the materialized view from a range of rows of its table
+     * (the bounds of the key column are the parameters).
+     *
+     * @param mv  materialized view
+     * @param keyColumn  name of the key column of the table
+     * @return
+     */
+    public String getMaterializedViewDataChunkSql(MaterializedView mv, String keyColumn) {
+        return this.ddlGenerator.selectMaterializedViewDataChunk(mv, keyColumn);
+    }
+
+    /**
+     * Returns an SQL merging a row of partial aggregates into the materialized view
+     * (the values of the columns are the parameters).
+     *
+     * @param mv  materialized view
+     * @return
+     */
+    public String getMaterializedViewMergeSql(MaterializedView mv) {
+        return this.ddlGenerator.mergeMaterializedViewRow(mv);
+    }
+
+    /**
+     * Recomputes the groups of the materialized view changed since the last refresh
+     * (deferred refresh mode).
+     *
+     * @param conn  DB connection
+     * @param mv  materialized view
+     */
+    public void refreshMaterializedView(Connection conn, MaterializedView mv) {
+        List<String> sqlList = this.ddlGenerator.refreshMaterializedView(mv);
+
+        try {
+            processSql(conn, sqlList);
+        } catch (CelestaException e) {
+            throw new CelestaException("Can't refresh materialized view %s.%s: %s",
+                    mv.getGrain().getName(), mv.getName(), e);
+        }
+    }
+
+    /**
+     * Creates the delta table of the materialized view in the deferred refresh mode.
+     *
+     * @param conn  DB connection
+     * @param mv  materialized view
+     */
+    public void createMaterializedViewDeltaTable(Connection conn, MaterializedView mv) {
+        processSql(conn, this.ddlGenerator.createMaterializedViewDeltaTable(mv));
+    }
+
+    /**
+     * Drops the delta table of the materialized view.
+     *
+     * @param conn  DB connection
+     * @param mv  materialized view
+     */
+    public void dropMaterializedViewDeltaTable(Connection conn, MaterializedView mv) {
+        processSql(conn, this.ddlGenerator.dropMaterializedViewDeltaTable(mv));
+    }
+
+    /**
+     * Returns the checksum that is written to the comment of the insert trigger of the materialized view.
+     *
+     * @param conn  DB connection
+     * @param mv  materialized view
+     * @return
+     */
+    public String getMaterializedViewTriggerChecksum(Connection conn, MaterializedView mv) {
+        return this.ddlGenerator.getMaterializedViewTriggerChecksum(conn, mv);
+    }
+
     //TODO: Javadoc
     public void dropTableTriggersForMaterializedViews(Connection conn, BasicTable t) {
         List<String> sqlList = this.ddlGenerator.dropTableTriggersForMaterializedViews(conn, t);
@@ -358,7 +430,7 @@ public final class DdlAdaptor {
     }
 
     public void createTableTriggersForMaterializedViews(Connection conn, BasicTable t) {
-        List<String> sqlList = this.ddlGenerator.createTableTriggersForMaterializedViews(t);
+        List<String> sqlList = this.ddlGenerator.createTableTriggersForMaterializedViews(conn, t);
         try {
             processSql(conn, sqlList);
         } catch (CelestaException e) {
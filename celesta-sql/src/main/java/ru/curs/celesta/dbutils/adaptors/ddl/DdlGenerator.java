@@ -21,6 +21,9 @@ import ru.curs.celesta.score.Grain;
 import ru.curs.celesta.score.Index;
 import ru.curs.celesta.score.IntegerColumn;
 import ru.curs.celesta.score.MaterializedView;
+import ru.curs.celesta.score.Max;
+import ru.curs.celesta.score.Min;
+import ru.curs.celesta.score.NamedElement;
 import ru.curs.celesta.score.ParameterizedView;
 import ru.curs.celesta.score.SQLGenerator;
 import ru.curs.celesta.score.SequenceElement;
@@ -38,15 +41,18 @@ import java.io.StringWriter;
 import java.sql.Connection;
 import java.sql.SQLException;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static ru.curs.celesta.dbutils.adaptors.constants.CommonConstants.ALTER_TABLE;
@@ -419,26 +425,266 @@ public abstract class DdlGenerator {
         BasicTable t = mv.getRefTable().getTable();
 
         String mvIdentifier = tableString(mv.getGrain().getName(), mv.getName());
-        String mvColumns = mv.getColumns().keySet().stream()
+        String deleteSql = this.truncateTable(mvIdentifier);
+
+        String selectScript = selectMaterializedViewData(mv, "", tableString(t.getGrain().getName(), t.getName()));
+        String insertSql = String.format("INSERT INTO %s (%s) " + selectScript,
+                mvIdentifier, materializedViewColumns(mv));
+
+        return Arrays.asList(deleteSql, insertSql);
+    }
+
+    /**
+     * Returns an SQL selecting the data of the materialized view from a range of rows of its table.
+     * The lower (inclusive) and the upper (exclusive) bounds of the key column are the parameters.
+     *
+     * @param mv  materialized view
+     * @param keyColumn  name of the key column of the table
+     * @return
+     */
+    final String selectMaterializedViewDataChunk(MaterializedView mv, String keyColumn) {
+        BasicTable t = mv.getRefTable().getTable();
+        return selectMaterializedViewData(mv, "", String.format("%s WHERE \"%2$s\" >= ? AND \"%2$s\" < ?",
+                tableString(t.getGrain().getName(), t.getName()), keyColumn));
+    }
+
+    /**
+     * Returns an SQL merging a row of partial aggregates into the materialized view: the aggregates
+     * of an existing group are combined with the ones of the row, a new group is inserted.
+     * The values of the columns (the surrogate count is the last one) are the parameters.
+     *
+     * @param mv  materialized view
+     * @return
+     */
+    String mergeMaterializedViewRow(MaterializedView mv) {
+        String groupCondition = materializedViewAliases(mv).stream()
+                .filter(mv::isGroupByColumn)
+                .map(alias -> String.format("mv.\"%1$s\" = r.\"%1$s\"", alias))
+                .collect(Collectors.joining(" AND "));
+        String values = materializedViewAliases(mv).stream()
+                .map(alias -> "r.\"" + alias + "\"")
+                .collect(Collectors.joining(", "));
+        return String.format("MERGE INTO %s mv USING (%s) r ON (%s) WHEN MATCHED THEN UPDATE SET %s "
+                        + "WHEN NOT MATCHED THEN INSERT (%s) VALUES (%s)",
+                tableString(mv.getGrain().getName(), mv.getName()), selectMaterializedViewRowParameters(mv),
+                groupCondition, mergeMaterializedViewAggregates(mv, "r"), materializedViewColumns(mv), values);
+    }
+
+    /**
+     * Returns an SQL selecting the parameters as a row of the materialized view
+     * (see {@link #mergeMaterializedViewRow(MaterializedView)}).
+     *
+     * @param mv  materialized view
+     * @return
+     */
+    String selectMaterializedViewRowParameters(MaterializedView mv) {
+        return materializedViewAliases(mv).stream()
+                .map(alias -> "? AS \"" + alias + "\"")
+                .collect(Collectors.joining(", ", "SELECT ", ""));
+    }
+
+    /**
+     * Returns the SET clause combining the aggregates of a group of the materialized view (aliased as
+     * {@code mv}) with the ones of a row of partial aggregates.
+     *
+     * @param mv  materialized view
+     * @param row  alias of the row
+     * @return
+     */
+    final String mergeMaterializedViewAggregates(MaterializedView mv, String row) {
+        return materializedViewAliases(mv).stream()
+                .filter(alias -> !mv.isGroupByColumn(alias))
+                .map(alias -> {
+                    Expr aggrExpr = mv.getAggregateColumns().get(alias);
+                    if (isExtremum(aggrExpr)) {
+                        return String.format("\"%s\" = %s", alias, mergeMaterializedViewExtremum(
+                                aggrExpr, "mv.\"" + alias + "\"", row + ".\"" + alias + "\""));
+                    }
+                    return String.format("\"%1$s\" = COALESCE(mv.\"%1$s\" + %2$s.\"%1$s\", "
+                            + "mv.\"%1$s\", %2$s.\"%1$s\")", alias, row);
+                })
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Returns the aliases of the columns of the materialized view, the surrogate count is the last one.
+     *
+     * @param mv  materialized view
+     * @return
+     */
+    final List<String> materializedViewAliases(MaterializedView mv) {
+        List<String> result = mv.getColumns().keySet().stream()
+                .filter(alias -> !MaterializedView.SURROGATE_COUNT.equals(alias))
+                .collect(Collectors.toList());
+        result.add(MaterializedView.SURROGATE_COUNT);
+        return result;
+    }
+
+    /**
+     * Returns SQLs recomputing the groups of the materialized view in the deferred refresh mode.
+     * The group keys appended to the delta table so far are claimed first (their time of the change
+     * is set to NULL), so the keys appended by concurrent transactions are left to the next refresh.
+     *
+     * @param mv  materialized view
+     * @return
+     */
+    final List<String> refreshMaterializedView(MaterializedView mv) {
+        BasicTable t = mv.getRefTable().getTable();
+
+        String mvIdentifier = tableString(mv.getGrain().getName(), mv.getName());
+        String deltaIdentifier = tableString(mv.getGrain().getName(), mv.getDeltaTableName());
+        String changed = "\"" + MaterializedView.DELTA_CHANGED + "\"";
+
+        String claimSql = String.format("UPDATE %s SET %2$s = NULL WHERE %2$s IS NOT NULL", deltaIdentifier, changed);
+
+        String claimedTemplate = String.format("EXISTS (SELECT * FROM %s d WHERE d.%s IS NULL%%s)",
+                deltaIdentifier, changed);
+        String mvCondition = String.format(claimedTemplate, mv.getColumns().keySet().stream()
+                .filter(mv::isGroupByColumn)
+                .map(alias -> String.format(" AND d.\"%1$s\" = mv.\"%1$s\"", alias))
+                .collect(Collectors.joining()));
+        String deleteSql = deleteFrom(mvIdentifier, "mv", mvCondition);
+
+        String tCondition = String.format(claimedTemplate, mv.getColumns().keySet().stream()
+                .filter(mv::isGroupByColumn)
+                .map(alias -> " AND d.\"" + alias + "\" = " + materializedViewGroupByColumn(mv, alias, "t0."))
+                .collect(Collectors.joining()));
+        String selectScript = selectMaterializedViewData(mv, "t0.",
+                tableString(t.getGrain().getName(), t.getName()) + " t0 WHERE " + tCondition);
+        String insertSql = String.format("INSERT INTO %s (%s) " + selectScript,
+                mvIdentifier, materializedViewColumns(mv));
+
+        String cleanUpSql = String.format("DELETE FROM %s WHERE %s IS NULL", deltaIdentifier, changed);
+
+        return Arrays.asList(claimSql, deleteSql, insertSql, cleanUpSql);
+    }
+
+    /**
+     * Returns SQLs creating the delta table of the materialized view in the deferred refresh mode
+     * and its index by the group keys. The table contains the group keys of the changed rows
+     * and the time of the change.
+     *
+     * @param mv  materialized view
+     * @return
+     */
+    final List<String> createMaterializedViewDeltaTable(MaterializedView mv) {
+        List<String> columns = new ArrayList<>();
+        for (Column<?> c : mv.getPrimaryKey().values()) {
+            @SuppressWarnings("unchecked")
+            final Class<? extends Column<?>> cClass = (Class<Column<?>>) c.getClass();
+            columns.add(ColumnDefinerFactory.getColumnDefiner(getType(), cClass).getMainDefinition(c));
+        }
+        columns.add(String.format("\"%s\" %s null", MaterializedView.DELTA_CHANGED,
+                ColumnDefinerFactory.getColumnDefiner(getType(), DateTimeColumn.class).dbFieldType()));
+
+        String deltaIdentifier = tableString(mv.getGrain().getName(), mv.getDeltaTableName());
+        String createTableSql = String.format("create table %s(\n  %s\n)",
+                deltaIdentifier, String.join(",\n  ", columns));
+        String createIndexSql = String.format("CREATE INDEX %s ON %s (%s)",
+                indexNameString(mv.getGrain().getName(), NamedElement.limitName(mv.getDeltaTableName(), "_idx")),
+                deltaIdentifier, mv.getPrimaryKey().keySet().stream()
+                        .map(alias -> "\"" + alias + "\"")
+                        .collect(Collectors.joining(", ")));
+        return Arrays.asList(createTableSql, createIndexSql);
+    }
+
+    /**
+     * Returns the name of the index for the CREATE INDEX statement.
+     *
+     * @param schemaName  schema name
+     * @param indexName  index name
+     * @return
+     */
+    String indexNameString(String schemaName, String indexName) {
+        return tableString(schemaName, indexName);
+    }
+
+    final String dropMaterializedViewDeltaTable(MaterializedView mv) {
+        return String.format("DROP TABLE %s", tableString(mv.getGrain().getName(), mv.getDeltaTableName()));
+    }
+
+    /**
+     * Returns an SQL appending the group keys of the changed rows to the delta table of the materialized view
+     * in the deferred refresh mode. The keys that are already pending in the delta table aren't appended again,
+     * so a frequently changed group costs a single row of the table between the refreshes.
+     *
+     * @param mv  materialized view
+     * @param rowPrefix  prefix of the row columns (e.g. {@code "NEW."}), has to qualify the columns
+     * @param from  FROM clause the rows are selected with (can be empty)
+     * @return
+     */
+    final String insertMaterializedViewDelta(MaterializedView mv, String rowPrefix, String from) {
+        List<String> groupByAliases = mv.getColumns().keySet().stream()
+                .filter(mv::isGroupByColumn)
+                .collect(Collectors.toList());
+
+        String deltaIdentifier = tableString(mv.getGrain().getName(), mv.getDeltaTableName());
+        List<String> columns = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        List<String> pendingCondition = new ArrayList<>();
+        for (String alias : groupByAliases) {
+            String value = materializedViewGroupByColumn(mv, alias, rowPrefix);
+            columns.add("\"" + alias + "\"");
+            values.add(value);
+            pendingCondition.add(String.format("d.\"%s\" = %s", alias, value));
+        }
+        columns.add("\"" + MaterializedView.DELTA_CHANGED + "\"");
+        values.add("CURRENT_TIMESTAMP");
+        pendingCondition.add(String.format("d.\"%s\" IS NOT NULL", MaterializedView.DELTA_CHANGED));
+
+        return String.format("INSERT INTO %s (%s) SELECT DISTINCT %s%s WHERE NOT EXISTS (SELECT * FROM %s d WHERE %s)",
+                deltaIdentifier, String.join(", ", columns), String.join(", ", values), from,
+                deltaIdentifier, String.join(" AND ", pendingCondition));
+    }
+
+    /**
+     * Returns an SQL deleting rows of the aliased table.
+     *
+     * @param tableName  table name
+     * @param alias  table alias
+     * @param condition  condition of the rows to delete
+     * @return
+     */
+    String deleteFrom(String tableName, String alias, String condition) {
+        return String.format("DELETE FROM %s %s WHERE %s", tableName, alias, condition);
+    }
+
+    /**
+     * Returns an SQL updating rows of the aliased table.
+     *
+     * @param tableName  table name
+     * @param alias  table alias
+     * @param setClause  assignments of the columns
+     * @param condition  condition of the rows to update
+     * @return
+     */
+    String update(String tableName, String alias, String setClause, String condition) {
+        return String.format("UPDATE %s %s SET %s WHERE %s", tableName, alias, setClause, condition);
+    }
+
+    private String materializedViewColumns(MaterializedView mv) {
+        return mv.getColumns().keySet().stream()
                 .filter(alias -> !MaterializedView.SURROGATE_COUNT.equals(alias))
                 .map(alias -> "\"" + alias + "\"")
                 .collect(Collectors.joining(", "))
                 .concat(", \"").concat(MaterializedView.SURROGATE_COUNT).concat("\"");
+    }
 
-        String tableGroupByColumns = mv.getColumns().values().stream()
-                .filter(v -> mv.isGroupByColumn(v.getName()))
-                .map(v -> {
-                    Column<?> colRef = mv.getColumnRef(v.getName());
-                    String groupByColStr = "\"" + mv.getColumnRef(v.getName()).getName() + "\"";
+    private String materializedViewGroupByColumn(MaterializedView mv, String alias, String rowPrefix) {
+        Column<?> colRef = mv.getColumnRef(alias);
+        String groupByColStr = rowPrefix + "\"" + colRef.getName() + "\"";
 
-                    if (DateTimeColumn.CELESTA_TYPE.equals(colRef.getCelestaType())) {
-                        return truncDate(groupByColStr);
-                    }
-                    return groupByColStr;
-                })
-                .collect(Collectors.joining(", "));
+        if (DateTimeColumn.CELESTA_TYPE.equals(colRef.getCelestaType())) {
+            return truncDate(groupByColStr);
+        }
+        return groupByColStr;
+    }
 
-        String deleteSql = this.truncateTable(mvIdentifier);
+    private String selectMaterializedViewData(MaterializedView mv, String rowPrefix, String from) {
+        String tableGroupByColumns = mv.getColumns().keySet().stream()
+                .filter(mv::isGroupByColumn)
+                .map(alias -> materializedViewGroupByColumn(mv, alias, rowPrefix))
+                .collect(Collectors.joining(", "));
 
         String colsToSelect = mv.getColumns().keySet().stream()
                 .filter(alias -> !MaterializedView.SURROGATE_COUNT.equals(alias))
@@ -451,7 +697,9 @@ public abstract class DdlGenerator {
                         if (agrExpr instanceof Count) {
                             return "COUNT(*)";
                         } else if (agrExpr instanceof Sum) {
-                            return "SUM(\"" + colRef.getName() + "\")";
+                            return "SUM(" + rowPrefix + "\"" + colRef.getName() + "\")";
+                        } else if (isExtremum(agrExpr)) {
+                            return extremumFunction(agrExpr) + "(" + rowPrefix + "\"" + colRef.getName() + "\")";
                         } else {
                             throw new RuntimeException(
                                     String.format(
@@ -461,20 +709,216 @@ public abstract class DdlGenerator {
                             );
                         }
                     } else {
-                        if (DateTimeColumn.CELESTA_TYPE.equals(colRef.getCelestaType())) {
-                            return truncDate("\"" + colRef.getName() + "\"");
-                        }
-                        return "\"" + colRef.getName() + "\"";
-
+                        return materializedViewGroupByColumn(mv, alias, rowPrefix);
                     }
                 }).collect(Collectors.joining(", "));
 
-        String selectScript = String.format("SELECT " + colsToSelect + ", COUNT(*)"
-                        + " FROM " + tableString(t.getGrain().getName(), t.getName()) + " GROUP BY %s",
-                tableGroupByColumns);
-        String insertSql = String.format("INSERT INTO %s (%s) " + selectScript, mvIdentifier, mvColumns);
+        return String.format("SELECT %s, COUNT(*) FROM %s GROUP BY %s", colsToSelect, from, tableGroupByColumns);
+    }
 
-        return Arrays.asList(deleteSql, insertSql);
+    /**
+     * Returns an SQL selecting the changes of the materialized view made by a statement on its table:
+     * one row of aggregate deltas (with the delta of the surrogate count) per affected group.
+     * MIN/MAX aggregates are selected over the inserted rows only, the removed extremums are recomputed
+     * separately (see {@link #recomputeMaterializedViewExtremums}).
+     * Groups the statement doesn't change are skipped.
+     *
+     * @param mv  materialized view
+     * @param insertedRows  relation of the rows inserted by the statement or {@code null}
+     * @param deletedRows  relation of the rows deleted by the statement or {@code null}
+     * @return
+     */
+    final String selectMaterializedViewDelta(MaterializedView mv, String insertedRows, String deletedRows) {
+        List<String> groupByAliases = mv.getColumns().keySet().stream()
+                .filter(mv::isGroupByColumn)
+                .map(alias -> "\"" + alias + "\"")
+                .collect(Collectors.toList());
+        List<String> deltas = new ArrayList<>();
+        List<String> changeConditions = new ArrayList<>();
+        Map<String, Expr> aggrCols = new LinkedHashMap<>(mv.getAggregateColumns());
+        aggrCols.put(MaterializedView.SURROGATE_COUNT, new Count());
+        aggrCols.forEach((alias, aggrExpr) -> {
+            String quotedAlias = "\"" + alias + "\"";
+            if (isExtremum(aggrExpr)) {
+                String delta = extremumFunction(aggrExpr) + "(" + quotedAlias + ")";
+                deltas.add(delta + " AS " + quotedAlias);
+                changeConditions.add(delta + " IS NOT NULL");
+            } else {
+                deltas.add("SUM(" + quotedAlias + ") AS " + quotedAlias);
+                changeConditions.add("SUM(" + quotedAlias + ") <> 0");
+            }
+        });
+
+        List<String> rowSelects = new ArrayList<>();
+        if (insertedRows != null) {
+            rowSelects.add(selectMaterializedViewRowDeltas(mv, insertedRows, ""));
+        }
+        if (deletedRows != null) {
+            rowSelects.add(selectMaterializedViewRowDeltas(mv, deletedRows, "-"));
+        }
+
+        return String.format("SELECT %s, %s FROM (%s) delta GROUP BY %s HAVING %s",
+                String.join(", ", groupByAliases),
+                String.join(", ", deltas),
+                String.join(" UNION ALL ", rowSelects),
+                String.join(", ", groupByAliases),
+                String.join(" OR ", changeConditions));
+    }
+
+    private String selectMaterializedViewRowDeltas(MaterializedView mv, String rows, String sign) {
+        Map<String, Expr> aggrCols = mv.getAggregateColumns();
+
+        String columns = mv.getColumns().keySet().stream()
+                .filter(alias -> !MaterializedView.SURROGATE_COUNT.equals(alias))
+                .map(alias -> {
+                    Expr aggrExpr = aggrCols.get(alias);
+                    if (aggrExpr instanceof Count) {
+                        return sign + "1 AS \"" + alias + "\"";
+                    }
+
+                    Column<?> colRef = mv.getColumnRef(alias);
+                    String colRefStr = "\"" + colRef.getName() + "\"";
+                    if (aggrExpr instanceof Sum) {
+                        return sign + colRefStr + " AS \"" + alias + "\"";
+                    } else if (isExtremum(aggrExpr)) {
+                        // removed values don't contribute, NULLIF gives NULL of the column type
+                        return (sign.isEmpty() ? colRefStr : "NULLIF(" + colRefStr + ", " + colRefStr + ")")
+                                + " AS \"" + alias + "\"";
+                    } else if (aggrExpr != null) {
+                        throw new CelestaException("Aggregate func of type %s is not supported",
+                                aggrExpr.getClass().getSimpleName());
+                    }
+
+                    if (DateTimeColumn.CELESTA_TYPE.equals(colRef.getCelestaType())) {
+                        colRefStr = truncDate(colRefStr);
+                    }
+                    return colRefStr + " AS \"" + alias + "\"";
+                })
+                .collect(Collectors.joining(", "));
+
+        return String.format("SELECT %s, %s1 AS \"%s\" FROM %s",
+                columns, sign, MaterializedView.SURROGATE_COUNT, rows);
+    }
+
+    /**
+     * Returns an SQL expression merging a value into the MIN/MAX aggregate of a materialized view group:
+     * the extremum is replaced if the value goes beyond it. NULL values are ignored as by the aggregate.
+     *
+     * @param aggrExpr  {@link Min} or {@link Max} aggregate
+     * @param extremum  current extremum of the group
+     * @param value  merged value
+     * @return
+     */
+    final String mergeMaterializedViewExtremum(Expr aggrExpr, String extremum, String value) {
+        return String.format("CASE WHEN %2$s IS NULL OR %1$s %3$s %2$s THEN %1$s ELSE %2$s END",
+                extremum, value, aggrExpr instanceof Max ? ">=" : "<=");
+    }
+
+    /**
+     * Returns an SQL recomputing the MIN/MAX aggregates of the materialized view after the rows
+     * of its table were removed. Only the groups where a removed value equals the current extremum
+     * are recomputed from the table, the other extremums are left as is.
+     *
+     * @param mv  materialized view
+     * @param deletedRows  relation of the removed rows or {@code null} if a single row is removed
+     * @param rowPrefix  prefix of the removed row columns if {@code deletedRows} is {@code null}
+     *                   (e.g. {@code "OLD."})
+     * @return  {@code null} if the view has no MIN/MAX aggregates
+     */
+    final String recomputeMaterializedViewExtremums(MaterializedView mv, String deletedRows, String rowPrefix) {
+        Map<String, Expr> extremums = getExtremumColumns(mv);
+        if (extremums.isEmpty()) {
+            return null;
+        }
+
+        String removedPrefix = deletedRows == null ? rowPrefix : "d.";
+        Function<String, String> removedCondition = condition -> deletedRows == null ? condition
+                : String.format("EXISTS (SELECT * FROM %s d WHERE %s)", deletedRows, condition);
+
+        String setClause = extremums.entrySet().stream()
+                .map(e -> {
+                    String alias = e.getKey();
+                    String recomputed = selectMaterializedViewExtremum(mv, alias, e.getValue());
+                    if (extremums.size() > 1) {
+                        recomputed = String.format("CASE WHEN %s THEN %s ELSE mv.\"%s\" END",
+                                removedCondition.apply(materializedViewGroupCondition(mv, removedPrefix) + " AND "
+                                        + removedExtremumCondition(mv, alias, removedPrefix)),
+                                recomputed, alias);
+                    }
+                    return "\"" + alias + "\" = " + recomputed;
+                })
+                .collect(Collectors.joining(", "));
+
+        return update(tableString(mv.getGrain().getName(), mv.getName()), "mv", setClause,
+                removedCondition.apply(removedExtremumsCondition(mv, removedPrefix)));
+    }
+
+    /**
+     * Returns an SQL recomputing all the MIN/MAX aggregates of the materialized view groups
+     * matching the condition (the view is aliased as {@code mv}).
+     *
+     * @param mv  materialized view
+     * @param condition  condition of the groups to recompute
+     * @return
+     */
+    final String recomputeMaterializedViewExtremums(MaterializedView mv, String condition) {
+        String setClause = getExtremumColumns(mv).entrySet().stream()
+                .map(e -> "\"" + e.getKey() + "\" = " + selectMaterializedViewExtremum(mv, e.getKey(), e.getValue()))
+                .collect(Collectors.joining(", "));
+
+        return update(tableString(mv.getGrain().getName(), mv.getName()), "mv", setClause, condition);
+    }
+
+    /**
+     * Returns the condition of the materialized view group (the view is aliased as {@code mv})
+     * of the removed row with a removed value equal to the current extremum of the group.
+     *
+     * @param mv  materialized view
+     * @param rowPrefix  prefix of the removed row columns (e.g. {@code "OLD."})
+     * @return
+     */
+    final String removedExtremumsCondition(MaterializedView mv, String rowPrefix) {
+        return materializedViewGroupCondition(mv, rowPrefix) + " AND ("
+                + getExtremumColumns(mv).keySet().stream()
+                        .map(alias -> removedExtremumCondition(mv, alias, rowPrefix))
+                        .collect(Collectors.joining(" OR "))
+                + ")";
+    }
+
+    static Map<String, Expr> getExtremumColumns(MaterializedView mv) {
+        Map<String, Expr> result = new LinkedHashMap<>();
+        mv.getAggregateColumns().forEach((alias, aggrExpr) -> {
+            if (isExtremum(aggrExpr)) {
+                result.put(alias, aggrExpr);
+            }
+        });
+        return result;
+    }
+
+    private String selectMaterializedViewExtremum(MaterializedView mv, String alias, Expr aggrExpr) {
+        BasicTable t = mv.getRefTable().getTable();
+        return String.format("(SELECT %s(t0.\"%s\") FROM %s t0 WHERE %s)",
+                extremumFunction(aggrExpr), mv.getColumnRef(alias).getName(),
+                tableString(t.getGrain().getName(), t.getName()), materializedViewGroupCondition(mv, "t0."));
+    }
+
+    private String materializedViewGroupCondition(MaterializedView mv, String rowPrefix) {
+        return mv.getColumns().keySet().stream()
+                .filter(mv::isGroupByColumn)
+                .map(alias -> "mv.\"" + alias + "\" = " + materializedViewGroupByColumn(mv, alias, rowPrefix))
+                .collect(Collectors.joining(" AND "));
+    }
+
+    private static String removedExtremumCondition(MaterializedView mv, String alias, String rowPrefix) {
+        return rowPrefix + "\"" + mv.getColumnRef(alias).getName() + "\" = mv.\"" + alias + "\"";
+    }
+
+    static boolean isExtremum(Expr aggrExpr) {
+        return aggrExpr instanceof Min || aggrExpr instanceof Max;
+    }
+
+    private static String extremumFunction(Expr aggrExpr) {
+        return aggrExpr instanceof Max ? "MAX" : "MIN";
     }
 
     String truncateTable(String tableName) {
@@ -520,7 +964,19 @@ public abstract class DdlGenerator {
 
     public abstract List<String> dropTableTriggersForMaterializedViews(Connection conn, BasicTable t);
 
-    public abstract List<String> createTableTriggersForMaterializedViews(BasicTable t);
+    /**
+     * Returns the checksum that is written to the comment of the insert trigger of the materialized view
+     * by {@link #createTableTriggersForMaterializedViews(Connection, BasicTable)}.
+     *
+     * @param conn  DB connection
+     * @param mv  materialized view
+     * @return
+     */
+    String getMaterializedViewTriggerChecksum(Connection conn, MaterializedView mv) {
+        return mv.getTriggerChecksum();
+    }
+
+    public abstract List<String> createTableTriggersForMaterializedViews(Connection conn, BasicTable t);
 
     /**
      * Returns an SQL with the rounding function of timestamp to date.
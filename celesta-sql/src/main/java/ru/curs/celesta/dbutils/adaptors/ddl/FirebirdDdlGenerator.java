@@ -5,6 +5,7 @@ import ru.curs.celesta.DBType;
 import ru.curs.celesta.dbutils.adaptors.DBAdaptor;
 import ru.curs.celesta.dbutils.adaptors.FirebirdAdaptor;
 import ru.curs.celesta.dbutils.adaptors.column.ColumnDefinerFactory;
+import ru.curs.celesta.dbutils.adaptors.column.FireBirdColumnDefiner;
 import ru.curs.celesta.dbutils.meta.DbColumnInfo;
 import ru.curs.celesta.dbutils.meta.DbIndexInfo;
 import ru.curs.celesta.event.TriggerQuery;
@@ -781,7 +782,7 @@ public final class FirebirdDdlGenerator extends DdlGenerator {
     }
 
     @Override
-    public List<String> createTableTriggersForMaterializedViews(BasicTable t) {
+    public List<String> createTableTriggersForMaterializedViews(Connection conn, BasicTable t) {
         // TODO:: What about locks?
         List<String> result = new ArrayList<>();
 
@@ -822,7 +823,7 @@ public final class FirebirdDdlGenerator extends DdlGenerator {
                                 return "1 as \"" + alias + "\"";
                             }
                             return "";
-                        } else if (aggrCols.get(alias) instanceof Sum) {
+                        } else if (aggrCols.get(alias) instanceof Sum || isExtremum(aggrCols.get(alias))) {
                             return "%1$s.\"" + colRef.getName() + "\" as " + "\"" + alias + "\"";
                         } else {
                             return "";
@@ -857,25 +858,37 @@ public final class FirebirdDdlGenerator extends DdlGenerator {
                 .append("INSERT (%s) VALUES (%s); \n");
 
             String setStatementTemplate = mv.getAggregateColumns().entrySet().stream()
+                .filter(e -> !isExtremum(e.getValue()))
                 .map(e -> {
                     StringBuilder sb = new StringBuilder();
                     String alias = e.getKey();
 
                     sb.append("\"mv\".\"").append(alias)
                         .append("\" = \"mv\".\"").append(alias)
-                        .append("\" %1$s \"aggregate\".\"").append(alias).append("\"");
+                        .append("\" %1$s \"aggregate\".\"").append(alias).append("\", ");
 
                     return sb.toString();
-                }).collect(Collectors.joining(", "))
-                .concat(", \"mv\".\"").concat(MaterializedView.SURROGATE_COUNT).concat("\" = ")
+                }).collect(Collectors.joining())
+                .concat("\"mv\".\"").concat(MaterializedView.SURROGATE_COUNT).concat("\" = ")
                 .concat("\"mv\".\"").concat(MaterializedView.SURROGATE_COUNT).concat("\" %1$s \"aggregate\".\"")
                 .concat(MaterializedView.SURROGATE_COUNT).concat("\"");
 
+            // MIN/MAX are merged on insert, the removed extremums are recomputed after delete
+            String extremumsSetStatement = getExtremumColumns(mv).entrySet().stream()
+                .map(e -> ", \"mv\".\"" + e.getKey() + "\" = " + mergeMaterializedViewExtremum(e.getValue(),
+                    "\"mv\".\"" + e.getKey() + "\"", "\"aggregate\".\"" + e.getKey() + "\""))
+                .collect(Collectors.joining());
+
             String insertSql = String.format(insertSqlBuilder.toString(), fullMvName,
                 String.format(selectPartOfScriptTemplate, "NEW"), String.format(rowConditionTemplate, "aggregate"),
-                String.format(setStatementTemplate, "+"), mvColumns, aggregateColumns);
-
-            String deleteMatchedCondTemplate = mv.getAggregateColumns().keySet().stream()
+                String.format(setStatementTemplate, "+") + extremumsSetStatement, mvColumns, aggregateColumns);
+
+            List<String> deleteMatchedAliases = mv.getAggregateColumns().entrySet().stream()
+                .filter(e -> !isExtremum(e.getValue()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+            deleteMatchedAliases.add(MaterializedView.SURROGATE_COUNT);
+            String deleteMatchedCondTemplate = deleteMatchedAliases.stream()
                 .map(alias -> "\"mv\".\"" + alias + "\" %1$s \"aggregate\".\"" + alias + "\"")
                 .collect(Collectors.joining(" %2$s "));
 
@@ -910,12 +923,23 @@ public final class FirebirdDdlGenerator extends DdlGenerator {
                         .concat(" AND " + existsSql + ")")),
                 String.format(setStatementTemplate, "-"));
 
+            String recomputeExtremumsSql = recomputeMaterializedViewExtremums(mv, null, "OLD.");
+            if (recomputeExtremumsSql != null) {
+                deleteSql += "\n" + recomputeExtremumsSql + ";";
+            }
+
+            if (mv.isDeferredRefresh()) {
+                // The triggers only append the group keys of the changed rows to the delta table
+                insertSql = insertMaterializedViewDelta(mv, "NEW.", " FROM RDB$DATABASE") + ";";
+                deleteSql = insertMaterializedViewDelta(mv, "OLD.", " FROM RDB$DATABASE") + ";";
+            }
+
             String sql = "CREATE TRIGGER \"" + insertTriggerName + "\" "
                 + "for " + fullTableName
                 + " AFTER INSERT \n"
                 + " AS \n"
                 + " BEGIN \n"
-                + String.format(MaterializedView.CHECKSUM_COMMENT_TEMPLATE, mv.getChecksum())
+                + String.format(MaterializedView.CHECKSUM_COMMENT_TEMPLATE, mv.getTriggerChecksum())
                 + "\n " + insertSql + "\n END;";
 
             result.add(sql);
@@ -925,7 +949,7 @@ public final class FirebirdDdlGenerator extends DdlGenerator {
                 + " AFTER DELETE \n"
                 + " AS \n"
                 + " BEGIN \n"
-                + String.format(MaterializedView.CHECKSUM_COMMENT_TEMPLATE, mv.getChecksum())
+                + String.format(MaterializedView.CHECKSUM_COMMENT_TEMPLATE, mv.getTriggerChecksum())
                 + "\n " + deleteSql + "\n END;";
 
             result.add(sql);
@@ -936,7 +960,7 @@ public final class FirebirdDdlGenerator extends DdlGenerator {
                 + " AFTER UPDATE \n"
                 + " AS \n"
                 + " BEGIN \n"
-                + String.format(MaterializedView.CHECKSUM_COMMENT_TEMPLATE, mv.getChecksum())
+                + String.format(MaterializedView.CHECKSUM_COMMENT_TEMPLATE, mv.getTriggerChecksum())
                 + "\n " + updateSql + "\n END;";
 
             result.add(sql);
@@ -950,6 +974,21 @@ public final class FirebirdDdlGenerator extends DdlGenerator {
         return String.format("CAST(CAST(%s as Date) AS TIMESTAMP)", dateStr);
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    String selectMaterializedViewRowParameters(MaterializedView mv) {
+        // the types of the parameters in the select list are unknown to Firebird
+        return materializedViewAliases(mv).stream()
+                .map(alias -> {
+                    Column<?> c = mv.getColumns().get(alias);
+                    FireBirdColumnDefiner definer = (FireBirdColumnDefiner) ColumnDefinerFactory.getColumnDefiner(
+                            getType(), (Class<? extends Column<?>>) c.getClass());
+                    String type = definer.getInternalDefinition(c).substring(c.getQuotedName().length()).trim();
+                    return String.format("CAST(? AS %s) AS \"%s\"", type, alias);
+                })
+                .collect(Collectors.joining(", ", "SELECT ", " FROM RDB$DATABASE"));
+    }
+
 
     private List<String> createOrReplaceSequenceTriggerForColumn(Connection conn, String triggerName,
                                                                  IntegerColumn ic) {
@@ -4,6 +4,7 @@ package ru.curs.celesta.dbutils.adaptors.ddl;
 import ru.curs.celesta.CelestaException;
 import ru.curs.celesta.DBType;
 import ru.curs.celesta.dbutils.adaptors.DBAdaptor;
+import ru.curs.celesta.dbutils.adaptors.column.ColumnDefiner;
 import ru.curs.celesta.dbutils.adaptors.column.ColumnDefinerFactory;
 import ru.curs.celesta.dbutils.h2.MaterializedViewDeleteTrigger;
 import ru.curs.celesta.dbutils.h2.MaterializedViewInsertTrigger;
@@ -220,6 +221,24 @@ public final class H2DdlGenerator extends OpenSourceDdlGenerator {
         return "TRUNC(" + dateStr + ")";
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    String selectMaterializedViewRowParameters(MaterializedView mv) {
+        // the types of the parameters in the select list are unknown to H2
+        return materializedViewAliases(mv).stream()
+                .map(alias -> {
+                    Column<?> c = mv.getColumns().get(alias);
+                    ColumnDefiner definer = ColumnDefinerFactory.getColumnDefiner(
+                            getType(), (Class<? extends Column<?>>) c.getClass());
+                    // the main definition consists of the name, the type and the nullability of the column
+                    String definition = definer.getMainDefinition(c);
+                    String type = definition.substring(c.getQuotedName().length(),
+                            definition.length() - definer.nullable(c).length()).trim();
+                    return String.format("CAST(? AS %s) AS \"%s\"", type, alias);
+                })
+                .collect(Collectors.joining(", ", "SELECT ", ""));
+    }
+
     @Override
     public List<String> dropTableTriggersForMaterializedViews(Connection conn, BasicTable t)  {
         List<String> result = new ArrayList<>();
@@ -255,7 +274,7 @@ public final class H2DdlGenerator extends OpenSourceDdlGenerator {
     }
 
     @Override
-    public List<String> createTableTriggersForMaterializedViews(BasicTable t) {
+    public List<String> createTableTriggersForMaterializedViews(Connection conn, BasicTable t) {
         List<String> result = new ArrayList<>();
         List<MaterializedView> mvList = t.getGrain().getElements(MaterializedView.class).values().stream()
                 .filter(mv -> mv.getRefTable().getTable().equals(t))
@@ -279,7 +298,7 @@ public final class H2DdlGenerator extends OpenSourceDdlGenerator {
                             + tableString(t.getGrain().getName(), t.getName()) + " FOR EACH ROW CALL %n "
                             + MaterializedView.CHECKSUM_COMMENT_TEMPLATE + "%n"
                             + "\"%s\"",
-                    mv.getChecksum(),
+                    mv.getTriggerChecksum(),
                     MaterializedViewInsertTrigger.class.getName());
             result.add(sql);
             this.rememberTrigger(query.withName(insertTriggerName));
@@ -189,6 +189,11 @@ public final class MsSqlDdlGenerator extends DdlGenerator {
         return Arrays.asList(sql);
     }
 
+    @Override
+    String indexNameString(String schemaName, String indexName) {
+        return "\"" + indexName + "\"";
+    }
+
     @Override
     public SQLGenerator getViewSQLGenerator() {
         return new SQLGenerator() {
@@ -258,11 +263,27 @@ public final class MsSqlDdlGenerator extends DdlGenerator {
         return Optional.of(sql);
     }
 
+    @Override
+    String deleteFrom(String tableName, String alias, String condition) {
+        return String.format("DELETE %2$s FROM %1$s %2$s WHERE %3$s", tableName, alias, condition);
+    }
+
+    @Override
+    String update(String tableName, String alias, String setClause, String condition) {
+        return String.format("UPDATE %2$s SET %3$s FROM %1$s %2$s WHERE %4$s", tableName, alias, setClause, condition);
+    }
+
     @Override
     String truncDate(String dateStr) {
         return "cast(floor(cast(" + dateStr + " as float)) as datetime)";
     }
 
+    @Override
+    String mergeMaterializedViewRow(MaterializedView mv) {
+        // MERGE has to be terminated with a semicolon
+        return super.mergeMaterializedViewRow(mv) + ";";
+    }
+
     @Override
     public List<String> dropTableTriggersForMaterializedViews(Connection conn, BasicTable t)  {
         List<String> result = new ArrayList<>();
@@ -307,7 +328,13 @@ public final class MsSqlDdlGenerator extends DdlGenerator {
     }
 
     @Override
-    public List<String> createTableTriggersForMaterializedViews(BasicTable t) {
+    String getMaterializedViewTriggerChecksum(Connection conn, MaterializedView mv) {
+        // the changes of a statement are merged into the view at once
+        return mv.getTriggerChecksum(true);
+    }
+
+    @Override
+    public List<String> createTableTriggersForMaterializedViews(Connection conn, BasicTable t) {
         List<String> result = new ArrayList<>();
 
         String fullTableName = tableString(t.getGrain().getName(), t.getName());
@@ -353,107 +380,51 @@ public final class MsSqlDdlGenerator extends DdlGenerator {
                     .map(alias -> "mv." + alias + " = %1$s." + alias + " ")
                     .collect(Collectors.joining(" AND "));
 
-            String rowConditionForExistsTemplate = mv.getColumns().keySet().stream()
-                    .filter(alias -> mv.isGroupByColumn(alias))
-                    .map(alias -> {
-                        Column<?> colRef = mv.getColumnRef(alias);
-
-                        if (DateTimeColumn.CELESTA_TYPE.equals(colRef.getCelestaType())) {
-                            return "mv." + alias + " = cast(floor(cast(%1$s."
-                                         + mv.getColumnRef(alias).getName() + " as float)) as datetime)";
-                        }
-
-                        return "mv." + alias + " = %1$s." + mv.getColumnRef(alias).getName() + " ";
-                    })
-                    .collect(Collectors.joining(" AND "));
-
             String setStatementTemplate = mv.getAggregateColumns().entrySet().stream()
-                    .map(e -> {
-                        StringBuilder sb = new StringBuilder();
-                        String alias = e.getKey();
-
-                        sb.append("mv.").append(alias)
-                                .append(" = mv.").append(alias)
-                                .append(" %1$s aggregate.").append(alias);
-
-                        return sb.toString();
-                    }).collect(Collectors.joining(", "))
+                    .map(e -> isExtremum(e.getValue())
+                            ? String.format("mv.%s = %s", e.getKey(), mergeMaterializedViewExtremum(
+                                    e.getValue(), "mv." + e.getKey(), "aggregate." + e.getKey()))
+                            : String.format("mv.%1$s = COALESCE(mv.%1$s + aggregate.%1$s, mv.%1$s, aggregate.%1$s)",
+                                    e.getKey()))
+                    .collect(Collectors.joining(", "))
                     .concat(", mv.").concat(MaterializedView.SURROGATE_COUNT).concat(" = ")
-                    .concat("mv.").concat(MaterializedView.SURROGATE_COUNT).concat(" %1$s aggregate.")
+                    .concat("mv.").concat(MaterializedView.SURROGATE_COUNT).concat(" + aggregate.")
                     .concat(MaterializedView.SURROGATE_COUNT);
 
-            String tableGroupByColumns = mv.getColumns().values().stream()
-                    .filter(v -> mv.isGroupByColumn(v.getName()))
-                    .map(v -> {
-                                if (DateTimeColumn.CELESTA_TYPE.equals(v.getCelestaType())) {
-                                    return "cast(floor(cast(\"" + v.getName() + "\" as float)) as datetime)";
-                                }
-                                return "\"" + mv.getColumnRef(v.getName()).getName() + "\"";
-                            }
-                    ).collect(Collectors.joining(", "));
-
-
-            String selectPartOfScript = mv.getColumns().keySet().stream()
-                    .filter(alias -> !MaterializedView.SURROGATE_COUNT.equals(alias))
-                    .map(alias -> {
-                        Column<?> colRef = mv.getColumnRef(alias);
-
-                        Map<String, Expr> aggrCols = mv.getAggregateColumns();
-                        if (aggrCols.containsKey(alias)) {
-                            if (colRef == null) {
-                                if (aggrCols.get(alias) instanceof Count) {
-                                    return "COUNT(*) as \"" + alias + "\"";
-                                }
-                                return "";
-                            } else if (aggrCols.get(alias) instanceof Sum) {
-                                return "SUM(\"" + colRef.getName() + "\") as \"" + alias + "\"";
-                            } else {
-                                return "";
-                            }
-                        }
-
-                        if (DateTimeColumn.CELESTA_TYPE.equals(colRef.getCelestaType())) {
-                            return "cast(floor(cast(\"" + colRef.getName() + "\" as float)) as datetime) "
-                                    + "as \"" + alias + "\"";
-                        }
-
-                        return "\"" + colRef.getName() + "\" as " + "\"" + alias + "\"";
-                    })
-                    .filter(str -> !str.isEmpty())
-                    .collect(Collectors.joining(", "))
-                    .concat(", COUNT(*) AS " + MaterializedView.SURROGATE_COUNT);
-
-            StringBuilder insertSqlBuilder = new StringBuilder("MERGE INTO %s WITH (HOLDLOCK) AS mv \n")
-                    .append("USING (SELECT %s FROM inserted GROUP BY %s) AS aggregate ON %s \n")
+            // The changes of the statement are aggregated per group and merged at once
+            StringBuilder mergeSqlBuilder = new StringBuilder("MERGE INTO %s WITH (HOLDLOCK) AS mv \n")
+                    .append("USING (%%s) AS aggregate ON %s \n")
+                    .append("WHEN MATCHED AND mv.%s + aggregate.%s = 0 THEN DELETE \n")
                     .append("WHEN MATCHED THEN \n ")
                     .append("UPDATE SET %s \n")
-                    .append("WHEN NOT MATCHED THEN \n")
+                    .append("WHEN NOT MATCHED AND aggregate.%s > 0 THEN \n")
                     .append("INSERT (%s) VALUES (%s); \n");
 
-            String insertSql = String.format(insertSqlBuilder.toString(), fullMvName,
-                    selectPartOfScript, tableGroupByColumns, String.format(rowConditionTemplate, "aggregate"),
-                    String.format(setStatementTemplate, "+"), mvColumns, aggregateColumns);
-
-            String deleteMatchedCondTemplate = mv.getAggregateColumns().keySet().stream()
-                    .map(alias -> "mv." + alias + " %1$s aggregate." + alias)
-                    .collect(Collectors.joining(" %2$s "));
-
-            String existsSql = "EXISTS(SELECT * FROM " + fullTableName + " AS t WHERE "
-                    + String.format(rowConditionForExistsTemplate, "t") + ")";
-
-            StringBuilder deleteSqlBuilder = new StringBuilder("MERGE INTO %s WITH (HOLDLOCK) AS mv \n")
-                    .append("USING (SELECT %s FROM deleted GROUP BY %s) AS aggregate ON %s \n")
-                    .append("WHEN MATCHED AND %s THEN DELETE\n ")
-                    .append("WHEN MATCHED AND (%s) THEN \n")
-                    .append("UPDATE SET %s; \n");
-
-            String deleteSql = String.format(deleteSqlBuilder.toString(), fullMvName,
-                    selectPartOfScript, tableGroupByColumns, String.format(rowConditionTemplate, "aggregate"),
-                    String.format(deleteMatchedCondTemplate, "=", "AND").concat(" AND NOT " + existsSql),
-                    String.format(deleteMatchedCondTemplate, "<>", "OR")
-                            .concat(" OR (" + String.format(deleteMatchedCondTemplate, "=", "AND")
-                                    .concat(" AND " + existsSql + ")")),
-                    String.format(setStatementTemplate, "-"));
+            String mergeSqlTemplate = String.format(mergeSqlBuilder.toString(), fullMvName,
+                    String.format(rowConditionTemplate, "aggregate"),
+                    MaterializedView.SURROGATE_COUNT, MaterializedView.SURROGATE_COUNT, setStatementTemplate,
+                    MaterializedView.SURROGATE_COUNT, mvColumns, aggregateColumns);
+
+            String insertSql;
+            String updateSql;
+            String deleteSql;
+            if (mv.isDeferredRefresh()) {
+                // The triggers only append the group keys of the changed rows to the delta table
+                insertSql = insertMaterializedViewDelta(mv, "inserted.", " FROM inserted") + ";";
+                deleteSql = insertMaterializedViewDelta(mv, "deleted.", " FROM deleted") + ";";
+                updateSql = insertSql + "\n" + deleteSql;
+            } else {
+                insertSql = String.format(mergeSqlTemplate, selectMaterializedViewDelta(mv, "inserted", null));
+                updateSql = String.format(mergeSqlTemplate,
+                        selectMaterializedViewDelta(mv, "inserted", "deleted"));
+                deleteSql = String.format(mergeSqlTemplate, selectMaterializedViewDelta(mv, null, "deleted"));
+
+                String recomputeExtremumsSql = recomputeMaterializedViewExtremums(mv, "deleted", null);
+                if (recomputeExtremumsSql != null) {
+                    updateSql += recomputeExtremumsSql + ";\n";
+                    deleteSql += recomputeExtremumsSql + ";\n";
+                }
+            }
 
             String sql;
             //INSERT
@@ -462,14 +433,14 @@ public final class MsSqlDdlGenerator extends DdlGenerator {
                             + "on %s after insert as begin %n"
                             + MaterializedView.CHECKSUM_COMMENT_TEMPLATE
                             + "%n %s %n END;",
-                    t.getGrain().getName(), insertTriggerName, fullTableName, mv.getChecksum(), insertSql);
+                    t.getGrain().getName(), insertTriggerName, fullTableName, mv.getTriggerChecksum(true), insertSql);
             LOGGER.trace(sql);
             result.add(sql);
             this.rememberTrigger(query.withName(insertTriggerName));
 
             //UPDATE
             //Инструкции для update-триггера нужно собирать и использовать после прогона главного цикла метода
-            afterUpdateTriggerTsql.append(String.format("%n%s%n %n%s%n", deleteSql, insertSql));
+            afterUpdateTriggerTsql.append(String.format("%n%s%n", updateSql));
             //DELETE
 
             sql = String.format("create trigger \"%s\".\"%s\" on %s after delete as begin %n %s %n END;",
@@ -686,6 +686,11 @@ public final class OraDdlGenerator extends DdlGenerator {
         return "TRUNC(" + dateStr + " , 'DD')";
     }
 
+    @Override
+    String selectMaterializedViewRowParameters(MaterializedView mv) {
+        return super.selectMaterializedViewRowParameters(mv) + " FROM dual";
+    }
+
     @Override
     public List<String> dropTableTriggersForMaterializedViews(Connection conn, BasicTable t)  {
         List<String> result = new ArrayList<>();
@@ -720,7 +725,7 @@ public final class OraDdlGenerator extends DdlGenerator {
     }
 
     @Override
-    public List<String> createTableTriggersForMaterializedViews(BasicTable t) {
+    public List<String> createTableTriggersForMaterializedViews(Connection conn, BasicTable t) {
         List<String> result = new ArrayList<>();
 
         List<MaterializedView> mvList = t.getGrain().getElements(MaterializedView.class).values().stream()
@@ -740,7 +745,9 @@ public final class OraDdlGenerator extends DdlGenerator {
             String updateTriggerName = mv.getTriggerName(TriggerType.POST_UPDATE);
             String deleteTriggerName = mv.getTriggerName(TriggerType.POST_DELETE);
 
-            String lockTable = String.format("LOCK TABLE %s IN EXCLUSIVE MODE;\n", fullMvName);
+            // in the deferred refresh mode the view isn't changed by the triggers
+            String lockTable = mv.isDeferredRefresh()
+                    ? "" : String.format("LOCK TABLE %s IN EXCLUSIVE MODE;\n", fullMvName);
 
             String mvColumns = mv.getColumns().keySet().stream()
                     .filter(alias -> !MaterializedView.SURROGATE_COUNT.equals(alias))
@@ -798,6 +805,13 @@ public final class OraDdlGenerator extends DdlGenerator {
                         StringBuilder sb = new StringBuilder();
                         String alias = e.getKey();
 
+                        if (isExtremum(e.getValue())) {
+                            return sb.append("mv.\"").append(alias).append("\" = ")
+                                    .append(mergeMaterializedViewExtremum(e.getValue(),
+                                            "mv.\"" + alias + "\"", "%2$s.\"" + alias + "\""))
+                                    .toString();
+                        }
+
                         sb.append("mv.\"").append(alias)
                                 .append("\" = mv.\"").append(alias)
                                 .append("\" %1$s ");
@@ -815,6 +829,7 @@ public final class OraDdlGenerator extends DdlGenerator {
 
 
             String setStatementTemplateForDelete = mv.getAggregateColumns().entrySet().stream()
+                    .filter(e -> !isExtremum(e.getValue()))
                     .map(e -> {
                         StringBuilder sb = new StringBuilder();
                         String alias = e.getKey();
@@ -829,9 +844,9 @@ public final class OraDdlGenerator extends DdlGenerator {
                             sb.append("1");
                         }
 
-                        return sb.toString();
-                    }).collect(Collectors.joining(", "))
-                    .concat(", mv.\"").concat(MaterializedView.SURROGATE_COUNT).concat("\" = ")
+                        return sb.append(", ").toString();
+                    }).collect(Collectors.joining())
+                    .concat("mv.\"").concat(MaterializedView.SURROGATE_COUNT).concat("\" = ")
                     .concat("mv.\"").concat(MaterializedView.SURROGATE_COUNT).concat("\" %1$s 1");
 
 
@@ -856,6 +871,11 @@ public final class OraDdlGenerator extends DdlGenerator {
                     .append(String.format("DELETE FROM %s mv ", fullMvName))
                     .append("WHERE ").append(delStatement).append(";\n");
 
+            String deleteSql = deleteSqlBuilder.toString();
+            if (mv.isDeferredRefresh()) {
+                insertSql = insertMaterializedViewDelta(mv, ":new.", " FROM dual") + ";\n";
+                deleteSql = insertMaterializedViewDelta(mv, ":old.", " FROM dual") + ";\n";
+            }
 
             String sql;
 
@@ -865,28 +885,40 @@ public final class OraDdlGenerator extends DdlGenerator {
                             + "on %s for each row\n"
                             + "begin \n" + MaterializedView.CHECKSUM_COMMENT_TEMPLATE
                             + "\n %s \n %s \n END;",
-                    insertTriggerName, fullTableName, mv.getChecksum(), lockTable, insertSql);
+                    insertTriggerName, fullTableName, mv.getTriggerChecksum(), lockTable, insertSql);
             LOGGER.trace(sql);
             result.add(sql);
             this.rememberTrigger(query.withName(insertTriggerName));
 
+            boolean recomputesExtremums = !mv.isDeferredRefresh() && !getExtremumColumns(mv).isEmpty();
+
             //UPDATE
-            sql = String.format(
-                    "create or replace trigger \"%s\" after update "
-                            + "on %s for each row\n"
-                            + "begin %s \n %s\n %s\n END;",
-                    updateTriggerName, fullTableName, lockTable, deleteSqlBuilder.toString(), insertSql);
+            if (recomputesExtremums) {
+                sql = createTriggerRecomputingExtremums(updateTriggerName, "update", fullTableName, mv,
+                        String.format("%s \n %s\n %s\n", lockTable, deleteSql, insertSql));
+            } else {
+                sql = String.format(
+                        "create or replace trigger \"%s\" after update "
+                                + "on %s for each row\n"
+                                + "begin %s \n %s\n %s\n END;",
+                        updateTriggerName, fullTableName, lockTable, deleteSql, insertSql);
+            }
 
             LOGGER.trace(sql);
             result.add(sql);
             this.rememberTrigger(query.withName(updateTriggerName));
 
             //DELETE
-            sql = String.format(
-                    "create or replace trigger \"%s\" after delete "
-                            + "on %s for each row\n "
-                            + " begin %s \n %s\n END;",
-                    deleteTriggerName, fullTableName, lockTable, deleteSqlBuilder.toString());
+            if (recomputesExtremums) {
+                sql = createTriggerRecomputingExtremums(deleteTriggerName, "delete", fullTableName, mv,
+                        String.format("%s \n %s\n", lockTable, deleteSql));
+            } else {
+                sql = String.format(
+                        "create or replace trigger \"%s\" after delete "
+                                + "on %s for each row\n "
+                                + " begin %s \n %s\n END;",
+                        deleteTriggerName, fullTableName, lockTable, deleteSql);
+            }
 
             result.add(sql);
             this.rememberTrigger(query.withName(deleteTriggerName));
@@ -895,6 +927,33 @@ public final class OraDdlGenerator extends DdlGenerator {
         return result;
     }
 
+    /**
+     * Creates a compound trigger maintaining the materialized view with MIN/MAX aggregates.
+     * A row level trigger can't read the table being changed, so the groups of the removed extremums
+     * are collected per row and recomputed after the statement.
+     */
+    private String createTriggerRecomputingExtremums(String triggerName, String event, String fullTableName,
+                                                     MaterializedView mv, String rowSql) {
+        return String.format(
+                "create or replace trigger \"%s\" for %s on %s compound trigger\n"
+                        + "TYPE stale_rowids IS TABLE OF ROWID;\n"
+                        + "stale stale_rowids := stale_rowids();\n"
+                        + "after each row is begin\n"
+                        + "%s"
+                        + "FOR r IN (SELECT mv.ROWID AS rid FROM %s mv WHERE %s) LOOP\n"
+                        + "stale.EXTEND; stale(stale.LAST) := r.rid;\n"
+                        + "END LOOP;\n"
+                        + "end after each row;\n"
+                        + "after statement is begin\n"
+                        + "FORALL i IN 1 .. stale.COUNT\n"
+                        + "%s;\n"
+                        + "end after statement;\n"
+                        + "END;",
+                triggerName, event, fullTableName, rowSql,
+                tableString(mv.getGrain().getName(), mv.getName()), removedExtremumsCondition(mv, ":old."),
+                recomputeMaterializedViewExtremums(mv, "mv.ROWID = stale(i)"));
+    }
+
     private List<String> updateDecimalColumn(Connection conn, DecimalColumn dc, DbColumnInfo actual, String def) {
         List<String> result = new ArrayList<>();
         final String tableFullName = tableString(
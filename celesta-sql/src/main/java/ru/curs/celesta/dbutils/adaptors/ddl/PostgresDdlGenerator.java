@@ -206,6 +206,11 @@ public final class PostgresDdlGenerator extends OpenSourceDdlGenerator {
         return result;
     }
 
+    @Override
+    String indexNameString(String schemaName, String indexName) {
+        return "\"" + indexName + "\"";
+    }
+
     @Override
     public SQLGenerator getViewSQLGenerator() {
         return new SQLGenerator() {
@@ -278,6 +283,18 @@ public final class PostgresDdlGenerator extends OpenSourceDdlGenerator {
         return "date_trunc('DAY'," + dateStr + ")";
     }
 
+    @Override
+    String mergeMaterializedViewRow(MaterializedView mv) {
+        List<String> aliases = materializedViewAliases(mv);
+        return String.format("INSERT INTO %s AS mv (%s) VALUES (%s) ON CONFLICT (%s) DO UPDATE SET %s",
+                tableString(mv.getGrain().getName(), mv.getName()),
+                aliases.stream().map(alias -> "\"" + alias + "\"").collect(Collectors.joining(", ")),
+                aliases.stream().map(alias -> "?").collect(Collectors.joining(", ")),
+                aliases.stream().filter(mv::isGroupByColumn).map(alias -> "\"" + alias + "\"")
+                        .collect(Collectors.joining(", ")),
+                mergeMaterializedViewAggregates(mv, "EXCLUDED"));
+    }
+
     @Override
     public List<String> dropTableTriggersForMaterializedViews(Connection conn, BasicTable t)  {
         List<String> result = new ArrayList<>();
@@ -337,7 +354,7 @@ public final class PostgresDdlGenerator extends OpenSourceDdlGenerator {
     }
 
     @Override
-    public List<String> createTableTriggersForMaterializedViews(BasicTable t) {
+    public List<String> createTableTriggersForMaterializedViews(Connection conn, BasicTable t) {
         List<String> result = new ArrayList<>();
 
         List<MaterializedView> mvList = t.getGrain().getElements(MaterializedView.class).values().stream()
@@ -350,7 +367,18 @@ public final class PostgresDdlGenerator extends OpenSourceDdlGenerator {
                 .withSchema(t.getGrain().getName())
                 .withTableName(t.getName());
 
+        boolean statementLevel = !mvList.isEmpty() && supportsTransitionTables(conn);
+
         for (MaterializedView mv : mvList) {
+            if (mv.isDeferredRefresh()) {
+                result.addAll(createDeferredRefreshTriggersForMaterializedView(t, mv, query, statementLevel));
+                continue;
+            }
+            if (statementLevel) {
+                result.addAll(createStatementLevelTriggersForMaterializedView(t, mv, query));
+                continue;
+            }
+
             String fullMvName = tableString(mv.getGrain().getName(), mv.getName());
 
             String insertTriggerName = mv.getTriggerName(TriggerType.POST_INSERT);
@@ -381,6 +409,7 @@ public final class PostgresDdlGenerator extends OpenSourceDdlGenerator {
 
 
             String setStatementTemplate = mv.getAggregateColumns().entrySet().stream()
+                    .filter(e -> !isExtremum(e.getValue()))
                     .map(e -> {
                         StringBuilder sb = new StringBuilder();
                         String alias = e.getKey();
@@ -397,11 +426,18 @@ public final class PostgresDdlGenerator extends OpenSourceDdlGenerator {
                             sb.append("1");
                         }
 
-                        return sb.toString();
-                    }).collect(Collectors.joining(", "))
-                    .concat(", \"").concat(MaterializedView.SURROGATE_COUNT).concat("\" = ")
+                        return sb.append(", ").toString();
+                    }).collect(Collectors.joining())
+                    .concat("\"").concat(MaterializedView.SURROGATE_COUNT).concat("\" = ")
                     .concat("\"").concat(MaterializedView.SURROGATE_COUNT).concat("\" %1$s 1");
 
+            // MIN/MAX are merged on insert, the removed extremums are recomputed after delete
+            String extremumsSetStatement = getExtremumColumns(mv).entrySet().stream()
+                    .map(e -> ", \"" + e.getKey() + "\" = " + mergeMaterializedViewExtremum(e.getValue(),
+                            "\"" + e.getKey() + "\"", "NEW.\"" + mv.getColumnRef(e.getKey()).getName() + "\""))
+                    .collect(Collectors.joining());
+            String recomputeExtremumsSql = recomputeMaterializedViewExtremums(mv, null, "OLD.");
+
             String rowConditionTemplate = mv.getColumns().keySet().stream()
                     .filter(alias -> mv.isGroupByColumn(alias))
                     .map(alias -> {
@@ -441,7 +477,7 @@ public final class PostgresDdlGenerator extends OpenSourceDdlGenerator {
                   + "IF updatedCount = 0 THEN \n"
                      + " INSERT INTO %s (%s) VALUES(%s); \n"
                   + "END IF;\n",
-                    fullMvName, String.format(setStatementTemplate, "+", "NEW"),
+                    fullMvName, String.format(setStatementTemplate, "+", "NEW") + extremumsSetStatement,
                     String.format(rowConditionTemplate, "NEW"), fullMvName,
                     mvColumns + ", " + MaterializedView.SURROGATE_COUNT,
                     String.format(rowColumnsTemplate, "NEW") + ", 1");
@@ -451,6 +487,9 @@ public final class PostgresDdlGenerator extends OpenSourceDdlGenerator {
                   + "DELETE FROM %s WHERE %s ;\n",
                     fullMvName, String.format(setStatementTemplate, "-", "OLD"),
                     String.format(rowConditionTemplate, "OLD"), fullMvName, whereForDelete);
+            if (recomputeExtremumsSql != null) {
+                deleteSql += recomputeExtremumsSql + ";\n";
+            }
 
             String sql;
 
@@ -464,7 +503,7 @@ public final class PostgresDdlGenerator extends OpenSourceDdlGenerator {
                           + "LOCK TABLE ONLY %s IN EXCLUSIVE MODE; \n"
                           + "%s "
                           + "RETURN NEW; END; $BODY$\n" + "  LANGUAGE plpgsql VOLATILE COST 100;",
-                    insertTriggerFunctionFullName, mv.getChecksum(), fullMvName, insertSql);
+                    insertTriggerFunctionFullName, mv.getTriggerChecksum(), fullMvName, insertSql);
 
             LOGGER.trace(sql);
             result.add(sql);
@@ -525,4 +564,173 @@ public final class PostgresDdlGenerator extends OpenSourceDdlGenerator {
         return result;
     }
 
+    @Override
+    String getMaterializedViewTriggerChecksum(Connection conn, MaterializedView mv) {
+        return mv.getTriggerChecksum(supportsTransitionTables(conn));
+    }
+
+    /**
+     * Transition tables of statement level triggers appeared in PostgreSQL 10.
+     */
+    private static boolean supportsTransitionTables(Connection conn) {
+        try {
+            return conn.getMetaData().getDatabaseMajorVersion() >= 10;
+        } catch (SQLException e) {
+            throw new CelestaException(e);
+        }
+    }
+
+    /**
+     * Creates triggers maintaining the materialized view once per statement: the changes of the statement
+     * are aggregated per group from the transition tables and merged into the materialized view at once.
+     */
+    private List<String> createStatementLevelTriggersForMaterializedView(
+            BasicTable t, MaterializedView mv, TriggerQuery query) {
+        List<String> result = new ArrayList<>();
+
+        String fullMvName = tableString(mv.getGrain().getName(), mv.getName());
+
+        List<String> groupByAliases = mv.getColumns().keySet().stream()
+                .filter(mv::isGroupByColumn)
+                .collect(Collectors.toList());
+        List<String> aggregateAliases = new ArrayList<>(mv.getAggregateColumns().keySet());
+        aggregateAliases.add(MaterializedView.SURROGATE_COUNT);
+
+        String groupByColumns = groupByAliases.stream()
+                .map(alias -> "\"" + alias + "\"")
+                .collect(Collectors.joining(", "));
+
+        String setStatement = aggregateAliases.stream()
+                .map(alias -> {
+                    Expr aggrExpr = mv.getAggregateColumns().get(alias);
+                    if (isExtremum(aggrExpr)) {
+                        return String.format("\"%s\" = %s", alias, mergeMaterializedViewExtremum(
+                                aggrExpr, "mv.\"" + alias + "\"", "EXCLUDED.\"" + alias + "\""));
+                    }
+                    return String.format("\"%1$s\" = COALESCE(mv.\"%1$s\" + EXCLUDED.\"%1$s\", "
+                            + "mv.\"%1$s\", EXCLUDED.\"%1$s\")", alias);
+                })
+                .collect(Collectors.joining(", "));
+
+        String mergeSqlTemplate = String.format(
+                "INSERT INTO %s AS mv (%s, %s) %%s \nON CONFLICT (%s) DO UPDATE SET %s;\n",
+                fullMvName, groupByColumns,
+                aggregateAliases.stream().map(alias -> "\"" + alias + "\"").collect(Collectors.joining(", ")),
+                groupByColumns, setStatement);
+
+        String deletedGroups = groupByAliases.stream()
+                .map(alias -> {
+                    String colRefStr = "\"" + mv.getColumnRef(alias).getName() + "\"";
+                    if (DateTimeColumn.CELESTA_TYPE.equals(mv.getColumnRef(alias).getCelestaType())) {
+                        colRefStr = truncDate(colRefStr);
+                    }
+                    return colRefStr + " AS \"" + alias + "\"";
+                })
+                .collect(Collectors.joining(", "));
+        String deleteEmptyGroupsSql = String.format(
+                "DELETE FROM %s AS mv USING (SELECT DISTINCT %s FROM old_rows) AS d WHERE %s "
+                        + "AND mv.\"%s\" = 0;\n",
+                fullMvName, deletedGroups,
+                groupByAliases.stream()
+                        .map(alias -> "mv.\"" + alias + "\" = d.\"" + alias + "\"")
+                        .collect(Collectors.joining(" AND ")),
+                MaterializedView.SURROGATE_COUNT);
+
+        String recomputeExtremumsSql = recomputeMaterializedViewExtremums(mv, "old_rows", null);
+        if (recomputeExtremumsSql != null) {
+            deleteEmptyGroupsSql += recomputeExtremumsSql + ";\n";
+        }
+
+        String insertSql = String.format(mergeSqlTemplate, selectMaterializedViewDelta(mv, "new_rows", null));
+        String updateSql = String.format(mergeSqlTemplate, selectMaterializedViewDelta(mv, "new_rows", "old_rows"))
+                + deleteEmptyGroupsSql;
+        String deleteSql = String.format(mergeSqlTemplate, selectMaterializedViewDelta(mv, null, "old_rows"))
+                + deleteEmptyGroupsSql;
+
+        String lockTable = String.format("LOCK TABLE ONLY %s IN EXCLUSIVE MODE; \n", fullMvName);
+
+        //INSERT
+        result.addAll(createMaterializedViewTrigger(t, mv, TriggerType.POST_INSERT,
+                "REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT",
+                String.format(MaterializedView.CHECKSUM_COMMENT_TEMPLATE, mv.getTriggerChecksum(true)) + "\n"
+                        + lockTable + insertSql));
+        this.rememberTrigger(query.withName(mv.getTriggerName(TriggerType.POST_INSERT)));
+        //UPDATE
+        result.addAll(createMaterializedViewTrigger(t, mv, TriggerType.POST_UPDATE,
+                "REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT", lockTable + updateSql));
+        this.rememberTrigger(query.withName(mv.getTriggerName(TriggerType.POST_UPDATE)));
+        //DELETE
+        result.addAll(createMaterializedViewTrigger(t, mv, TriggerType.POST_DELETE,
+                "REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT", lockTable + deleteSql));
+        this.rememberTrigger(query.withName(mv.getTriggerName(TriggerType.POST_DELETE)));
+
+        return result;
+    }
+
+    /**
+     * Creates the triggers of the materialized view in the deferred refresh mode: the triggers only append
+     * the group keys of the changed rows to the delta table, the view is not locked.
+     */
+    private List<String> createDeferredRefreshTriggersForMaterializedView(
+            BasicTable t, MaterializedView mv, TriggerQuery query, boolean statementLevel) {
+        List<String> result = new ArrayList<>();
+
+        String insertSql;
+        String deleteSql;
+        String insertOptions;
+        String updateOptions;
+        String deleteOptions;
+        if (statementLevel) {
+            insertSql = insertMaterializedViewDelta(mv, "new_rows.", " FROM new_rows") + ";\n";
+            deleteSql = insertMaterializedViewDelta(mv, "old_rows.", " FROM old_rows") + ";\n";
+            insertOptions = "REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT";
+            updateOptions = "REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT";
+            deleteOptions = "REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT";
+        } else {
+            insertSql = insertMaterializedViewDelta(mv, "NEW.", "") + ";\n";
+            deleteSql = insertMaterializedViewDelta(mv, "OLD.", "") + ";\n";
+            insertOptions = "FOR EACH ROW";
+            updateOptions = insertOptions;
+            deleteOptions = insertOptions;
+        }
+
+        //INSERT
+        result.addAll(createMaterializedViewTrigger(t, mv, TriggerType.POST_INSERT, insertOptions,
+                String.format(MaterializedView.CHECKSUM_COMMENT_TEMPLATE, mv.getTriggerChecksum(statementLevel))
+                        + "\n" + insertSql));
+        this.rememberTrigger(query.withName(mv.getTriggerName(TriggerType.POST_INSERT)));
+        //UPDATE
+        result.addAll(createMaterializedViewTrigger(t, mv, TriggerType.POST_UPDATE, updateOptions,
+                deleteSql + insertSql));
+        this.rememberTrigger(query.withName(mv.getTriggerName(TriggerType.POST_UPDATE)));
+        //DELETE
+        result.addAll(createMaterializedViewTrigger(t, mv, TriggerType.POST_DELETE, deleteOptions, deleteSql));
+        this.rememberTrigger(query.withName(mv.getTriggerName(TriggerType.POST_DELETE)));
+
+        return result;
+    }
+
+    private List<String> createMaterializedViewTrigger(
+            BasicTable t, MaterializedView mv, TriggerType type, String triggerOptions, String body) {
+        // INSERT, UPDATE or DELETE
+        String event = type.name().substring("POST_".length());
+        String functionFullName = String.format("\"%s\".\"%s_%sTriggerFunc\"()",
+                t.getGrain().getName(), mv.getName(), event.toLowerCase());
+
+        String functionSql = String.format(
+                "CREATE OR REPLACE FUNCTION %s RETURNS trigger AS $BODY$ \n "
+              + "BEGIN \n"
+                  + "%s"
+                  + "RETURN NULL; END; $BODY$\n" + "  LANGUAGE plpgsql VOLATILE COST 100;",
+                functionFullName, body);
+        LOGGER.trace(functionSql);
+
+        String triggerSql = String.format(
+                "CREATE TRIGGER \"%s\" AFTER %s ON %s %s EXECUTE PROCEDURE %s",
+                mv.getTriggerName(type), event, tableString(t.getGrain().getName(), t.getName()),
+                triggerOptions, functionFullName);
+        LOGGER.trace(triggerSql);
+
+        return Arrays.asList(functionSql, triggerSql);
+    }
 }
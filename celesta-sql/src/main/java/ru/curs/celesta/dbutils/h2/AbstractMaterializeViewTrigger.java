@@ -1,6 +1,8 @@
 package ru.curs.celesta.dbutils.h2;
 
 import org.h2.api.Trigger;
+import org.h2.engine.SessionInterface;
+import org.h2.jdbc.JdbcConnection;
 import ru.curs.celesta.CurrentScore;
 import ru.curs.celesta.event.TriggerType;
 import ru.curs.celesta.score.*;
@@ -8,10 +10,16 @@ import ru.curs.celesta.score.*;
 import java.sql.*;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 
 /**
  * Base class for all triggers of materialized view.
+ * <p>
+ * The SQL of the trigger is built once on initialization. The trigger instance is shared
+ * by all the sessions of the database, so the statements are prepared and reused per session.
+ * In the deferred refresh mode the trigger only appends the group keys of the changed rows
+ * to the delta table of the view.
  *
  * @author ioann
  * @since 2017-07-07
@@ -20,6 +28,11 @@ public abstract class AbstractMaterializeViewTrigger implements Trigger {
 
     private static final Map<Integer, TriggerType> TRIGGER_TYPE_MAP = new HashMap<>();
 
+    /**
+     * Maximum number of sessions the prepared statements are kept for.
+     */
+    private static final int MAX_CACHED_SESSIONS = 16;
+
     static {
         TRIGGER_TYPE_MAP.put(1, TriggerType.POST_INSERT);
         TRIGGER_TYPE_MAP.put(2, TriggerType.POST_UPDATE);
@@ -29,12 +42,25 @@ public abstract class AbstractMaterializeViewTrigger implements Trigger {
     private BasicTable t;
     private MaterializedView mv;
 
-    private String tFullName;
-    private String mvFullName;
-    private String keySearchTerm;
-    private String mvAllColumns;
-    private HashMap<Integer, String> tGroupByColumnIndices = new LinkedHashMap<>();
-    private HashMap<Integer, String> mvColumnRefs = new LinkedHashMap<>();
+    private String deleteSql;
+    private String insertSql;
+    // indices of the table columns which values are the parameters of the statements
+    private int[] deleteParamIndices;
+    private int[] insertParamIndices;
+    private int[] mvColumnRefIndices;
+
+    // delete and insert statements by sessions, the least recently used go first
+    private final Map<SessionInterface, PreparedStatement[]> statements =
+            new LinkedHashMap<SessionInterface, PreparedStatement[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<SessionInterface, PreparedStatement[]> eldest) {
+                    if (size() > MAX_CACHED_SESSIONS) {
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
 
     @Override
     public void init(Connection connection, String schemaName, String triggerName, String tableName,
@@ -53,16 +79,16 @@ public abstract class AbstractMaterializeViewTrigger implements Trigger {
             throw new RuntimeException(e);
         }
 
-        tFullName = String.format("\"%s\".\"%s\"", t.getGrain().getName(), t.getName());
-        mvFullName = String.format("\"%s\".\"%s\"", mv.getGrain().getName(), mv.getName());
+        String tFullName = String.format("\"%s\".\"%s\"", t.getGrain().getName(), t.getName());
+        String mvFullName = String.format("\"%s\".\"%s\"", mv.getGrain().getName(), mv.getName());
 
-        mvAllColumns = mv.getColumns().keySet().stream()
-                .filter(alias -> !MaterializedView.SURROGATE_COUNT.equals(alias))
-                .map(v -> "\"" + v + "\"")
-                .collect(Collectors.joining(", "));
+        List<String> tColumns = new ArrayList<>(t.getColumns().keySet());
 
-        keySearchTerm = mv.getColumns().keySet().stream()
+        List<String> mvGroupByAliases = mv.getColumns().keySet().stream()
                 .filter(alias -> mv.isGroupByColumn(alias))
+                .collect(Collectors.toList());
+
+        String keySearchTerm = mvGroupByAliases.stream()
                 .map((String alias) -> {
                     try {
                         return String.format("(\"%s\" = %s)",
@@ -74,40 +100,70 @@ public abstract class AbstractMaterializeViewTrigger implements Trigger {
                     }
                 })
                 .collect(Collectors.joining(" and "));
+        deleteSql = String.format("DELETE FROM %s WHERE %s", mvFullName, keySearchTerm);
+        deleteParamIndices = mvGroupByAliases.stream()
+                .mapToInt(alias -> tColumns.indexOf(mv.getColumnRef(alias).getName()))
+                .toArray();
 
         List<String> columnRefNames = mv.getColumnRefNames();
+        List<String> tGroupByColumns = new ArrayList<>();
+        List<Integer> tGroupByColumnIndices = new ArrayList<>();
+        List<Integer> columnRefIndices = new ArrayList<>();
 
         int curIndex = 0;
-        for (String tCol : t.getColumns().keySet()) {
-            boolean isGroupBy = mv.getColumns().keySet().stream()
-                    .anyMatch(v -> mv.isGroupByColumn(v) && tCol.equals(mv.getColumnRef(v).getName()));
+        for (String tCol : tColumns) {
+            boolean isGroupBy = mvGroupByAliases.stream()
+                    .anyMatch(v -> tCol.equals(mv.getColumnRef(v).getName()));
 
             if (isGroupBy) {
-                tGroupByColumnIndices.put(curIndex, tCol);
+                tGroupByColumns.add(tCol);
+                tGroupByColumnIndices.add(curIndex);
             }
 
             if (columnRefNames.contains(tCol)) {
-                mvColumnRefs.put(curIndex, tCol);
+                columnRefIndices.add(curIndex);
             }
             ++curIndex;
         }
+        insertParamIndices = tGroupByColumnIndices.stream().mapToInt(Integer::intValue).toArray();
+        mvColumnRefIndices = columnRefIndices.stream().mapToInt(Integer::intValue).toArray();
+        if (mv.isDeferredRefresh()) {
+            deleteSql = null;
+            insertSql = buildDeltaInsertSql(mvGroupByAliases);
+            insertParamIndices = IntStream.concat(Arrays.stream(deleteParamIndices), Arrays.stream(deleteParamIndices))
+                    .toArray();
+        } else {
+            insertSql = buildInsertSql(tFullName, mvFullName, tGroupByColumns);
+        }
     }
 
+    /**
+     * Builds the SQL appending the group key to the delta table unless the key is already pending there.
+     * The parameters of the key are repeated in the condition.
+     */
+    private String buildDeltaInsertSql(List<String> mvGroupByAliases) {
+        String deltaFullName = String.format("\"%s\".\"%s\"", mv.getGrain().getName(), mv.getDeltaTableName());
+        List<String> columns = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        List<String> pendingCondition = new ArrayList<>();
+        for (String alias : mvGroupByAliases) {
+            String value = DateTimeColumn.CELESTA_TYPE.equals(mv.getColumnRef(alias).getCelestaType())
+                    ? "TRUNC(?)" : "?";
+            columns.add("\"" + alias + "\"");
+            values.add(value);
+            pendingCondition.add(String.format("d.\"%s\" = %s", alias, value));
+        }
+        columns.add("\"" + MaterializedView.DELTA_CHANGED + "\"");
+        values.add("CURRENT_TIMESTAMP");
+        pendingCondition.add(String.format("d.\"%s\" IS NOT NULL", MaterializedView.DELTA_CHANGED));
 
-    void delete(Connection conn, Object[] row) throws SQLException {
-
-        HashMap<String, Object> groupByColumnValues = getTableRowGroupByColumns(row);
-
-        String deleteSql = String.format("DELETE FROM %s WHERE %s", mvFullName, keySearchTerm);
-
-        setParamsAndRun(conn, groupByColumnValues, deleteSql);
+        return String.format("INSERT INTO %s (%s) SELECT %s FROM DUAL WHERE NOT EXISTS (SELECT * FROM %s d WHERE %s)",
+                deltaFullName, String.join(", ", columns), String.join(", ", values),
+                deltaFullName, String.join(" AND ", pendingCondition));
     }
 
-    void insert(Connection conn, Object[] row) throws SQLException {
-
-        HashMap<String, Object> groupByColumnValues = getTableRowGroupByColumns(row);
-
-        String whereCondition = groupByColumnValues.keySet().stream()
+    private String buildInsertSql(String tFullName, String mvFullName, List<String> tGroupByColumns) {
+        String whereCondition = tGroupByColumns.stream()
                 .map(alias -> {
                     try {
                         return DateTimeColumn.CELESTA_TYPE.equals(
@@ -134,6 +190,10 @@ public abstract class AbstractMaterializeViewTrigger implements Trigger {
                             return "";
                         } else if (aggrCols.get(alias) instanceof Sum) {
                             return "SUM(\"" + colRef.getName() + "\") as \"" + alias + "\"";
+                        } else if (aggrCols.get(alias) instanceof Max) {
+                            return "MAX(\"" + colRef.getName() + "\") as \"" + alias + "\"";
+                        } else if (aggrCols.get(alias) instanceof Min) {
+                            return "MIN(\"" + colRef.getName() + "\") as \"" + alias + "\"";
                         } else {
                             return "";
                         }
@@ -155,47 +215,89 @@ public abstract class AbstractMaterializeViewTrigger implements Trigger {
         selectStmtBuilder.append(" WHERE ").append(whereCondition)
                 .append(mv.getGroupByPartOfScript());
 
-        String insertSql = String.format("INSERT INTO %s (%s) %s", mvFullName,
+        String mvAllColumns = mv.getColumns().keySet().stream()
+                .filter(alias -> !MaterializedView.SURROGATE_COUNT.equals(alias))
+                .map(v -> "\"" + v + "\"")
+                .collect(Collectors.joining(", "));
+
+        return String.format("INSERT INTO %s (%s) %s", mvFullName,
                 mvAllColumns + ", \"" + MaterializedView.SURROGATE_COUNT + "\"", selectStmtBuilder.toString());
+    }
 
+    void delete(Connection conn, Object[] row) throws SQLException {
+        if (deleteSql == null) {
+            return;
+        }
+        setParamsAndRun(getStatements(conn)[0], deleteParamIndices, row);
+    }
 
-        setParamsAndRun(conn, groupByColumnValues, insertSql);
+    void insert(Connection conn, Object[] row) throws SQLException {
+        setParamsAndRun(getStatements(conn)[1], insertParamIndices, row);
     }
 
-    private void setParamsAndRun(
-            Connection conn, HashMap<String, Object> groupByColumnValues, String insertSql) throws SQLException {
+    private static void setParamsAndRun(PreparedStatement stmt, int[] paramIndices, Object[] row)
+            throws SQLException {
+        for (int i = 0; i < paramIndices.length; i++) {
+            stmt.setObject(i + 1, row[paramIndices[i]]);
+        }
+        stmt.execute();
+    }
+
+    /**
+     * Returns the delete and insert statements prepared in the session of the connection.
+     * H2 passes a new connection of the session to every trigger call.
+     */
+    private PreparedStatement[] getStatements(Connection conn) throws SQLException {
+        SessionInterface session = conn.unwrap(JdbcConnection.class).getSession();
+        synchronized (statements) {
+            PreparedStatement[] result = statements.get(session);
+            if (result == null) {
+                Iterator<Map.Entry<SessionInterface, PreparedStatement[]>> i = statements.entrySet().iterator();
+                while (i.hasNext()) {
+                    Map.Entry<SessionInterface, PreparedStatement[]> e = i.next();
+                    if (e.getKey().isClosed()) {
+                        closeQuietly(e.getValue());
+                        i.remove();
+                    }
+                }
+                result = new PreparedStatement[] {
+                    deleteSql == null ? null : conn.prepareStatement(deleteSql), conn.prepareStatement(insertSql)
+                };
+                statements.put(session, result);
+            }
+            return result;
+        }
+    }
 
-        try (PreparedStatement stmt = conn.prepareStatement(insertSql)) {
-            int i = 0;
-            for (Object value : groupByColumnValues.values()) {
-                stmt.setObject(++i, value);
+    private static void closeQuietly(PreparedStatement[] stmts) {
+        for (PreparedStatement stmt : stmts) {
+            if (stmt == null) {
+                continue;
+            }
+            try {
+                stmt.close();
+            } catch (SQLException e) {
+                // the session may be already closed
             }
-            stmt.execute();
         }
     }
 
     @Override
     public void close() {
-        //nothing to do
+        synchronized (statements) {
+            statements.values().forEach(AbstractMaterializeViewTrigger::closeQuietly);
+            statements.clear();
+        }
     }
 
     @Override
     public void remove() {
-        //nothing to do
+        close();
     }
 
     abstract String getNamePrefix();
 
-    private HashMap<String, Object> getTableRowGroupByColumns(Object[] row) {
-        HashMap<String, Object> result = new LinkedHashMap<>();
-
-        tGroupByColumnIndices.entrySet().stream()
-                .forEach(e -> result.put(e.getValue(), row[e.getKey()]));
-
-        return result;
-    }
-
-    HashMap<Integer, String> getMvColumnRefs() {
-        return mvColumnRefs;
+    int[] getMvColumnRefIndices() {
+        return mvColumnRefIndices;
     }
 }
@@ -33,8 +33,12 @@ public final class MaterializedViewUpdateTrigger extends AbstractMaterializeView
   }
 
   private boolean mvColumnsAreChanged(Object[] oldRow, Object[] newRow) {
-      return getMvColumnRefs().keySet().stream()
-        .anyMatch(i -> !Objects.equals(oldRow[i], newRow[i]));
+    for (int i : getMvColumnRefIndices()) {
+      if (!Objects.equals(oldRow[i], newRow[i])) {
+        return true;
+      }
+    }
+    return false;
   }
 
 }
@@ -0,0 +1,111 @@
+package ru.curs.celesta.dbutils.meta;
+
+import ru.curs.celesta.score.Column;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Structure of a grain schema taken from the database at once, see
+ * {@link ru.curs.celesta.dbutils.adaptors.DBAdaptor#getSchemaSnapshot}.
+ * <p>
+ * The snapshot is not updated when the schema is changed.
+ */
+public final class SchemaSnapshot {
+
+    private final Map<String, Map<String, DbColumnInfo>> columns;
+    private final Map<String, DbPkInfo> primaryKeys;
+    private final List<DbFkInfo> foreignKeys;
+    private final Map<String, DbIndexInfo> indices;
+    private final Set<String> sequences;
+
+    /**
+     * Creates a snapshot.
+     *
+     * @param columns      information on the columns by table and column name, for each existing table
+     * @param primaryKeys  primary keys by table name
+     * @param foreignKeys  foreign keys of the grain
+     * @param indices      indices of the grain by index name
+     * @param sequences    names of the existing sequences
+     */
+    public SchemaSnapshot(Map<String, Map<String, DbColumnInfo>> columns, Map<String, DbPkInfo> primaryKeys,
+                          List<DbFkInfo> foreignKeys, Map<String, DbIndexInfo> indices, Set<String> sequences) {
+        this.columns = columns;
+        this.primaryKeys = primaryKeys;
+        this.foreignKeys = foreignKeys;
+        this.indices = indices;
+        this.sequences = sequences;
+    }
+
+    /**
+     * Whether the table (or materialized view) exists.
+     *
+     * @param tableName  table name
+     * @return
+     */
+    public boolean tableExists(String tableName) {
+        return columns.containsKey(tableName);
+    }
+
+    /**
+     * Returns names of the table columns.
+     *
+     * @param tableName  table name
+     * @return
+     */
+    public Set<String> getColumns(String tableName) {
+        return Collections.unmodifiableSet(columns.getOrDefault(tableName, Collections.emptyMap()).keySet());
+    }
+
+    /**
+     * Returns information on the column or {@code null} if the column does not exist.
+     *
+     * @param c  column
+     * @return
+     */
+    public DbColumnInfo getColumnInfo(Column<?> c) {
+        return columns.getOrDefault(c.getParentTable().getName(), Collections.emptyMap()).get(c.getName());
+    }
+
+    /**
+     * Returns information on the primary key of the table.
+     *
+     * @param tableName  table name
+     * @return
+     */
+    public DbPkInfo getPKInfo(String tableName) {
+        return primaryKeys.get(tableName);
+    }
+
+    /**
+     * Returns a modifiable copy of the foreign keys of the grain.
+     *
+     * @return
+     */
+    public List<DbFkInfo> getFKInfo() {
+        return new ArrayList<>(foreignKeys);
+    }
+
+    /**
+     * Returns indices of the grain by index name.
+     *
+     * @return
+     */
+    public Map<String, DbIndexInfo> getIndices() {
+        return Collections.unmodifiableMap(indices);
+    }
+
+    /**
+     * Whether the sequence exists.
+     *
+     * @param sequenceName  sequence name
+     * @return
+     */
+    public boolean sequenceExists(String sequenceName) {
+        return sequences.contains(sequenceName);
+    }
+
+}
@@ -10,6 +10,7 @@ import ru.curs.celesta.score.TableElement;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -17,6 +18,20 @@ import java.util.function.Supplier;
 
 public class PreparedStatementHolderFactory {
 
+    /**
+     * Returns a key of the mask for {@link DBAdaptor#getMemoizedStatement}.
+     *
+     * @param mask  nulls mask or equals mask
+     * @return
+     */
+    public static String maskKey(boolean[] mask) {
+        char[] result = new char[mask.length];
+        for (int i = 0; i < mask.length; i++) {
+            result[i] = mask[i] ? '1' : '0';
+        }
+        return new String(result);
+    }
+
     public static MaskedStatementHolder createInsertHolder(BasicTable meta, DBAdaptor dbAdaptor, Connection conn) {
         return new MaskedStatementHolder() {
 
@@ -32,7 +47,34 @@ public class PreparedStatementHolderFactory {
 
             @Override
             protected PreparedStatement initStatement(List<ParameterSetter> program)  {
-                return dbAdaptor.getInsertRecordStatement(conn, meta, getNullsMask(), program);
+                boolean[] nullsMask = getNullsMask();
+                return dbAdaptor.getMemoizedStatement(conn, Arrays.asList("insert", meta, maskKey(nullsMask)),
+                        program, (c, p) -> dbAdaptor.getInsertRecordStatement(c, meta, nullsMask, p));
+            }
+
+        };
+    }
+
+    public static MaskedStatementHolder createInsertReturningHolder(BasicTable meta, DBAdaptor dbAdaptor,
+                                                                    Connection conn) {
+        return new MaskedStatementHolder() {
+
+            @Override
+            protected int[] getNullsMaskIndices()  {
+                // we monitor all columns for nulls
+                int[] result = new int[meta.getColumns().size()];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = i;
+                }
+                return result;
+            }
+
+            @Override
+            protected PreparedStatement initStatement(List<ParameterSetter> program)  {
+                boolean[] nullsMask = getNullsMask();
+                return dbAdaptor.getMemoizedStatement(conn,
+                        Arrays.asList("insertReturning", meta, maskKey(nullsMask)), program,
+                        (c, p) -> dbAdaptor.getInsertRecordReturningStatement(c, meta, nullsMask, p));
             }
 
         };
@@ -44,7 +86,8 @@ public class PreparedStatementHolderFactory {
             protected PreparedStatement initStatement(List<ParameterSetter> program)  {
                 WhereTerm where = CsqlWhereTermsMaker.getPKWhereTermForGet(meta);
                 where.programParams(program, dbAdaptor);
-                return dbAdaptor.getOneRecordStatement(conn, meta, where.getWhere(), Collections.emptySet());
+                return dbAdaptor.getMemoizedStatement(conn, Arrays.asList("get", meta), program,
+                        (c, p) -> dbAdaptor.getOneRecordStatement(c, meta, where.getWhere(), Collections.emptySet()));
             }
         };
     }
@@ -56,9 +99,12 @@ public class PreparedStatementHolderFactory {
             @Override
             protected PreparedStatement initStatement(List<ParameterSetter> program)  {
                 WhereTerm where = CsqlWhereTermsMaker.getPKWhereTerm(meta);
-                PreparedStatement result = dbAdaptor.getUpdateRecordStatement(
-                        conn, meta, updateMaskSupplier.get(), nullUpdateMaskSupplier.get(), program, where.getWhere()
-                );
+                boolean[] updateMask = updateMaskSupplier.get();
+                boolean[] nullUpdateMask = nullUpdateMaskSupplier.get();
+                PreparedStatement result = dbAdaptor.getMemoizedStatement(conn,
+                        Arrays.asList("update", meta, maskKey(updateMask), maskKey(nullUpdateMask)), program,
+                        (c, p) -> dbAdaptor.getUpdateRecordStatement(
+                                c, meta, updateMask, nullUpdateMask, p, where.getWhere()));
                 where.programParams(program, dbAdaptor);
                 return result;
             }
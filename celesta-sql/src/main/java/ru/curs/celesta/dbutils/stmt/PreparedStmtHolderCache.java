@@ -0,0 +1,56 @@
+package ru.curs.celesta.dbutils.stmt;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of statement holders keyed by the shape of the statement
+ * (e.g. by the update mask and the nulls mask). Statements of alternating shapes stay
+ * prepared instead of being closed and prepared again on every shape change.
+ * A holder evicted from the cache is closed.
+ */
+public final class PreparedStmtHolderCache {
+
+    private final Map<String, PreparedStmtHolder> holders;
+
+    public PreparedStmtHolderCache(int maxSize) {
+        this.holders = new LinkedHashMap<String, PreparedStmtHolder>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStmtHolder> eldest) {
+                if (size() > maxSize) {
+                    eldest.getValue().close();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the holder of the statement shape, creating it if it's not cached.
+     *
+     * @param shapeKey  key of the statement shape
+     * @param factory  creates the holder
+     * @return
+     */
+    public PreparedStmtHolder get(String shapeKey, Supplier<? extends PreparedStmtHolder> factory) {
+        PreparedStmtHolder result = holders.get(shapeKey);
+        if (result == null) {
+            result = factory.get();
+            holders.put(shapeKey, result);
+        }
+        return result;
+    }
+
+    /**
+     * Closes all the cached holders.
+     */
+    public void close() {
+        for (PreparedStmtHolder holder : holders.values()) {
+            holder.close();
+        }
+        holders.clear();
+    }
+
+}
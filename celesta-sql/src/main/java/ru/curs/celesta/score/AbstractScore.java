@@ -37,15 +37,21 @@ package ru.curs.celesta.score;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Serializable;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.CRC32;
 
 import ru.curs.celesta.CelestaException;
@@ -58,7 +64,7 @@ import ru.curs.celesta.score.validator.IdentifierParser;
 /**
  * Root class for complete data model of grains.
  */
-public abstract class AbstractScore {
+public abstract class AbstractScore implements Serializable {
 
     static final String DEPENDENCY_SCHEMA_DOES_NOT_EXIST_ERROR_TEMPLATE
             = "Couldn't parse schema '%s'. Dependency schema '%s' does not exist.";
@@ -73,21 +79,30 @@ public abstract class AbstractScore {
 
     private int orderCounter;
 
-    private final Set<GrainPart> currentlyParsingGrainParts = new HashSet<>();
+    private final Set<GrainPart> currentlyParsingGrainParts = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Locks of the grains while they are parsed concurrently, {@code null} otherwise.
+     */
+    private transient GrainParsingLocks parsingLocks;
+
+    /**
+     * Errors of the grains that failed to be parsed concurrently, rethrown to the grains referencing them.
+     */
+    private transient Map<String, ParseException> failedGrains;
 
     protected AbstractScore() {
     }
 
     /**
-     * Core initialization by providing a set of paths to 'score' directories
-     * delimited by semicolon.
+     * Core initialization by providing a set of grain scripts.
      *
+     * @param grainResources  grain scripts
+     * @param parallelParsing  whether the grains are parsed concurrently
      * @throws CelestaException  in case if non-existing path is provided or in case if
      * there's a double definition of a grain with the same name.
      */
-    void init(ScoreDiscovery scoreDiscovery) throws ParseException {
-
-        Set<Resource> grainResources = scoreDiscovery.discoverScore();
+    void init(Set<Resource> grainResources, boolean parallelParsing) throws ParseException {
 
         initSystemGrain();
 
@@ -96,7 +111,11 @@ public abstract class AbstractScore {
 
         // At this moment in the table 'grainFiles' a recognized set of grain names
         // with the names of script files is contained.
-        parseGrains(new StringBuilder());
+        if (parallelParsing) {
+            parseGrainsConcurrently();
+        } else {
+            parseGrains(new StringBuilder());
+        }
     }
 
     private void fillGrainNameToGrainParts(Set<Resource> resources) throws ParseException {
@@ -153,6 +172,66 @@ public abstract class AbstractScore {
 
     }
 
+    /**
+     * Parses all the grains on a pool of its own, since the threads block waiting for each other.
+     * A grain referenced by the grain being parsed is parsed by the same thread or awaited
+     * if it's being parsed by another one. Errors of all the grains are combined into one exception.
+     */
+    private void parseGrainsConcurrently() throws ParseException {
+        parsingLocks = new GrainParsingLocks();
+        failedGrains = new ConcurrentHashMap<>();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(grainNameToGrainParts.size(), Runtime.getRuntime().availableProcessors()), r -> {
+                    Thread t = new Thread(r, "celesta-score-parsing-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        try {
+            List<Future<String>> tasks = new ArrayList<>();
+            for (String grainName : grainNameToGrainParts.keySet()) {
+                tasks.add(executor.submit(() -> {
+                    try {
+                        parseGrain(grainName);
+                        return null;
+                    } catch (ParseException | RepeatedParseException e) {
+                        return e.getMessage();
+                    }
+                }));
+            }
+
+            StringBuilder errorScript = new StringBuilder();
+            for (Future<String> task : tasks) {
+                String error = join(task);
+                if (error != null) {
+                    if (errorScript.length() > 0) {
+                        errorScript.append("\n\n");
+                    }
+                    errorScript.append(error);
+                }
+            }
+            if (errorScript.length() > 0) {
+                throw new ParseException(errorScript.toString());
+            }
+        } finally {
+            executor.shutdownNow();
+            parsingLocks = null;
+            failedGrains = null;
+        }
+    }
+
+    private static String join(Future<String> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CelestaException(e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause() : new CelestaException(e.getCause());
+        }
+    }
+
     final void parseGrain(String grainName) throws ParseException {
         Grain g = grains.get(grainName);
 
@@ -160,9 +239,48 @@ public abstract class AbstractScore {
             return;
         }
 
+        GrainParsingLocks locks = parsingLocks;
+        if (locks == null) {
+            parseGrain(g);
+            return;
+        }
+
+        boolean locked;
+        try {
+            locked = locks.lock(grainName);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CelestaException(e);
+        }
+        if (!locked) {
+            // the same as when the serial parsing comes back to the grain
+            throw new RepeatedParseException(grainNameToGrainParts.get(grainName).get(0));
+        }
+        try {
+            // the parts of a failed grain stay marked as being parsed, so its error is rethrown instead
+            ParseException failure = failedGrains.get(grainName);
+            if (failure != null) {
+                throw failure;
+            }
+            try {
+                parseGrain(g);
+            } catch (ParseException e) {
+                failedGrains.put(grainName, e);
+                throw e;
+            }
+        } finally {
+            locks.unlock(grainName);
+        }
+    }
+
+    private void parseGrain(Grain g) throws ParseException {
+        if (g.isParsingComplete()) {
+            return;
+        }
+
         ChecksumInputStream cis = null;
 
-        for (GrainPart grainPart : grainNameToGrainParts.get(grainName)) {
+        for (GrainPart grainPart : grainNameToGrainParts.get(g.getName())) {
             if (!currentlyParsingGrainParts.add(grainPart)) {
                 throw new RepeatedParseException(grainPart);
             }
@@ -307,7 +425,7 @@ public abstract class AbstractScore {
 
     }
 
-    private InputStream getSysSchemaInputStream() {
+    InputStream getSysSchemaInputStream() {
         return this.getClass().getResourceAsStream(getSysSchemaName() + ".sql");
     }
 
@@ -332,7 +450,7 @@ public abstract class AbstractScore {
         return Collections.unmodifiableMap(grains);
     }
 
-    final int nextOrderCounter() {
+    final synchronized int nextOrderCounter() {
         return ++orderCounter;
     }
 
@@ -344,6 +462,7 @@ public abstract class AbstractScore {
     public static final class ScoreBuilder<T extends AbstractScore> {
         private ScoreDiscovery scoreDiscovery;
         private Class<T> scoreClass;
+        private boolean parallelParsing;
 
         public ScoreBuilder(Class<T> scoreClass) {
             this.scoreClass = scoreClass;
@@ -376,7 +495,18 @@ public abstract class AbstractScore {
         }
 
         /**
-         * Builds the score.
+         * Sets whether independent grains are parsed concurrently.
+         *
+         * @param parallelParsing  {@code true} to parse the grains on a pool of as many threads as processors
+         * @return
+         */
+        public ScoreBuilder<T> parallelParsing(boolean parallelParsing) {
+            this.parallelParsing = parallelParsing;
+            return this;
+        }
+
+        /**
+         * Builds the score, loading it from a matching snapshot (see {@link ScoreSnapshot}) if there is one.
          *
          * @return
          * @throws ParseException  when score parsing fails
@@ -384,7 +514,13 @@ public abstract class AbstractScore {
         public T build() throws ParseException {
             try {
                 T t = scoreClass.newInstance();
-                t.init(this.scoreDiscovery);
+                Set<Resource> grainResources = this.scoreDiscovery.discoverScore();
+
+                T snapshot = ScoreSnapshot.load(t, grainResources, this.scoreDiscovery.discoverScoreSnapshots());
+                if (snapshot != null) {
+                    return snapshot;
+                }
+                t.init(grainResources, parallelParsing);
 
                 return t;
 
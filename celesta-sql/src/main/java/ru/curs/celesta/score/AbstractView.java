@@ -31,6 +31,14 @@ public abstract class AbstractView extends DataGrainElement {
       FieldRef fr = (FieldRef) sum.term;
       return fr.getColumn();
     });
+    EXPR_CLASSES_AND_COLUMN_EXTRACTORS.put(Max.class, (Expr maxExpr) -> {
+      Max max = (Max) maxExpr;
+      return max.term instanceof FieldRef ? ((FieldRef) max.term).getColumn() : null;
+    });
+    EXPR_CLASSES_AND_COLUMN_EXTRACTORS.put(Min.class, (Expr minExpr) -> {
+      Min min = (Min) minExpr;
+      return min.term instanceof FieldRef ? ((FieldRef) min.term).getColumn() : null;
+    });
   }
 
   final Map<String, Expr> columns = new LinkedHashMap<>();
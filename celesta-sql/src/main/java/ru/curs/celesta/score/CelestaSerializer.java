@@ -513,6 +513,10 @@ public final class CelestaSerializer {
         SQLGenerator gen = new MaterializedViewCelestaSQLGen(mv);
         writer.println(gen.preamble(mv));
         mv.selectScript(writer, gen);
+        if (mv.isDeferredRefresh()) {
+            writer.println();
+            writer.write(" WITH DEFERRED REFRESH");
+        }
         writer.println(";");
         writer.println();
     }
@@ -1,5 +1,6 @@
 package ru.curs.celesta.score;
 
+import java.io.Serializable;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -11,7 +12,7 @@ import ru.curs.celesta.dbutils.QueryBuildingHelper;
 /**
  * Scalar SQL expression.
  */
-public abstract class Expr {
+public abstract class Expr implements Serializable {
 
     final void assertType(ViewColumnType t) throws ParseException {
         // INT and REAL are both numeric types, so they are comparable
@@ -1,5 +1,6 @@
 package ru.curs.celesta.score;
 
+import java.io.Serializable;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -11,7 +12,7 @@ import org.slf4j.LoggerFactory;
 /**
  * Foreign key class.
  */
-public final class ForeignKey {
+public final class ForeignKey implements Serializable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ForeignKey.class);
 
@@ -35,9 +35,9 @@ public final class Grain extends NamedElement {
 
     private int dependencyOrder;
 
-    private boolean parsingComplete = false;
+    private volatile boolean parsingComplete = false;
 
-    private boolean modified = true;
+    private volatile boolean modified = true;
 
     private boolean isAutoupdate = true;
 
@@ -412,6 +412,20 @@ public final class Grain extends NamedElement {
             }
         }
 
+        for (MaterializedView mv : getElements(MaterializedView.class).values()) {
+            String deltaTableName = mv.getDeltaTableName();
+            if (mv.isDeferredRefresh()
+                    && grainElements.values().stream().anyMatch(h -> h.get(deltaTableName) != null)) {
+                throw new ParseException(
+                        String.format(
+                                "Identifier %s can't be used for the naming of grain element as it is reserved "
+                                        + "by Celesta for materialized view %s.",
+                                deltaTableName, mv.getName()
+                        )
+                );
+            }
+        }
+
         parsingComplete = true;
         modified = false;
         dependencyOrder = score.nextOrderCounter();
@@ -0,0 +1,61 @@
+package ru.curs.celesta.score;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reentrant locks of the grains being parsed concurrently (see {@link AbstractScore.ScoreBuilder#parallelParsing}).
+ * <p>
+ * A thread parsing a grain holds its lock and locks the grains it references in turn. Since a thread waits only
+ * for a grain its grain depends on, waiting forever means a cycle of grain references. Such a wait is refused.
+ */
+final class GrainParsingLocks {
+
+    private final Map<String, Thread> owners = new HashMap<>();
+    private final Map<String, Integer> holdCounts = new HashMap<>();
+    private final Map<Thread, String> awaitedGrains = new HashMap<>();
+
+    /**
+     * Acquires the lock of the grain.
+     *
+     * @param grainName  grain name
+     * @return  {@code false} if the lock can't be acquired because of a cycle of grain references
+     * @throws InterruptedException  if the thread is interrupted while waiting
+     */
+    synchronized boolean lock(String grainName) throws InterruptedException {
+        Thread current = Thread.currentThread();
+        Thread owner;
+        while ((owner = owners.get(grainName)) != null && owner != current) {
+            for (Thread t = owner; t != null; ) {
+                String awaitedGrain = awaitedGrains.get(t);
+                t = awaitedGrain == null ? null : owners.get(awaitedGrain);
+                if (t == current) {
+                    return false;
+                }
+            }
+            awaitedGrains.put(current, grainName);
+            try {
+                wait();
+            } finally {
+                awaitedGrains.remove(current);
+            }
+        }
+        owners.put(grainName, current);
+        holdCounts.merge(grainName, 1, Integer::sum);
+        return true;
+    }
+
+    /**
+     * Releases the lock of the grain acquired by the current thread.
+     *
+     * @param grainName  grain name
+     */
+    synchronized void unlock(String grainName) {
+        if (holdCounts.merge(grainName, -1, Integer::sum) == 0) {
+            holdCounts.remove(grainName);
+            owners.remove(grainName);
+            notifyAll();
+        }
+    }
+
+}
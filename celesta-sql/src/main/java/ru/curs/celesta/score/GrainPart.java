@@ -2,17 +2,21 @@ package ru.curs.celesta.score;
 
 import ru.curs.celesta.score.io.Resource;
 
-public final class GrainPart {
+import java.io.Serializable;
+
+public final class GrainPart implements Serializable {
 
     private final Grain grain;
     private final boolean isDefinition;
 
-    private final Resource source;
+    private final transient Resource source;
+    private final Namespace namespace;
 
     public GrainPart(Grain grain, boolean isDefinition, Resource source) {
         this.grain = grain;
         this.isDefinition = isDefinition;
         this.source = source;
+        this.namespace = source != null ? source.getNamespace() : Namespace.DEFAULT;
 
         grain.addGrainPart(this);
     }
@@ -43,11 +47,12 @@ public final class GrainPart {
      * @return
      */
     public Namespace getNamespace() {
-        return source != null ? source.getNamespace() : Namespace.DEFAULT;
+        return namespace;
     }
 
     /**
-     * Returns resource the grain part was loaded from.
+     * Returns resource the grain part was loaded from
+     * ({@code null} if the score was loaded from a snapshot, see {@link ScoreSnapshot}).
      *
      * @return
      */
@@ -38,7 +38,8 @@ public final class GrainSaver {
 
         for (GrainPart gp : grain.getGrainParts()) {
             Resource source = gp.getSource();
-            if (scorePath.contains(source) && !source.equals(output)) {
+            // grain parts of a score loaded from a snapshot have no source to delete
+            if (source != null && scorePath.contains(source) && !source.equals(output)) {
                 source.delete();
             }
         }
@@ -26,8 +26,19 @@ public final class MaterializedView extends AbstractView implements TableElement
      */
     public static final String CHECKSUM_COMMENT_TEMPLATE = "/*" + CHECKSUM_SEPARATOR + "%s" + CHECKSUM_SEPARATOR + "*/";
 
+    /**
+     * Name of the delta table column that contains the time of the change.
+     */
+    public static final String DELTA_CHANGED = "changed";
+
+    private static final String STATEMENT_LEVEL_SUFFIX = "-STATEMENT";
+
+    private static final String DEFERRED_REFRESH_SUFFIX = "-DEFERRED";
+
     private final IntegerColumn surrogateCount;
 
+    private boolean deferredRefresh;
+
     public IntegerColumn getSurrogateCount() {
         return surrogateCount;
     }
@@ -130,7 +141,11 @@ public final class MaterializedView extends AbstractView implements TableElement
                 matColFabricFunction = COL_CLASSES_AND_FABRIC_FUNCS.get(colRef.getClass());
             }
 
-            if (matColFabricFunction == null) {
+            //Значения логического и двоичного типов не сравниваются в MIN/MAX
+            boolean incomparable = (expr instanceof Max || expr instanceof Min)
+                    && (colRef instanceof BooleanColumn || colRef instanceof BinaryColumn);
+
+            if (matColFabricFunction == null || incomparable) {
                 throw new ParseException(String.format(
                         "Unsupported type '%s' of column '%s' in materialized view %s was found",
                         expr.getMeta().getCelestaType(), alias, getName()));
@@ -292,6 +307,80 @@ public final class MaterializedView extends AbstractView implements TableElement
         super.addFromTableRef(ref);
     }
 
+    /**
+     * Whether the view is refreshed in the background instead of the triggers of the table
+     * (WITH DEFERRED REFRESH option).
+     * <p>
+     * The triggers of such a view only append the group keys of the changed rows to the delta table.
+     *
+     * @return
+     */
+    public boolean isDeferredRefresh() {
+        return deferredRefresh;
+    }
+
+    /**
+     * Sets the deferred refresh mode of the view.
+     *
+     * @param deferredRefresh  {@code true} - the view is refreshed in the background
+     */
+    public void setDeferredRefresh(boolean deferredRefresh) {
+        this.deferredRefresh = deferredRefresh;
+    }
+
+    /**
+     * Returns the name of the table the group keys of the changed rows are appended to
+     * in the deferred refresh mode.
+     *
+     * @return
+     */
+    public String getDeltaTableName() {
+        return limitName(getName() + "_delta");
+    }
+
+    /**
+     * Returns the checksum that is written to the comment of the insert trigger of the table:
+     * the checksum of the view followed by the mode of its triggers.
+     *
+     * @return
+     */
+    public String getTriggerChecksum() {
+        return getTriggerChecksum(false);
+    }
+
+    /**
+     * Returns the checksum that is written to the comment of the insert trigger of the table
+     * for the triggers firing once per row or once per statement.
+     *
+     * @param statementLevel  whether the triggers maintain the view once per statement
+     * @return
+     */
+    public String getTriggerChecksum(boolean statementLevel) {
+        return getChecksum() + (statementLevel ? STATEMENT_LEVEL_SUFFIX : "")
+                + (deferredRefresh ? DEFERRED_REFRESH_SUFFIX : "");
+    }
+
+    /**
+     * Whether the insert trigger of the table was created for a view in the deferred refresh mode,
+     * i.e. the delta table belongs to the view.
+     *
+     * @param insertTriggerBody  body of the insert trigger
+     * @return
+     */
+    public static boolean isDeferredRefreshTrigger(String insertTriggerBody) {
+        return insertTriggerBody.contains(DEFERRED_REFRESH_SUFFIX + CHECKSUM_SEPARATOR + "*/");
+    }
+
+    /**
+     * Whether the body of the insert trigger keeps the checksum comment (some databases drop comments).
+     *
+     * @param insertTriggerBody  body of the insert trigger
+     * @return
+     */
+    public static boolean hasTriggerChecksum(String insertTriggerBody) {
+        return insertTriggerBody.contains("/*" + CHECKSUM_SEPARATOR);
+    }
+
     public String getChecksum() {
         // TODO: CelestaSerializer is not intended to be used from GrainElement classes.
         //       Consider using a different approach for checksum calculation.
@@ -1,5 +1,6 @@
 package ru.curs.celesta.score;
 
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -18,7 +19,7 @@ import java.util.Map;
  *
  * @param <T>  type of named elements in the collection.
  */
-public abstract class NamedElementHolder<T extends NamedElement> implements Collection<T> {
+public abstract class NamedElementHolder<T extends NamedElement> implements Collection<T>, Serializable {
     private final LinkedHashMap<String, T> namespace = new LinkedHashMap<>();
     private final Map<String, T> namespaceReadOnly = Collections.unmodifiableMap(namespace);
 
@@ -1,5 +1,7 @@
 package ru.curs.celesta.score;
 
+import java.io.Serializable;
+
 /**
  * Grain name space.
  * <p>
@@ -14,7 +16,7 @@ package ru.curs.celesta.score;
  * @author Pavel Perminov (packpaul@mail.ru)
  * @since 2019-03-09
  */
-public final class Namespace {
+public final class Namespace implements Serializable {
 
     public static final Namespace DEFAULT = new Namespace();
 
@@ -40,4 +42,9 @@ public final class Namespace {
         return value;
     }
 
+    private Object readResolve() {
+        // the default name space is compared by reference
+        return value.isEmpty() ? DEFAULT : this;
+    }
+
 }
@@ -0,0 +1,185 @@
+package ru.curs.celesta.score;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.curs.celesta.score.io.Resource;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a parsed score which is loaded instead of parsing the grain scripts
+ * (see {@link AbstractScore.ScoreBuilder#build()}).
+ * <p>
+ * The snapshot is keyed by the snapshot format version, the Celesta version and the checksums
+ * of the grain scripts and of the system grain script, so it is loaded only if none of them has changed.
+ * The Celesta version is a part of the key since parsing and validation of the score may change
+ * from version to version without changing the serialized form of the score classes.
+ * {@link #FORMAT_VERSION} has to be incremented whenever the contents of the snapshot change
+ * within a version (e.g. in a snapshot build).
+ * Grain parts of a score loaded from a snapshot have no source resources.
+ * <p>
+ * Only the score classes and the JDK classes they consist of are deserialized from a snapshot
+ * (see {@link SnapshotInputStream}), any other class makes the snapshot be skipped.
+ */
+public final class ScoreSnapshot {
+
+    /**
+     * Name of the snapshot file that is placed next to the score index file
+     * (see {@link ru.curs.celesta.score.discovery.ScoreByScoreResourceDiscovery}).
+     */
+    public static final String SCORE_SNAPSHOT_FILE_NAME = "score.snapshot";
+
+    /**
+     * Version of the snapshot format.
+     */
+    static final int FORMAT_VERSION = 1;
+
+    /**
+     * Celesta version the snapshot is written or loaded by. It is taken from the manifest of the jar
+     * the same way as {@code ru.curs.celesta.ver.CelestaVersion.VERSION} is, since this module doesn't
+     * depend on the one the latter is declared in.
+     */
+    static final String CELESTA_VERSION = ScoreSnapshot.class.getPackage().getSpecificationVersion();
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScoreSnapshot.class);
+
+    /**
+     * Packages (including their subpackages) of the classes a snapshot may consist of.
+     */
+    private static final List<String> ALLOWED_PACKAGES = Arrays.asList(
+            "ru.curs.celesta.score.", "java.lang.", "java.util.");
+
+    private ScoreSnapshot() {
+    }
+
+    /**
+     * Writes snapshot of the score.
+     *
+     * @param score  score parsed from the grain scripts
+     * @param out  output stream
+     * @throws IOException  if the grain scripts can't be read or the snapshot can't be written
+     */
+    public static void write(AbstractScore score, OutputStream out) throws IOException {
+        List<Resource> grainResources = new ArrayList<>();
+        for (Grain g : score.getGrains().values()) {
+            for (GrainPart gp : g.getGrainParts()) {
+                if (gp.getSource() != null) {
+                    grainResources.add(gp.getSource());
+                }
+            }
+        }
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeUTF(getKey(score, grainResources));
+        oos.writeObject(score);
+        oos.flush();
+    }
+
+    /**
+     * Loads the score from the first snapshot which matches the grain scripts.
+     *
+     * @param emptyScore  not initialized score of the required class
+     * @param grainResources  grain scripts
+     * @param snapshots  snapshots to look through
+     * @param <T>  score class
+     * @return  {@code null} if there is no matching snapshot
+     */
+    static <T extends AbstractScore> T load(T emptyScore, Collection<Resource> grainResources,
+                                            Collection<Resource> snapshots) {
+        String key = null;
+        for (Resource snapshot : snapshots) {
+            try (ObjectInputStream ois = new SnapshotInputStream(new BufferedInputStream(snapshot.getInputStream()))) {
+                String snapshotKey = ois.readUTF();
+                if (key == null) {
+                    key = getKey(emptyScore, grainResources);
+                }
+                if (!snapshotKey.equals(key)) {
+                    continue;
+                }
+                Object score = ois.readObject();
+                if (score.getClass() == emptyScore.getClass()) {
+                    @SuppressWarnings("unchecked")
+                    T result = (T) score;
+                    return result;
+                }
+            } catch (IOException | ClassNotFoundException e) {
+                LOGGER.warn("Score snapshot {} can't be loaded: {}", snapshot, e.toString());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the key of the snapshot: the format version, the Celesta version
+     * and the checksums of the system grain script and of the grain scripts.
+     */
+    private static String getKey(AbstractScore score, Collection<Resource> grainResources) throws IOException {
+        List<String> checksums = new ArrayList<>();
+        for (Resource r : grainResources) {
+            try (InputStream is = r.getInputStream()) {
+                checksums.add(getChecksum(is));
+            }
+        }
+        checksums.sort(null);
+        try (InputStream is = score.getSysSchemaInputStream()) {
+            checksums.add(0, getChecksum(is));
+        }
+        return FORMAT_VERSION + " " + CELESTA_VERSION + " " + String.join(" ", checksums);
+    }
+
+    private static String getChecksum(InputStream is) throws IOException {
+        CRC32 crc = new CRC32();
+        long length = 0;
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = is.read(buffer)) >= 0) {
+            crc.update(buffer, 0, n);
+            length += n;
+        }
+        return String.format("%08X/%d", crc.getValue(), length);
+    }
+
+    /**
+     * Object input stream that rejects classes outside of {@link #ALLOWED_PACKAGES}.
+     */
+    static final class SnapshotInputStream extends ObjectInputStream {
+
+        SnapshotInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            String name = desc.getName();
+            int dimensions = 0;
+            while (dimensions < name.length() && name.charAt(dimensions) == '[') {
+                dimensions++;
+            }
+            if (dimensions > 0) {
+                // an array of primitives or of objects: [I, [Ljava.lang.String;
+                if (name.charAt(dimensions) != 'L') {
+                    return super.resolveClass(desc);
+                }
+                name = name.substring(dimensions + 1, name.length() - 1);
+            }
+            final String className = name;
+            if (ALLOWED_PACKAGES.stream().noneMatch(className::startsWith)) {
+                throw new InvalidClassException(desc.getName(), "class is not allowed in a score snapshot");
+            }
+            return super.resolveClass(desc);
+        }
+
+    }
+
+}
@@ -1,5 +1,6 @@
 package ru.curs.celesta.score;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -10,7 +11,7 @@ import java.util.regex.Pattern;
 /**
  * Version string that has to consist of comma separated version tags.
  */
-public final class VersionString {
+public final class VersionString implements Serializable {
 
     /**
      * Default version string for newly created dynamic grains.
@@ -18,6 +18,7 @@ import org.slf4j.LoggerFactory;
 
 import ru.curs.celesta.CelestaException;
 import ru.curs.celesta.score.Namespace;
+import ru.curs.celesta.score.ScoreSnapshot;
 import ru.curs.celesta.score.io.Resource;
 import ru.curs.celesta.score.io.UrlResource;
 
@@ -30,6 +31,8 @@ public final class ScoreByScoreResourceDiscovery implements ScoreDiscovery {
 
     private static final String SCORE_FILES_LOCATION = "score/score.files";
 
+    private static final String SCORE_SNAPSHOT_LOCATION = "score/" + ScoreSnapshot.SCORE_SNAPSHOT_FILE_NAME;
+
     @Override
     public Set<Resource> discoverScore() {
 
@@ -46,6 +49,26 @@ public final class ScoreByScoreResourceDiscovery implements ScoreDiscovery {
         }
     }
 
+    @Override
+    public Set<Resource> discoverScoreSnapshots() {
+
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            Enumeration<URL> urls = (classLoader != null)
+                    ? classLoader.getResources(SCORE_SNAPSHOT_LOCATION)
+                    : ClassLoader.getSystemResources(SCORE_SNAPSHOT_LOCATION);
+
+            Set<Resource> result = new LinkedHashSet<>();
+            while (urls.hasMoreElements()) {
+                result.add(new UrlResource(urls.nextElement()));
+            }
+            return result;
+
+        } catch (IOException ex) {
+            throw new CelestaException("Unable to load score snapshots from resources.", ex);
+        }
+    }
+
     Set<Resource> discoverScore(Enumeration<URL> scoreFilesUrls) throws IOException {
 
         Map<String, Resource> grainNameToResourceMap = new LinkedHashMap<>();
@@ -1,5 +1,6 @@
 package ru.curs.celesta.score.discovery;
 
+import java.util.Collections;
 import java.util.Set;
 
 import ru.curs.celesta.score.io.Resource;
@@ -16,4 +17,14 @@ public interface ScoreDiscovery {
      */
     Set<Resource> discoverScore();
 
+    /**
+     * Discovers snapshots of the parsed score.
+     *
+     * @return  a set of resources pointing to score snapshots
+     * @see ru.curs.celesta.score.ScoreSnapshot
+     */
+    default Set<Resource> discoverScoreSnapshots() {
+        return Collections.emptySet();
+    }
+
 }
@@ -45,8 +45,9 @@ public class MaterializedViewParsingTest extends AbstractParsingTest {
     );
     Grain g = parse(f);
 
-    assertEquals(3, g.getElements(MaterializedView.class).size());
+    assertEquals(5, g.getElements(MaterializedView.class).size());
     MaterializedView mv = g.getElement("testView1", MaterializedView.class);
+    assertFalse(mv.isDeferredRefresh());
 
     Column<?> c = mv.getColumn("sumv");
     assertEquals(IntegerColumn.CELESTA_TYPE, c.getCelestaType());
@@ -57,6 +58,16 @@ public class MaterializedViewParsingTest extends AbstractParsingTest {
     assertTrue(c instanceof StringColumn);
     StringColumn stringColumn = (StringColumn) c;
     assertEquals(2, stringColumn.getLength());
+
+    mv = g.getElement("testView4", MaterializedView.class);
+    assertTrue(mv.isDeferredRefresh());
+    assertTrue(CelestaSerializer.toString(mv).contains("WITH DEFERRED REFRESH"));
+
+    mv = g.getElement("testView5", MaterializedView.class);
+    assertTrue(mv.getAggregateColumns().get("minv") instanceof Min);
+    assertTrue(mv.getAggregateColumns().get("maxv") instanceof Max);
+    assertEquals(IntegerColumn.CELESTA_TYPE, mv.getColumn("maxv").getCelestaType());
+    assertEquals("f2", mv.getColumnRef("maxv").getName());
   }
 
 
@@ -83,6 +94,45 @@ public class MaterializedViewParsingTest extends AbstractParsingTest {
         assertThrows(ParseException.class, () -> parse(f));
     }
 
+  @Test
+  public void testTriggerChecksumReflectsTriggerMode() throws Exception {
+    File f = ResourceUtil.getResourceAsFile(
+            ParserTest.class,
+            "materializedView/testParsingNotFailsWhenMaterializedViewSyntaxIsCorrect.sql"
+    );
+    Grain g = parse(f);
+
+    MaterializedView mv = g.getElement("testView1", MaterializedView.class);
+    assertEquals(mv.getChecksum(), mv.getTriggerChecksum());
+    assertNotEquals(mv.getTriggerChecksum(), mv.getTriggerChecksum(true));
+    String body = String.format(MaterializedView.CHECKSUM_COMMENT_TEMPLATE, mv.getTriggerChecksum(true));
+    assertTrue(MaterializedView.hasTriggerChecksum(body));
+    assertFalse(MaterializedView.isDeferredRefreshTrigger(body));
+    assertFalse(MaterializedView.hasTriggerChecksum("CALL \"ru.curs.celesta.dbutils.h2.MaterializedViewInsertTrigger\""));
+
+    mv = g.getElement("testView4", MaterializedView.class);
+    assertTrue(MaterializedView.isDeferredRefreshTrigger(
+            String.format(MaterializedView.CHECKSUM_COMMENT_TEMPLATE, mv.getTriggerChecksum(true))));
+  }
+
+  @Test
+  public void testParsingFailsWithBooleanInMinMax() {
+    File f = ResourceUtil.getResourceAsFile(
+            ParserTest.class,
+            "materializedView/testParsingFailsWithBooleanInMinMax.sql"
+    );
+    assertThrows(ParseException.class, () -> parse(f));
+  }
+
+  @Test
+  public void testParsingFailsWhenDeltaTableNameIsTaken() {
+    File f = ResourceUtil.getResourceAsFile(
+            ParserTest.class,
+            "materializedView/testParsingFailsWhenDeltaTableNameIsTaken.sql"
+    );
+    assertThrows(ParseException.class, () -> parse(f));
+  }
+
   @Test
   public void testParsingFailsWithDateInAggregate() {
     File f = ResourceUtil.getResourceAsFile(
@@ -5,6 +5,9 @@ import ru.curs.celesta.CelestaException;
 import ru.curs.celesta.score.discovery.ScoreByScorePathDiscovery;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.StringJoiner;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,6 +27,8 @@ public class ParseScoreWithReferencesTest {
             .add(SCORE_PATH_PREFIX).add("referenceToExistingSchema").toString();
     private static final String SCORE_WITH_CYCLIC_REFERENCES = new StringJoiner(File.separator)
             .add(SCORE_PATH_PREFIX).add("cyclicReferences").toString();
+    private static final String SCORE_WITH_REFERENCES_TO_BROKEN_SCHEMA = new StringJoiner(File.separator)
+            .add(SCORE_PATH_PREFIX).add("referenceToBrokenSchema").toString();
 
 
     @Test
@@ -69,4 +74,72 @@ public class ParseScoreWithReferencesTest {
                 e.getMessage().contains(expectedMessagePart1) || e.getMessage().contains(expectedMessagePart2)
         );
     }
+
+    @Test
+    void testParallelParsing() throws Exception {
+        for (String scorePath : new String[]{SCORE_WITH_REFERENCE_TO_EXISTING_SCHEMA, ScoreTest.TEST_SCORE_PATH}) {
+            AbstractScore serial = new AbstractScore.ScoreBuilder<>(CelestaSqlTestScore.class)
+                    .scoreDiscovery(new ScoreByScorePathDiscovery(scorePath))
+                    .build();
+            AbstractScore parallel = new AbstractScore.ScoreBuilder<>(CelestaSqlTestScore.class)
+                    .scoreDiscovery(new ScoreByScorePathDiscovery(scorePath))
+                    .parallelParsing(true)
+                    .build();
+
+            assertEquals(serial.getGrains().keySet(), parallel.getGrains().keySet());
+            for (Grain g : serial.getGrains().values()) {
+                Grain pg = parallel.getGrain(g.getName());
+                assertTrue(pg.isParsingComplete());
+                assertEquals(g.getChecksum(), pg.getChecksum());
+                assertEquals(g.getLength(), pg.getLength());
+                assertEquals(toCelestaSql(g), toCelestaSql(pg));
+            }
+        }
+
+        AbstractScore parallel = new AbstractScore.ScoreBuilder<>(CelestaSqlTestScore.class)
+                .scoreDiscovery(new ScoreByScorePathDiscovery(SCORE_WITH_REFERENCE_TO_EXISTING_SCHEMA))
+                .parallelParsing(true)
+                .build();
+        assertTrue(parallel.getGrain("a").getDependencyOrder()
+                > parallel.getGrain("b").getDependencyOrder());
+    }
+
+    @Test
+    void testCyclicReferencesParsedConcurrently() {
+        AbstractScore.ScoreBuilder<?> scoreBuilder = new AbstractScore.ScoreBuilder<>(CelestaSqlTestScore.class)
+                .scoreDiscovery(new ScoreByScorePathDiscovery(SCORE_WITH_CYCLIC_REFERENCES))
+                .parallelParsing(true);
+
+        String expectedMessagePart1 = String.format(CYCLIC_REFERENCES_ERROR_TEMPLATE, "a", "a", "b");
+        String expectedMessagePart2 = String.format(CYCLIC_REFERENCES_ERROR_TEMPLATE, "b", "b", "a");
+        // the grains may be parsed by one thread or wait for each other
+        for (int i = 0; i < 20; i++) {
+            ParseException e = assertThrows(ParseException.class, scoreBuilder::build);
+            assertTrue(
+                    e.getMessage().contains(expectedMessagePart1) || e.getMessage().contains(expectedMessagePart2)
+            );
+        }
+    }
+
+    @Test
+    void testReferencesToBrokenSchemaParsedConcurrently() {
+        AbstractScore.ScoreBuilder<?> scoreBuilder = new AbstractScore.ScoreBuilder<>(CelestaSqlTestScore.class)
+                .scoreDiscovery(new ScoreByScorePathDiscovery(SCORE_WITH_REFERENCES_TO_BROKEN_SCHEMA))
+                .parallelParsing(true);
+
+        // the grains referencing the broken one may parse it or wait for another thread to fail
+        for (int i = 0; i < 20; i++) {
+            ParseException e = assertThrows(ParseException.class, scoreBuilder::build);
+            assertTrue(e.getMessage().contains("UNKNOWNTYPE"), e.getMessage());
+            assertFalse(e.getMessage().contains("cycle reference"), e.getMessage());
+        }
+    }
+
+    private static String toCelestaSql(Grain g) throws IOException {
+        StringWriter sw = new StringWriter();
+        try (PrintWriter pw = new PrintWriter(sw)) {
+            new CelestaSerializer(pw).save(g);
+        }
+        return sw.toString();
+    }
 }
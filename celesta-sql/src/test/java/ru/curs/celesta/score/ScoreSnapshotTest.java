@@ -0,0 +1,174 @@
+package ru.curs.celesta.score;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.curs.celesta.score.discovery.ScoreByScorePathDiscovery;
+import ru.curs.celesta.score.discovery.ScoreDiscovery;
+import ru.curs.celesta.score.io.FileResource;
+import ru.curs.celesta.score.io.Resource;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScoreSnapshotTest {
+
+    private File snapshotFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        snapshotFile = File.createTempFile("score", ".snapshot");
+    }
+
+    @AfterEach
+    void tearDown() {
+        snapshotFile.delete();
+    }
+
+    @Test
+    void scoreIsLoadedFromMatchingSnapshot() throws Exception {
+        ScoreDiscovery discovery = new ScoreByScorePathDiscovery(ScoreTest.TEST_SCORE_PATH);
+        AbstractScore parsed = build(discovery, Collections.emptySet());
+        try (OutputStream out = new FileOutputStream(snapshotFile)) {
+            ScoreSnapshot.write(parsed, out);
+        }
+
+        AbstractScore loaded = build(discovery, Collections.singleton(new FileResource(snapshotFile)));
+
+        assertNotSame(parsed, loaded);
+        assertEquals(parsed.getGrains().keySet(), loaded.getGrains().keySet());
+        for (Grain g : parsed.getGrains().values()) {
+            Grain lg = loaded.getGrain(g.getName());
+            assertSame(loaded, lg.getScore());
+            assertEquals(g.getChecksum(), lg.getChecksum());
+            assertEquals(g.getLength(), lg.getLength());
+            assertEquals(g.getVersion(), lg.getVersion());
+            assertEquals(g.getDependencyOrder(), lg.getDependencyOrder());
+            assertEquals(g.getNamespace().getValue(), lg.getNamespace().getValue());
+            assertEquals(toCelestaSql(g), toCelestaSql(lg));
+            lg.getGrainParts().forEach(gp -> assertNull(gp.getSource()));
+        }
+    }
+
+    @Test
+    void scoreIsParsedIfSnapshotDoesNotMatch() throws Exception {
+        AbstractScore parsed = build(new ScoreByScorePathDiscovery(ScoreTest.TEST_SCORE_PATH), Collections.emptySet());
+        try (OutputStream out = new FileOutputStream(snapshotFile)) {
+            ScoreSnapshot.write(parsed, out);
+        }
+
+        String otherScorePath = ScoreTest.TEST_SCORE_PATH
+                .replace("testScore", "scoresWithReferences" + File.separator + "referenceToExistingSchema");
+        AbstractScore other = build(new ScoreByScorePathDiscovery(otherScorePath),
+                Collections.singleton(new FileResource(snapshotFile)));
+
+        assertNotEquals(parsed.getGrains().keySet(), other.getGrains().keySet());
+        other.getGrains().values().stream()
+                .filter(g -> !g.getName().equals(other.getSysSchemaName()))
+                .flatMap(g -> g.getGrainParts().stream())
+                .forEach(gp -> assertNotNull(gp.getSource()));
+    }
+
+    @Test
+    void scoreIsParsedIfSnapshotIsWrittenByOtherCelestaVersion() throws Exception {
+        ScoreDiscovery discovery = new ScoreByScorePathDiscovery(ScoreTest.TEST_SCORE_PATH);
+        AbstractScore parsed = build(discovery, Collections.emptySet());
+        try (OutputStream out = new FileOutputStream(snapshotFile)) {
+            ScoreSnapshot.write(parsed, out);
+        }
+        String key;
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(snapshotFile))) {
+            key = ois.readUTF();
+        }
+        String prefix = ScoreSnapshot.FORMAT_VERSION + " " + ScoreSnapshot.CELESTA_VERSION + " ";
+        assertTrue(key.startsWith(prefix));
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(snapshotFile))) {
+            oos.writeUTF(ScoreSnapshot.FORMAT_VERSION + " 0.0.1 " + key.substring(prefix.length()));
+            oos.writeObject(parsed);
+        }
+
+        AbstractScore loaded = build(discovery, Collections.singleton(new FileResource(snapshotFile)));
+
+        assertEquals(parsed.getGrains().keySet(), loaded.getGrains().keySet());
+        loaded.getGrains().values().stream()
+                .filter(g -> !g.getName().equals(loaded.getSysSchemaName()))
+                .flatMap(g -> g.getGrainParts().stream())
+                .forEach(gp -> assertNotNull(gp.getSource()));
+    }
+
+    @Test
+    void foreignClassIsNotDeserializedFromSnapshot() throws Exception {
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(snapshotFile))) {
+            oos.writeObject(Collections.singletonList(new URL("http://localhost")));
+        }
+
+        try (ObjectInputStream ois = new ScoreSnapshot.SnapshotInputStream(new FileInputStream(snapshotFile))) {
+            InvalidClassException e = assertThrows(InvalidClassException.class, ois::readObject);
+            assertEquals(URL.class.getName(), e.classname);
+        }
+    }
+
+    @Test
+    void grainOfScoreLoadedFromSnapshotIsSaved() throws Exception {
+        ScoreDiscovery discovery = new ScoreByScorePathDiscovery(ScoreTest.TEST_SCORE_PATH);
+        AbstractScore parsed = build(discovery, Collections.emptySet());
+        try (OutputStream out = new FileOutputStream(snapshotFile)) {
+            ScoreSnapshot.write(parsed, out);
+        }
+        AbstractScore loaded = build(discovery, Collections.singleton(new FileResource(snapshotFile)));
+        Grain g = loaded.getGrains().values().stream()
+                .filter(gr -> !gr.getName().equals(loaded.getSysSchemaName()))
+                .findFirst().get();
+
+        File scoreDir = Files.createTempDirectory("snapshotScore").toFile();
+        try {
+            new GrainSaver().save(g, new FileResource(scoreDir));
+            File saved = new File(scoreDir, g.getNamespace().getValue().replace('.', File.separatorChar)
+                    + File.separator + g.getName() + ".sql");
+            assertEquals(toCelestaSql(g), new String(Files.readAllBytes(saved.toPath()), StandardCharsets.UTF_8));
+        } finally {
+            Files.walk(scoreDir.toPath()).sorted(Collections.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private static AbstractScore build(ScoreDiscovery discovery, Set<Resource> snapshots) throws ParseException {
+        return new AbstractScore.ScoreBuilder<>(CelestaSqlTestScore.class)
+                .scoreDiscovery(new ScoreDiscovery() {
+                    @Override
+                    public Set<Resource> discoverScore() {
+                        return discovery.discoverScore();
+                    }
+
+                    @Override
+                    public Set<Resource> discoverScoreSnapshots() {
+                        return snapshots;
+                    }
+                })
+                .build();
+    }
+
+    private static String toCelestaSql(Grain g) throws IOException {
+        StringWriter sw = new StringWriter();
+        try (PrintWriter pw = new PrintWriter(sw)) {
+            new CelestaSerializer(pw).save(g);
+        }
+        return sw.toString();
+    }
+
+}
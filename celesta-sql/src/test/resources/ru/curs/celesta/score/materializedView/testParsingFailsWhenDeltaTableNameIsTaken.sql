@@ -0,0 +1,15 @@
+CREATE GRAIN test VERSION '1.0';
+
+CREATE SEQUENCE testTable_id;
+
+CREATE table testTable (
+  id INT NOT NULL DEFAULT NEXTVAL(testTable_id) PRIMARY KEY,
+  f1 int NOT NULL
+);
+
+CREATE table testView1_delta (
+  id INT NOT NULL PRIMARY KEY
+);
+
+CREATE MATERIALIZED VIEW testView1 AS
+  select count(*) as c, f1 from testTable group by f1 with deferred refresh;
@@ -0,0 +1,11 @@
+CREATE GRAIN test VERSION '1.0';
+
+CREATE SEQUENCE testTable_id;
+
+CREATE table testTable (
+  id INT NOT NULL DEFAULT NEXTVAL(testTable_id) PRIMARY KEY,
+  flag bit
+);
+
+CREATE MATERIALIZED VIEW testView1 AS
+  select MAX(flag) as m from testTable group by id;
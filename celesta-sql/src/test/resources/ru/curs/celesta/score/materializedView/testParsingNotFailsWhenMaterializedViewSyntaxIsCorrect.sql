@@ -16,4 +16,10 @@ CREATE MATERIALIZED VIEW testView2 AS
 select count(*) as c from testTable;
 
 CREATE MATERIALIZED VIEW testView3 AS
-  select f1, f2, count(*) as id from testTable group by f1, f2;
\ No newline at end of file
+  select f1, f2, count(*) as id from testTable group by f1, f2;
+
+CREATE MATERIALIZED VIEW testView4 AS
+  select sum (f1) as sumv, f3 from testTable group by f3 with deferred refresh;
+
+CREATE MATERIALIZED VIEW testView5 AS
+  select f3, min(f1) as minv, max(f2) as maxv, count(*) as c from testTable group by f3;
@@ -0,0 +1,4 @@
+create schema a version '1.0';
+
+create view idFromBT as
+  select id from b.t;
\ No newline at end of file
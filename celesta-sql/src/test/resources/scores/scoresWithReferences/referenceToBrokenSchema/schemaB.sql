@@ -0,0 +1,6 @@
+create schema b version '1.0';
+
+create table t(
+ id INT NOT NULL PRIMARY KEY,
+ val UNKNOWNTYPE
+);
\ No newline at end of file
@@ -11,6 +11,7 @@ import ru.curs.celesta.dbutils.adaptors.ddl.JdbcDdlConsumer;
 import ru.curs.celesta.event.TriggerDispatcher;
 import ru.curs.celesta.score.ParseException;
 import ru.curs.celesta.score.Score;
+import ru.curs.celesta.score.Table;
 import ru.curs.celesta.score.discovery.ScoreByScorePathDiscovery;
 import ru.curs.celesta.score.discovery.ScoreByScoreResourceDiscovery;
 import ru.curs.celesta.score.discovery.ScoreDiscovery;
@@ -47,6 +48,8 @@ public final class Celesta implements ICelesta {
     private final LoggingManager loggingManager;
     private final PermissionManager permissionManager;
     private final ProfilingManager profiler;
+    private final RowCache rowCache;
+    private final MaterializedViewRefresher mvRefresher;
 
     private final Set<CallContext> contexts = Collections.synchronizedSet(new LinkedHashSet<CallContext>());
 
@@ -65,6 +68,7 @@ public final class Celesta implements ICelesta {
                     : new ScoreByScorePathDiscovery(appSettings.getScorePath());
             this.score = new Score.ScoreBuilder<>(Score.class)
                     .scoreDiscovery(scoreDiscovery)
+                    .parallelParsing(appSettings.getScoreParallelParsing())
                     .build();
         } catch (ParseException e) {
             throw new CelestaException(e);
@@ -72,6 +76,17 @@ public final class Celesta implements ICelesta {
         CurrentScore.set(this.score);
         LOGGER.info("done.");
 
+        for (String tableName : appSettings.getRowCacheTables()) {
+            String[] names = tableName.split("\\.", 2);
+            try {
+                score.getGrain(names[0]).getElement(names[1], Table.class);
+            } catch (ParseException e) {
+                throw new CelestaException("Invalid row.cache.tables entry %s: %s", tableName, e.getMessage());
+            }
+        }
+        this.rowCache = new RowCache(appSettings.getRowCacheTables(), appSettings.getRowCacheSize(),
+                appSettings.getRowCacheTtl());
+
         // 2. Updating database structure.
         // Since at this stage meta information is already in use, theCelesta and ConnectionPool
         // have to be initialized.
@@ -80,18 +95,28 @@ public final class Celesta implements ICelesta {
         cpc.setDriverClassName(appSettings.getDbClassName());
         cpc.setLogin(appSettings.getDBLogin());
         cpc.setPassword(appSettings.getDBPassword());
+        cpc.setMaxPoolSize(appSettings.getConnectionPoolMaxSize());
+        cpc.setMinIdle(appSettings.getConnectionPoolMinIdle());
+        cpc.setBorrowTimeout(appSettings.getConnectionPoolBorrowTimeout());
+        cpc.setValidationIdleTime(appSettings.getConnectionPoolValidationIdleTime());
+        cpc.setIdleTimeout(appSettings.getConnectionPoolIdleTimeout());
+        cpc.setMaxLifetime(appSettings.getConnectionPoolMaxLifetime());
+        cpc.setStatementCacheSize(appSettings.getStatementCacheSize());
         connectionPool = ConnectionPool.create(cpc);
 
         DbAdaptorFactory dac = new DbAdaptorFactory()
                 .setDbType(appSettings.getDBType())
                 .setDdlConsumer(new JdbcDdlConsumer())
                 .setConnectionPool(connectionPool)
-                .setH2ReferentialIntegrity(appSettings.isH2ReferentialIntegrity());
+                .setH2ReferentialIntegrity(appSettings.isH2ReferentialIntegrity())
+                .setFetchSize(appSettings.getFetchSize())
+                .setSequenceAllocationSize(appSettings.getSequenceAllocationSize());
 
         dbAdaptor = dac.createDbAdaptor();
 
-        this.loggingManager = new LoggingManager(this, dbAdaptor);
-        this.permissionManager = new PermissionManager(this, dbAdaptor);
+        this.loggingManager = new LoggingManager(this, dbAdaptor, appSettings.getLogInTransaction());
+        this.permissionManager = new PermissionManager(this, dbAdaptor,
+                appSettings.getPermissionsCacheSize(), appSettings.getPermissionsCacheTtl());
         this.profiler = new ProfilingManager(this, dbAdaptor);
 
         if (!appSettings.getSkipDBUpdate()) {
@@ -102,15 +127,23 @@ public final class Celesta implements ICelesta {
                     .connectionPool(connectionPool)
                     .score(score)
                     .forceDdInitialize(appSettings.getForceDBInitialize())
+                    .threads(appSettings.getDbUpdateThreads())
+                    .mvInitChunkSize(appSettings.getMvInitChunkSize())
+                    .mvInitThreads(appSettings.getMvInitThreads())
                     .setCelesta(this)
                     .build();
 
             dbUpdater.updateDb();
+            // statements prepared before the structure change should not be reused
+            connectionPool.clearStatementCache();
             LOGGER.info("done.");
         } else {
             LOGGER.info("Celesta initialization: database upgrade...skipped.");
         }
 
+        this.mvRefresher = new MaterializedViewRefresher(this, dbAdaptor);
+        this.mvRefresher.start(appSettings.getMvRefreshInterval());
+
     }
 
     /**
@@ -153,6 +186,11 @@ public final class Celesta implements ICelesta {
         return dbAdaptor;
     }
 
+    @Override
+    public RowCache getRowCache() {
+        return rowCache;
+    }
+
     @Override
     public TriggerDispatcher getTriggerDispatcher() {
         return this.triggerDispatcher;
@@ -163,11 +201,22 @@ public final class Celesta implements ICelesta {
         return score;
     }
 
+    /**
+     * Returns refresher of the materialized views with deferred refresh.
+     *
+     * @return
+     */
+    public MaterializedViewRefresher getMaterializedViewRefresher() {
+        return mvRefresher;
+    }
+
     /**
      * Stops working of Celesta. After the call the instance of Celesta becomes unusable.
      */
     @Override
     public void close() {
+        mvRefresher.close();
+        profiler.close();
         connectionPool.close();
         server.ifPresent(Server::shutdown);
     }
@@ -284,4 +333,13 @@ public final class Celesta implements ICelesta {
         profiler.setProfilemode(profilemode);
     }
 
+    /**
+     * Returns call statistics collected in profiling mode, by procedure name.
+     *
+     * @return
+     */
+    public Map<String, CallStatistics> getCallStatistics() {
+        return profiler.getStatistics();
+    }
+
 }
@@ -0,0 +1,119 @@
+package ru.curs.celesta.dbutils;
+
+/**
+ * Snapshot of call statistics of a procedure collected by the profiler.
+ */
+public final class CallStatistics {
+
+    private final String procName;
+    private final long count;
+    private final long totalDuration;
+    private final long maxDuration;
+    private final long[] durationBounds;
+    private final long[] durationHistogram;
+
+    CallStatistics(String procName, long count, long totalDuration, long maxDuration,
+                   long[] durationBounds, long[] durationHistogram) {
+        this.procName = procName;
+        this.count = count;
+        this.totalDuration = totalDuration;
+        this.maxDuration = maxDuration;
+        this.durationBounds = durationBounds.clone();
+        this.durationHistogram = durationHistogram.clone();
+    }
+
+    /**
+     * Returns name of the procedure.
+     *
+     * @return
+     */
+    public String getProcName() {
+        return procName;
+    }
+
+    /**
+     * Returns number of calls.
+     *
+     * @return
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns total duration of the calls in microseconds.
+     *
+     * @return
+     */
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    /**
+     * Returns maximal duration of a call in microseconds.
+     *
+     * @return
+     */
+    public long getMaxDuration() {
+        return maxDuration;
+    }
+
+    /**
+     * Returns mean duration of a call in microseconds.
+     *
+     * @return
+     */
+    public double getMeanDuration() {
+        return count == 0 ? 0 : (double) totalDuration / count;
+    }
+
+    /**
+     * Returns an estimate of the duration percentile in microseconds: the upper bound
+     * of the histogram bucket the percentile falls into (but not more than the maximal
+     * duration).
+     *
+     * @param percentile  percentile, from 0 to 100
+     * @return
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile should be between 0 and 100");
+        }
+        long total = 0;
+        for (long c : durationHistogram) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long cumulative = 0;
+        for (int i = 0; i < durationBounds.length; i++) {
+            cumulative += durationHistogram[i];
+            if (cumulative >= rank) {
+                return Math.min(durationBounds[i], maxDuration);
+            }
+        }
+        return maxDuration;
+    }
+
+    /**
+     * Returns upper bounds (inclusive, in microseconds) of the buckets of the call duration histogram.
+     *
+     * @return
+     */
+    public long[] getDurationBounds() {
+        return durationBounds.clone();
+    }
+
+    /**
+     * Returns call duration histogram. The last bucket counts the calls that are longer
+     * than the last bound.
+     *
+     * @return
+     */
+    public long[] getDurationHistogram() {
+        return durationHistogram.clone();
+    }
+
+}
@@ -13,6 +13,9 @@ public final class DbUpdaterBuilder {
     private ConnectionPool connectionPool;
     private Score score;
     private boolean forceDdInitialize;
+    private int threads = 1;
+    private int mvInitChunkSize;
+    private int mvInitThreads = 1;
     private ICelesta celesta;
 
     /**
@@ -60,6 +63,39 @@ public final class DbUpdaterBuilder {
         return this;
     }
 
+    /**
+     * Sets number of grains that are updated concurrently.
+     *
+     * @param threads  number of concurrently updated grains ({@code 1} - grains are updated one by one)
+     * @return {@code this}
+     */
+    public DbUpdaterBuilder threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Sets number of table rows in the key chunks a new materialized view is initialized by.
+     *
+     * @param mvInitChunkSize  number of rows in a chunk ({@code 0} - the views are initialized by a single statement)
+     * @return {@code this}
+     */
+    public DbUpdaterBuilder mvInitChunkSize(int mvInitChunkSize) {
+        this.mvInitChunkSize = mvInitChunkSize;
+        return this;
+    }
+
+    /**
+     * Sets number of key chunks of the table of a new materialized view that are aggregated concurrently.
+     *
+     * @param mvInitThreads  number of concurrently aggregated key chunks
+     * @return {@code this}
+     */
+    public DbUpdaterBuilder mvInitThreads(int mvInitThreads) {
+        this.mvInitThreads = mvInitThreads;
+        return this;
+    }
+
     /**
      * Sets Celesta instance.
      *
@@ -77,8 +113,12 @@ public final class DbUpdaterBuilder {
      * @return
      */
     public DbUpdaterImpl build() {
-        return new DbUpdaterImpl(connectionPool, score, forceDdInitialize,
+        DbUpdaterImpl dbUpdater = new DbUpdaterImpl(connectionPool, score, forceDdInitialize,
                 dbAdaptor, celesta);
+        dbUpdater.setThreads(threads);
+        dbUpdater.setMvInitChunkSize(mvInitChunkSize);
+        dbUpdater.setMvInitThreads(mvInitThreads);
+        return dbUpdater;
     }
 
 }
@@ -5,10 +5,13 @@ import ru.curs.celesta.dbutils.adaptors.DBAdaptor;
 import ru.curs.celesta.score.*;
 import ru.curs.celesta.syscursors.GrainsCursor;
 import ru.curs.celesta.syscursors.RolesCursor;
+import ru.curs.celesta.syscursors.ScorestateCursor;
 import ru.curs.celesta.syscursors.TablesCursor;
 import ru.curs.celesta.syscursors.UserrolesCursor;
+import ru.curs.celesta.ver.CelestaVersion;
 
 import java.sql.Connection;
+import java.util.Date;
 
 /**
  * Class performing update procedure of the database.
@@ -35,6 +38,42 @@ public final class DbUpdaterImpl extends DbUpdater<CallContext> {
         table = new TablesCursor(context);
     }
 
+    @Override
+    protected DbUpdaterImpl createWorker() {
+        return new DbUpdaterImpl(connectionPool, (Score) score, false, dbAdaptor, celesta);
+    }
+
+    @Override
+    protected String getVersion() {
+        return CelestaVersion.VERSION;
+    }
+
+    @Override
+    protected String readScoreFingerprint(CallContext context) {
+        ScorestateCursor scoreState = new ScorestateCursor(context);
+        try {
+            return scoreState.tryFirst() ? scoreState.getFingerprint() : null;
+        } catch (CelestaException e) {
+            // the table is absent until the system grain is updated
+            context.rollback();
+            return null;
+        } finally {
+            scoreState.close();
+        }
+    }
+
+    @Override
+    protected void writeScoreFingerprint(CallContext context, String fingerprint) {
+        ScorestateCursor scoreState = new ScorestateCursor(context);
+        scoreState.deleteAll();
+        if (fingerprint != null) {
+            scoreState.setFingerprint(fingerprint);
+            scoreState.setLastmodified(new Date());
+            scoreState.insert();
+        }
+        scoreState.close();
+    }
+
     @Override
     protected String getSchemasTableName() {
         return GrainsCursor.TABLE_NAME;
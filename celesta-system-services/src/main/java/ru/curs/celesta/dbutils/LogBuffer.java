@@ -0,0 +1,109 @@
+package ru.curs.celesta.dbutils;
+
+import ru.curs.celesta.CallContext;
+import ru.curs.celesta.CelestaException;
+import ru.curs.celesta.dbutils.adaptors.DBAdaptor;
+import ru.curs.celesta.dbutils.stmt.PreparedStatementHolderFactory;
+import ru.curs.celesta.dbutils.stmt.PreparedStmtHolder;
+import ru.curs.celesta.event.TriggerType;
+import ru.curs.celesta.syscursors.LogCursor;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Log records of a call context that are written in JDBC batches right before
+ * its transaction is committed and discarded when it is rolled back.
+ * <p>
+ * Pre-insert triggers of the log cursor are fired when a record is added,
+ * post-insert triggers are not fired, since the records are not read back.
+ */
+final class LogBuffer implements CallContext.TransactionListener {
+
+    private final CallContext context;
+    private final DBAdaptor dbAdaptor;
+    private final List<Object[]> records = new ArrayList<>();
+
+    private LogCursor log;
+
+    LogBuffer(CallContext context, DBAdaptor dbAdaptor) {
+        this.context = context;
+        this.dbAdaptor = dbAdaptor;
+    }
+
+    /**
+     * Adds a log record of an action on cursor.
+     *
+     * @param c  cursor
+     * @param a  action
+     */
+    void add(Cursor c, Action a) {
+        if (log == null || log.isClosed()) {
+            log = new LogCursor(context);
+        }
+        LoggingManager.fillLogCursor(log, c, a);
+        context.getCelesta().getTriggerDispatcher().fireTrigger(TriggerType.PRE_INSERT, log);
+        records.add(log._currentValues());
+    }
+
+    @Override
+    public void beforeCommit() {
+        if (records.isEmpty()) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            records.clear();
+        }
+    }
+
+    @Override
+    public void afterRollback() {
+        records.clear();
+    }
+
+    private void flush() {
+        // one statement per nulls mask, records are sent in the order they were added
+        Map<String, PreparedStmtHolder> holders = new HashMap<>();
+        boolean batchable = dbAdaptor.supportsBatchInsert(log.meta());
+        try {
+            PreparedStatement pending = null;
+            for (Object[] values : records) {
+                PreparedStmtHolder holder = holders.computeIfAbsent(nullsKey(values),
+                        k -> PreparedStatementHolderFactory.createInsertHolder(log.meta(), dbAdaptor,
+                                context.getConn()));
+                PreparedStatement stmt = holder.getStatement(values, 0);
+                if (!batchable) {
+                    stmt.execute();
+                    continue;
+                }
+                if (pending != null && pending != stmt) {
+                    pending.executeBatch();
+                }
+                stmt.addBatch();
+                pending = stmt;
+            }
+            if (pending != null) {
+                pending.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new CelestaException(e.getMessage());
+        } finally {
+            holders.values().forEach(PreparedStmtHolder::close);
+        }
+    }
+
+    private static String nullsKey(Object[] values) {
+        StringBuilder sb = new StringBuilder(values.length);
+        for (Object value : values) {
+            sb.append(value == null ? '1' : '0');
+        }
+        return sb.toString();
+    }
+
+}
@@ -23,6 +23,7 @@ public final class LoggingManager implements ILoggingManager {
 
     private final ICelesta celesta;
     private final DBAdaptor dbAdaptor;
+    private final boolean inTransaction;
 
     private CacheEntry[] cache = new CacheEntry[CACHE_SIZE];
 
@@ -61,11 +62,25 @@ public final class LoggingManager implements ILoggingManager {
     }
 
     public LoggingManager(ICelesta celesta, DBAdaptor dbAdaptor) {
+        this(celesta, dbAdaptor, false);
+    }
+
+    /**
+     * Creates logging manager.
+     *
+     * @param celesta        Celesta instance
+     * @param dbAdaptor      DB adaptor
+     * @param inTransaction  whether log records should be written within the transaction
+     *                       of the logged changes when it is committed (otherwise each record
+     *                       is written at once in a separate transaction)
+     */
+    public LoggingManager(ICelesta celesta, DBAdaptor dbAdaptor, boolean inTransaction) {
         this.celesta = celesta;
         this.dbAdaptor = dbAdaptor;
+        this.inTransaction = inTransaction;
     }
 
-    boolean isLoggingNeeded(CallContext sysContext, BasicTable t, Action a) {
+    boolean isLoggingNeeded(BasicTable t, Action a) {
         // Calculate the location of data in the cache.
         int index = CacheEntry.hash(t) & (CACHE_SIZE - 1);
 
@@ -73,19 +88,21 @@ public final class LoggingManager implements ILoggingManager {
         // (otherwise - update the cache).
         CacheEntry ce = cache[index];
         if (ce == null || ce.isExpired() || ce.table != t) {
-            ce = refreshLogging(sysContext, t);
+            ce = refreshLogging(t);
             cache[index] = ce;
         }
         return ce.isLoggingNeeded(a);
     }
 
-    private CacheEntry refreshLogging(CallContext sysContext, BasicTable t) {
-        LogsetupCursor logsetup = new LogsetupCursor(sysContext);
+    private CacheEntry refreshLogging(BasicTable t) {
         int loggingMask = 0;
-        if (logsetup.tryGet(t.getGrain().getName(), t.getName())) {
-            loggingMask |= logsetup.getI() ? Action.INSERT.getMask() : 0;
-            loggingMask |= logsetup.getM() ? Action.MODIFY.getMask() : 0;
-            loggingMask |= logsetup.getD() ? Action.DELETE.getMask() : 0;
+        try (CallContext sysContext = new SystemCallContext(celesta, "log")) {
+            LogsetupCursor logsetup = new LogsetupCursor(sysContext);
+            if (logsetup.tryGet(t.getGrain().getName(), t.getName())) {
+                loggingMask |= logsetup.getI() ? Action.INSERT.getMask() : 0;
+                loggingMask |= logsetup.getM() ? Action.MODIFY.getMask() : 0;
+                loggingMask |= logsetup.getD() ? Action.DELETE.getMask() : 0;
+            }
         }
         return new CacheEntry(t, loggingMask);
     }
@@ -110,16 +127,22 @@ public final class LoggingManager implements ILoggingManager {
             return;
         }
 
-        try (CallContext sysContext = new SystemCallContext(celesta, "log")) {
-            if (!isLoggingNeeded(sysContext, c.meta(), a)) {
-                return;
+        if (!isLoggingNeeded(c.meta(), a)) {
+            return;
+        }
+        if (inTransaction) {
+            CallContext context = c.callContext();
+            context.getTransactionListener(this, () -> new LogBuffer(context, dbAdaptor)).add(c, a);
+        } else {
+            try (CallContext sysContext = new SystemCallContext(celesta, "log")) {
+                LogCursor log = new LogCursor(sysContext);
+                fillLogCursor(log, c, a);
+                log.insert();
             }
-            writeToLog(c, a, sysContext);
         }
     }
 
-    private void writeToLog(Cursor c, Action a, CallContext sysContext) {
-        LogCursor log = new LogCursor(sysContext);
+    static void fillLogCursor(LogCursor log, Cursor c, Action a) {
         log.init();
         log.setUserid(c.callContext().getUserId());
         log.setGrainid(c.meta().getGrain().getName());
@@ -164,7 +187,6 @@ public final class LoggingManager implements ILoggingManager {
                 break;
             default:
         }
-        log.insert();
     }
 
     private static String trimValue(String value, int len) {
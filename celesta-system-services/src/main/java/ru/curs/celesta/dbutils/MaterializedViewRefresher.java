@@ -0,0 +1,123 @@
+package ru.curs.celesta.dbutils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.curs.celesta.CallContext;
+import ru.curs.celesta.Celesta;
+import ru.curs.celesta.SystemCallContext;
+import ru.curs.celesta.dbutils.adaptors.DBAdaptor;
+import ru.curs.celesta.score.MaterializedView;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Refresher of the materialized views with deferred refresh.
+ * <p>
+ * The triggers of such a view only append the group keys of the changed rows to the delta table
+ * of the view. The changed groups are recomputed by a background thread periodically, every view
+ * in a separate transaction.
+ */
+public final class MaterializedViewRefresher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MaterializedViewRefresher.class);
+
+    private final Celesta celesta;
+    private final DBAdaptor dbAdaptor;
+    private final List<MaterializedView> views;
+    private final Object refreshLock = new Object();
+    private ScheduledExecutorService refresher;
+
+    public MaterializedViewRefresher(Celesta celesta, DBAdaptor dbAdaptor) {
+        this.celesta = celesta;
+        this.dbAdaptor = dbAdaptor;
+        this.views = Collections.unmodifiableList(celesta.getScore().getGrains().values().stream()
+                .flatMap(g -> g.getElements(MaterializedView.class).values().stream())
+                .filter(MaterializedView::isDeferredRefresh)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Returns the materialized views with deferred refresh.
+     *
+     * @return
+     */
+    public List<MaterializedView> getViews() {
+        return views;
+    }
+
+    /**
+     * Starts refreshing the views in the background.
+     *
+     * @param interval  refresh period in milliseconds ({@code 0} - the views are not refreshed
+     *                  in the background)
+     */
+    public synchronized void start(long interval) {
+        if (interval > 0 && !views.isEmpty() && refresher == null) {
+            refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "celesta-mv-refresher");
+                t.setDaemon(true);
+                return t;
+            });
+            refresher.scheduleWithFixedDelay(this::refreshQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Refreshes all the views with deferred refresh.
+     */
+    public void refresh() {
+        for (MaterializedView mv : views) {
+            refresh(mv);
+        }
+    }
+
+    /**
+     * Recomputes the groups of the view changed since its last refresh.
+     *
+     * @param mv  materialized view with deferred refresh
+     */
+    public void refresh(MaterializedView mv) {
+        synchronized (refreshLock) {
+            try (CallContext context = new SystemCallContext(celesta)) {
+                try {
+                    dbAdaptor.refreshMaterializedView(context.getConn(), mv);
+                } catch (RuntimeException e) {
+                    context.rollback();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void refreshQuietly() {
+        for (MaterializedView mv : views) {
+            try {
+                refresh(mv);
+            } catch (RuntimeException e) {
+                LOGGER.error(String.format("Failed to refresh materialized view %s.%s",
+                        mv.getGrain().getName(), mv.getName()), e);
+            }
+        }
+    }
+
+    /**
+     * Stops refreshing the views in the background.
+     */
+    public synchronized void close() {
+        if (refresher != null) {
+            refresher.shutdown();
+            try {
+                refresher.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            refresher = null;
+        }
+    }
+
+}
@@ -1,31 +1,38 @@
 package ru.curs.celesta.dbutils;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 import ru.curs.celesta.*;
 import ru.curs.celesta.dbutils.adaptors.DBAdaptor;
+import ru.curs.celesta.dbutils.filter.FilterParser;
 import ru.curs.celesta.score.GrainElement;
 import ru.curs.celesta.syscursors.PermissionsCursor;
+import ru.curs.celesta.syscursors.RolesCursor;
 import ru.curs.celesta.syscursors.UserrolesCursor;
 
 /**
  * Permission manager. It determines if a user has rights for operations with a table.
  * The rights are defined by contents of the system tables for access rights distribution.
  * <p>
- * To optimize work the object contains cache.
+ * To optimize work the object contains cache. The cache is invalidated when the system
+ * tables are modified via cursors of this Celesta instance, other modifications are
+ * seen after the cache entries expire.
  */
 public final class PermissionManager implements IPermissionManager {
     /**
-     * Cache size (in number of entries). MUST BE POWER OF TWO!!
+     * Default cache size (in number of entries).
      */
-    private static final int CACHE_SIZE = 8192;
-
-    private static final int ROLE_CACHE_SIZE = 2048;
+    public static final int DEFAULT_CACHE_SIZE = 8192;
     /**
-     * "Shelf life" of a cache entry (in milliseconds).
+     * Default "shelf life" of a cache entry (in milliseconds).
      */
-    private static final int CACHE_ENTRY_SHELF_LIFE = 20000;
+    public static final long DEFAULT_CACHE_TTL = 20000;
 
     private static final int FULL_RIGHTS = Action.READ.getMask()
             | Action.INSERT.getMask() | Action.MODIFY.getMask()
@@ -33,72 +40,113 @@ public final class PermissionManager implements IPermissionManager {
 
     private final ICelesta celesta;
 //    private final DBAdaptor dbAdaptor;
-    private PermissionCacheEntry[] cache = new PermissionCacheEntry[CACHE_SIZE];
-    private RoleCacheEntry[] rolesCache = new RoleCacheEntry[ROLE_CACHE_SIZE];
+    private final ExpiringCache<PermissionKey, Integer> cache;
+    private final ExpiringCache<String, UserPermissions> usersCache;
 
     /**
-     * Base class for entry of permission manager cache.
+     * Key of the permissions cache.
      */
-    private static class BaseCacheEntry {
-        private final long expirationTime;
-
-        BaseCacheEntry() {
-            expirationTime = System.currentTimeMillis()
-                    + CACHE_ENTRY_SHELF_LIFE;
-        }
-
-        public boolean isExpired() {
-            return System.currentTimeMillis() > expirationTime;
-        }
-    }
+    private static final class PermissionKey {
+        private final String userId;
+        private final String grainName;
+        private final String tableName;
 
-    /**
-     * Entry of the internal cache.
-     */
-    private static class PermissionCacheEntry extends BaseCacheEntry {
-        private final String userName;
-        private final GrainElement table;
-        private final int permissionMask;
-
-        PermissionCacheEntry(String userName, GrainElement table,
-                                    int permissionMask) {
-            super();
-            if (userName == null) {
+        PermissionKey(String userId, GrainElement table) {
+            if (userId == null) {
                 throw new IllegalArgumentException();
             }
-            this.userName = userName;
-            this.table = table;
-            this.permissionMask = permissionMask;
+            this.userId = userId;
+            this.grainName = table.getGrain().getName();
+            this.tableName = table.getName();
         }
 
-        public static int hash(String userName, GrainElement table) {
-            return (userName + '|' + table.getGrain().getName() + '|' + table
-                    .getName()).hashCode();
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PermissionKey)) {
+                return false;
+            }
+            PermissionKey that = (PermissionKey) o;
+            return userId.equals(that.userId) && grainName.equals(that.grainName)
+                    && tableName.equals(that.tableName);
         }
 
-        public boolean isActionPermitted(Action a) {
-            return (permissionMask & a.getMask()) != 0;
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, grainName, tableName);
         }
-
     }
 
     /**
-     * User roles entry for the cache.
+     * Roles of a user along with the permissions of these roles.
      */
-    private static class RoleCacheEntry extends BaseCacheEntry {
-        private final String userId;
-        private final List<String> roles = new ArrayList<>();
+    private static final class UserPermissions {
+        private final List<String> roles;
+        // grain.table -> permissions mask
+        private final Map<String, Integer> tableMasks;
+
+        UserPermissions(List<String> roles, Map<String, Integer> tableMasks) {
+            this.roles = roles;
+            this.tableMasks = tableMasks;
+        }
 
-        RoleCacheEntry(String userId) {
-            super();
-            this.userId = userId;
+        int getMask(GrainElement t) {
+            String grainName = t.getGrain().getName();
+            int permissionsMask = tableMasks.getOrDefault(grainName + '.' + t.getName(), 0);
+            for (String roleId : roles) {
+                if (permissionsMask == FULL_RIGHTS) {
+                    break;
+                }
+                if (READER.equals(roleId)
+                        || (grainName + '.' + READER).equals(roleId)) {
+                    permissionsMask |= Action.READ.getMask();
+                } else if (EDITOR.equals(roleId)
+                        || (grainName + '.' + EDITOR).equals(roleId)) {
+                    permissionsMask = FULL_RIGHTS;
+                }
+            }
+            return permissionsMask;
         }
     }
 
+    private static boolean isPredefinedRole(String roleId, String grainName) {
+        return READER.equals(roleId) || EDITOR.equals(roleId)
+                || (grainName + '.' + READER).equals(roleId)
+                || (grainName + '.' + EDITOR).equals(roleId);
+    }
+
 
     public PermissionManager(ICelesta celesta, DBAdaptor dbAdaptor) {
+        this(celesta, dbAdaptor, DEFAULT_CACHE_SIZE, DEFAULT_CACHE_TTL);
+    }
+
+    /**
+     * Creates permission manager with the given cache settings.
+     *
+     * @param celesta     Celesta instance
+     * @param dbAdaptor   DB adaptor
+     * @param cacheSize   maximum number of cached (user, table) permissions
+     * @param cacheTtl    "shelf life" of a cache entry in milliseconds
+     */
+    public PermissionManager(ICelesta celesta, DBAdaptor dbAdaptor, int cacheSize, long cacheTtl) {
         this.celesta = celesta;
 //        this.dbAdaptor = dbAdaptor;
+        this.cache = new ExpiringCache<>(cacheSize, cacheTtl);
+        this.usersCache = new ExpiringCache<>(Math.max(1, cacheSize / 4), cacheTtl);
+
+        UserrolesCursor.onPostInsert(celesta, c -> invalidate(c.getUserid()));
+        UserrolesCursor.onPostUpdate(celesta, c -> {
+            invalidate(c.getUserid());
+            invalidate(((UserrolesCursor) c.getXRec()).getUserid());
+        });
+        UserrolesCursor.onPostDelete(celesta, c -> invalidate(c.getUserid()));
+        PermissionsCursor.onPostInsert(celesta, c -> invalidateAll());
+        PermissionsCursor.onPostUpdate(celesta, c -> invalidateAll());
+        PermissionsCursor.onPostDelete(celesta, c -> invalidateAll());
+        RolesCursor.onPostUpdate(celesta, c -> invalidateAll());
+        RolesCursor.onPostDelete(celesta, c -> invalidateAll());
     }
 
     /**
@@ -116,66 +164,74 @@ public final class PermissionManager implements IPermissionManager {
             return true;
         }
 
-        // Вычисляем местоположение данных в кэше.
-        int index = PermissionCacheEntry.hash(c.getUserId(), t)
-                & (CACHE_SIZE - 1);
-
-        // Прежде всего смотрим, нет ли в кэше подходящей непросроченной записи
-        // (в противном случае -- обновляем кэш).
-        PermissionCacheEntry ce = cache[index];
-        if (ce == null || ce.isExpired() || ce.table != t
-                || !ce.userName.equals(c.getUserId())) {
-            ce = refreshPermissions(c, t);
-            cache[index] = ce;
-        }
-        return ce.isActionPermitted(a);
+        int permissionsMask = cache.get(new PermissionKey(c.getUserId(), t),
+                k -> usersCache.get(k.userId, this::loadUserPermissions).getMask(t));
+        return (permissionsMask & a.getMask()) != 0;
+    }
+
+    /**
+     * Loads roles and permissions of a user to the cache in advance.
+     *
+     * @param userId  user id
+     */
+    public void preload(String userId) {
+        usersCache.put(userId, loadUserPermissions(userId));
     }
 
-    private RoleCacheEntry getRce(String userID, CallContext sysContext) {
-        int index = userID.hashCode() & (ROLE_CACHE_SIZE - 1);
-        RoleCacheEntry rce = rolesCache[index];
-        if (rce == null || rce.isExpired() || !rce.userId.equals(userID)) {
-            rce = new RoleCacheEntry(userID);
+    /**
+     * Drops cached permissions of a user.
+     *
+     * @param userId  user id
+     */
+    public void invalidate(String userId) {
+        usersCache.invalidate(userId);
+        cache.invalidateIf(k -> k.userId.equals(userId));
+    }
+
+    /**
+     * Drops all cached permissions.
+     */
+    public void invalidateAll() {
+        usersCache.invalidateAll();
+        cache.invalidateAll();
+    }
+
+    private UserPermissions loadUserPermissions(String userId) {
+        try (CallContext sysContext = new SystemCallContext(celesta, "refreshPermissions")) {
+            List<String> roles = new ArrayList<>();
             UserrolesCursor userRoles = new UserrolesCursor(sysContext);
-            userRoles.setRange(userRoles.COLUMNS.userid(), userID);
+            userRoles.setRange(userRoles.COLUMNS.userid(), userId);
             while (userRoles.nextInSet()) {
-                rce.roles.add(userRoles.getRoleid());
+                roles.add(userRoles.getRoleid());
+            }
+            if (roles.isEmpty()) {
+                return new UserPermissions(roles, Collections.emptyMap());
             }
-            rolesCache[index] = rce;
-        }
-        return rce;
-    }
 
-    private PermissionCacheEntry refreshPermissions(CallContext c, GrainElement t) {
-        try (CallContext sysContext = new SystemCallContext(celesta, "refreshPermissions")) {
-            RoleCacheEntry rce = getRce(c.getUserId(), sysContext);
+            // permissions of all the roles are read with a single query
+            Map<String, Integer> tableMasks = new HashMap<>();
             PermissionsCursor permissions = new PermissionsCursor(sysContext);
-            int permissionsMask = 0;
-            for (String roleId : rce.roles) {
-                if (permissionsMask == FULL_RIGHTS) {
-                    break;
-                }
-                if (READER.equals(roleId)
-                        || (t.getGrain().getName() + '.' + READER)
-                        .equals(roleId)) {
-                    permissionsMask |= Action.READ.getMask();
-                } else if (EDITOR.equals(roleId)
-                        || (t.getGrain().getName() + '.' + EDITOR)
-                        .equals(roleId)) {
-                    permissionsMask = FULL_RIGHTS;
-                } else if (permissions.tryGet(roleId, t.getGrain().getName(),
-                        t.getName())) {
-                    permissionsMask |= permissions.getR() ? Action.READ
-                            .getMask() : 0;
-                    permissionsMask |= permissions.getI() ? Action.INSERT
-                            .getMask() : 0;
-                    permissionsMask |= permissions.getM() ? Action.MODIFY
-                            .getMask() : 0;
-                    permissionsMask |= permissions.getD() ? Action.DELETE
-                            .getMask() : 0;
+            permissions.setFilter(permissions.COLUMNS.roleid(), roles.stream()
+                    .map(FilterParser::quoteString)
+                    .collect(Collectors.joining("|")));
+            while (permissions.nextInSet()) {
+                // rights of the predefined roles do not depend on the permissions table
+                if (isPredefinedRole(permissions.getRoleid(), permissions.getGrainid())) {
+                    continue;
                 }
+                int permissionsMask = 0;
+                permissionsMask |= permissions.getR() ? Action.READ
+                        .getMask() : 0;
+                permissionsMask |= permissions.getI() ? Action.INSERT
+                        .getMask() : 0;
+                permissionsMask |= permissions.getM() ? Action.MODIFY
+                        .getMask() : 0;
+                permissionsMask |= permissions.getD() ? Action.DELETE
+                        .getMask() : 0;
+                tableMasks.merge(permissions.getGrainid() + '.' + permissions.getTablename(),
+                        permissionsMask, (m1, m2) -> m1 | m2);
             }
-            return new PermissionCacheEntry(c.getUserId(), t, permissionsMask);
+            return new UserPermissions(roles, tableMasks);
         }
     }
 
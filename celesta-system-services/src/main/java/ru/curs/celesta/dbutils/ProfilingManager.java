@@ -1,18 +1,111 @@
 package ru.curs.celesta.dbutils;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import ru.curs.celesta.*;
 import ru.curs.celesta.dbutils.adaptors.DBAdaptor;
 import ru.curs.celesta.syscursors.CalllogCursor;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Call profiling manager.
+ * <p>
+ * Calls are aggregated in memory per procedure name (see {@link #getStatistics()}).
+ * Call records are queued and written to <em>calllog</em> table in batches by
+ * a background thread, so the calls do not wait for the profiler.
  */
 public final class ProfilingManager implements IProfiler {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProfilingManager.class);
+
+    /**
+     * Maximal number of call records waiting to be written, the records that do not fit are dropped.
+     */
+    static final int QUEUE_CAPACITY = 10_000;
+    /**
+     * Period of writing the queued call records (in milliseconds).
+     */
+    static final long FLUSH_PERIOD = 5_000;
+
+    private static final long[] DURATION_BOUNDS = {
+        100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+        100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000
+    };
+
     private final Celesta celesta;
     private final DBAdaptor dbAdaptor;
-    private boolean profilemode = false;
+    private volatile boolean profilemode = false;
+
+    private final ConcurrentHashMap<String, Stats> statistics = new ConcurrentHashMap<>();
+    private final BlockingQueue<CallRecord> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final LongAdder dropped = new LongAdder();
+    private ScheduledExecutorService flusher;
+
+    /**
+     * Call record waiting to be written.
+     */
+    private static final class CallRecord {
+        private final String procName;
+        private final String userId;
+        private final Date startTime;
+        private final int duration;
+
+        CallRecord(String procName, String userId, Date startTime, int duration) {
+            this.procName = procName;
+            this.userId = userId;
+            this.startTime = startTime;
+            this.duration = duration;
+        }
+    }
 
+    /**
+     * Call statistics of a procedure.
+     */
+    private static final class Stats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalDuration = new LongAdder();
+        private final LongAccumulator maxDuration = new LongAccumulator(Math::max, 0);
+        private final LongAdder[] histogram = new LongAdder[DURATION_BOUNDS.length + 1];
+
+        Stats() {
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = new LongAdder();
+            }
+        }
+
+        void add(long duration) {
+            count.increment();
+            totalDuration.add(duration);
+            maxDuration.accumulate(duration);
+            int i = 0;
+            while (i < DURATION_BOUNDS.length && duration > DURATION_BOUNDS[i]) {
+                i++;
+            }
+            histogram[i].increment();
+        }
+
+        CallStatistics snapshot(String procName) {
+            long[] h = new long[histogram.length];
+            for (int i = 0; i < h.length; i++) {
+                h[i] = histogram[i].sum();
+            }
+            return new CallStatistics(procName, count.sum(), totalDuration.sum(), maxDuration.get(),
+                    DURATION_BOUNDS, h);
+        }
+    }
 
     public ProfilingManager(Celesta celesta, DBAdaptor dbAdaptor) {
         this.celesta = celesta;
@@ -26,18 +119,78 @@ public final class ProfilingManager implements IProfiler {
      */
     public void logCall(CallContext context) {
         if (this.profilemode && !NO_LOG.equals(context.getProcName())) {
-            try (CallContext sysContext = new SystemCallContext(celesta)) {
-                CalllogCursor clc = new CalllogCursor(sysContext);
-                clc.setProcname(context.getProcName());
-                clc.setUserid(context.getUserId());
-
-                clc.setStarttime(context.getStartTime());
-                clc.setDuration((int) (context.getDurationNs() / 1000));
-                clc.insert();
+            long duration = context.getDurationNs() / 1000;
+            statistics.computeIfAbsent(context.getProcName(), k -> new Stats()).add(duration);
+            CallRecord rec = new CallRecord(context.getProcName(), context.getUserId(),
+                    context.getStartTime(), (int) duration);
+            if (!queue.offer(rec)) {
+                dropped.increment();
             }
         }
     }
 
+    /**
+     * Writes the queued call records to <em>calllog</em> table.
+     */
+    public void flush() {
+        List<CallRecord> records = new ArrayList<>();
+        synchronized (queue) {
+            while (queue.drainTo(records, Cursor.DEFAULT_BATCH_SIZE) > 0) {
+                try (CallContext sysContext = new SystemCallContext(celesta)) {
+                    CalllogCursor clc = new CalllogCursor(sysContext);
+                    clc.beginBatch();
+                    for (CallRecord rec : records) {
+                        clc.clear();
+                        clc.setProcname(rec.procName);
+                        clc.setUserid(rec.userId);
+                        clc.setStarttime(rec.startTime);
+                        clc.setDuration(rec.duration);
+                        clc.insert();
+                    }
+                    clc.endBatch();
+                }
+                records.clear();
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to write call log", e);
+        }
+    }
+
+    /**
+     * Returns call statistics collected since the profiling mode was on (or since the last
+     * {@link #resetStatistics()}), ordered by procedure name.
+     *
+     * @return
+     */
+    public Map<String, CallStatistics> getStatistics() {
+        Map<String, CallStatistics> result = new TreeMap<>();
+        statistics.forEach((procName, stats) -> result.put(procName, stats.snapshot(procName)));
+        return result;
+    }
+
+    /**
+     * Clears collected call statistics.
+     */
+    public void resetStatistics() {
+        statistics.clear();
+    }
+
+    /**
+     * Returns number of call records that were not written to <em>calllog</em> table
+     * because the queue was full.
+     *
+     * @return
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
     /**
      * Whether the profiling mode is on (is the procedures call time logged to
      * <em>calllog</em> table.
@@ -53,8 +206,34 @@ public final class ProfilingManager implements IProfiler {
      *
      * @param profilemode  profiling mode flag ({@code true} - on, {@code false} - off)
      */
-    public void setProfilemode(boolean profilemode) {
+    public synchronized void setProfilemode(boolean profilemode) {
+        if (profilemode && flusher == null) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "celesta-profiler-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, FLUSH_PERIOD, FLUSH_PERIOD,
+                    TimeUnit.MILLISECONDS);
+        }
         this.profilemode = profilemode;
     }
 
+    /**
+     * Stops the background writing and writes the remaining call records.
+     */
+    public synchronized void close() {
+        this.profilemode = false;
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(FLUSH_PERIOD, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flusher = null;
+            flushQuietly();
+        }
+    }
+
 }
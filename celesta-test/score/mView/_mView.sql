@@ -73,4 +73,32 @@ create table table5 (
 CREATE materialized view mView6 AS
   select f1, sum(f1) as s1, sum(f2) as s2
   from table5
-  group by f1;
\ No newline at end of file
+  group by f1;
+
+CREATE SEQUENCE table6_id;
+
+create table table6 (
+  id int not null default nextval(table6_id) primary key,
+  numb int not null,
+  date datetime not null,
+  var varchar(2) not null
+);
+
+create materialized view mView7 AS
+  select var, date, sum(numb) as s, count(*) as c
+  from table6
+  group by var, date
+  with deferred refresh;
+
+CREATE SEQUENCE table7_id;
+
+create table table7 (
+  id int not null default nextval(table7_id) primary key,
+  numb int,
+  var varchar(2) not null
+);
+
+create materialized view mView8 AS
+  select var, min(numb) as minNumb, max(numb) as maxNumb, count(*) as c
+  from table7
+  group by var;
@@ -5,10 +5,12 @@ import ru.curs.celesta.ICelesta;
 import ru.curs.celesta.dbutils.IProfiler;
 import ru.curs.celesta.dbutils.LoggingManager;
 import ru.curs.celesta.dbutils.PermissionManager;
+import ru.curs.celesta.dbutils.RowCache;
 import ru.curs.celesta.dbutils.adaptors.DBAdaptor;
 import ru.curs.celesta.event.TriggerDispatcher;
 import ru.curs.celesta.score.Score;
 
+import java.util.Collections;
 import java.util.Properties;
 
 /**
@@ -24,6 +26,7 @@ public final class CelestaImpl implements ICelesta {
     private final String scorePath;
     private final PermissionManager permissionManager;
     private final LoggingManager loggingManager;
+    private final RowCache rowCache = new RowCache(Collections.emptySet(), 0, 0);
 
     public CelestaImpl(DBAdaptor dbAdaptor, ConnectionPool connectionPool, Score score) {
         this(dbAdaptor, connectionPool, score, null);
@@ -80,6 +83,11 @@ public final class CelestaImpl implements ICelesta {
         return dbAdaptor;
     }
 
+    @Override
+    public RowCache getRowCache() {
+        return rowCache;
+    }
+
     @Override
     public void close() throws Exception {
         connectionPool.close();
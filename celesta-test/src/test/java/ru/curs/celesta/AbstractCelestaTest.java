@@ -11,10 +11,21 @@ public abstract class AbstractCelestaTest {
 
     private final Celesta celesta;
 
-    {
+    protected AbstractCelestaTest() {
+        this(new Properties());
+    }
+
+    /**
+     * Creates the test with a Celesta instance which setup properties are the common ones
+     * and the given ones of the particular test.
+     *
+     * @param properties  setup properties of the test
+     */
+    protected AbstractCelestaTest(Properties properties) {
         Properties params = new Properties();
         params.setProperty("score.path", scorePath());
         params.setProperty("h2.in-memory", "true");
+        params.putAll(properties);
         celesta = Celesta.createInstance(params);
 
         assertSame(celesta.getSetupProperties(), params);
@@ -22,8 +33,30 @@ public abstract class AbstractCelestaTest {
 
     private CallContext cc;
 
+    /**
+     * Returns the score path. It's called by the constructor, so it can't depend on the fields of the test.
+     *
+     * @return
+     */
     protected abstract String scorePath();
 
+    /**
+     * Returns setup properties consisting of the given property.
+     *
+     * @param name  property name
+     * @param value  property value
+     * @return
+     */
+    protected static Properties property(String name, String value) {
+        Properties result = new Properties();
+        result.setProperty(name, value);
+        return result;
+    }
+
+    protected Celesta celesta() {
+        return celesta;
+    }
+
     public CallContext cc() {
         return cc;
     }
@@ -3,11 +3,17 @@ package ru.curs.celesta;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -115,4 +121,153 @@ public class ConnectionPoolTest {
         );
     }
 
+    @Test
+    void testMaxPoolSizeAndBorrowTimeout() throws Exception {
+        ConnectionPoolConfiguration bounded = copyOf(cpc);
+        bounded.setMaxPoolSize(2);
+        bounded.setBorrowTimeout(100);
+        try (ConnectionPool pool = ConnectionPool.create(bounded)) {
+            Connection conn1 = pool.get();
+            Connection conn2 = pool.get();
+
+            assertThrows(CelestaException.class, pool::get);
+            ConnectionPoolMetrics metrics = pool.getMetrics();
+            assertAll(
+                    () -> assertEquals(2, metrics.getActive()),
+                    () -> assertEquals(0, metrics.getIdle()),
+                    () -> assertEquals(1, metrics.getTimeouts())
+            );
+
+            conn1.close();
+            // closing twice must not release one more connection
+            conn1.close();
+            Connection conn3 = pool.get();
+            assertSame(conn1, conn3);
+            assertThrows(CelestaException.class, pool::get);
+
+            conn2.close();
+            conn3.close();
+            ConnectionPoolMetrics after = pool.getMetrics();
+            assertAll(
+                    () -> assertEquals(0, after.getActive()),
+                    () -> assertEquals(2, after.getIdle()),
+                    () -> assertEquals(2, after.getCreated()),
+                    () -> assertEquals(3, after.getBorrowed()),
+                    () -> assertEquals(3, Arrays.stream(after.getBorrowLatencyHistogram()).sum())
+            );
+        }
+    }
+
+    @Test
+    void testIdleEviction() throws Exception {
+        ConnectionPoolConfiguration evicting = copyOf(cpc);
+        evicting.setIdleTimeout(1);
+        evicting.setMinIdle(1);
+        try (ConnectionPool pool = ConnectionPool.create(evicting)) {
+            // wait for the housekeeper to fill the pool up to minIdle on start
+            for (int i = 0; i < 1000 && pool.getMetrics().getIdle() < 1; i++) {
+                Thread.sleep(1);
+            }
+            Connection conn1 = pool.get();
+            Connection conn2 = pool.get();
+            conn1.close();
+            conn2.close();
+            assertEquals(2, pool.poolSize());
+
+            Thread.sleep(10);
+            pool.housekeep();
+
+            assertAll(
+                    () -> assertEquals(1, pool.poolSize()),
+                    () -> assertTrue(conn1.isClosed() ^ conn2.isClosed())
+            );
+        }
+    }
+
+    @Test
+    void testMaxLifetime() throws Exception {
+        ConnectionPoolConfiguration shortLived = copyOf(cpc);
+        shortLived.setMaxLifetime(1);
+        try (ConnectionPool pool = ConnectionPool.create(shortLived)) {
+            Connection conn1 = pool.get();
+            Thread.sleep(10);
+            conn1.close();
+
+            assertAll(
+                    () -> assertTrue(conn1.isClosed()),
+                    () -> assertEquals(0, pool.poolSize())
+            );
+        }
+    }
+
+    @Test
+    void testStatementsAreReusedAcrossBorrowings() throws Exception {
+        ConnectionPoolConfiguration caching = copyOf(cpc);
+        caching.setStatementCacheSize(64);
+        try (ConnectionPool pool = ConnectionPool.create(caching)) {
+            Connection conn1 = pool.get();
+            PreparedStatement stmt1 = conn1.prepareStatement("select 1");
+            PreparedStatement stmt2 = conn1.prepareStatement("select 1");
+            Object physical2 = physicalStatement(stmt2);
+            assertNotSame(physicalStatement(stmt1), physical2);
+            stmt1.close();
+            stmt2.close();
+            assertTrue(stmt1.isClosed());
+            assertThrows(SQLException.class, stmt1::executeQuery);
+            assertEquals(1, ((CelestaConnection) conn1).getStatementCacheSize());
+            conn1.close();
+
+            Connection conn2 = pool.get();
+            assertSame(conn1, conn2);
+            PreparedStatement stmt3 = conn2.prepareStatement("select 1");
+            assertFalse(stmt3.isClosed());
+            assertSame(conn2, stmt3.getConnection());
+            // one idle statement per SQL is kept
+            assertSame(physical2, physicalStatement(stmt3));
+            stmt3.close();
+
+            conn2.close();
+            pool.clearStatementCache();
+            assertEquals(0, ((CelestaConnection) conn2).getStatementCacheSize());
+        }
+    }
+
+    @Test
+    void testStatementsAreNotCachedByDefault() throws Exception {
+        Connection conn = connectionPool.get();
+        PreparedStatement stmt = conn.prepareStatement("select 1");
+        assertFalse(Proxy.isProxyClass(stmt.getClass()));
+        stmt.close();
+        assertEquals(0, ((CelestaConnection) conn).getStatementCacheSize());
+        conn.close();
+    }
+
+    @Test
+    void testStatementCacheIsBounded() throws Exception {
+        ConnectionPoolConfiguration small = copyOf(cpc);
+        small.setStatementCacheSize(2);
+        try (ConnectionPool pool = ConnectionPool.create(small)) {
+            CelestaConnection conn = (CelestaConnection) pool.get();
+            for (int i = 0; i < 5; i++) {
+                conn.prepareStatement("select " + i).close();
+            }
+            assertEquals(2, conn.getStatementCacheSize());
+            conn.close();
+        }
+    }
+
+    private static Object physicalStatement(PreparedStatement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.getStatement();
+        }
+    }
+
+    private static ConnectionPoolConfiguration copyOf(ConnectionPoolConfiguration configuration) {
+        ConnectionPoolConfiguration result = new ConnectionPoolConfiguration();
+        result.setJdbcConnectionUrl(configuration.getJdbcConnectionUrl());
+        result.setDriverClassName(configuration.getDriverClassName());
+        result.setLogin(configuration.getLogin());
+        return result;
+    }
+
 }
@@ -5,11 +5,21 @@ import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.*;
 
 import ru.curs.celesta.*;
+import ru.curs.celesta.dbutils.stmt.PreparedStmtHolder;
 import ru.curs.celesta.syscursors.LogCursor;
 import ru.curs.celesta.syscursors.LogsetupCursor;
 
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 public class CursorTest extends AbstractCelestaTest {
 
+    CursorTest() {
+        // the chunks of parallel streams share a small pool with the cursor
+        super(property("rdbms.connection.pool.max.size", "3"));
+    }
+
     @Override
     protected String scorePath() {
         return "score";
@@ -27,6 +37,7 @@ public class CursorTest extends AbstractCelestaTest {
     @AfterEach
     public void after() {
         c.close();
+        super.after();
     }
 
     @Test
@@ -62,6 +73,23 @@ public class CursorTest extends AbstractCelestaTest {
         );
     }
 
+    @Test
+    void fieldsAreAssignableByIndex() {
+        LogsetupCursor lsc = (LogsetupCursor) c;
+        lsc.setValue(1, "tableName");
+        lsc.setValue(2, true);
+        assertEquals("tableName", lsc.getTablename());
+        assertEquals("tableName", lsc.getValue(1));
+        assertEquals(Boolean.TRUE, lsc.getValue("i"));
+        assertNull(lsc.getValue(0));
+
+        assertTrue(
+                assertThrows(CelestaException.class,
+                        () -> lsc.getValue(5)).getMessage()
+                        .contains("No column")
+        );
+    }
+
     @Test
     public void testClose() throws Exception {
         BasicCursor xRec = c.getXRec();
@@ -69,14 +97,15 @@ public class CursorTest extends AbstractCelestaTest {
         Object[] rec = {"f1", "f2", "f3", "f4", "f5"};
 
         c.getHelper.getHolder().getStatement(rec, 0);
-        c.insert.getStatement(rec, 0);
+        PreparedStmtHolder insert = c.insertHolder(rec);
+        insert.getStatement(rec, 0);
 
         boolean[] updateMask = {true, false, false, true, true};
-        c.updateMask = updateMask;
         boolean[] nullUpdateMask = {false, true, true, false, false};
-        c.nullUpdateMask = nullUpdateMask;
-
-        c.update.getStatement(rec, 0);
+        PreparedStmtHolder update = c.updateHolder(updateMask, nullUpdateMask);
+        update.getStatement(rec, 0);
+        assertSame(update, c.updateHolder(updateMask.clone(), nullUpdateMask.clone()));
+        assertNotSame(update, c.updateHolder(updateMask, new boolean[5]));
         c.delete.getStatement(rec, 0);
 
         c.set.getStatement(rec, 0);
@@ -93,8 +122,8 @@ public class CursorTest extends AbstractCelestaTest {
                 () -> assertFalse(c.isClosed()),
                 () -> assertFalse(xRec.isClosed()),
                 () -> assertTrue(c.getHelper.getHolder().isStmtValid()),
-                () -> assertTrue(c.insert.isStmtValid()),
-                () -> assertTrue(c.update.isStmtValid()),
+                () -> assertTrue(insert.isStmtValid()),
+                () -> assertTrue(update.isStmtValid()),
                 () -> assertTrue(c.delete.isStmtValid()),
 
                 () -> assertTrue(c.set.isStmtValid()),
@@ -112,8 +141,8 @@ public class CursorTest extends AbstractCelestaTest {
         assertAll(
                 () -> assertTrue(xRec.isClosed()),
                 () -> assertFalse(c.getHelper.getHolder().isStmtValid()),
-                () -> assertFalse(c.insert.isStmtValid()),
-                () -> assertFalse(c.update.isStmtValid()),
+                () -> assertFalse(insert.isStmtValid()),
+                () -> assertFalse(update.isStmtValid()),
                 () -> assertFalse(c.delete.isStmtValid()),
 
                 () -> assertFalse(c.set.isStmtValid()),
@@ -223,6 +252,79 @@ public class CursorTest extends AbstractCelestaTest {
         lc.setAction_type(Action.INSERT.shortId());
     }
 
+    @Test
+    void fetchSizeIsAppliedToDataSet() throws Exception {
+        LogsetupCursor lsc = (LogsetupCursor) c;
+        assertEquals(cc().getDbAdaptor().getFetchSize(), c.getFetchSize());
+        assertThrows(CelestaException.class, () -> c.setFetchSize(-1));
+
+        for (int i = 0; i < 5; i++) {
+            lsc.setGrainid("fetch");
+            lsc.setTablename("table" + i);
+            lsc.insert();
+        }
+        c.setFetchSize(2);
+        assertEquals(2, c.getFetchSize());
+        lsc.setRange(lsc.COLUMNS.grainid(), "fetch");
+        assertTrue(c.tryFindSet());
+        assertEquals(2, c.cursor.getStatement().getFetchSize());
+        int count = 1;
+        while (c.nextInSet()) {
+            count++;
+        }
+        assertEquals(5, count);
+        c.deleteAll();
+    }
+
+    @Test
+    void cursorIsStreamable() {
+        LogsetupCursor lsc = (LogsetupCursor) c;
+        for (int i = 0; i < 10; i++) {
+            lsc.setGrainid("stream");
+            lsc.setTablename("table" + i);
+            lsc.insert();
+        }
+        // parallel chunks are read in separate transactions, uncommitted changes aren't visible to them
+        cc().commit();
+
+        lsc.setRange(lsc.COLUMNS.grainid(), "stream");
+        lsc.orderBy(lsc.COLUMNS.tablename().desc());
+        List<String> names = c.stream().map(r -> r.get(lsc.COLUMNS.tablename())).collect(Collectors.toList());
+        assertEquals(10, names.size());
+        assertEquals("table9", names.get(0));
+
+        assertEquals(names, c.parallelStream(3)
+                .map(r -> r.get(lsc.COLUMNS.tablename())).collect(Collectors.toList()));
+        // more chunks than records and than connections in the pool
+        assertEquals(names, c.parallelStream(20)
+                .map(r -> r.get(lsc.COLUMNS.tablename())).collect(Collectors.toList()));
+        // the stream is consumed in the common fork/join pool
+        assertEquals(names, c.parallelStream(5).parallel()
+                .map(r -> r.get(lsc.COLUMNS.tablename())).collect(Collectors.toList()));
+
+        // the connections of the chunks of a stream that isn't read to the end are released on closing
+        int active = celesta().getConnectionPool().getMetrics().getActive();
+        try (Stream<CursorRow> rows = c.parallelStream(5)) {
+            assertEquals(names.subList(0, 2), rows.limit(2)
+                    .map(r -> r.get(lsc.COLUMNS.tablename())).collect(Collectors.toList()));
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (celesta().getConnectionPool().getMetrics().getActive() > active
+                && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        assertEquals(active, celesta().getConnectionPool().getMetrics().getActive());
+
+        c.limit(2, 5);
+        assertEquals(names.subList(2, 7), c.parallelStream(2)
+                .map(r -> (String) r.get("tablename")).collect(Collectors.toList()));
+        assertThrows(CelestaException.class, () -> c.parallelStream(0));
+
+        c.limit(0, 0);
+        c.deleteAll();
+        cc().commit();
+    }
+
     @Test
     void emptyCursorIsNotNavigable() {
         c.deleteAll();
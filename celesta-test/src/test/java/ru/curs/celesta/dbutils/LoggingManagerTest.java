@@ -0,0 +1,82 @@
+package ru.curs.celesta.dbutils;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ru.curs.celesta.AbstractCelestaTest;
+import ru.curs.celesta.CallContext;
+import ru.curs.celesta.SystemCallContext;
+import ru.curs.celesta.syscursors.LogCursor;
+import ru.curs.celesta.syscursors.LogsetupCursor;
+import simpleCases.Simple_tableCursor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoggingManagerTest extends AbstractCelestaTest {
+
+    LoggingManagerTest() {
+        super(property("log.in.transaction", "true"));
+    }
+
+    @Override
+    protected String scorePath() {
+        return "score";
+    }
+
+    @BeforeAll
+    void setUp() {
+        try (CallContext cc = new SystemCallContext(celesta(), "loggingSetup")) {
+            LogsetupCursor logsetup = new LogsetupCursor(cc);
+            logsetup.setGrainid("simpleCases");
+            logsetup.setTablename("simple_table");
+            logsetup.setI(true);
+            logsetup.setM(true);
+            logsetup.setD(true);
+            logsetup.insert();
+        }
+    }
+
+    @Test
+    void logRecordsAreWrittenOnCommitOnly() {
+        try (CallContext cc = new SystemCallContext(celesta(), "loggingTest")) {
+            LogCursor log = new LogCursor(cc);
+            log.setRange(log.COLUMNS.tablename(), "simple_table");
+            assertEquals(0, log.count());
+
+            Simple_tableCursor t = new Simple_tableCursor(cc);
+            t.setName("first");
+            t.insert();
+            t.setName("second");
+            t.update();
+            assertEquals(0, log.count());
+            cc.commit();
+            assertEquals(2, log.count());
+
+            t.delete();
+            t.clear();
+            t.setName("rolled back");
+            t.insert();
+            cc.rollback();
+            assertEquals(2, log.count());
+
+            t.clear();
+            t.setName("third");
+            t.insert();
+        }
+
+        try (CallContext cc = new SystemCallContext(celesta(), "loggingTest")) {
+            LogCursor log = new LogCursor(cc);
+            log.setRange(log.COLUMNS.tablename(), "simple_table");
+            log.orderBy(log.COLUMNS.entryno());
+            assertEquals(3, log.count());
+            String[] actions = new String[3];
+            int i = 0;
+            for (LogCursor l : log) {
+                actions[i++] = l.getAction_type();
+            }
+            assertArrayEquals(new String[]{"I", "M", "I"}, actions);
+            log.last();
+            assertTrue(log.getNewvalues().contains("third"));
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+package ru.curs.celesta.dbutils;
+
+import mView.MView8Cursor;
+import mView.Table7Cursor;
+import org.junit.jupiter.api.Test;
+import ru.curs.celesta.AbstractCelestaTest;
+import ru.curs.celesta.CallContext;
+import ru.curs.celesta.SystemCallContext;
+import ru.curs.celesta.dbutils.meta.SchemaSnapshot;
+import ru.curs.celesta.score.Grain;
+import ru.curs.celesta.score.MaterializedView;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MaterializedViewInitializerTest extends AbstractCelestaTest {
+
+    @Override
+    protected String scorePath() {
+        return "score";
+    }
+
+    @Test
+    void viewIsInitializedByChunks() throws Exception {
+        try (CallContext cc = new SystemCallContext(celesta(), "mvInitializerTest")) {
+            Table7Cursor t = new Table7Cursor(cc);
+            t.deleteAll();
+            Integer[] numbs = {5, null, -3, 8, 2, null, 7};
+            for (int i = 0; i < numbs.length; i++) {
+                t.clear();
+                t.setNumb(numbs[i]);
+                t.setVar(i % 3 == 0 ? "A" : "B");
+                t.insert();
+            }
+            t.clear();
+            t.setVar("C");
+            t.insert();
+            cc.commit();
+        }
+
+        initView(3);
+
+        try (CallContext cc = new SystemCallContext(celesta(), "mvInitializerTest")) {
+            MView8Cursor mView = new MView8Cursor(cc);
+            assertEquals(3, mView.count());
+
+            // rows 1, 4, 7
+            mView.get("A");
+            assertEquals(5, mView.getMinNumb().intValue());
+            assertEquals(8, mView.getMaxNumb().intValue());
+            assertEquals(3, mView.getC().intValue());
+
+            // rows 2, 3, 5, 6
+            mView.get("B");
+            assertEquals(-3, mView.getMinNumb().intValue());
+            assertEquals(2, mView.getMaxNumb().intValue());
+            assertEquals(4, mView.getC().intValue());
+
+            mView.get("C");
+            assertNull(mView.getMinNumb());
+            assertNull(mView.getMaxNumb());
+            assertEquals(1, mView.getC().intValue());
+        }
+    }
+
+    @Test
+    void viewIsInitializedBySparseKeys() throws Exception {
+        // the span of the keys is far beyond the number of the rows
+        int[] ids = {Integer.MIN_VALUE + 1, -1_000_000, -5, 0, 1, 2, 70_000, 1_500_000_000, Integer.MAX_VALUE};
+        try (CallContext cc = new SystemCallContext(celesta(), "mvInitializerTest")) {
+            Table7Cursor t = new Table7Cursor(cc);
+            t.deleteAll();
+            for (int id : ids) {
+                t.clear();
+                t.setId(id);
+                t.setNumb(id % 1000);
+                t.setVar(id < 0 ? "N" : "P");
+                t.insert();
+            }
+            cc.commit();
+        }
+
+        initView(2);
+
+        try (CallContext cc = new SystemCallContext(celesta(), "mvInitializerTest")) {
+            MView8Cursor mView = new MView8Cursor(cc);
+            assertEquals(2, mView.count());
+
+            mView.get("N");
+            assertEquals(-647, mView.getMinNumb().intValue());
+            assertEquals(0, mView.getMaxNumb().intValue());
+            assertEquals(3, mView.getC().intValue());
+
+            mView.get("P");
+            assertEquals(0, mView.getMinNumb().intValue());
+            assertEquals(647, mView.getMaxNumb().intValue());
+            assertEquals(6, mView.getC().intValue());
+        }
+    }
+
+    @Test
+    void tableNamedAsDeltaTableIsKept() throws Exception {
+        // mView8 isn't refreshed deferred, so the table isn't its delta table
+        try (Connection conn = celesta().getConnectionPool().get();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE \"mView\".\"mView8_delta\" (\"id\" INT NOT NULL PRIMARY KEY)");
+            conn.commit();
+        }
+
+        initView(0);
+
+        try (Connection conn = celesta().getConnectionPool().get()) {
+            assertTrue(celesta().getDBAdaptor().tableExists(conn, "mView", "mView8_delta"));
+        }
+    }
+
+    /**
+     * Creates the view anew (its table is unchanged) and initializes it by chunks.
+     */
+    private void initView(int chunkSize) throws Exception {
+        Grain g = celesta().getScore().getGrain("mView");
+        MaterializedView mv = g.getElement("mView8", MaterializedView.class);
+        assertTrue(MaterializedViewInitializer.isApplicable(mv));
+
+        try (Connection conn = celesta().getConnectionPool().get()) {
+            celesta().getDBAdaptor().dropTable(conn, mv);
+        }
+
+        DbUpdaterImpl dbUpdater = new DbUpdaterBuilder()
+                .dbAdaptor(celesta().getDBAdaptor())
+                .connectionPool(celesta().getConnectionPool())
+                .score(celesta().getScore())
+                .mvInitChunkSize(chunkSize)
+                .mvInitThreads(2)
+                .setCelesta(celesta())
+                .build();
+        try (CallContext context = dbUpdater.createContext()) {
+            dbUpdater.initDataAccessors(context);
+            SchemaSnapshot snapshot = celesta().getDBAdaptor().getSchemaSnapshot(context.getConn(), g);
+            dbUpdater.updateMaterializedView(mv, snapshot, false);
+            context.commit();
+        }
+    }
+
+}
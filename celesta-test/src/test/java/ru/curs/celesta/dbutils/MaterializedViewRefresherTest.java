@@ -0,0 +1,131 @@
+package ru.curs.celesta.dbutils;
+
+import mView.MView7Cursor;
+import mView.Table6Cursor;
+import org.junit.jupiter.api.Test;
+import ru.curs.celesta.AbstractCelestaTest;
+import ru.curs.celesta.CallContext;
+import ru.curs.celesta.SystemCallContext;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MaterializedViewRefresherTest extends AbstractCelestaTest {
+
+    MaterializedViewRefresherTest() {
+        super(property("mv.refresh.interval", "0"));
+    }
+
+    @Override
+    protected String scorePath() {
+        return "score";
+    }
+
+    @Test
+    void committedChangesAreRefreshed() {
+        Timestamp date = Timestamp.valueOf(LocalDate.of(2000, 8, 5).atStartOfDay());
+        assertTrue(celesta().getMaterializedViewRefresher().getViews().stream()
+                .anyMatch(mv -> "mView7".equals(mv.getName())));
+
+        Date changed;
+        try (CallContext cc = new SystemCallContext(celesta(), "mvRefresherTest")) {
+            Table6Cursor t = new Table6Cursor(cc);
+            t.setVar("A");
+            t.setDate(date);
+            t.setNumb(5);
+            t.insert();
+            cc.commit();
+
+            MView7Cursor mv = new MView7Cursor(cc);
+            changed = mv.getStaleSince();
+            assertNotNull(changed);
+            assertFalse(mv.tryGet("A", date));
+        }
+
+        celesta().getMaterializedViewRefresher().refresh();
+
+        try (CallContext cc = new SystemCallContext(celesta(), "mvRefresherTest")) {
+            Table6Cursor t = new Table6Cursor(cc);
+            t.setVar("A");
+            t.setDate(date);
+            t.setNumb(2);
+            t.insert();
+            cc.commit();
+
+            MView7Cursor mv = new MView7Cursor(cc);
+            // the view reflects the changes made before the last refresh
+            assertFalse(mv.getStaleSince().before(changed));
+            mv.get("A", date);
+            assertEquals(5, mv.getS().intValue());
+        }
+
+        celesta().getMaterializedViewRefresher().refresh();
+
+        try (CallContext cc = new SystemCallContext(celesta(), "mvRefresherTest")) {
+            MView7Cursor mv = new MView7Cursor(cc);
+            assertNull(mv.getStaleSince());
+            mv.get("A", date);
+            assertEquals(7, mv.getS().intValue());
+            assertEquals(2, mv.getC().intValue());
+        }
+    }
+
+    @Test
+    void pendingGroupIsAppendedOnce() throws Exception {
+        Timestamp date = Timestamp.valueOf(LocalDate.of(2001, 1, 1).atStartOfDay());
+
+        try (CallContext cc = new SystemCallContext(celesta(), "mvRefresherTest")) {
+            Table6Cursor t = new Table6Cursor(cc);
+            for (int i = 1; i <= 3; i++) {
+                t.clear();
+                t.setVar("B");
+                t.setDate(date);
+                t.setNumb(i);
+                t.insert();
+            }
+            t.setNumb(10);
+            t.update();
+            cc.commit();
+        }
+        assertEquals(1, countPendingKeys("B"));
+
+        celesta().getMaterializedViewRefresher().refresh();
+        assertEquals(0, countPendingKeys("B"));
+
+        try (CallContext cc = new SystemCallContext(celesta(), "mvRefresherTest")) {
+            Table6Cursor t = new Table6Cursor(cc);
+            t.setVar("B");
+            t.setDate(date);
+            t.setNumb(4);
+            t.insert();
+            cc.commit();
+
+            MView7Cursor mv = new MView7Cursor(cc);
+            mv.get("B", date);
+            assertEquals(13, mv.getS().intValue());
+            assertEquals(3, mv.getC().intValue());
+        }
+        // the group is appended again after the refresh
+        assertEquals(1, countPendingKeys("B"));
+    }
+
+    private int countPendingKeys(String var) throws SQLException {
+        try (Connection conn = celesta().getConnectionPool().get();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT COUNT(*) FROM \"mView\".\"mView7_delta\" WHERE \"var\" = ?")) {
+            stmt.setString(1, var);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+}
@@ -3,6 +3,7 @@ package ru.curs.celesta.dbutils;
 
 import java.sql.Connection;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -12,6 +13,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
 
 import ru.curs.celesta.dbutils.filter.*;
+import ru.curs.celesta.dbutils.stmt.ParameterSetter;
 import ru.curs.celesta.dbutils.term.WhereMakerParamsProvider;
 import ru.curs.celesta.dbutils.term.WhereTermsMaker;
 import ru.curs.celesta.score.*;
@@ -426,4 +428,30 @@ public class NavigationQueriesMakerTest {
         assertEquals("((not (\"A\" is null)) or (\"B\" < ?) or (\"B\" is null))", c.getWhereTerm('>').getWhere());
         assertEquals("((\"A\" is null) and (\"B\" = ?))", c.getWhereTerm('=').getWhere());
     }
+    @Test
+    public void testRange() {
+        CortegeSupportedParams p = new CortegeSupportedParams(a("A", "B"), a(false, false), a(false, false));
+        WhereTermsMaker c = new WhereTermsMaker(p);
+        Object[] from = {1, 2};
+        Object[] to = {3, 4};
+
+        assertEquals(
+                "((((\"A\" = ?) and (\"B\" = ?)) or (\"A\", \"B\") > (?, ?)) and (\"A\", \"B\") < (?, ?))",
+                c.getRangeWhereTerm(from, to).getWhere());
+        assertEquals("(\"A\", \"B\") < (?, ?)", c.getRangeWhereTerm(null, to).getWhere());
+        assertEquals(
+                "(((\"A\" = ?) and (\"B\" = ?)) or (\"A\", \"B\") > (?, ?))",
+                c.getRangeWhereTerm(from, null).getWhere());
+
+        List<ParameterSetter> program = new ArrayList<>();
+        c.getRangeWhereTerm(from, to).programParams(program, p.dba());
+        assertEquals(6, program.size());
+
+        //Has nullable columns in order by fields.
+        Params np = new Params(a("A", "B"), a(false, false), a(true, false));
+        c = new WhereTermsMaker(np);
+        assertEquals(
+                "((((\"A\" is null) and (\"B\" = ?)) or (not (\"A\" is null)) or (\"B\" > ?)) and ((\"A\" <= ?) or (\"A\" is null)) and ((\"A\" < ?) or (\"A\" is null) or (\"B\" < ?)))",
+                c.getRangeWhereTerm(new Object[] {null, 2}, to).getWhere());
+    }
 }
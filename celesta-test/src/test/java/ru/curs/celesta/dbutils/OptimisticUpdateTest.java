@@ -0,0 +1,93 @@
+package ru.curs.celesta.dbutils;
+
+import org.junit.jupiter.api.Test;
+import ru.curs.celesta.AbstractCelestaTest;
+import ru.curs.celesta.CallContext;
+import ru.curs.celesta.CelestaException;
+import ru.curs.celesta.SystemCallContext;
+import simpleCases.Simple_tableCursor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OptimisticUpdateTest extends AbstractCelestaTest {
+
+    @Override
+    protected String scorePath() {
+        return "score";
+    }
+
+    @Test
+    void assignedFieldsAreUpdated() {
+        try (CallContext cc = new SystemCallContext(celesta(), "optimisticUpdateTest")) {
+            Simple_tableCursor t = new Simple_tableCursor(cc);
+            t.setName("first");
+            t.setText_field("text");
+            t.insert();
+
+            t.setName("second");
+            assertTrue(t.tryUpdate());
+            assertEquals(2, t.getRecversion());
+
+            // the same value: nothing is updated
+            t.setName("second");
+            assertTrue(t.tryUpdate());
+            assertEquals(2, t.getRecversion());
+
+            Simple_tableCursor t2 = new Simple_tableCursor(cc);
+            t2.get(t.getId());
+            assertEquals("second", t2.getName());
+            assertEquals("text", t2.getText_field());
+            assertEquals(2, t2.getRecversion());
+
+            // the buffer copied as a whole is compared with the record
+            Simple_tableCursor t3 = new Simple_tableCursor(cc);
+            t3.get(t.getId());
+            t2.setName("third");
+            t3.copyFieldsFrom(t2);
+            t3.update();
+            t.get(t.getId());
+            assertEquals("third", t.getName());
+            assertEquals(3, t.getRecversion());
+        }
+    }
+
+    @Test
+    void recordModifiedSinceReadIsNotUpdated() {
+        try (CallContext cc = new SystemCallContext(celesta(), "optimisticUpdateTest")) {
+            Simple_tableCursor t = new Simple_tableCursor(cc);
+            t.setName("first");
+            t.insert();
+
+            Simple_tableCursor t2 = new Simple_tableCursor(cc);
+            t2.get(t.getId());
+            t2.setName("second");
+            t2.update();
+
+            t.setName("third");
+            CelestaException e = assertThrows(CelestaException.class, t::update);
+            assertTrue(e.getMessage().contains("this record has been already modified by someone"));
+        }
+    }
+
+    @Test
+    void recordDeletedSinceReadIsNotUpdated() {
+        try (CallContext cc = new SystemCallContext(celesta(), "optimisticUpdateTest")) {
+            Simple_tableCursor t = new Simple_tableCursor(cc);
+            t.setName("first");
+            t.insert();
+
+            Simple_tableCursor t2 = new Simple_tableCursor(cc);
+            t2.get(t.getId());
+            t2.delete();
+
+            // nothing is changed, but the record doesn't exist either
+            t.setName("first");
+            assertFalse(t.tryUpdate());
+
+            t.setName("second");
+            assertFalse(t.tryUpdate());
+            assertFalse(t2.tryGet(t.getId()));
+        }
+    }
+
+}
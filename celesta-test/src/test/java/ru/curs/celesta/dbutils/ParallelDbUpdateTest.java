@@ -0,0 +1,230 @@
+package ru.curs.celesta.dbutils;
+
+import org.junit.jupiter.api.Test;
+import ru.curs.celesta.AbstractCelestaTest;
+import ru.curs.celesta.CallContext;
+import ru.curs.celesta.CelestaException;
+import ru.curs.celesta.ConnectionPool;
+import ru.curs.celesta.ConnectionPoolConfiguration;
+import ru.curs.celesta.ICelesta;
+import ru.curs.celesta.SystemCallContext;
+import ru.curs.celesta.dbutils.adaptors.DBAdaptor;
+import ru.curs.celesta.dbutils.adaptors.H2Adaptor;
+import ru.curs.celesta.dbutils.adaptors.ddl.JdbcDdlConsumer;
+import ru.curs.celesta.score.AbstractScore;
+import ru.curs.celesta.score.Grain;
+import ru.curs.celesta.score.Score;
+import ru.curs.celesta.score.discovery.ScoreByScorePathDiscovery;
+import ru.curs.celesta.syscursors.GrainsCursor;
+import ru.curs.celesta.syscursors.ISchemaCursor;
+import ru.curs.celesta.test.mock.CelestaImpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelDbUpdateTest extends AbstractCelestaTest {
+
+    ParallelDbUpdateTest() {
+        super(property("dbupdate.threads", "4"));
+    }
+
+    @Override
+    protected String scorePath() {
+        return "score";
+    }
+
+    @Test
+    void allGrainsAreUpdated() {
+        Set<String> grainNames = new HashSet<>();
+        try (CallContext cc = new SystemCallContext(celesta(), "parallelDbUpdateTest")) {
+            GrainsCursor grains = new GrainsCursor(cc);
+            while (grains.nextInSet()) {
+                assertEquals(ISchemaCursor.READY, grains.getState().intValue(), grains.getMessage());
+                grainNames.add(grains.getId());
+            }
+        }
+        assertEquals(celesta().getScore().getGrains().keySet(), grainNames);
+    }
+
+    @Test
+    void referencedGrainsAreFoundByViews() throws Exception {
+        Grain simpleCases = celesta().getScore().getGrain("simpleCases");
+        assertEquals(Collections.singleton("testTable"), DbUpdater.getReferencedGrains(simpleCases));
+
+        Grain mView = celesta().getScore().getGrain("mView");
+        assertTrue(DbUpdater.getReferencedGrains(mView).isEmpty());
+    }
+
+    @Test
+    void grainsAreUpdatedConcurrentlyAfterReferencedOnes() throws Exception {
+        String scorePath = getClass().getResource("parallel_db_updater_test").getPath();
+        ConnectionPoolConfiguration cpc = new ConnectionPoolConfiguration();
+        cpc.setJdbcConnectionUrl("jdbc:h2:mem:parallelDbUpdateTest;DB_CLOSE_DELAY=-1");
+        cpc.setDriverClassName("org.h2.Driver");
+        cpc.setLogin("");
+        cpc.setPassword("");
+        ConnectionPool connectionPool = ConnectionPool.create(cpc);
+        try {
+            DBAdaptor dba = new H2Adaptor(connectionPool, new JdbcDdlConsumer(), false);
+            Score score = new AbstractScore.ScoreBuilder<>(Score.class)
+                    .scoreDiscovery(new ScoreByScorePathDiscovery(scorePath))
+                    .build();
+            CelestaImpl celesta = new CelestaImpl(dba, connectionPool, score);
+
+            // alpha is referenced by beta, delta fails
+            RecordingDbUpdater dbUpdater = new RecordingDbUpdater(celesta, "delta");
+            dbUpdater.setThreads(4);
+            CelestaException e = assertThrows(CelestaException.class, dbUpdater::updateDb);
+            assertTrue(e.getMessage().startsWith("Not all grains were updated successfully"), e.getMessage());
+
+            List<String> events = dbUpdater.events;
+            assertTrue(events.indexOf("finish alpha") < events.indexOf("start beta"), events.toString());
+            assertTrue(dbUpdater.updatedConcurrently.get(), events.toString());
+            assertFalse(events.contains("finish delta"), events.toString());
+
+            Map<String, Integer> states = getStates(celesta);
+            assertEquals(ISchemaCursor.READY, states.get("alpha").intValue());
+            assertEquals(ISchemaCursor.READY, states.get("beta").intValue());
+            assertEquals(ISchemaCursor.READY, states.get("gamma").intValue());
+            assertEquals(ISchemaCursor.ERROR, states.get("delta").intValue());
+
+            try (CallContext cc = new SystemCallContext(celesta)) {
+                GrainsCursor grains = new GrainsCursor(cc);
+                grains.get("delta");
+                assertTrue(grains.getMessage().endsWith(RecordingDbUpdater.FAILURE_MESSAGE), grains.getMessage());
+                grains.setState(ISchemaCursor.RECOVER);
+                grains.update();
+                // a locked grain is not updated even if it is changed
+                grains.get("alpha");
+                grains.setState(ISchemaCursor.LOCK);
+                grains.setChecksum("00000000");
+                grains.update();
+            }
+
+            dbUpdater = new RecordingDbUpdater(celesta, null);
+            dbUpdater.setThreads(4);
+            dbUpdater.updateDb();
+            assertEquals(Collections.singletonList("start delta"), dbUpdater.getStarted());
+
+            states = getStates(celesta);
+            assertEquals(ISchemaCursor.LOCK, states.get("alpha").intValue());
+            assertEquals(ISchemaCursor.READY, states.get("delta").intValue());
+        } finally {
+            connectionPool.get().createStatement().execute("SHUTDOWN");
+            connectionPool.close();
+        }
+    }
+
+    private static Map<String, Integer> getStates(ICelesta celesta) {
+        Map<String, Integer> result = new HashMap<>();
+        try (CallContext cc = new SystemCallContext(celesta)) {
+            GrainsCursor grains = new GrainsCursor(cc);
+            while (grains.nextInSet()) {
+                result.put(grains.getId(), grains.getState());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Updater that reports support of concurrent DDL and records the starts and the finishes of the grain updates.
+     */
+    private static final class RecordingDbUpdater extends DbUpdater<CallContext> {
+
+        static final String FAILURE_MESSAGE = "grain update failure";
+
+        private final ICelesta celesta;
+        private final String failingGrain;
+        private final List<String> events;
+        private final CountDownLatch gammaStarted;
+        private final AtomicBoolean updatedConcurrently;
+
+        RecordingDbUpdater(ICelesta celesta, String failingGrain) {
+            this(celesta, failingGrain, Collections.synchronizedList(new ArrayList<>()), new CountDownLatch(1),
+                    new AtomicBoolean());
+        }
+
+        private RecordingDbUpdater(ICelesta celesta, String failingGrain, List<String> events,
+                                   CountDownLatch gammaStarted, AtomicBoolean updatedConcurrently) {
+            super(celesta.getConnectionPool(), celesta.getScore(), false, celesta.getDBAdaptor());
+            this.celesta = celesta;
+            this.failingGrain = failingGrain;
+            this.events = events;
+            this.gammaStarted = gammaStarted;
+            this.updatedConcurrently = updatedConcurrently;
+        }
+
+        List<String> getStarted() {
+            List<String> result = new ArrayList<>();
+            for (String event : events) {
+                if (event.startsWith("start ")) {
+                    result.add(event);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        boolean supportsConcurrentUpdate() {
+            return true;
+        }
+
+        @Override
+        protected CallContext createContext() {
+            return new SystemCallContext(celesta);
+        }
+
+        @Override
+        protected RecordingDbUpdater createWorker() {
+            return new RecordingDbUpdater(celesta, failingGrain, events, gammaStarted, updatedConcurrently);
+        }
+
+        @Override
+        protected void initDataAccessors(CallContext context) {
+            schemaCursor = new GrainsCursor(context);
+        }
+
+        @Override
+        protected String getSchemasTableName() {
+            return GrainsCursor.TABLE_NAME;
+        }
+
+        @Override
+        protected void beforeGrainUpdating(Grain g) {
+            events.add("start " + g.getName());
+            if ("gamma".equals(g.getName())) {
+                gammaStarted.countDown();
+            } else if ("alpha".equals(g.getName())) {
+                // the grains that don't reference each other are updated at the same time
+                try {
+                    updatedConcurrently.set(gammaStarted.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (g.getName().equals(failingGrain)) {
+                throw new CelestaException(FAILURE_MESSAGE);
+            }
+        }
+
+        @Override
+        protected void afterGrainUpdating(Grain g) {
+            events.add("finish " + g.getName());
+        }
+
+        @Override
+        protected void processGrainMeta(Grain g) {
+        }
+    }
+
+}
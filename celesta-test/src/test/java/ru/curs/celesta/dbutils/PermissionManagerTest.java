@@ -0,0 +1,88 @@
+package ru.curs.celesta.dbutils;
+
+import org.junit.jupiter.api.Test;
+import ru.curs.celesta.AbstractCelestaTest;
+import ru.curs.celesta.CallContext;
+import ru.curs.celesta.syscursors.PermissionsCursor;
+import ru.curs.celesta.syscursors.RolesCursor;
+import ru.curs.celesta.syscursors.UserrolesCursor;
+import simpleCases.Simple_tableCursor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PermissionManagerTest extends AbstractCelestaTest {
+
+    private static final String USER_ID = "permissionsTestUser";
+
+    @Override
+    protected String scorePath() {
+        return "score";
+    }
+
+    @Test
+    void permissionsAreInvalidatedOnSystemTablesModification() {
+        RolesCursor roles = new RolesCursor(cc());
+        roles.setId("testrole");
+        roles.insert();
+        UserrolesCursor userRoles = new UserrolesCursor(cc());
+        userRoles.setUserid(USER_ID);
+        userRoles.setRoleid("testrole");
+        userRoles.insert();
+        PermissionsCursor permissions = new PermissionsCursor(cc());
+        permissions.setRoleid("testrole");
+        permissions.setGrainid("simpleCases");
+        permissions.setTablename("simple_table");
+        permissions.setR(true);
+        permissions.setI(false);
+        permissions.setM(false);
+        permissions.setD(false);
+        permissions.insert();
+        cc().commit();
+
+        try (CallContext userContext = new CallContext(USER_ID, cc().getCelesta(), "permissionsTest")) {
+            Simple_tableCursor t = new Simple_tableCursor(userContext);
+            assertTrue(t.canRead());
+            assertFalse(t.canInsert());
+
+            permissions.setI(true);
+            permissions.update();
+            cc().commit();
+            assertTrue(t.canInsert());
+
+            userRoles.delete();
+            cc().commit();
+            assertFalse(t.canRead());
+            assertFalse(t.canInsert());
+
+            userRoles.setRoleid(IPermissionManager.READER);
+            userRoles.insert();
+            cc().commit();
+            assertTrue(t.canRead());
+            assertFalse(t.canInsert());
+
+            userRoles.delete();
+            permissions.delete();
+            roles.delete();
+            cc().commit();
+        }
+    }
+
+    @Test
+    void expiringCacheIsBounded() {
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(100, 0);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i * 2, cache.get(i, k -> k * 2).intValue());
+            // the first key is used all the time, so it is never evicted
+            assertEquals(0, cache.get(0, k -> -1).intValue());
+        }
+        assertTrue(cache.size() <= 100);
+        assertTrue(cache.getEvictions() >= 900);
+        assertEquals(1000, cache.getMisses());
+
+        cache.invalidateIf(k -> k == 0);
+        assertEquals(-1, cache.get(0, k -> -1).intValue());
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+}
@@ -0,0 +1,54 @@
+package ru.curs.celesta.dbutils;
+
+import org.junit.jupiter.api.Test;
+import ru.curs.celesta.AbstractCelestaTest;
+import ru.curs.celesta.CallContext;
+import ru.curs.celesta.Celesta;
+import ru.curs.celesta.syscursors.CalllogCursor;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProfilingManagerTest extends AbstractCelestaTest {
+
+    @Override
+    protected String scorePath() {
+        return "score";
+    }
+
+    @Test
+    void callsAreAggregatedAndWrittenInBatches() {
+        Celesta celesta = (Celesta) cc().getCelesta();
+        ProfilingManager profiler = (ProfilingManager) celesta.getProfiler();
+        celesta.setProfilemode(true);
+        try {
+            for (int i = 0; i < 5; i++) {
+                new CallContext("profiledUser", celesta, "profiledProc").close();
+            }
+        } finally {
+            celesta.setProfilemode(false);
+        }
+        new CallContext("profiledUser", celesta, "notProfiledProc").close();
+
+        Map<String, CallStatistics> statistics = celesta.getCallStatistics();
+        assertFalse(statistics.containsKey("notProfiledProc"));
+        CallStatistics s = statistics.get("profiledProc");
+        assertEquals(5, s.getCount());
+        assertEquals(5, Arrays.stream(s.getDurationHistogram()).sum());
+        assertTrue(s.getPercentile(50) <= s.getPercentile(99));
+        assertTrue(s.getPercentile(99) <= s.getMaxDuration());
+
+        CalllogCursor calllog = new CalllogCursor(cc());
+        calllog.setRange(calllog.COLUMNS.procname(), "profiledProc");
+        assertEquals(0, calllog.count());
+        profiler.flush();
+        assertEquals(5, calllog.count());
+        assertEquals(0, profiler.getDroppedCount());
+
+        profiler.resetStatistics();
+        assertTrue(celesta.getCallStatistics().isEmpty());
+    }
+
+}
@@ -0,0 +1,92 @@
+package ru.curs.celesta.dbutils;
+
+import org.junit.jupiter.api.Test;
+import ru.curs.celesta.AbstractCelestaTest;
+import ru.curs.celesta.CallContext;
+import ru.curs.celesta.SystemCallContext;
+import simpleCases.Simple_tableCursor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RowCacheTest extends AbstractCelestaTest {
+
+    RowCacheTest() {
+        super(property("row.cache.tables", "simpleCases.simple_table"));
+    }
+
+    @Override
+    protected String scorePath() {
+        return "score";
+    }
+
+    @Test
+    void recordsAreReadFromCacheUntilModified() {
+        int id;
+        try (CallContext cc = new SystemCallContext(celesta(), "rowCacheTest")) {
+            Simple_tableCursor t = new Simple_tableCursor(cc);
+            t.setName("first");
+            t.insert();
+            id = t.getId();
+        }
+
+        try (CallContext cc = new SystemCallContext(celesta(), "rowCacheTest")) {
+            Simple_tableCursor t = new Simple_tableCursor(cc);
+            assertTrue(t.tryGet(id));
+            assertTrue(t.tryGet(id));
+            assertEquals("first", t.getName());
+            assertEquals(1, t.getRecversion());
+            assertFalse(t.tryGet(id + 1));
+        }
+        RowCacheStatistics s = statistics();
+        assertEquals(1, s.getSize());
+        assertEquals(1, s.getHitCount());
+        assertEquals(2, s.getMissCount());
+
+        try (CallContext cc = new SystemCallContext(celesta(), "rowCacheTest")) {
+            Simple_tableCursor t = new Simple_tableCursor(cc);
+            t.get(id);
+            t.setName("second");
+            t.update();
+            assertEquals(0, statistics().getSize());
+
+            // the modifying context reads the table bypassing the cache
+            Simple_tableCursor t2 = new Simple_tableCursor(cc);
+            t2.get(id);
+            assertEquals("second", t2.getName());
+            assertEquals(0, statistics().getSize());
+        }
+
+        try (CallContext cc = new SystemCallContext(celesta(), "rowCacheTest")) {
+            Simple_tableCursor t = new Simple_tableCursor(cc);
+            t.get(id);
+            assertEquals("second", t.getName());
+            assertEquals(2, t.getRecversion());
+            t.get(id);
+            t.delete();
+            assertFalse(t.tryGet(id));
+        }
+        s = statistics();
+        assertEquals(0, s.getSize());
+        assertEquals(3, s.getHitCount());
+    }
+
+    @Test
+    void recordsExpireAfterTtl() throws InterruptedException {
+        RowCache.TableCache cache = new RowCache.TableCache("simpleCases.simple_table", 10, 50);
+        Object[] key = {1};
+        cache.put(cache.getVersion(), key, new Object[] {1, "first"}, 1);
+        assertNotNull(cache.get(key));
+
+        Thread.sleep(100);
+        assertNull(cache.get(key));
+        RowCacheStatistics s = cache.snapshot();
+        assertEquals(0, s.getSize());
+        assertEquals(1, s.getHitCount());
+        assertEquals(1, s.getMissCount());
+    }
+
+    private RowCacheStatistics statistics() {
+        return celesta().getRowCache().getStatistics().get("simpleCases.simple_table");
+    }
+
+}
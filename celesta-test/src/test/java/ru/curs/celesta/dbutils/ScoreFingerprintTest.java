@@ -0,0 +1,63 @@
+package ru.curs.celesta.dbutils;
+
+import org.junit.jupiter.api.Test;
+import ru.curs.celesta.AbstractCelestaTest;
+import ru.curs.celesta.CallContext;
+import ru.curs.celesta.Celesta;
+import ru.curs.celesta.SystemCallContext;
+import ru.curs.celesta.syscursors.GrainsCursor;
+import ru.curs.celesta.syscursors.ScorestateCursor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScoreFingerprintTest extends AbstractCelestaTest {
+
+    @Override
+    protected String scorePath() {
+        return "score";
+    }
+
+    @Test
+    void updateIsSkippedWhileFingerprintMatches() {
+        String fingerprint;
+        String checksum;
+        try (CallContext cc = new SystemCallContext(celesta(), "scoreFingerprintTest")) {
+            ScorestateCursor scoreState = new ScorestateCursor(cc);
+            assertTrue(scoreState.tryFirst());
+            fingerprint = scoreState.getFingerprint();
+            assertEquals(64, fingerprint.length());
+
+            GrainsCursor grains = new GrainsCursor(cc);
+            grains.get("testTable");
+            checksum = grains.getChecksum();
+            grains.setChecksum("00000000");
+            grains.update();
+        }
+
+        // the same score: the grain record is not checked
+        Celesta.createInstance(celesta().getSetupProperties()).close();
+        assertEquals("00000000", getTestTableChecksum());
+
+        try (CallContext cc = new SystemCallContext(celesta(), "scoreFingerprintTest")) {
+            new ScorestateCursor(cc).deleteAll();
+        }
+
+        // no fingerprint: the grain is updated
+        Celesta.createInstance(celesta().getSetupProperties()).close();
+        assertEquals(checksum, getTestTableChecksum());
+        try (CallContext cc = new SystemCallContext(celesta(), "scoreFingerprintTest")) {
+            ScorestateCursor scoreState = new ScorestateCursor(cc);
+            assertTrue(scoreState.tryFirst());
+            assertEquals(fingerprint, scoreState.getFingerprint());
+        }
+    }
+
+    private String getTestTableChecksum() {
+        try (CallContext cc = new SystemCallContext(celesta(), "scoreFingerprintTest")) {
+            GrainsCursor grains = new GrainsCursor(cc);
+            grains.get("testTable");
+            return grains.getChecksum();
+        }
+    }
+
+}
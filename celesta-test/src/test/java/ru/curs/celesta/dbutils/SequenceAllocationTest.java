@@ -0,0 +1,102 @@
+package ru.curs.celesta.dbutils;
+
+import org.junit.jupiter.api.Test;
+import ru.curs.celesta.AbstractCelestaTest;
+import ru.curs.celesta.CallContext;
+import ru.curs.celesta.SystemCallContext;
+import sequences.S1Sequence;
+import sequences.S3Sequence;
+import sequences.T1Cursor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SequenceAllocationTest extends AbstractCelestaTest {
+
+    SequenceAllocationTest() {
+        super(property("sequence.allocation.size", "10"));
+    }
+
+    @Override
+    protected String scorePath() {
+        return "score";
+    }
+
+    @Test
+    void valuesAreHandedOutFromReservedBlocks() throws Exception {
+        try (CallContext cc = new SystemCallContext(celesta(), "sequenceAllocationTest")) {
+            // INCREMENT BY 2: each call to the DB reserves two values
+            S3Sequence s3 = new S3Sequence(cc);
+            assertEquals(1L, s3.nextValue());
+            assertEquals(2L, s3.nextValue());
+            assertEquals(3L, s3.nextValue());
+            assertEquals(4L, s3.nextValue());
+            // the value got from the DB directly reserves no block
+            assertEquals(5L, celesta().getDBAdaptor().nextSequenceValue(cc.getConn(), s3.meta()));
+            assertEquals(7L, s3.nextValue());
+            assertEquals(8L, s3.nextValue());
+            assertEquals(9L, s3.nextValue());
+
+            // INCREMENT BY 1: values are not reserved
+            S1Sequence s1 = new S1Sequence(cc);
+            assertEquals(1L, s1.nextValue());
+            assertEquals(2L, celesta().getDBAdaptor().nextSequenceValue(cc.getConn(), s1.meta()));
+            assertEquals(3L, s1.nextValue());
+        }
+
+        // concurrent calls get distinct values
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    List<Long> values = new ArrayList<>();
+                    try (CallContext cc = new SystemCallContext(celesta(), "sequenceAllocationTest")) {
+                        S3Sequence s3 = new S3Sequence(cc);
+                        for (int i = 0; i < 100; i++) {
+                            values.add(s3.nextValue());
+                        }
+                    }
+                    return values;
+                }));
+            }
+            Set<Long> all = new HashSet<>();
+            for (Future<List<Long>> f : futures) {
+                all.addAll(f.get());
+            }
+            assertEquals(400, all.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void insertsGetReservedValues() {
+        try (CallContext cc = new SystemCallContext(celesta(), "sequenceAllocationTest")) {
+            T1Cursor t1 = new T1Cursor(cc);
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                t1.clear();
+                t1.insert();
+                ids.add(t1.getId());
+            }
+            // START WITH 4 INCREMENT BY 2
+            assertEquals(Arrays.asList(4, 5, 6, 7), ids);
+
+            t1.clear();
+            t1.setId(100);
+            t1.insert();
+            assertEquals(100, t1.getId().intValue());
+            assertEquals(5, t1.count());
+        }
+    }
+
+}
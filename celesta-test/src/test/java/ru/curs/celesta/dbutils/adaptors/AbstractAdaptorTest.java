@@ -1087,6 +1087,26 @@ public abstract class AbstractAdaptorTest {
         assertFalse(c.isEmpty());
     }
 
+    @Test
+    public void getSchemaSnapshot() {
+        SchemaSnapshot snapshot = dba.getSchemaSnapshot(conn, t.getGrain());
+
+        assertTrue(snapshot.tableExists(t.getName()));
+        assertFalse(snapshot.tableExists("nonExistentTable"));
+        assertEquals(dba.getColumns(conn, t), snapshot.getColumns(t.getName()));
+        for (Column<?> c : t.getColumns().values()) {
+            assertTrue(snapshot.getColumnInfo(c).reflects(c), c.getName());
+        }
+
+        DbPkInfo pkInfo = snapshot.getPKInfo(t.getName());
+        assertEquals(dba.pkConstraintString(t), pkInfo.getName());
+        assertEquals(Collections.singletonList("id"), pkInfo.getColumnNames());
+        assertTrue(pkInfo.reflects(t));
+
+        assertTrue(snapshot.sequenceExists("test_id"));
+        assertEquals(dba.getIndices(conn, t.getGrain()).keySet(), snapshot.getIndices().keySet());
+    }
+
     @Test
     public void getFKInfo() throws ParseException, SQLException {
         dba.dropTable(conn, t);
@@ -102,6 +102,8 @@ public class CallContextProvider implements TestTemplateInvocationContextProvide
                 } catch (SQLException ex) {
                     LOGGER.error("Error during DB shutdown", ex);
                 }
+                // stops the background refresh of the materialized views as well
+                c.close();
                 return null;
             });
 
@@ -5,6 +5,8 @@ import org.junit.jupiter.api.TestTemplate;
 import ru.curs.celesta.CallContext;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import java.sql.Timestamp;
 import java.math.BigDecimal;
@@ -138,6 +140,120 @@ public class TestMaterializedView implements ScriptTest {
         assertEquals(5, mViewCursor.getS().intValue());
     }
 
+    @TestTemplate
+    void test_mat_view_deferred_refresh(CallContext context) {
+        Table6Cursor tableCursor = new Table6Cursor(context);
+        MView7Cursor mViewCursor = new MView7Cursor(context);
+        assertNull(mViewCursor.getStaleSince());
+
+        LocalDateTime datetime = LocalDateTime.of(2000, Month.AUGUST, 5, 10, 5, 32);
+        Timestamp date = Timestamp.valueOf(datetime.truncatedTo(ChronoUnit.DAYS));
+
+        tableCursor.setVar("A");
+        tableCursor.setDate(Timestamp.valueOf(datetime));
+        tableCursor.setNumb(5);
+        tableCursor.insert();
+        tableCursor.setId(null);
+        tableCursor.setDate(Timestamp.valueOf(datetime.plusHours(3)));
+        tableCursor.setNumb(2);
+        tableCursor.insert();
+        tableCursor.setId(null);
+        tableCursor.setVar("B");
+        tableCursor.setNumb(1);
+        tableCursor.insert();
+        int idOfB = tableCursor.getId();
+
+        // the view is not changed until it's refreshed
+        assertEquals(0, mViewCursor.count());
+        assertNotNull(mViewCursor.getStaleSince());
+
+        context.getDbAdaptor().refreshMaterializedView(context.getConn(), mViewCursor.meta());
+        assertNull(mViewCursor.getStaleSince());
+        assertEquals(2, mViewCursor.count());
+        mViewCursor.get("A", date);
+        assertEquals(7, mViewCursor.getS().intValue());
+        assertEquals(2, mViewCursor.getC().intValue());
+        mViewCursor.get("B", date);
+        assertEquals(1, mViewCursor.getS().intValue());
+
+        tableCursor.get(idOfB);
+        tableCursor.setVar("A");
+        tableCursor.update();
+        tableCursor.setRange("numb", 5);
+        tableCursor.first();
+        tableCursor.delete();
+
+        assertEquals(2, mViewCursor.count());
+        assertNotNull(mViewCursor.getStaleSince());
+
+        context.getDbAdaptor().refreshMaterializedView(context.getConn(), mViewCursor.meta());
+        assertNull(mViewCursor.getStaleSince());
+        assertEquals(1, mViewCursor.count());
+        mViewCursor.get("A", date);
+        assertEquals(3, mViewCursor.getS().intValue());
+        assertEquals(2, mViewCursor.getC().intValue());
+    }
+
+    @TestTemplate
+    void test_mat_view_min_max(CallContext context) {
+        Table7Cursor tableCursor = new Table7Cursor(context);
+        MView8Cursor mViewCursor = new MView8Cursor(context);
+
+        tableCursor.setVar("A");
+        tableCursor.setNumb(5);
+        tableCursor.insert();
+        int idOf5 = tableCursor.getId();
+        tableCursor.setId(null);
+        tableCursor.setNumb(2);
+        tableCursor.insert();
+        int idOf2 = tableCursor.getId();
+        tableCursor.setId(null);
+        tableCursor.setNumb(null);
+        tableCursor.insert();
+        tableCursor.setId(null);
+        tableCursor.setNumb(9);
+        tableCursor.insert();
+        int idOf9 = tableCursor.getId();
+
+        mViewCursor.get("A");
+        assertEquals(2, mViewCursor.getMinNumb().intValue());
+        assertEquals(9, mViewCursor.getMaxNumb().intValue());
+        assertEquals(4, mViewCursor.getC().intValue());
+
+        // the removed maximum is recomputed from the rest of the group
+        tableCursor.get(idOf9);
+        tableCursor.delete();
+        mViewCursor.get("A");
+        assertEquals(2, mViewCursor.getMinNumb().intValue());
+        assertEquals(5, mViewCursor.getMaxNumb().intValue());
+
+        // the updated minimum moves away from the group
+        tableCursor.get(idOf2);
+        tableCursor.setNumb(7);
+        tableCursor.update();
+        mViewCursor.get("A");
+        assertEquals(5, mViewCursor.getMinNumb().intValue());
+        assertEquals(7, mViewCursor.getMaxNumb().intValue());
+
+        tableCursor.get(idOf5);
+        tableCursor.setVar("B");
+        tableCursor.update();
+        mViewCursor.get("A");
+        assertEquals(7, mViewCursor.getMinNumb().intValue());
+        assertEquals(7, mViewCursor.getMaxNumb().intValue());
+        assertEquals(2, mViewCursor.getC().intValue());
+        mViewCursor.get("B");
+        assertEquals(5, mViewCursor.getMinNumb().intValue());
+        assertEquals(5, mViewCursor.getMaxNumb().intValue());
+
+        tableCursor.get(idOf2);
+        tableCursor.delete();
+        mViewCursor.get("A");
+        assertNull(mViewCursor.getMinNumb());
+        assertNull(mViewCursor.getMaxNumb());
+        assertEquals(1, mViewCursor.getC().intValue());
+    }
+
     @TestTemplate
     void test_mat_view_date_rounding(CallContext context) {
         Table3Cursor tableCursor = new Table3Cursor(context);
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.TestTemplate;
 import ru.curs.celesta.CallContext;
 import ru.curs.celesta.CelestaException;
 import ru.curs.celesta.DBType;
+import ru.curs.celesta.dbutils.BatchException;
 import testTable.*;
 
 import java.io.*;
@@ -16,6 +17,7 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static junit.framework.TestCase.assertNotNull;
 import static org.junit.jupiter.api.Assertions.*;
@@ -245,6 +247,91 @@ public class TestTable implements ScriptTest {
         }
     }
 
+    @TestTemplate
+    public void test_tryInsert(CallContext cc) {
+        TXRecCursor cursor = new TXRecCursor(cc);
+        cursor.deleteAll();
+
+        cursor.setNum(10);
+        assertTrue(cursor.tryInsert());
+        // sequence-generated key and record version are read back with the insert
+        int id = cursor.getId();
+        assertEquals(1, cursor.getRecversion());
+        assertEquals(10, cursor.getXRec().getValue("num"));
+
+        TXRecCursor duplicate = new TXRecCursor(cc);
+        duplicate.setId(id);
+        duplicate.setNum(20);
+        assertFalse(duplicate.tryInsert());
+        assertEquals(10, duplicate.getXRec().getValue("num"));
+        assertEquals(1, duplicate.getRecversion());
+        assertThrows(CelestaException.class, duplicate::insert);
+
+        cursor.clear();
+        cursor.get(id);
+        assertEquals(10, cursor.getNum().intValue());
+        assertEquals(1, cursor.count());
+    }
+
+    @TestTemplate
+    public void test_batch(CallContext cc) {
+        TXRecCursor cursor = new TXRecCursor(cc);
+        cursor.deleteAll();
+        AtomicInteger postInserts = new AtomicInteger();
+        TXRecCursor.onPostInsert(cc.getCelesta(), c -> postInserts.incrementAndGet());
+
+        cursor.beginBatch(3);
+        for (int i = 1; i <= 10; i++) {
+            cursor.clear();
+            cursor.setId(i);
+            cursor.setNum(i);
+            cursor.insert();
+        }
+        // three full batches have been sent, the last record is pending
+        assertEquals(9, cursor.count());
+        assertEquals(9, postInserts.get());
+        assertEquals(10, cursor.getNum().intValue());
+        cursor.endBatch();
+        assertFalse(cursor.isInBatch());
+        assertEquals(10, cursor.count());
+        assertEquals(10, postInserts.get());
+
+        cursor.orderBy("id");
+        cursor.beginBatch(4);
+        for (TXRecCursor c : cursor) {
+            c.setNum(c.getNum() * 10);
+            c.setTitle(c.getId() % 2 == 0 ? "even" : null);
+            c.update();
+        }
+        cursor.endBatch();
+        int sum = 0;
+        for (TXRecCursor c : cursor) {
+            sum += c.getNum();
+            assertEquals(2, c.getRecversion());
+            assertEquals(c.getId() % 2 == 0 ? "even" : null, c.getTitle());
+        }
+        assertEquals(550, sum);
+
+        cursor.setRange("title", "even");
+        cursor.beginBatch();
+        for (TXRecCursor c : cursor) {
+            c.delete();
+        }
+        cursor.endBatch();
+        assertEquals(0, cursor.count());
+        cursor.setRange("title");
+        assertEquals(5, cursor.count());
+
+        cursor.clear();
+        cursor.beginBatch();
+        cursor.setId(1);
+        cursor.insert();
+        cursor.setId(100);
+        cursor.insert();
+        BatchException e = assertThrows(BatchException.class, cursor::endBatch);
+        assertArrayEquals(new Object[]{1}, e.getFailedKeyValues().get(0));
+    }
+
     @TestTemplate
     public void test_datetime_with_time_zone(CallContext cc) {
         TimeZone oldDefaultTimeZone = TimeZone.getDefault();
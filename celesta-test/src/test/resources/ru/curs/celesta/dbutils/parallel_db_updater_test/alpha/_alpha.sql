@@ -0,0 +1,5 @@
+create schema alpha version '1.0';
+
+create table a (
+  id int not null primary key
+);
@@ -0,0 +1,6 @@
+create schema beta version '1.0';
+
+create table b (
+  id int not null primary key,
+  aId int foreign key references alpha.a(id)
+);
@@ -0,0 +1,5 @@
+create schema delta version '1.0';
+
+create table d (
+  id int not null primary key
+);
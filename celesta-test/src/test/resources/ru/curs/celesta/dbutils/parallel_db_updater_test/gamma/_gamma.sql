@@ -0,0 +1,5 @@
+create schema gamma version '1.0';
+
+create table c (
+  id int not null primary key
+);